@@ -26,6 +26,7 @@
 package java.util;
 
 import java.util.function.Consumer;
+import java.util.function.IntObjConsumer;
 import java.util.function.Predicate;
 import java.util.function.UnaryOperator;
 import jdk.internal.misc.SharedSecrets;
@@ -1878,6 +1879,185 @@ public class ArrayList<E> extends AbstractList<E>
             throw new ConcurrentModificationException();
     }
 
+    /**
+     * Performs the given action for each element of this list, in order,
+     * passing the index of the element along with it.  This is the
+     * equivalent of
+     * <pre> {@code
+     * for (int i = 0; i < list.size(); i++)
+     *     action.accept(i, list.get(i));}</pre>
+     * but reads the backing array directly, without checking each index
+     * or allocating an iterator.
+     *
+     * @param action the action to be performed for each element
+     * @throws NullPointerException if the specified action is null
+     * @throws ConcurrentModificationException if the list is found to
+     *         have been structurally modified during the operation
+     * @since 11
+     */
+    public void forEachIndexed(IntObjConsumer<? super E> action) {
+        Objects.requireNonNull(action);
+        final int expectedModCount = modCount;
+        final Object[] es = elementData;
+        final int size = this.size;
+        for (int i = 0; modCount == expectedModCount && i < size; i++)
+            action.accept(i, elementAt(es, i));
+        if (modCount != expectedModCount)
+            throw new ConcurrentModificationException();
+    }
+
+    /**
+     * Removes from this list the elements whose index is between
+     * {@code fromIndex}, inclusive, and {@code toIndex}, exclusive, and
+     * stores them, in order, in the specified array starting at index 0.
+     * Shifts any succeeding elements to the left (reduces their index).
+     * This is the equivalent of
+     * <pre> {@code
+     * List<E> range = list.subList(fromIndex, toIndex);
+     * range.toArray(dst);
+     * range.clear();}</pre>
+     * with two array copies in all and nothing else allocated.  The array
+     * is not modified beyond index {@code toIndex - fromIndex - 1}.
+     *
+     * @param dst the array into which the elements are to be stored
+     * @param fromIndex index of the first element to be removed
+     * @param toIndex index after the last element to be removed
+     * @throws IndexOutOfBoundsException if {@code fromIndex < 0} or
+     *         {@code toIndex > size()}, or if {@code dst} is shorter
+     *         than {@code toIndex - fromIndex}
+     * @throws IllegalArgumentException if {@code fromIndex > toIndex}
+     * @throws ArrayStoreException if the runtime type of {@code dst} is
+     *         not a supertype of the runtime type of every element
+     *         removed, in which case this list is not modified
+     * @throws NullPointerException if the specified array is null
+     * @since 11
+     */
+    public void drainTo(E[] dst, int fromIndex, int toIndex) {
+        subListRangeCheck(fromIndex, toIndex, size);
+        final int n = toIndex - fromIndex;
+        Objects.checkFromIndexSize(0, n, dst.length);
+        final Object[] es = elementData;
+        System.arraycopy(es, fromIndex, dst, 0, n);
+        modCount++;
+        shiftTailOverGap(es, fromIndex, toIndex);
+    }
+
+    /**
+     * Returns an unmodifiable view of the portion of this list between
+     * the specified {@code fromIndex}, inclusive, and {@code toIndex},
+     * exclusive.  The view reads the backing array of this list directly:
+     * nothing is copied, and unlike a {@link #subList subList} it does not
+     * check on each access whether this list has been modified.  It is
+     * meant for short-lived, read-only use on paths where those checks
+     * cost too much.
+     *
+     * <p>Changes to the elements of this list made with {@code set} are
+     * visible through the view.  If this list is structurally modified in
+     * any way, the contents of the view become undefined; accessing it
+     * does not fail, but may yield elements other than those at the
+     * corresponding positions in this list, or {@code null}.
+     *
+     * @param fromIndex low endpoint (inclusive) of the view
+     * @param toIndex high endpoint (exclusive) of the view
+     * @return an unmodifiable view of the specified range within this list
+     * @throws IndexOutOfBoundsException if {@code fromIndex < 0} or
+     *         {@code toIndex > size()}
+     * @throws IllegalArgumentException if {@code fromIndex > toIndex}
+     * @since 11
+     */
+    public List<E> view(int fromIndex, int toIndex) {
+        subListRangeCheck(fromIndex, toIndex, size);
+        return new View<>(elementData, fromIndex, toIndex - fromIndex);
+    }
+
+    /**
+     * The list returned by view: a fixed window on a backing array.
+     * Mutators are inherited from AbstractList, which rejects them.
+     */
+    private static final class View<E> extends AbstractList<E>
+            implements RandomAccess {
+        private final Object[] es;
+        private final int offset;
+        private final int size;
+
+        View(Object[] es, int offset, int size) {
+            this.es = es;
+            this.offset = offset;
+            this.size = size;
+        }
+
+        public E get(int index) {
+            Objects.checkIndex(index, size);
+            return elementAt(es, offset + index);
+        }
+
+        public int size() {
+            return size;
+        }
+
+        public int indexOf(Object o) {
+            final Object[] es = this.es;
+            final int start = offset, end = offset + size;
+            if (o == null) {
+                for (int i = start; i < end; i++)
+                    if (es[i] == null)
+                        return i - start;
+            } else {
+                for (int i = start; i < end; i++)
+                    if (o.equals(es[i]))
+                        return i - start;
+            }
+            return -1;
+        }
+
+        public int lastIndexOf(Object o) {
+            final Object[] es = this.es;
+            final int start = offset, end = offset + size;
+            if (o == null) {
+                for (int i = end - 1; i >= start; i--)
+                    if (es[i] == null)
+                        return i - start;
+            } else {
+                for (int i = end - 1; i >= start; i--)
+                    if (o.equals(es[i]))
+                        return i - start;
+            }
+            return -1;
+        }
+
+        public boolean contains(Object o) {
+            return indexOf(o) >= 0;
+        }
+
+        public Object[] toArray() {
+            return Arrays.copyOfRange(es, offset, offset + size);
+        }
+
+        @SuppressWarnings("unchecked")
+        public <T> T[] toArray(T[] a) {
+            if (a.length < size)
+                return (T[]) Arrays.copyOfRange(
+                        es, offset, offset + size, a.getClass());
+            System.arraycopy(es, offset, a, 0, size);
+            if (a.length > size)
+                a[size] = null;
+            return a;
+        }
+
+        @Override
+        public void forEach(Consumer<? super E> action) {
+            Objects.requireNonNull(action);
+            final Object[] es = this.es;
+            for (int i = offset, end = offset + size; i < end; i++)
+                action.accept(elementAt(es, i));
+        }
+
+        public Spliterator<E> spliterator() {
+            return Spliterators.spliterator(es, offset, offset + size,
+                                            Spliterator.ORDERED);
+        }
+    }
+
     /**
      * Creates a <em><a href="Spliterator.html#binding">late-binding</a></em>
      * and <em>fail-fast</em> {@link Spliterator} over the elements in this
@@ -2119,6 +2299,121 @@ public class ArrayList<E> extends AbstractList<E>
         modCount++;
     }
 
+    /*
+     * Parallel bulk operations.  Like those of HashMap, each takes a
+     * parallelismThreshold: the operation runs sequentially, as by the
+     * corresponding sequential method, if the list has fewer elements
+     * than that, and is otherwise split into ranges of the backing
+     * array processed by tasks in the common ForkJoinPool (see
+     * ArraysParallelBulkHelpers).  The functions supplied must not
+     * modify the list, and nothing else may modify it while the
+     * operation runs, else the operation throws
+     * ConcurrentModificationException on a best-effort basis.
+     */
+
+    /**
+     * Sorts this list according to the order induced by the specified
+     * {@link Comparator}, as by {@link #sort(Comparator)}, but possibly in
+     * parallel, as by {@link Arrays#parallelSort(Object[], int, int,
+     * Comparator) Arrays.parallelSort}, in place in the backing array.
+     *
+     * @param parallelismThreshold the (estimated) number of elements
+     *        needed for this operation to be executed in parallel
+     * @param c the {@code Comparator} used to compare list elements.
+     *          A {@code null} value indicates that the elements'
+     *          {@linkplain Comparable natural ordering} should be used
+     * @throws ClassCastException if the list contains elements that are not
+     *         <i>mutually comparable</i> using the specified comparator
+     * @throws IllegalArgumentException if the comparator is found to
+     *         violate the {@link Comparator} contract
+     * @throws ConcurrentModificationException if the list is found to
+     *         have been structurally modified during the operation
+     * @since 11
+     */
+    @SuppressWarnings("unchecked")
+    public void parallelSort(long parallelismThreshold, Comparator<? super E> c) {
+        final int size = this.size;
+        if (ArraysParallelBulkHelpers.bulkGrain(size, parallelismThreshold) >= size) {
+            sort(c);
+            return;
+        }
+        final int expectedModCount = modCount;
+        Arrays.parallelSort((E[]) elementData, 0, size, c);
+        if (modCount != expectedModCount)
+            throw new ConcurrentModificationException();
+        modCount++;
+    }
+
+    /**
+     * Replaces each element of this list with the result of applying the
+     * operator to that element, as by {@link #replaceAll(UnaryOperator)},
+     * but possibly in parallel and so in no particular order.
+     *
+     * @param parallelismThreshold the (estimated) number of elements
+     *        needed for this operation to be executed in parallel
+     * @param operator the operator to apply to each element
+     * @throws NullPointerException if the operator is null
+     * @throws ConcurrentModificationException if the list is found to
+     *         have been structurally modified during the operation
+     * @since 11
+     */
+    public void parallelReplaceAll(long parallelismThreshold,
+                                   UnaryOperator<E> operator) {
+        Objects.requireNonNull(operator);
+        final int size = this.size;
+        final int grain = ArraysParallelBulkHelpers.bulkGrain(size, parallelismThreshold);
+        if (grain >= size) {
+            replaceAll(operator);
+            return;
+        }
+        final int expectedModCount = modCount;
+        ArraysParallelBulkHelpers.replaceAll(elementData, 0, size, grain, operator);
+        if (modCount != expectedModCount)
+            throw new ConcurrentModificationException();
+        modCount++;
+    }
+
+    /**
+     * Removes all of the elements of this list that satisfy the given
+     * predicate, as by {@link #removeIf(Predicate)}, but possibly testing
+     * the elements in parallel and so in no particular order.  As for
+     * {@code removeIf}, the predicate is applied to every element before
+     * any is removed, so the list is unchanged if it throws an exception.
+     * The survivors are then compacted in the backing array, also in
+     * parallel.
+     *
+     * @param parallelismThreshold the (estimated) number of elements
+     *        needed for this operation to be executed in parallel
+     * @param filter a predicate which returns {@code true} for elements to be
+     *        removed
+     * @return {@code true} if any elements were removed
+     * @throws NullPointerException if the specified filter is null
+     * @throws ConcurrentModificationException if the list is found to
+     *         have been structurally modified during the operation
+     * @since 11
+     */
+    public boolean parallelRemoveIf(long parallelismThreshold,
+                                    Predicate<? super E> filter) {
+        Objects.requireNonNull(filter);
+        final int end = size;
+        final int grain = ArraysParallelBulkHelpers.bulkGrain(end, parallelismThreshold);
+        if (grain >= end)
+            return removeIf(filter, 0, end);
+        final int expectedModCount = modCount;
+        final Object[] es = elementData;
+        final long[] deathRow = nBits(end);
+        final int[] removed =
+            ArraysParallelBulkHelpers.mark(es, 0, end, grain, filter, deathRow);
+        if (modCount != expectedModCount)
+            throw new ConcurrentModificationException();
+        if (removed == null)
+            return false;
+        modCount++;
+        int w = ArraysParallelBulkHelpers.compact(es, 0, end, grain, deathRow, removed);
+        shiftTailOverGap(es, w, end);
+        return true;
+    }
+
     void checkInvariants() {
         // assert size >= 0;
         // assert size == elementData.length || elementData[size] == null;
@@ -0,0 +1,263 @@
+/*
+ * Copyright (c) 2018, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package java.util;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
+
+/**
+ * Helper utilities for the parallel bulk operations of the array-backed
+ * lists, {@link ArrayList#parallelReplaceAll ArrayList.parallelReplaceAll},
+ * {@link ArrayList#parallelRemoveIf ArrayList.parallelRemoveIf} and their
+ * counterparts in {@link Vector}.
+ *
+ * <p>An operation over the elements from through to - 1 of an array is
+ * divided into <em>leaves</em> of grain elements each, the last possibly
+ * shorter, which tasks in the common {@link ForkJoinPool} process by
+ * recursively halving ranges of leaves.  The grain is a multiple of 64,
+ * so that each leaf owns whole words of a deathRow bit set indexed from
+ * {@code from}, and leaves mark their elements without contention.
+ *
+ * <p>A parallel removeIf runs in three passes.  The first applies the
+ * predicate to every element, in parallel, and records the elements to
+ * remove in the deathRow and the number removed from each leaf; it
+ * changes nothing, so the list can throw
+ * ConcurrentModificationException, or the predicate an exception,
+ * without having been modified.  The second compacts the survivors of
+ * each leaf to the start of that leaf, in parallel.  The third closes
+ * the gaps between leaves, moving each leaf's survivors down in order
+ * with one {@link System#arraycopy} per leaf.
+ */
+final class ArraysParallelBulkHelpers {
+
+    private ArraysParallelBulkHelpers() {}
+
+    /**
+     * Returns the number of elements each leaf task of a parallel bulk
+     * operation over size elements should process: all of them if the
+     * operation is to run sequentially, else enough to make about four
+     * tasks per thread of the common pool, or fewer tasks if the threshold
+     * calls for it, rounded up to a multiple of 64.  The threshold has
+     * the same meaning as for {@link HashMap#parallelForEach
+     * HashMap.parallelForEach}.
+     */
+    static int bulkGrain(int size, long parallelismThreshold) {
+        int p = ForkJoinPool.getCommonPoolParallelism();
+        long tasks;
+        if (p <= 1 || size <= 64 || size < parallelismThreshold)
+            return size;
+        tasks = (parallelismThreshold <= 0L) ? (long)p << 2 :
+            Math.min(size / parallelismThreshold, (long)p << 2);
+        if (tasks <= 1L)
+            return size;
+        long grain = (size + tasks - 1) / tasks;
+        return (int)Math.min(size, (grain + 63) & ~63L);
+    }
+
+    /**
+     * Replaces each of the elements from through to - 1 of es with the
+     * result of applying operator to it.
+     */
+    static <E> void replaceAll(Object[] es, int from, int to, int grain,
+                               UnaryOperator<E> operator) {
+        new ReplaceAllTask<E>(es, from, to, grain, 0, leaves(from, to, grain),
+                              operator).invoke();
+    }
+
+    /**
+     * Sets the bit in deathRow of each of the elements from through to - 1
+     * of es that filter accepts, at its index less from.  Returns the
+     * number of elements so marked in each leaf, or null if there are
+     * none.
+     */
+    static <E> int[] mark(Object[] es, int from, int to, int grain,
+                          Predicate<? super E> filter, long[] deathRow) {
+        int[] removed = new int[leaves(from, to, grain)];
+        new MarkTask<E>(es, from, to, grain, 0, removed.length,
+                        filter, deathRow, removed).invoke();
+        for (int r : removed)
+            if (r != 0)
+                return removed;
+        return null;
+    }
+
+    /**
+     * Moves the elements from through to - 1 of es that are not marked in
+     * deathRow, as by mark, down to start at from, keeping their order.
+     * Returns the index one past the last element moved.  The elements
+     * from that index up to to are left as they were, and are for the
+     * caller to clear.
+     */
+    static int compact(Object[] es, int from, int to, int grain,
+                       long[] deathRow, int[] removed) {
+        int n = removed.length;
+        new CompactTask(es, from, to, grain, 0, n, deathRow).invoke();
+        int w = from;
+        for (int k = 0, lo = from; k < n; k++, lo += grain) {
+            int survivors = Math.min(grain, to - lo) - removed[k];
+            if (w != lo)
+                System.arraycopy(es, lo, es, w, survivors);
+            w += survivors;
+        }
+        return w;
+    }
+
+    /** Returns the number of leaves of the given grain spanning from to to. */
+    private static int leaves(int from, int to, int grain) {
+        return (int)(((long)to - from + grain - 1) / grain);
+    }
+
+    private static boolean isClear(long[] bits, int i) {
+        return (bits[i >> 6] & (1L << i)) == 0;
+    }
+
+    /**
+     * A task processing leaves lo through hi - 1 of the elements from
+     * through to - 1 of an array.
+     */
+    abstract static class LeafTask extends RecursiveAction {
+        private static final long serialVersionUID = 6823480513578391425L;
+        final Object[] es;
+        final int from, to, grain, lo, hi;
+
+        LeafTask(Object[] es, int from, int to, int grain, int lo, int hi) {
+            this.es = es; this.from = from; this.to = to;
+            this.grain = grain; this.lo = lo; this.hi = hi;
+        }
+
+        /** Returns a task of the same kind for leaves lo to hi. */
+        abstract LeafTask subtask(int lo, int hi);
+
+        /**
+         * Processes leaf k, which holds the elements start through end - 1.
+         */
+        abstract void leaf(int k, int start, int end);
+
+        protected final void compute() {
+            int lo = this.lo, hi = this.hi;
+            if (hi - lo > 1) {
+                int mid = (lo + hi) >>> 1;
+                invokeAll(subtask(lo, mid), subtask(mid, hi));
+            }
+            else if (lo < hi) {
+                int start = from + lo * grain;
+                leaf(lo, start, Math.min(to, start + grain));
+            }
+        }
+    }
+
+    static final class ReplaceAllTask<E> extends LeafTask {
+        private static final long serialVersionUID = -5119840617212364802L;
+        final UnaryOperator<E> operator;
+
+        ReplaceAllTask(Object[] es, int from, int to, int grain,
+                       int lo, int hi, UnaryOperator<E> operator) {
+            super(es, from, to, grain, lo, hi);
+            this.operator = operator;
+        }
+
+        LeafTask subtask(int lo, int hi) {
+            return new ReplaceAllTask<E>(es, from, to, grain, lo, hi, operator);
+        }
+
+        @SuppressWarnings("unchecked")
+        void leaf(int k, int start, int end) {
+            final Object[] es = this.es;
+            final UnaryOperator<E> operator = this.operator;
+            for (int i = start; i < end; i++)
+                es[i] = operator.apply((E) es[i]);
+        }
+    }
+
+    static final class MarkTask<E> extends LeafTask {
+        private static final long serialVersionUID = 2907361452231843307L;
+        final Predicate<? super E> filter;
+        final long[] deathRow;
+        final int[] removed;
+
+        MarkTask(Object[] es, int from, int to, int grain, int lo, int hi,
+                 Predicate<? super E> filter, long[] deathRow, int[] removed) {
+            super(es, from, to, grain, lo, hi);
+            this.filter = filter;
+            this.deathRow = deathRow;
+            this.removed = removed;
+        }
+
+        LeafTask subtask(int lo, int hi) {
+            return new MarkTask<E>(es, from, to, grain, lo, hi,
+                                   filter, deathRow, removed);
+        }
+
+        @SuppressWarnings("unchecked")
+        void leaf(int k, int start, int end) {
+            final Object[] es = this.es;
+            final Predicate<? super E> filter = this.filter;
+            final long[] deathRow = this.deathRow;
+            int n = 0;
+            // Accumulate each word locally; no other leaf shares it
+            for (int i = start, base = start - from; i < end; ) {
+                long bits = 0L;
+                int stop = Math.min(end, i + 64);
+                for (int b = 0; i < stop; i++, b++) {
+                    if (filter.test((E) es[i])) {
+                        bits |= 1L << b;
+                        n++;
+                    }
+                }
+                deathRow[base >> 6] = bits;
+                base += 64;
+            }
+            removed[k] = n;
+        }
+    }
+
+    static final class CompactTask extends LeafTask {
+        private static final long serialVersionUID = -1760543286813215496L;
+        final long[] deathRow;
+
+        CompactTask(Object[] es, int from, int to, int grain, int lo, int hi,
+                    long[] deathRow) {
+            super(es, from, to, grain, lo, hi);
+            this.deathRow = deathRow;
+        }
+
+        LeafTask subtask(int lo, int hi) {
+            return new CompactTask(es, from, to, grain, lo, hi, deathRow);
+        }
+
+        void leaf(int k, int start, int end) {
+            final Object[] es = this.es;
+            final long[] deathRow = this.deathRow;
+            final int from = this.from;
+            int w = start;
+            for (int i = start; i < end; i++)
+                if (isClear(deathRow, i - from))
+                    es[w++] = es[i];
+        }
+    }
+}
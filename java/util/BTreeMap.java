@@ -0,0 +1,2183 @@
+/*
+ * Copyright (c) 2018, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package java.util;
+
+import java.io.Serializable;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+
+/**
+ * A B+tree based {@link NavigableMap} implementation.  The map is sorted
+ * according to the {@linkplain Comparable natural ordering} of its keys, or
+ * by a {@link Comparator} provided at map creation time, depending on which
+ * constructor is used.  It provides the same operations, with the same
+ * semantics, as {@link TreeMap}, and guarantees log(n) time cost for the
+ * {@code containsKey}, {@code get}, {@code put} and {@code remove}
+ * operations.
+ *
+ * <p>A {@code TreeMap} allocates a node for every mapping, and a lookup
+ * visits one node, usually in a different cache line, per level of a binary
+ * tree.  This class keeps up to 64 mappings per node, with their keys and
+ * values in two contiguous arrays, so a lookup visits about one sixth as
+ * many nodes and performs a binary search within each.  The nodes holding
+ * the mappings, the <em>leaves</em>, are linked in key order, and
+ * iteration over the map and its views, including sub-map views, walks
+ * along those arrays instead of following parent links.  A mapping costs
+ * between nine and eighteen bytes, depending on how full its leaf is, on a
+ * typical 64-bit virtual machine with compressed references; a
+ * {@code TreeMap.Entry} costs forty.  Leaves are split in half when they
+ * overflow, except that a mapping added after the last key of the map
+ * starts a new leaf, so maps built in ascending key order have full leaves.
+ *
+ * <p>In exchange, {@code put} and {@code remove} move on average half of
+ * the mappings of a leaf within their arrays, and the map does not permit
+ * an iterator to pass a reference to its own nodes to the caller: the
+ * {@code Map.Entry} objects returned by the iterators of the entry set
+ * view are created as they are returned.  Their {@code setValue} method
+ * writes through to the map as long as the mapping is still present.
+ *
+ * <p>Note that the ordering maintained by this map, like any sorted map,
+ * and whether or not an explicit comparator is provided, must be
+ * <em>consistent with {@code equals}</em> if this sorted map is to
+ * correctly implement the {@code Map} interface, exactly as described for
+ * {@code TreeMap}.
+ *
+ * <p><strong>Note that this implementation is not synchronized.</strong>
+ * If multiple threads access a map concurrently, and at least one of the
+ * threads modifies the map structurally, it <em>must</em> be synchronized
+ * externally.  (A structural modification is any operation that adds or
+ * deletes one or more mappings; merely changing the value associated
+ * with an existing key is not a structural modification.)
+ *
+ * <p>The iterators returned by the {@code iterator} method of the
+ * collections returned by all of this class's "collection view methods"
+ * are <em>fail-fast</em>, in the same manner as those of {@code TreeMap}.
+ *
+ * <p>All {@code Map.Entry} pairs returned by methods in this class
+ * and its views other than the iterators represent snapshots of mappings
+ * at the time they were produced.  They do <strong>not</strong> support
+ * the {@code Entry.setValue} method.
+ *
+ * @param <K> the type of keys maintained by this map
+ * @param <V> the type of mapped values
+ *
+ * @see TreeMap
+ * @see java.util.concurrent.ConcurrentSkipListMap
+ * @see NavigableMap
+ * @since 11
+ */
+public class BTreeMap<K,V> extends AbstractMap<K,V>
+    implements NavigableMap<K,V>, Cloneable, Serializable {
+
+    private static final long serialVersionUID = 4383569282130577913L;
+
+    /*
+     * Implementation notes.
+     *
+     * The tree is a B+tree of the given height: every mapping lives
+     * in a Leaf, at the same depth, and the Branch nodes above hold
+     * only separator keys.  A Branch with n keys has n + 1 children,
+     * and child i holds the keys k with keys[i-1] <= k < keys[i].  A
+     * separator is the least key of its right subtree at the time it
+     * was made; removals do not update separators, so a leaf's first
+     * key may be greater than the separator leading to it, but every
+     * key still routes to the one leaf that could hold it.
+     *
+     * All nodes except the root hold at least half of their capacity,
+     * with two exceptions that the removal code tolerates: the last
+     * leaf, which is started afresh when a key is appended to a full
+     * last leaf (so that ascending insertion leaves full leaves
+     * behind instead of half-full ones), and leaves built by
+     * buildFromSorted from a small number of mappings.  A leaf is
+     * never empty unless it is the root, and the root is null when
+     * the map is empty.
+     *
+     * Lookups descend without recording the path.  Insertion into a
+     * full leaf and removal from a leaf that drops below half full
+     * descend a second time, recording the path, to split or
+     * rebalance the nodes above.  Both happen at most once every
+     * LEAF_MIN operations on a leaf, so the second descent adds
+     * little to the amortized cost.  Underflowing nodes are merged
+     * with a sibling when the two fit in one node, and otherwise
+     * share its mappings evenly.
+     *
+     * The iterators hold a leaf and an index within it.  Removal
+     * through an iterator shifts the following mappings of the leaf
+     * down by one, which the iterator compensates for; if it
+     * rebalanced the leaf, the iterator finds its next key again
+     * from the root.  Mappings found by navigation methods are
+     * likewise returned as a Position, which the sub-map views use
+     * as their entry point for iteration.
+     *
+     * Footprint.  With compressed references, a Leaf occupies 32
+     * bytes plus two arrays of 272 bytes, or 576 bytes for up to 64
+     * mappings; Branch nodes add under two percent to that.  Full
+     * leaves thus cost 9 bytes per mapping, and leaves filled by
+     * random insertion, about 70% full on average, some 13.
+     */
+
+    /**
+     * The maximum number of mappings in a leaf.
+     */
+    static final int LEAF_CAPACITY = 64;
+
+    /**
+     * The minimum number of mappings in a leaf other than the root
+     * and the last leaf, below which it is merged or rebalanced.
+     */
+    static final int LEAF_MIN = LEAF_CAPACITY / 2;
+
+    /**
+     * The maximum number of children of a branch.
+     */
+    static final int BRANCH_CAPACITY = 64;
+
+    /**
+     * The minimum number of children of a branch other than the root.
+     */
+    static final int BRANCH_MIN = BRANCH_CAPACITY / 2;
+
+    /**
+     * The comparator used to maintain order in this map, or
+     * null if it uses the natural ordering of its keys.
+     *
+     * @serial
+     */
+    private final Comparator<? super K> comparator;
+
+    private transient Node root;
+
+    /**
+     * The leaves holding the least and the greatest keys.
+     */
+    private transient Leaf first, last;
+
+    /**
+     * The number of branch levels above the leaves.
+     */
+    private transient int height;
+
+    /**
+     * The number of entries in the tree
+     */
+    private transient int size = 0;
+
+    /**
+     * The number of structural modifications to the tree.
+     */
+    private transient int modCount = 0;
+
+    /**
+     * Constructs a new, empty map, using the natural ordering of its
+     * keys.  All keys inserted into the map must implement the {@link
+     * Comparable} interface, as for {@link TreeMap#TreeMap()}.
+     */
+    public BTreeMap() {
+        comparator = null;
+    }
+
+    /**
+     * Constructs a new, empty map, ordered according to the given
+     * comparator.
+     *
+     * @param comparator the comparator that will be used to order this map.
+     *        If {@code null}, the {@linkplain Comparable natural
+     *        ordering} of the keys will be used.
+     */
+    public BTreeMap(Comparator<? super K> comparator) {
+        this.comparator = comparator;
+    }
+
+    /**
+     * Constructs a new map containing the same mappings as the given
+     * map, ordered according to the <em>natural ordering</em> of its keys.
+     *
+     * @param  m the map whose mappings are to be placed in this map
+     * @throws ClassCastException if the keys in m are not {@link Comparable},
+     *         or are not mutually comparable
+     * @throws NullPointerException if the specified map is null
+     */
+    public BTreeMap(Map<? extends K, ? extends V> m) {
+        comparator = null;
+        putAll(m);
+    }
+
+    /**
+     * Constructs a new map containing the same mappings and using the
+     * same ordering as the specified sorted map.  This method runs in
+     * linear time.
+     *
+     * @param  m the sorted map whose mappings are to be placed in this map,
+     *         and whose comparator is to be used to sort this map
+     * @throws NullPointerException if the specified map is null
+     */
+    public BTreeMap(SortedMap<K, ? extends V> m) {
+        comparator = m.comparator();
+        try {
+            buildFromSorted(m.size(), m.entrySet().iterator(), null);
+        } catch (java.io.IOException | ClassNotFoundException cannotHappen) {
+        }
+    }
+
+
+    // Query Operations
+
+    /**
+     * Returns the number of key-value mappings in this map.
+     *
+     * @return the number of key-value mappings in this map
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns {@code true} if this map contains a mapping for the specified
+     * key.
+     *
+     * @param key key whose presence in this map is to be tested
+     * @return {@code true} if this map contains a mapping for the
+     *         specified key
+     * @throws ClassCastException if the specified key cannot be compared
+     *         with the keys currently in the map
+     * @throws NullPointerException if the specified key is null
+     *         and this map uses natural ordering, or its comparator
+     *         does not permit null keys
+     */
+    public boolean containsKey(Object key) {
+        Leaf l = getLeaf(key);
+        return l != null && search(l, key) >= 0;
+    }
+
+    /**
+     * Returns {@code true} if this map maps one or more keys to the
+     * specified value.  This operation requires time linear in the map
+     * size, but scans contiguous arrays rather than following links.
+     *
+     * @param value value whose presence in this map is to be tested
+     * @return {@code true} if a mapping to {@code value} exists;
+     *         {@code false} otherwise
+     */
+    public boolean containsValue(Object value) {
+        for (Leaf l = first; l != null; l = l.next) {
+            Object[] vals = l.vals;
+            for (int i = 0, n = l.n; i < n; ++i)
+                if (valEquals(value, vals[i]))
+                    return true;
+        }
+        return false;
+    }
+
+    /**
+     * Returns the value to which the specified key is mapped,
+     * or {@code null} if this map contains no mapping for the key.
+     *
+     * @throws ClassCastException if the specified key cannot be compared
+     *         with the keys currently in the map
+     * @throws NullPointerException if the specified key is null
+     *         and this map uses natural ordering, or its comparator
+     *         does not permit null keys
+     */
+    @SuppressWarnings("unchecked")
+    public V get(Object key) {
+        Leaf l = getLeaf(key);
+        int i;
+        return (l == null || (i = search(l, key)) < 0) ? null : (V)l.vals[i];
+    }
+
+    public Comparator<? super K> comparator() {
+        return comparator;
+    }
+
+    /**
+     * @throws NoSuchElementException {@inheritDoc}
+     */
+    @SuppressWarnings("unchecked")
+    public K firstKey() {
+        Leaf l = first;
+        if (l == null)
+            throw new NoSuchElementException();
+        return (K)l.keys[0];
+    }
+
+    /**
+     * @throws NoSuchElementException {@inheritDoc}
+     */
+    @SuppressWarnings("unchecked")
+    public K lastKey() {
+        Leaf l = last;
+        if (l == null)
+            throw new NoSuchElementException();
+        return (K)l.keys[l.n - 1];
+    }
+
+    /**
+     * Copies all of the mappings from the specified map to this map.
+     * These mappings replace any mappings that this map had for any
+     * of the keys currently in the specified map.  If this map is empty
+     * and the specified map is a sorted map with the same ordering, the
+     * tree is built in linear time.
+     *
+     * @param  map mappings to be stored in this map
+     * @throws ClassCastException if the class of a key or value in
+     *         the specified map prevents it from being stored in this map
+     * @throws NullPointerException if the specified map is null or
+     *         the specified map contains a null key and this map does not
+     *         permit null keys
+     */
+    public void putAll(Map<? extends K, ? extends V> map) {
+        int mapSize = map.size();
+        if (size == 0 && mapSize != 0 && map instanceof SortedMap) {
+            if (Objects.equals(comparator, ((SortedMap<?,?>)map).comparator())) {
+                ++modCount;
+                try {
+                    buildFromSorted(mapSize, map.entrySet().iterator(), null);
+                } catch (java.io.IOException | ClassNotFoundException cannotHappen) {
+                }
+                return;
+            }
+        }
+        super.putAll(map);
+    }
+
+    /**
+     * Returns the leaf whose range of keys covers the given key, or
+     * null if the map is empty.
+     *
+     * @throws ClassCastException if the specified key cannot be compared
+     *         with the keys currently in the map
+     * @throws NullPointerException if the specified key is null
+     *         and this map uses natural ordering, or its comparator
+     *         does not permit null keys
+     */
+    final Leaf getLeaf(Object key) {
+        if (comparator == null)
+            Objects.requireNonNull(key);
+        Node x = root;
+        if (x != null) {
+            for (int h = height; h > 0; --h) {
+                Branch b = (Branch)x;
+                x = b.children[childIndex(b, key)];
+            }
+        }
+        return (Leaf)x;
+    }
+
+    /**
+     * Searches the keys of the given node for the given key.  Returns
+     * its index if present, otherwise (-(insertion point) - 1), as
+     * Arrays.binarySearch does.
+     */
+    @SuppressWarnings("unchecked")
+    final int search(Node x, Object key) {
+        Object[] keys = x.keys;
+        int lo = 0, hi = x.n - 1;
+        Comparator<? super K> cpr = comparator;
+        if (cpr != null) {
+            while (lo <= hi) {
+                int mid = (lo + hi) >>> 1;
+                int cmp = cpr.compare((K)key, (K)keys[mid]);
+                if (cmp > 0)
+                    lo = mid + 1;
+                else if (cmp < 0)
+                    hi = mid - 1;
+                else
+                    return mid;
+            }
+        } else {
+            Comparable<? super K> k = (Comparable<? super K>)key;
+            while (lo <= hi) {
+                int mid = (lo + hi) >>> 1;
+                int cmp = k.compareTo((K)keys[mid]);
+                if (cmp > 0)
+                    lo = mid + 1;
+                else if (cmp < 0)
+                    hi = mid - 1;
+                else
+                    return mid;
+            }
+        }
+        return -(lo + 1);
+    }
+
+    /**
+     * Returns the index of the child of the given branch whose subtree
+     * covers the given key.
+     */
+    final int childIndex(Branch b, Object key) {
+        int i = search(b, key);
+        return (i >= 0) ? i + 1 : -(i + 1);
+    }
+
+    /**
+     * Returns the position of the mapping for the given key, or null
+     * if there is none.
+     */
+    final Position getPosition(Object key) {
+        Leaf l = getLeaf(key);
+        int i;
+        return (l == null || (i = search(l, key)) < 0) ? null : new Position(l, i);
+    }
+
+    /*
+     * Relations for findNear, as in ConcurrentSkipListMap.
+     */
+    private static final int EQ = 1;
+    private static final int LT = 2;
+    private static final int GT = 0; // Actually checked as !LT
+
+    /**
+     * Returns the position of the mapping whose key is nearest to the
+     * given one in the given relation: GT|EQ for the least key greater
+     * than or equal to it, GT for the least key greater than it, LT|EQ
+     * and LT likewise for the greatest key less than (or equal to) it.
+     * Returns null if there is no such key.
+     */
+    final Position findNear(Object key, int rel) {
+        Leaf l = getLeaf(key);
+        if (l == null)
+            return null;
+        int i = search(l, key);
+        if (i >= 0) {
+            if ((rel & EQ) == 0)
+                i += ((rel & LT) != 0) ? -1 : 1;
+        } else {
+            i = -(i + 1);
+            if ((rel & LT) != 0)
+                --i;
+        }
+        // The neighbour may be the last key of the previous leaf or the
+        // first of the next one; leaves other than the root are never empty
+        if (i < 0) {
+            if ((l = l.prev) == null)
+                return null;
+            i = l.n - 1;
+        } else if (i >= l.n) {
+            if ((l = l.next) == null)
+                return null;
+            i = 0;
+        }
+        return new Position(l, i);
+    }
+
+    final Position firstPosition() {
+        return (first == null) ? null : new Position(first, 0);
+    }
+
+    final Position lastPosition() {
+        return (last == null) ? null : new Position(last, last.n - 1);
+    }
+
+    /**
+     * Associates the specified value with the specified key in this map.
+     * If the map previously contained a mapping for the key, the old
+     * value is replaced.
+     *
+     * @param key key with which the specified value is to be associated
+     * @param value value to be associated with the specified key
+     *
+     * @return the previous value associated with {@code key}, or
+     *         {@code null} if there was no mapping for {@code key}.
+     *         (A {@code null} return can also indicate that the map
+     *         previously associated {@code null} with {@code key}.)
+     * @throws ClassCastException if the specified key cannot be compared
+     *         with the keys currently in the map
+     * @throws NullPointerException if the specified key is null
+     *         and this map uses natural ordering, or its comparator
+     *         does not permit null keys
+     */
+    @SuppressWarnings("unchecked")
+    public V put(K key, V value) {
+        Leaf l = getLeaf(key);
+        if (l == null) {
+            compare(key, key); // type (and possibly null) check
+
+            l = new Leaf();
+            l.keys[0] = key;
+            l.vals[0] = value;
+            l.n = 1;
+            root = first = last = l;
+            size = 1;
+            modCount++;
+            return null;
+        }
+        int i = search(l, key);
+        if (i >= 0) {
+            V oldValue = (V)l.vals[i];
+            l.vals[i] = value;
+            return oldValue;
+        }
+        i = -(i + 1);
+        if (l.n < LEAF_CAPACITY)
+            insertAt(l, i, key, value);
+        else
+            splitAndInsert(l, i, key, value);
+        size++;
+        modCount++;
+        return null;
+    }
+
+    /**
+     * Removes the mapping for this key from this map if present.
+     *
+     * @param  key key for which mapping should be removed
+     * @return the previous value associated with {@code key}, or
+     *         {@code null} if there was no mapping for {@code key}.
+     *         (A {@code null} return can also indicate that the map
+     *         previously associated {@code null} with {@code key}.)
+     * @throws ClassCastException if the specified key cannot be compared
+     *         with the keys currently in the map
+     * @throws NullPointerException if the specified key is null
+     *         and this map uses natural ordering, or its comparator
+     *         does not permit null keys
+     */
+    @SuppressWarnings("unchecked")
+    public V remove(Object key) {
+        Leaf l = getLeaf(key);
+        int i;
+        if (l == null || (i = search(l, key)) < 0)
+            return null;
+
+        V oldValue = (V)l.vals[i];
+        deleteAt(l, i);
+        return oldValue;
+    }
+
+    /**
+     * Removes all of the mappings from this map.
+     * The map will be empty after this call returns.
+     */
+    public void clear() {
+        modCount++;
+        size = 0;
+        height = 0;
+        root = first = last = null;
+    }
+
+    /**
+     * Returns a shallow copy of this {@code BTreeMap} instance. (The keys and
+     * values themselves are not cloned.)
+     *
+     * @return a shallow copy of this map
+     */
+    public Object clone() {
+        BTreeMap<?,?> clone;
+        try {
+            clone = (BTreeMap<?,?>) super.clone();
+        } catch (CloneNotSupportedException e) {
+            throw new InternalError(e);
+        }
+
+        // Put clone into "virgin" state (except for comparator)
+        clone.root = clone.first = clone.last = null;
+        clone.height = 0;
+        clone.size = 0;
+        clone.modCount = 0;
+        clone.entrySet = null;
+        clone.navigableKeySet = null;
+        clone.descendingMap = null;
+
+        // Initialize clone with our mappings
+        try {
+            clone.buildFromSorted(size, entrySet().iterator(), null);
+        } catch (java.io.IOException | ClassNotFoundException cannotHappen) {
+        }
+
+        return clone;
+    }
+
+    // NavigableMap API methods
+
+    public Map.Entry<K,V> firstEntry() {
+        return exportEntry(firstPosition());
+    }
+
+    public Map.Entry<K,V> lastEntry() {
+        return exportEntry(lastPosition());
+    }
+
+    public Map.Entry<K,V> pollFirstEntry() {
+        Position p = firstPosition();
+        Map.Entry<K,V> result = exportEntry(p);
+        if (p != null)
+            deleteAt(p.leaf, p.index);
+        return result;
+    }
+
+    public Map.Entry<K,V> pollLastEntry() {
+        Position p = lastPosition();
+        Map.Entry<K,V> result = exportEntry(p);
+        if (p != null)
+            deleteAt(p.leaf, p.index);
+        return result;
+    }
+
+    /**
+     * @throws ClassCastException {@inheritDoc}
+     * @throws NullPointerException if the specified key is null
+     *         and this map uses natural ordering, or its comparator
+     *         does not permit null keys
+     */
+    public Map.Entry<K,V> lowerEntry(K key) {
+        return exportEntry(findNear(key, LT));
+    }
+
+    /**
+     * @throws ClassCastException {@inheritDoc}
+     * @throws NullPointerException if the specified key is null
+     *         and this map uses natural ordering, or its comparator
+     *         does not permit null keys
+     */
+    public K lowerKey(K key) {
+        return keyOrNull(findNear(key, LT));
+    }
+
+    /**
+     * @throws ClassCastException {@inheritDoc}
+     * @throws NullPointerException if the specified key is null
+     *         and this map uses natural ordering, or its comparator
+     *         does not permit null keys
+     */
+    public Map.Entry<K,V> floorEntry(K key) {
+        return exportEntry(findNear(key, LT|EQ));
+    }
+
+    /**
+     * @throws ClassCastException {@inheritDoc}
+     * @throws NullPointerException if the specified key is null
+     *         and this map uses natural ordering, or its comparator
+     *         does not permit null keys
+     */
+    public K floorKey(K key) {
+        return keyOrNull(findNear(key, LT|EQ));
+    }
+
+    /**
+     * @throws ClassCastException {@inheritDoc}
+     * @throws NullPointerException if the specified key is null
+     *         and this map uses natural ordering, or its comparator
+     *         does not permit null keys
+     */
+    public Map.Entry<K,V> ceilingEntry(K key) {
+        return exportEntry(findNear(key, GT|EQ));
+    }
+
+    /**
+     * @throws ClassCastException {@inheritDoc}
+     * @throws NullPointerException if the specified key is null
+     *         and this map uses natural ordering, or its comparator
+     *         does not permit null keys
+     */
+    public K ceilingKey(K key) {
+        return keyOrNull(findNear(key, GT|EQ));
+    }
+
+    /**
+     * @throws ClassCastException {@inheritDoc}
+     * @throws NullPointerException if the specified key is null
+     *         and this map uses natural ordering, or its comparator
+     *         does not permit null keys
+     */
+    public Map.Entry<K,V> higherEntry(K key) {
+        return exportEntry(findNear(key, GT));
+    }
+
+    /**
+     * @throws ClassCastException {@inheritDoc}
+     * @throws NullPointerException if the specified key is null
+     *         and this map uses natural ordering, or its comparator
+     *         does not permit null keys
+     */
+    public K higherKey(K key) {
+        return keyOrNull(findNear(key, GT));
+    }
+
+    // Views
+
+    /**
+     * Fields initialized to contain an instance of the entry set view
+     * the first time this view is requested.  Views are stateless, so
+     * there's no reason to create more than one.
+     */
+    private transient EntrySet entrySet;
+    private transient KeySet<K> navigableKeySet;
+    private transient NavigableMap<K,V> descendingMap;
+
+    /**
+     * Returns a {@link Set} view of the keys contained in this map.
+     * The set's iterator returns the keys in ascending order, and the
+     * set behaves as the key set of a {@code TreeMap} does.
+     */
+    public Set<K> keySet() {
+        return navigableKeySet();
+    }
+
+    public NavigableSet<K> navigableKeySet() {
+        KeySet<K> nks = navigableKeySet;
+        return (nks != null) ? nks : (navigableKeySet = new KeySet<>(this));
+    }
+
+    public NavigableSet<K> descendingKeySet() {
+        return descendingMap().navigableKeySet();
+    }
+
+    /**
+     * Returns a {@link Collection} view of the values contained in this map.
+     * The collection's iterator returns the values in ascending order of
+     * the corresponding keys, and the collection behaves as the values
+     * view of a {@code TreeMap} does.
+     */
+    public Collection<V> values() {
+        Collection<V> vs = values;
+        if (vs == null) {
+            vs = new Values();
+            values = vs;
+        }
+        return vs;
+    }
+
+    /**
+     * Returns a {@link Set} view of the mappings contained in this map.
+     * The set's iterator returns the entries in ascending key order, and
+     * the set behaves as the entry set of a {@code TreeMap} does.
+     */
+    public Set<Map.Entry<K,V>> entrySet() {
+        EntrySet es = entrySet;
+        return (es != null) ? es : (entrySet = new EntrySet());
+    }
+
+    public NavigableMap<K, V> descendingMap() {
+        NavigableMap<K, V> km = descendingMap;
+        return (km != null) ? km :
+            (descendingMap = new SubMap<>(this,
+                                          true, null, true,
+                                          true, null, true, true));
+    }
+
+    /**
+     * @throws ClassCastException       {@inheritDoc}
+     * @throws NullPointerException if {@code fromKey} or {@code toKey} is
+     *         null and this map uses natural ordering, or its comparator
+     *         does not permit null keys
+     * @throws IllegalArgumentException {@inheritDoc}
+     */
+    public NavigableMap<K,V> subMap(K fromKey, boolean fromInclusive,
+                                    K toKey,   boolean toInclusive) {
+        return new SubMap<>(this,
+                            false, fromKey, fromInclusive,
+                            false, toKey,   toInclusive, false);
+    }
+
+    /**
+     * @throws ClassCastException       {@inheritDoc}
+     * @throws NullPointerException if {@code toKey} is null
+     *         and this map uses natural ordering, or its comparator
+     *         does not permit null keys
+     * @throws IllegalArgumentException {@inheritDoc}
+     */
+    public NavigableMap<K,V> headMap(K toKey, boolean inclusive) {
+        return new SubMap<>(this,
+                            true,  null,  true,
+                            false, toKey, inclusive, false);
+    }
+
+    /**
+     * @throws ClassCastException       {@inheritDoc}
+     * @throws NullPointerException if {@code fromKey} is null
+     *         and this map uses natural ordering, or its comparator
+     *         does not permit null keys
+     * @throws IllegalArgumentException {@inheritDoc}
+     */
+    public NavigableMap<K,V> tailMap(K fromKey, boolean inclusive) {
+        return new SubMap<>(this,
+                            false, fromKey, inclusive,
+                            true,  null,    true, false);
+    }
+
+    /**
+     * @throws ClassCastException       {@inheritDoc}
+     * @throws NullPointerException if {@code fromKey} or {@code toKey} is
+     *         null and this map uses natural ordering, or its comparator
+     *         does not permit null keys
+     * @throws IllegalArgumentException {@inheritDoc}
+     */
+    public SortedMap<K,V> subMap(K fromKey, K toKey) {
+        return subMap(fromKey, true, toKey, false);
+    }
+
+    /**
+     * @throws ClassCastException       {@inheritDoc}
+     * @throws NullPointerException if {@code toKey} is null
+     *         and this map uses natural ordering, or its comparator
+     *         does not permit null keys
+     * @throws IllegalArgumentException {@inheritDoc}
+     */
+    public SortedMap<K,V> headMap(K toKey) {
+        return headMap(toKey, false);
+    }
+
+    /**
+     * @throws ClassCastException       {@inheritDoc}
+     * @throws NullPointerException if {@code fromKey} is null
+     *         and this map uses natural ordering, or its comparator
+     *         does not permit null keys
+     * @throws IllegalArgumentException {@inheritDoc}
+     */
+    public SortedMap<K,V> tailMap(K fromKey) {
+        return tailMap(fromKey, true);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public boolean replace(K key, V oldValue, V newValue) {
+        Position p = getPosition(key);
+        if (p != null && Objects.equals(oldValue, p.leaf.vals[p.index])) {
+            p.leaf.vals[p.index] = newValue;
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V replace(K key, V value) {
+        Position p = getPosition(key);
+        if (p != null) {
+            V oldValue = (V)p.leaf.vals[p.index];
+            p.leaf.vals[p.index] = value;
+            return oldValue;
+        }
+        return null;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void forEach(BiConsumer<? super K, ? super V> action) {
+        Objects.requireNonNull(action);
+        int expectedModCount = modCount;
+        for (Leaf l = first; l != null; l = l.next) {
+            for (int i = 0; i < l.n; ++i) {
+                action.accept((K)l.keys[i], (V)l.vals[i]);
+
+                if (expectedModCount != modCount) {
+                    throw new ConcurrentModificationException();
+                }
+            }
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void replaceAll(BiFunction<? super K, ? super V, ? extends V> function) {
+        Objects.requireNonNull(function);
+        int expectedModCount = modCount;
+
+        for (Leaf l = first; l != null; l = l.next) {
+            for (int i = 0; i < l.n; ++i) {
+                l.vals[i] = function.apply((K)l.keys[i], (V)l.vals[i]);
+
+                if (expectedModCount != modCount) {
+                    throw new ConcurrentModificationException();
+                }
+            }
+        }
+    }
+
+    // View class support
+
+    class Values extends AbstractCollection<V> {
+        public Iterator<V> iterator() {
+            return new ValueIterator(firstPosition(), false, false, null, false);
+        }
+
+        public int size() {
+            return BTreeMap.this.size();
+        }
+
+        public boolean contains(Object o) {
+            return BTreeMap.this.containsValue(o);
+        }
+
+        public boolean remove(Object o) {
+            for (Leaf l = first; l != null; l = l.next) {
+                for (int i = 0; i < l.n; ++i) {
+                    if (valEquals(l.vals[i], o)) {
+                        deleteAt(l, i);
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+
+        public void clear() {
+            BTreeMap.this.clear();
+        }
+    }
+
+    class EntrySet extends AbstractSet<Map.Entry<K,V>> {
+        public Iterator<Map.Entry<K,V>> iterator() {
+            return new EntryIterator(firstPosition(), false, false, null, false);
+        }
+
+        public boolean contains(Object o) {
+            if (!(o instanceof Map.Entry))
+                return false;
+            Map.Entry<?,?> entry = (Map.Entry<?,?>) o;
+            Object value = entry.getValue();
+            Position p = getPosition(entry.getKey());
+            return p != null && valEquals(p.value(), value);
+        }
+
+        public boolean remove(Object o) {
+            if (!(o instanceof Map.Entry))
+                return false;
+            Map.Entry<?,?> entry = (Map.Entry<?,?>) o;
+            Object value = entry.getValue();
+            Position p = getPosition(entry.getKey());
+            if (p != null && valEquals(p.value(), value)) {
+                deleteAt(p.leaf, p.index);
+                return true;
+            }
+            return false;
+        }
+
+        public int size() {
+            return BTreeMap.this.size();
+        }
+
+        public void clear() {
+            BTreeMap.this.clear();
+        }
+    }
+
+    Iterator<K> keyIterator() {
+        return new KeyIterator(firstPosition(), false, false, null, false);
+    }
+
+    Iterator<K> descendingKeyIterator() {
+        return new KeyIterator(lastPosition(), true, false, null, false);
+    }
+
+    /*
+     * As in TreeMap, the KeySet class is static, delegating to a
+     * NavigableMap to allow use by SubMaps.
+     */
+    static final class KeySet<E> extends AbstractSet<E> implements NavigableSet<E> {
+        private final NavigableMap<E, ?> m;
+        KeySet(NavigableMap<E,?> map) { m = map; }
+
+        public Iterator<E> iterator() {
+            if (m instanceof BTreeMap)
+                return ((BTreeMap<E,?>)m).keyIterator();
+            else
+                return ((BTreeMap.SubMap<E,?>)m).keyIterator();
+        }
+
+        public Iterator<E> descendingIterator() {
+            if (m instanceof BTreeMap)
+                return ((BTreeMap<E,?>)m).descendingKeyIterator();
+            else
+                return ((BTreeMap.SubMap<E,?>)m).descendingKeyIterator();
+        }
+
+        public int size() { return m.size(); }
+        public boolean isEmpty() { return m.isEmpty(); }
+        public boolean contains(Object o) { return m.containsKey(o); }
+        public void clear() { m.clear(); }
+        public E lower(E e) { return m.lowerKey(e); }
+        public E floor(E e) { return m.floorKey(e); }
+        public E ceiling(E e) { return m.ceilingKey(e); }
+        public E higher(E e) { return m.higherKey(e); }
+        public E first() { return m.firstKey(); }
+        public E last() { return m.lastKey(); }
+        public Comparator<? super E> comparator() { return m.comparator(); }
+        public E pollFirst() {
+            Map.Entry<E,?> e = m.pollFirstEntry();
+            return (e == null) ? null : e.getKey();
+        }
+        public E pollLast() {
+            Map.Entry<E,?> e = m.pollLastEntry();
+            return (e == null) ? null : e.getKey();
+        }
+        public boolean remove(Object o) {
+            int oldSize = size();
+            m.remove(o);
+            return size() != oldSize;
+        }
+        public NavigableSet<E> subSet(E fromElement, boolean fromInclusive,
+                                      E toElement,   boolean toInclusive) {
+            return new KeySet<>(m.subMap(fromElement, fromInclusive,
+                                          toElement,   toInclusive));
+        }
+        public NavigableSet<E> headSet(E toElement, boolean inclusive) {
+            return new KeySet<>(m.headMap(toElement, inclusive));
+        }
+        public NavigableSet<E> tailSet(E fromElement, boolean inclusive) {
+            return new KeySet<>(m.tailMap(fromElement, inclusive));
+        }
+        public SortedSet<E> subSet(E fromElement, E toElement) {
+            return subSet(fromElement, true, toElement, false);
+        }
+        public SortedSet<E> headSet(E toElement) {
+            return headSet(toElement, false);
+        }
+        public SortedSet<E> tailSet(E fromElement) {
+            return tailSet(fromElement, true);
+        }
+        public NavigableSet<E> descendingSet() {
+            return new KeySet<>(m.descendingMap());
+        }
+    }
+
+    /**
+     * Base class for BTreeMap Iterators.  An iterator runs from a start
+     * position in either direction, up to an optional bound, which is
+     * the far end of a sub-map.
+     */
+    abstract class PrivateIterator<T> implements Iterator<T> {
+        Leaf leaf;        // holds the next mapping, or null if none
+        int index;
+        Leaf lastLeaf;    // holds the last mapping returned, or null
+        int lastIndex;
+        int expectedModCount;
+        final boolean descending;
+        final boolean bounded;
+        final Object bound;
+        final boolean boundInclusive;
+
+        PrivateIterator(Position start, boolean descending,
+                        boolean bounded, Object bound, boolean boundInclusive) {
+            expectedModCount = modCount;
+            this.descending = descending;
+            this.bounded = bounded;
+            this.bound = bound;
+            this.boundInclusive = boundInclusive;
+            if (start != null) {
+                leaf = start.leaf;
+                index = start.index;
+                checkBound();
+            }
+        }
+
+        /**
+         * Ends the iteration if the next key is past the bound.
+         */
+        private void checkBound() {
+            if (bounded && leaf != null) {
+                int c = compare(leaf.keys[index], bound);
+                if (descending)
+                    c = -c;
+                if (c > 0 || (c == 0 && !boundInclusive))
+                    leaf = null;
+            }
+        }
+
+        public final boolean hasNext() {
+            return leaf != null;
+        }
+
+        /**
+         * Advances past the next mapping, leaving it at lastLeaf and
+         * lastIndex.
+         */
+        final void advance() {
+            Leaf l = leaf;
+            if (l == null)
+                throw new NoSuchElementException();
+            if (modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+            lastLeaf = l;
+            lastIndex = index;
+            if (descending) {
+                if (--index < 0 && (leaf = l.prev) != null)
+                    index = leaf.n - 1;
+            } else if (++index >= l.n) {
+                leaf = l.next;
+                index = 0;
+            }
+            checkBound();
+        }
+
+        public void remove() {
+            Leaf l = lastLeaf;
+            if (l == null)
+                throw new IllegalStateException();
+            if (modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+            Object nextKey = (leaf != null) ? leaf.keys[index] : null;
+            if (deleteAt(l, lastIndex)) {
+                if (leaf != null) {
+                    Position p = findNear(nextKey, GT|EQ);
+                    leaf = p.leaf;
+                    index = p.index;
+                }
+            } else if (leaf == l && !descending) {
+                --index;
+            }
+            lastLeaf = null;
+            expectedModCount = modCount;
+        }
+    }
+
+    final class EntryIterator extends PrivateIterator<Map.Entry<K,V>> {
+        EntryIterator(Position start, boolean descending,
+                      boolean bounded, Object bound, boolean boundInclusive) {
+            super(start, descending, bounded, bound, boundInclusive);
+        }
+        public Map.Entry<K,V> next() {
+            advance();
+            return new Entry(lastLeaf, lastIndex);
+        }
+    }
+
+    final class ValueIterator extends PrivateIterator<V> {
+        ValueIterator(Position start, boolean descending,
+                      boolean bounded, Object bound, boolean boundInclusive) {
+            super(start, descending, bounded, bound, boundInclusive);
+        }
+        @SuppressWarnings("unchecked")
+        public V next() {
+            advance();
+            return (V)lastLeaf.vals[lastIndex];
+        }
+    }
+
+    final class KeyIterator extends PrivateIterator<K> {
+        KeyIterator(Position start, boolean descending,
+                    boolean bounded, Object bound, boolean boundInclusive) {
+            super(start, descending, bounded, bound, boundInclusive);
+        }
+        @SuppressWarnings("unchecked")
+        public K next() {
+            advance();
+            return (K)lastLeaf.keys[lastIndex];
+        }
+    }
+
+    /**
+     * A mapping returned by the entry iterators.  It remembers where
+     * the mapping was found, and looks the key up again if the mapping
+     * has since been moved.
+     */
+    final class Entry implements Map.Entry<K,V> {
+        private Leaf leaf;
+        private int index;
+        private final K key;
+        private V value;
+
+        @SuppressWarnings("unchecked")
+        Entry(Leaf leaf, int index) {
+            this.leaf = leaf;
+            this.index = index;
+            this.key = (K)leaf.keys[index];
+            this.value = (V)leaf.vals[index];
+        }
+
+        /**
+         * Returns true if the mapping is still where it was last seen,
+         * looking it up again otherwise.
+         */
+        private boolean locate() {
+            if (index < leaf.n && leaf.keys[index] == key)
+                return true;
+            Position p = getPosition(key);
+            if (p == null)
+                return false;
+            leaf = p.leaf;
+            index = p.index;
+            return true;
+        }
+
+        public K getKey() {
+            return key;
+        }
+
+        @SuppressWarnings("unchecked")
+        public V getValue() {
+            if (index < leaf.n && leaf.keys[index] == key)
+                value = (V)leaf.vals[index];
+            return value;
+        }
+
+        /**
+         * Replaces the value currently associated with the key with the
+         * given value, writing through to the map if it still contains
+         * the key.
+         *
+         * @return the value associated with the key before this method was
+         *         called
+         */
+        @SuppressWarnings("unchecked")
+        public V setValue(V value) {
+            V oldValue = this.value;
+            if (locate()) {
+                oldValue = (V)leaf.vals[index];
+                leaf.vals[index] = value;
+            }
+            this.value = value;
+            return oldValue;
+        }
+
+        public boolean equals(Object o) {
+            if (!(o instanceof Map.Entry))
+                return false;
+            Map.Entry<?,?> e = (Map.Entry<?,?>)o;
+
+            return valEquals(key,e.getKey()) && valEquals(getValue(),e.getValue());
+        }
+
+        public int hashCode() {
+            int keyHash = (key==null ? 0 : key.hashCode());
+            V value = getValue();
+            int valueHash = (value==null ? 0 : value.hashCode());
+            return keyHash ^ valueHash;
+        }
+
+        public String toString() {
+            return key + "=" + getValue();
+        }
+    }
+
+    // Little utilities
+
+    /**
+     * Compares two keys using the correct comparison method for this map.
+     */
+    @SuppressWarnings("unchecked")
+    final int compare(Object k1, Object k2) {
+        return comparator==null ? ((Comparable<? super K>)k1).compareTo((K)k2)
+            : comparator.compare((K)k1, (K)k2);
+    }
+
+    /**
+     * Test two values for equality.  Differs from o1.equals(o2) only in
+     * that it copes with {@code null} o1 properly.
+     */
+    static final boolean valEquals(Object o1, Object o2) {
+        return (o1==null ? o2==null : o1.equals(o2));
+    }
+
+    /**
+     * Return SimpleImmutableEntry for the mapping at the position, or null
+     */
+    static <K,V> Map.Entry<K,V> exportEntry(Position p) {
+        return (p == null) ? null :
+            new AbstractMap.SimpleImmutableEntry<>(p.<K>key(), p.<V>value());
+    }
+
+    /**
+     * Return key for the position, or null if null
+     */
+    static <K> K keyOrNull(Position p) {
+        return (p == null) ? null : p.key();
+    }
+
+    /**
+     * Returns the key corresponding to the specified position.
+     * @throws NoSuchElementException if the position is null
+     */
+    static <K> K key(Position p) {
+        if (p==null)
+            throw new NoSuchElementException();
+        return p.key();
+    }
+
+    // SubMaps
+
+    /**
+     * A view of a range of a BTreeMap, in either direction.  Unlike
+     * TreeMap, a single class serves both directions, as in
+     * ConcurrentSkipListMap.
+     *
+     * @serial include
+     */
+    static final class SubMap<K,V> extends AbstractMap<K,V>
+        implements NavigableMap<K,V>, Serializable {
+        private static final long serialVersionUID = -3140284637204928114L;
+
+        /**
+         * The backing map.
+         */
+        final BTreeMap<K,V> m;
+
+        /**
+         * Endpoints are represented as triples (fromStart, lo,
+         * loInclusive) and (toEnd, hi, hiInclusive), as in TreeMap.
+         * If fromStart is true, then the low (absolute) bound is the
+         * start of the backing map, and the other values are ignored.
+         * Otherwise, if loInclusive is true, lo is the inclusive
+         * bound, else lo is the exclusive bound.  Similarly for the
+         * upper bound.
+         */
+        final K lo, hi;
+        final boolean fromStart, toEnd;
+        final boolean loInclusive, hiInclusive;
+
+        /** Whether this view runs from the high bound to the low one. */
+        final boolean descending;
+
+        SubMap(BTreeMap<K,V> m,
+               boolean fromStart, K lo, boolean loInclusive,
+               boolean toEnd,     K hi, boolean hiInclusive,
+               boolean descending) {
+            if (!fromStart && !toEnd) {
+                if (m.compare(lo, hi) > 0)
+                    throw new IllegalArgumentException("fromKey > toKey");
+            } else {
+                if (!fromStart) // type check
+                    m.compare(lo, lo);
+                if (!toEnd)
+                    m.compare(hi, hi);
+            }
+
+            this.m = m;
+            this.fromStart = fromStart;
+            this.lo = lo;
+            this.loInclusive = loInclusive;
+            this.toEnd = toEnd;
+            this.hi = hi;
+            this.hiInclusive = hiInclusive;
+            this.descending = descending;
+        }
+
+        // internal utilities
+
+        final boolean tooLow(Object key) {
+            if (!fromStart) {
+                int c = m.compare(key, lo);
+                if (c < 0 || (c == 0 && !loInclusive))
+                    return true;
+            }
+            return false;
+        }
+
+        final boolean tooHigh(Object key) {
+            if (!toEnd) {
+                int c = m.compare(key, hi);
+                if (c > 0 || (c == 0 && !hiInclusive))
+                    return true;
+            }
+            return false;
+        }
+
+        final boolean inRange(Object key) {
+            return !tooLow(key) && !tooHigh(key);
+        }
+
+        final boolean inClosedRange(Object key) {
+            return (fromStart || m.compare(key, lo) >= 0)
+                && (toEnd || m.compare(hi, key) >= 0);
+        }
+
+        final boolean inRange(Object key, boolean inclusive) {
+            return inclusive ? inRange(key) : inClosedRange(key);
+        }
+
+        /*
+         * Absolute versions of relation operations.  The public
+         * methods map to these, inverting senses for descending maps.
+         */
+
+        final Position absLowest() {
+            Position p =
+                (fromStart ?  m.firstPosition() :
+                 m.findNear(lo, loInclusive ? GT|EQ : GT));
+            return (p == null || tooHigh(p.key())) ? null : p;
+        }
+
+        final Position absHighest() {
+            Position p =
+                (toEnd ?  m.lastPosition() :
+                 m.findNear(hi, hiInclusive ? LT|EQ : LT));
+            return (p == null || tooLow(p.key())) ? null : p;
+        }
+
+        final Position absCeiling(Object key) {
+            if (tooLow(key))
+                return absLowest();
+            Position p = m.findNear(key, GT|EQ);
+            return (p == null || tooHigh(p.key())) ? null : p;
+        }
+
+        final Position absHigher(Object key) {
+            if (tooLow(key))
+                return absLowest();
+            Position p = m.findNear(key, GT);
+            return (p == null || tooHigh(p.key())) ? null : p;
+        }
+
+        final Position absFloor(Object key) {
+            if (tooHigh(key))
+                return absHighest();
+            Position p = m.findNear(key, LT|EQ);
+            return (p == null || tooLow(p.key())) ? null : p;
+        }
+
+        final Position absLower(Object key) {
+            if (tooHigh(key))
+                return absHighest();
+            Position p = m.findNear(key, LT);
+            return (p == null || tooLow(p.key())) ? null : p;
+        }
+
+        final Position subLowest() {
+            return descending ? absHighest() : absLowest();
+        }
+
+        final Position subHighest() {
+            return descending ? absLowest() : absHighest();
+        }
+
+        final Position subCeiling(K key) {
+            return descending ? absFloor(key) : absCeiling(key);
+        }
+
+        final Position subHigher(K key) {
+            return descending ? absLower(key) : absHigher(key);
+        }
+
+        final Position subFloor(K key) {
+            return descending ? absCeiling(key) : absFloor(key);
+        }
+
+        final Position subLower(K key) {
+            return descending ? absHigher(key) : absLower(key);
+        }
+
+        Iterator<K> keyIterator() {
+            return descending ? m.new KeyIterator(absHighest(), true, !fromStart, lo, loInclusive)
+                              : m.new KeyIterator(absLowest(), false, !toEnd, hi, hiInclusive);
+        }
+
+        Iterator<K> descendingKeyIterator() {
+            return descending ? m.new KeyIterator(absLowest(), false, !toEnd, hi, hiInclusive)
+                              : m.new KeyIterator(absHighest(), true, !fromStart, lo, loInclusive);
+        }
+
+        Iterator<Map.Entry<K,V>> entryIterator() {
+            return descending ? m.new EntryIterator(absHighest(), true, !fromStart, lo, loInclusive)
+                              : m.new EntryIterator(absLowest(), false, !toEnd, hi, hiInclusive);
+        }
+
+        // public methods
+
+        public boolean isEmpty() {
+            return (fromStart && toEnd) ? m.isEmpty() : absLowest() == null;
+        }
+
+        public int size() {
+            if (fromStart && toEnd)
+                return m.size();
+            int n = 0;
+            for (Iterator<K> it = keyIterator(); it.hasNext(); it.next())
+                ++n;
+            return n;
+        }
+
+        public final boolean containsKey(Object key) {
+            return inRange(key) && m.containsKey(key);
+        }
+
+        public final V put(K key, V value) {
+            if (!inRange(key))
+                throw new IllegalArgumentException("key out of range");
+            return m.put(key, value);
+        }
+
+        public final V get(Object key) {
+            return !inRange(key) ? null :  m.get(key);
+        }
+
+        public final V remove(Object key) {
+            return !inRange(key) ? null : m.remove(key);
+        }
+
+        public void clear() {
+            if (fromStart && toEnd)
+                m.clear();
+            else
+                for (Iterator<K> it = keyIterator(); it.hasNext(); ) {
+                    it.next();
+                    it.remove();
+                }
+        }
+
+        public Comparator<? super K> comparator() {
+            return descending ? Collections.reverseOrder(m.comparator)
+                              : m.comparator;
+        }
+
+        public final Map.Entry<K,V> ceilingEntry(K key) {
+            return exportEntry(subCeiling(key));
+        }
+
+        public final K ceilingKey(K key) {
+            return keyOrNull(subCeiling(key));
+        }
+
+        public final Map.Entry<K,V> higherEntry(K key) {
+            return exportEntry(subHigher(key));
+        }
+
+        public final K higherKey(K key) {
+            return keyOrNull(subHigher(key));
+        }
+
+        public final Map.Entry<K,V> floorEntry(K key) {
+            return exportEntry(subFloor(key));
+        }
+
+        public final K floorKey(K key) {
+            return keyOrNull(subFloor(key));
+        }
+
+        public final Map.Entry<K,V> lowerEntry(K key) {
+            return exportEntry(subLower(key));
+        }
+
+        public final K lowerKey(K key) {
+            return keyOrNull(subLower(key));
+        }
+
+        public final K firstKey() {
+            return key(subLowest());
+        }
+
+        public final K lastKey() {
+            return key(subHighest());
+        }
+
+        public final Map.Entry<K,V> firstEntry() {
+            return exportEntry(subLowest());
+        }
+
+        public final Map.Entry<K,V> lastEntry() {
+            return exportEntry(subHighest());
+        }
+
+        public final Map.Entry<K,V> pollFirstEntry() {
+            Position p = subLowest();
+            Map.Entry<K,V> result = exportEntry(p);
+            if (p != null)
+                m.deleteAt(p.leaf, p.index);
+            return result;
+        }
+
+        public final Map.Entry<K,V> pollLastEntry() {
+            Position p = subHighest();
+            Map.Entry<K,V> result = exportEntry(p);
+            if (p != null)
+                m.deleteAt(p.leaf, p.index);
+            return result;
+        }
+
+        public NavigableMap<K,V> subMap(K fromKey, boolean fromInclusive,
+                                        K toKey,   boolean toInclusive) {
+            if (!inRange(fromKey, fromInclusive))
+                throw new IllegalArgumentException("fromKey out of range");
+            if (!inRange(toKey, toInclusive))
+                throw new IllegalArgumentException("toKey out of range");
+            if (descending)
+                return new SubMap<>(m,
+                                    false, toKey,   toInclusive,
+                                    false, fromKey, fromInclusive, true);
+            return new SubMap<>(m,
+                                false, fromKey, fromInclusive,
+                                false, toKey,   toInclusive, false);
+        }
+
+        public NavigableMap<K,V> headMap(K toKey, boolean inclusive) {
+            if (!inRange(toKey, inclusive))
+                throw new IllegalArgumentException("toKey out of range");
+            if (descending)
+                return new SubMap<>(m,
+                                    false, toKey, inclusive,
+                                    toEnd, hi,    hiInclusive, true);
+            return new SubMap<>(m,
+                                fromStart, lo,    loInclusive,
+                                false,     toKey, inclusive, false);
+        }
+
+        public NavigableMap<K,V> tailMap(K fromKey, boolean inclusive) {
+            if (!inRange(fromKey, inclusive))
+                throw new IllegalArgumentException("fromKey out of range");
+            if (descending)
+                return new SubMap<>(m,
+                                    fromStart, lo,      loInclusive,
+                                    false,     fromKey, inclusive, true);
+            return new SubMap<>(m,
+                                false, fromKey, inclusive,
+                                toEnd, hi,      hiInclusive, false);
+        }
+
+        public final SortedMap<K,V> subMap(K fromKey, K toKey) {
+            return subMap(fromKey, true, toKey, false);
+        }
+
+        public final SortedMap<K,V> headMap(K toKey) {
+            return headMap(toKey, false);
+        }
+
+        public final SortedMap<K,V> tailMap(K fromKey) {
+            return tailMap(fromKey, true);
+        }
+
+        // Views
+        transient NavigableMap<K,V> descendingMapView;
+        transient EntrySetView entrySetView;
+        transient KeySet<K> navigableKeySetView;
+
+        public NavigableMap<K,V> descendingMap() {
+            NavigableMap<K,V> mv = descendingMapView;
+            return (mv != null) ? mv :
+                (descendingMapView =
+                 new SubMap<>(m,
+                              fromStart, lo, loInclusive,
+                              toEnd,     hi, hiInclusive, !descending));
+        }
+
+        public final NavigableSet<K> navigableKeySet() {
+            KeySet<K> nksv = navigableKeySetView;
+            return (nksv != null) ? nksv :
+                (navigableKeySetView = new BTreeMap.KeySet<>(this));
+        }
+
+        public final Set<K> keySet() {
+            return navigableKeySet();
+        }
+
+        public NavigableSet<K> descendingKeySet() {
+            return descendingMap().navigableKeySet();
+        }
+
+        public Set<Map.Entry<K,V>> entrySet() {
+            EntrySetView es = entrySetView;
+            return (es != null) ? es : (entrySetView = new EntrySetView());
+        }
+
+        final class EntrySetView extends AbstractSet<Map.Entry<K,V>> {
+            public Iterator<Map.Entry<K,V>> iterator() {
+                return entryIterator();
+            }
+
+            public int size() {
+                return SubMap.this.size();
+            }
+
+            public boolean isEmpty() {
+                return SubMap.this.isEmpty();
+            }
+
+            public boolean contains(Object o) {
+                if (!(o instanceof Map.Entry))
+                    return false;
+                Map.Entry<?,?> entry = (Map.Entry<?,?>) o;
+                Object key = entry.getKey();
+                if (!inRange(key))
+                    return false;
+                Position p = m.getPosition(key);
+                return p != null && valEquals(p.value(), entry.getValue());
+            }
+
+            public boolean remove(Object o) {
+                if (!(o instanceof Map.Entry))
+                    return false;
+                Map.Entry<?,?> entry = (Map.Entry<?,?>) o;
+                Object key = entry.getKey();
+                if (!inRange(key))
+                    return false;
+                Position p = m.getPosition(key);
+                if (p != null && valEquals(p.value(), entry.getValue())) {
+                    m.deleteAt(p.leaf, p.index);
+                    return true;
+                }
+                return false;
+            }
+
+            public void clear() {
+                SubMap.this.clear();
+            }
+        }
+    }
+
+    // Nodes
+
+    /**
+     * A node of the tree, holding its keys in ascending order in the
+     * first n slots of keys.
+     */
+    static class Node {
+        final Object[] keys;
+        int n;
+
+        Node(int capacity) {
+            keys = new Object[capacity];
+        }
+    }
+
+    /**
+     * A leaf, holding the value for keys[i] in vals[i], and linked to
+     * its neighbours in key order.
+     */
+    static final class Leaf extends Node {
+        final Object[] vals = new Object[LEAF_CAPACITY];
+        Leaf prev, next;
+
+        Leaf() {
+            super(LEAF_CAPACITY);
+        }
+    }
+
+    /**
+     * A branch, holding n separator keys between n + 1 children.
+     */
+    static final class Branch extends Node {
+        final Node[] children = new Node[BRANCH_CAPACITY];
+
+        Branch() {
+            super(BRANCH_CAPACITY - 1);
+        }
+    }
+
+    /**
+     * The location of a mapping within its leaf, valid until the next
+     * structural modification.
+     */
+    static final class Position {
+        final Leaf leaf;
+        final int index;
+
+        Position(Leaf leaf, int index) {
+            this.leaf = leaf;
+            this.index = index;
+        }
+
+        @SuppressWarnings("unchecked")
+        <K> K key() {
+            return (K)leaf.keys[index];
+        }
+
+        @SuppressWarnings("unchecked")
+        <V> V value() {
+            return (V)leaf.vals[index];
+        }
+    }
+
+    /**
+     * Inserts a mapping at index i of a leaf that is not full.
+     */
+    private static void insertAt(Leaf l, int i, Object key, Object value) {
+        int n = l.n;
+        System.arraycopy(l.keys, i, l.keys, i + 1, n - i);
+        System.arraycopy(l.vals, i, l.vals, i + 1, n - i);
+        l.keys[i] = key;
+        l.vals[i] = value;
+        l.n = n + 1;
+    }
+
+    /**
+     * Inserts a mapping at index i of a full leaf, splitting it in two
+     * and adding the new leaf to the branches above.
+     */
+    private void splitAndInsert(Leaf l, int i, Object key, Object value) {
+        Leaf r = new Leaf();
+        if (l == last && i == LEAF_CAPACITY) {
+            // Appending: start a new leaf, leaving this one full
+            r.keys[0] = key;
+            r.vals[0] = value;
+            r.n = 1;
+        } else {
+            int k = LEAF_CAPACITY / 2, m = LEAF_CAPACITY - k;
+            System.arraycopy(l.keys, k, r.keys, 0, m);
+            System.arraycopy(l.vals, k, r.vals, 0, m);
+            Arrays.fill(l.keys, k, LEAF_CAPACITY, null);
+            Arrays.fill(l.vals, k, LEAF_CAPACITY, null);
+            l.n = k;
+            r.n = m;
+            if (i <= k)
+                insertAt(l, i, key, value);
+            else
+                insertAt(r, i - k, key, value);
+        }
+        r.prev = l;
+        r.next = l.next;
+        if (l.next != null)
+            l.next.prev = r;
+        else
+            last = r;
+        l.next = r;
+        addChild(key, r.keys[0], r);
+    }
+
+    /**
+     * Adds a node that has just been split off from the node covering
+     * key, with the given separator, to the branch above it, splitting
+     * branches up the tree as needed.
+     */
+    private void addChild(Object key, Object sep, Node right) {
+        int h = height;
+        Branch[] path = new Branch[h];
+        int[] slots = new int[h];
+        Node x = root;
+        for (int d = 0; d < h; ++d) {
+            Branch b = (Branch)x;
+            int c = childIndex(b, key);
+            path[d] = b;
+            slots[d] = c;
+            x = b.children[c];
+        }
+        for (int d = h - 1; d >= 0; --d) {
+            Branch b = path[d];
+            int c = slots[d];
+            if (b.n < BRANCH_CAPACITY - 1) {
+                insertChild(b, c, sep, right);
+                return;
+            }
+            // Split b, keeping k children on the left and moving up the
+            // key between the halves
+            Branch r = new Branch();
+            int k = BRANCH_CAPACITY / 2, m = b.n - k;
+            Object up = b.keys[k - 1];
+            System.arraycopy(b.keys, k, r.keys, 0, m);
+            System.arraycopy(b.children, k, r.children, 0, m + 1);
+            Arrays.fill(b.keys, k - 1, b.n, null);
+            Arrays.fill(b.children, k, b.n + 1, null);
+            b.n = k - 1;
+            r.n = m;
+            if (c < k)
+                insertChild(b, c, sep, right);
+            else
+                insertChild(r, c - k, sep, right);
+            sep = up;
+            right = r;
+        }
+        Branch b = new Branch();
+        b.keys[0] = sep;
+        b.children[0] = root;
+        b.children[1] = right;
+        b.n = 1;
+        root = b;
+        height = h + 1;
+    }
+
+    /**
+     * Inserts a separator and the child to its right after child c of a
+     * branch that is not full.
+     */
+    private static void insertChild(Branch b, int c, Object sep, Node right) {
+        int n = b.n;
+        System.arraycopy(b.keys, c, b.keys, c + 1, n - c);
+        System.arraycopy(b.children, c + 1, b.children, c + 2, n - c);
+        b.keys[c] = sep;
+        b.children[c + 1] = right;
+        b.n = n + 1;
+    }
+
+    /**
+     * Removes separator c and child c + 1 from a branch.
+     */
+    private static void removeChild(Branch b, int c) {
+        int n = b.n - 1;
+        System.arraycopy(b.keys, c + 1, b.keys, c, n - c);
+        System.arraycopy(b.children, c + 2, b.children, c + 1, n - c);
+        b.keys[n] = null;
+        b.children[n + 1] = null;
+        b.n = n;
+    }
+
+    /**
+     * Deletes the mapping at index i of a leaf, and rebalances the tree
+     * if the leaf drops below half full.  Returns true if it did, in
+     * which case other mappings may have moved to different leaves.
+     */
+    final boolean deleteAt(Leaf l, int i) {
+        Object key = l.keys[i];
+        int n = l.n - 1;
+        System.arraycopy(l.keys, i + 1, l.keys, i, n - i);
+        System.arraycopy(l.vals, i + 1, l.vals, i, n - i);
+        l.keys[n] = null;
+        l.vals[n] = null;
+        l.n = n;
+        size--;
+        modCount++;
+        if (l == root) {
+            if (n == 0)
+                root = first = last = null;
+            return false;
+        }
+        if (n >= LEAF_MIN)
+            return false;
+        rebalance(key);
+        return true;
+    }
+
+    /**
+     * Restores the minimum occupancy of the nodes along the path to the
+     * leaf covering key, which has just dropped below it, and shortens
+     * the tree if the root is left with a single child.
+     */
+    private void rebalance(Object key) {
+        int h = height;
+        Branch[] path = new Branch[h];
+        int[] slots = new int[h];
+        Node x = root;
+        for (int d = 0; d < h; ++d) {
+            Branch b = (Branch)x;
+            int c = childIndex(b, key);
+            path[d] = b;
+            slots[d] = c;
+            x = b.children[c];
+        }
+        for (int d = h - 1; d >= 0; --d) {
+            Branch p = path[d];
+            int c = slots[d];
+            x = p.children[c];
+            if ((x instanceof Leaf) ? x.n >= LEAF_MIN : x.n + 1 >= BRANCH_MIN)
+                break;
+            if (c == p.n) // take the left sibling of a last child
+                --c;
+            if (x instanceof Leaf)
+                rebalanceLeaves(p, c);
+            else
+                rebalanceBranches(p, c);
+        }
+        Node r = root;
+        while (height > 0 && r.n == 0) {
+            r = ((Branch)r).children[0];
+            --height;
+        }
+        root = r;
+    }
+
+    /**
+     * Merges leaves c and c + 1 of a branch, or shares their mappings
+     * evenly if they do not fit in one.
+     */
+    private void rebalanceLeaves(Branch p, int c) {
+        Leaf a = (Leaf)p.children[c], b = (Leaf)p.children[c + 1];
+        int an = a.n, bn = b.n, t = an + bn;
+        if (t <= LEAF_CAPACITY) {
+            System.arraycopy(b.keys, 0, a.keys, an, bn);
+            System.arraycopy(b.vals, 0, a.vals, an, bn);
+            a.n = t;
+            a.next = b.next;
+            if (b.next != null)
+                b.next.prev = a;
+            else
+                last = a;
+            Arrays.fill(b.keys, 0, bn, null);
+            Arrays.fill(b.vals, 0, bn, null);
+            b.n = 0;
+            removeChild(p, c);
+        } else {
+            int k = t >>> 1, m;
+            if (an < k) { // move the first k - an mappings of b to a
+                m = k - an;
+                System.arraycopy(b.keys, 0, a.keys, an, m);
+                System.arraycopy(b.vals, 0, a.vals, an, m);
+                System.arraycopy(b.keys, m, b.keys, 0, bn - m);
+                System.arraycopy(b.vals, m, b.vals, 0, bn - m);
+                Arrays.fill(b.keys, bn - m, bn, null);
+                Arrays.fill(b.vals, bn - m, bn, null);
+            } else {      // move the last an - k mappings of a to b
+                m = an - k;
+                System.arraycopy(b.keys, 0, b.keys, m, bn);
+                System.arraycopy(b.vals, 0, b.vals, m, bn);
+                System.arraycopy(a.keys, k, b.keys, 0, m);
+                System.arraycopy(a.vals, k, b.vals, 0, m);
+                Arrays.fill(a.keys, k, an, null);
+                Arrays.fill(a.vals, k, an, null);
+            }
+            a.n = k;
+            b.n = t - k;
+            p.keys[c] = b.keys[0];
+        }
+    }
+
+    /**
+     * Merges branches c and c + 1 of a branch, pulling down the
+     * separator between them, or shares their children evenly if they
+     * do not fit in one.
+     */
+    private static void rebalanceBranches(Branch p, int c) {
+        Branch a = (Branch)p.children[c], b = (Branch)p.children[c + 1];
+        int an = a.n, bn = b.n, t = an + bn + 2; // children
+        if (t <= BRANCH_CAPACITY) {
+            a.keys[an] = p.keys[c];
+            System.arraycopy(b.keys, 0, a.keys, an + 1, bn);
+            System.arraycopy(b.children, 0, a.children, an + 1, bn + 1);
+            a.n = t - 1;
+            Arrays.fill(b.keys, 0, bn, null);
+            Arrays.fill(b.children, 0, bn + 1, null);
+            b.n = 0;
+            removeChild(p, c);
+        } else {
+            // Rare enough to go through scratch arrays
+            Object[] keys = new Object[t - 1];
+            Node[] children = new Node[t];
+            System.arraycopy(a.keys, 0, keys, 0, an);
+            keys[an] = p.keys[c];
+            System.arraycopy(b.keys, 0, keys, an + 1, bn);
+            System.arraycopy(a.children, 0, children, 0, an + 1);
+            System.arraycopy(b.children, 0, children, an + 1, bn + 1);
+            Arrays.fill(a.keys, null);
+            Arrays.fill(a.children, null);
+            Arrays.fill(b.keys, null);
+            Arrays.fill(b.children, null);
+            int k = t >>> 1;
+            System.arraycopy(keys, 0, a.keys, 0, k - 1);
+            System.arraycopy(children, 0, a.children, 0, k);
+            p.keys[c] = keys[k - 1];
+            System.arraycopy(keys, k, b.keys, 0, t - 1 - k);
+            System.arraycopy(children, k, b.children, 0, t - k);
+            a.n = k - 1;
+            b.n = t - 1 - k;
+        }
+    }
+
+    /**
+     * Save the state of the {@code BTreeMap} instance to a stream (i.e.,
+     * serialize it).
+     *
+     * @serialData The <em>size</em> of the map (the number of key-value
+     *             mappings) is emitted (int), followed by the key (Object)
+     *             and value (Object) for each key-value mapping represented
+     *             by the map, in key order, exactly as for a TreeMap.
+     */
+    private void writeObject(java.io.ObjectOutputStream s)
+        throws java.io.IOException {
+        // Write out the Comparator and any hidden stuff
+        s.defaultWriteObject();
+
+        // Write out size (number of Mappings)
+        s.writeInt(size);
+
+        // Write out keys and values (alternating)
+        for (Leaf l = first; l != null; l = l.next) {
+            for (int i = 0; i < l.n; ++i) {
+                s.writeObject(l.keys[i]);
+                s.writeObject(l.vals[i]);
+            }
+        }
+    }
+
+    /**
+     * Reconstitute the {@code BTreeMap} instance from a stream (i.e.,
+     * deserialize it).
+     */
+    private void readObject(final java.io.ObjectInputStream s)
+        throws java.io.IOException, ClassNotFoundException {
+        // Read in the Comparator and any hidden stuff
+        s.defaultReadObject();
+
+        // Read in size
+        int size = s.readInt();
+        if (size < 0)
+            throw new java.io.InvalidObjectException("Illegal size: " + size);
+
+        buildFromSorted(size, null, s);
+    }
+
+    /**
+     * Linear time tree building algorithm from sorted data, reading
+     * either Map.Entries from an iterator (it != null) or alternating
+     * keys and values from a stream (it == null).  It is assumed that
+     * the comparator of the map is already set and the map is empty.
+     *
+     * The mappings are spread evenly over as few leaves as will hold
+     * them, and the leaves likewise over as few branches as possible
+     * at each level, so every node other than the root is at least
+     * half full.
+     *
+     * @param size the number of keys (or key-value pairs) to be read from
+     *        the iterator or stream
+     * @param it If non-null, new entries are created from entries
+     *        read from this iterator.
+     * @param str If {@code it} is null, keys and values are read from
+     *        this stream in alternation.
+     * @throws java.io.IOException propagated from stream reads. This cannot
+     *         occur if str is null.
+     * @throws ClassNotFoundException propagated from readObject.
+     *         This cannot occur if str is null.
+     */
+    private void buildFromSorted(int size, Iterator<?> it,
+                                 java.io.ObjectInputStream str)
+        throws  java.io.IOException, ClassNotFoundException {
+        this.size = size;
+        if (size == 0)
+            return;
+
+        int nLeaves = (size + LEAF_CAPACITY - 1) / LEAF_CAPACITY;
+        Node[] level = new Node[nLeaves];
+        Object[] lows = new Object[nLeaves]; // the least key under each node
+        int base = size / nLeaves, extra = size % nLeaves;
+        Leaf prev = null;
+        for (int j = 0; j < nLeaves; ++j) {
+            Leaf l = new Leaf();
+            int n = base + (j < extra ? 1 : 0);
+            for (int i = 0; i < n; ++i) {
+                if (it != null) {
+                    Map.Entry<?,?> entry = (Map.Entry<?,?>)it.next();
+                    l.keys[i] = entry.getKey();
+                    l.vals[i] = entry.getValue();
+                } else {
+                    l.keys[i] = str.readObject();
+                    l.vals[i] = str.readObject();
+                }
+            }
+            l.n = n;
+            if ((l.prev = prev) != null)
+                prev.next = l;
+            else
+                first = l;
+            prev = l;
+            level[j] = l;
+            lows[j] = l.keys[0];
+        }
+        last = prev;
+
+        int h = 0;
+        for (int count = nLeaves; count > 1; ++h) {
+            int groups = (count + BRANCH_CAPACITY - 1) / BRANCH_CAPACITY;
+            base = count / groups;
+            extra = count % groups;
+            for (int g = 0, src = 0; g < groups; ++g) {
+                int n = base + (g < extra ? 1 : 0);
+                Branch b = new Branch();
+                System.arraycopy(level, src, b.children, 0, n);
+                System.arraycopy(lows, src + 1, b.keys, 0, n - 1);
+                b.n = n - 1;
+                level[g] = b;   // g <= src, so nothing unread is overwritten
+                lows[g] = lows[src];
+                src += n;
+            }
+            count = groups;
+        }
+        root = level[0];
+        height = h;
+    }
+}
@@ -0,0 +1,779 @@
+/*
+ * Copyright (c) 2018, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package java.util;
+
+import java.util.function.Function;
+import java.util.function.ToIntBiFunction;
+
+/**
+ * A thread-safe cache holding a bounded total weight of mappings, evicting
+ * mappings as needed to stay within the bound.  This class is meant to
+ * replace the common idiom of a {@link LinkedHashMap} in access order,
+ * bounded by {@link LinkedHashMap#removeEldestEntry removeEldestEntry} and
+ * wrapped by {@link Collections#synchronizedMap}, under which every
+ * {@code get} contends for a single lock because it reorders the map.
+ *
+ * <p>A cache is divided into <i>segments</i>, each an access-ordered
+ * {@code LinkedHashMap} guarded by its own lock and responsible for an
+ * equal share of the maximum weight.  Operations on keys that fall in
+ * different segments proceed in parallel, so throughput scales with the
+ * number of segments, which is chosen from the <i>concurrency level</i>
+ * given to the constructor.  Since each segment is bounded separately,
+ * an unlucky spread of keys may cause mappings to be evicted while the
+ * cache as a whole holds less than its maximum weight.
+ *
+ * <p>Each mapping has a weight, given by the <i>weigher</i> supplied on
+ * construction, or one if there is none.  Weights are computed when a
+ * mapping is added or its value replaced, and recorded with the mapping
+ * until it is removed or replaced again.  Which mapping is evicted when a
+ * segment exceeds its share depends on the {@linkplain Policy policy} of
+ * the cache.
+ *
+ * <p>The cache keeps counts of hits, misses and evictions.  Lookups by
+ * {@link #get} and {@link #computeIfAbsent} are counted as hits or
+ * misses; {@link #containsKey} is not, and does not affect eviction.
+ *
+ * <p>Like {@link java.util.concurrent.ConcurrentHashMap}, this class
+ * does <em>not</em> allow {@code null} to be used as a key or value.
+ * It does not implement the {@link Map} interface, since its mappings
+ * may vanish at any time.
+ *
+ * @param <K> the type of keys maintained by this cache
+ * @param <V> the type of mapped values
+ *
+ * @see     LinkedHashMap
+ * @since   11
+ */
+public class BoundedCache<K,V> {
+
+    /*
+     * Implementation notes.
+     *
+     * Each segment holds one or two AccessMaps: LinkedHashMaps in
+     * access order that track their total weight and hand insertion
+     * and removal to the segment through the afterNodeInsertion and
+     * afterNodeRemoval hooks that LinkedHashMap itself uses for
+     * removeEldestEntry and unlinking, while afterNodeAccess keeps
+     * moving accessed entries to the tail as usual.  The head of an
+     * AccessMap is thus its least recently used entry.
+     *
+     * LRU evicts the head.  LFU evicts the least frequently used of
+     * the LFU_SAMPLE least recently used entries, so that each
+     * eviction takes constant time; frequencies come from a
+     * FrequencySketch rather than from per-entry counts, since
+     * LinkedHashMap entries have no room for them.  WINDOW_TINY_LFU
+     * adds a window AccessMap, given WINDOW_PERCENT of the weight,
+     * which receives new mappings; entries leaving the window are
+     * admitted to the main map only if the sketch considers them more
+     * frequently used than the entries they would displace (see
+     * admit).  Unlike the original W-TinyLFU design, the main map is a
+     * single LRU list rather than a segmented one.
+     *
+     * AccessMaps create WeightedEntries recording the weight of each
+     * mapping, so that the total stays exact whatever the weigher
+     * later returns.  They never convert bins to trees, since
+     * TreeNodes have no weight field.
+     *
+     * Keys are assigned to segments by the high bits of their mixed
+     * hash, since the low bits select bins within each segment.
+     */
+
+    /**
+     * The policies by which a cache chooses the mappings to evict.
+     *
+     * @since 11
+     */
+    public enum Policy {
+        /**
+         * Evicts the least recently used mapping.
+         */
+        LRU,
+
+        /**
+         * Evicts a mapping that is rarely used, chosen among the least
+         * recently used, using a decaying estimate of the frequency of
+         * use of each key.  Favors mappings used often over a long
+         * period over those used recently.
+         */
+        LFU,
+
+        /**
+         * Holds new mappings in a small LRU window, and admits mappings
+         * leaving the window into the rest of the cache only if their
+         * keys are used more frequently than those of the mappings they
+         * would displace, whether or not the key is in the cache.
+         * Combines the advantages of LRU and LFU on most workloads, and
+         * resists scans of keys that are used only once.
+         */
+        WINDOW_TINY_LFU
+    }
+
+    /** The maximum number of segments. */
+    static final int MAX_SEGMENTS = 1 << 16;
+
+    /** The smallest weight share for which segments are divided further. */
+    static final int MIN_SEGMENT_WEIGHT = 16;
+
+    /** The default concurrency level. */
+    static final int DEFAULT_CONCURRENCY_LEVEL = 16;
+
+    /** The number of least recently used entries examined by LFU. */
+    static final int LFU_SAMPLE = 8;
+
+    /** The share of the weight given to the window of WINDOW_TINY_LFU. */
+    static final int WINDOW_PERCENT = 1;
+
+    /** The segments, each guarded by its own lock. */
+    final Segment<K,V>[] segments;
+
+    /** Shift and mask selecting a segment from a hash. */
+    final int segmentShift, segmentMask;
+
+    final long maximumWeight;
+    final Policy policy;
+    final ToIntBiFunction<? super K, ? super V> weigher;
+
+    /**
+     * Constructs an empty LRU cache holding at most the given number of
+     * mappings, with the default concurrency level (16).
+     *
+     * @param  maximumSize the maximum number of mappings
+     * @throws IllegalArgumentException if the maximum size is not positive
+     */
+    public BoundedCache(long maximumSize) {
+        this(maximumSize, Policy.LRU, null, DEFAULT_CONCURRENCY_LEVEL);
+    }
+
+    /**
+     * Constructs an empty cache with the given maximum weight, eviction
+     * policy, weigher and concurrency level.
+     *
+     * @param  maximumWeight the maximum total weight of the mappings
+     * @param  policy the eviction policy
+     * @param  weigher the function giving the weight of a mapping, or
+     *         {@code null} to give each mapping a weight of one
+     * @param  concurrencyLevel the estimated number of concurrently
+     *         updating threads; the cache uses this as a hint for the
+     *         number of segments
+     * @throws IllegalArgumentException if the maximum weight or the
+     *         concurrency level is not positive
+     * @throws NullPointerException if the policy is null
+     */
+    @SuppressWarnings("unchecked")
+    public BoundedCache(long maximumWeight, Policy policy,
+                        ToIntBiFunction<? super K, ? super V> weigher,
+                        int concurrencyLevel) {
+        if (maximumWeight <= 0L || concurrencyLevel <= 0)
+            throw new IllegalArgumentException();
+        this.policy = Objects.requireNonNull(policy);
+        this.maximumWeight = maximumWeight;
+        this.weigher = weigher;
+        int n = HashMap.tableSizeFor(Math.min(concurrencyLevel, MAX_SEGMENTS));
+        while (n > 1 && maximumWeight / n < MIN_SEGMENT_WEIGHT)
+            n >>>= 1;
+        segmentShift = 32 - Integer.numberOfTrailingZeros(n);
+        segmentMask = n - 1;
+        Segment<K,V>[] segs = (Segment<K,V>[])new Segment<?,?>[n];
+        long share = maximumWeight / n, extra = maximumWeight % n;
+        for (int i = 0; i < n; ++i)
+            segs[i] = new Segment<K,V>(this, share + (i < extra ? 1 : 0));
+        segments = segs;
+    }
+
+    /**
+     * Returns the segment for the given hash.
+     */
+    final Segment<K,V> segmentFor(int h) {
+        // for a single segment, the shift is 32, a no-op masked to zero
+        return segments[((h * 0x9E3779B9) >>> segmentShift) & segmentMask];
+    }
+
+    /**
+     * Returns the weight of a mapping.
+     */
+    final int weigh(K key, V value) {
+        ToIntBiFunction<? super K, ? super V> w;
+        if ((w = weigher) == null)
+            return 1;
+        int weight = w.applyAsInt(key, value);
+        if (weight < 0)
+            throw new IllegalArgumentException("Negative weight: " + weight);
+        return weight;
+    }
+
+    /**
+     * Returns the value to which the specified key is mapped, or
+     * {@code null} if this cache contains no mapping for the key,
+     * counting a hit or a miss.
+     *
+     * @param  key the key whose associated value is to be returned
+     * @return the value to which the specified key is mapped, or
+     *         {@code null} if this cache contains no mapping for the key
+     * @throws NullPointerException if the specified key is null
+     */
+    public V get(Object key) {
+        int h = HashMap.hash(Objects.requireNonNull(key));
+        return segmentFor(h).get(key, h);
+    }
+
+    /**
+     * Returns {@code true} if this cache contains a mapping for the
+     * specified key.  This does not count as a use of the mapping.
+     *
+     * @param  key key whose presence in this cache is to be tested
+     * @return {@code true} if this cache contains a mapping for the
+     *         specified key
+     * @throws NullPointerException if the specified key is null
+     */
+    public boolean containsKey(Object key) {
+        int h = HashMap.hash(Objects.requireNonNull(key));
+        return segmentFor(h).containsKey(key);
+    }
+
+    /**
+     * Associates the specified value with the specified key in this
+     * cache, evicting other mappings as needed.  A mapping that weighs
+     * more than its segment can hold, which is its share of the maximum
+     * weight less any share given to the window of a {@link
+     * Policy#WINDOW_TINY_LFU} cache, is evicted at once, along with any
+     * previous mapping for the key, and displaces no other mapping.
+     *
+     * @param  key key with which the specified value is to be associated
+     * @param  value value to be associated with the specified key
+     * @return the previous value associated with {@code key}, or
+     *         {@code null} if there was no mapping for {@code key}
+     * @throws NullPointerException if the specified key or value is null
+     * @throws IllegalArgumentException if the weigher returns a negative
+     *         weight
+     */
+    public V put(K key, V value) {
+        int h = HashMap.hash(Objects.requireNonNull(key));
+        return segmentFor(h).put(key, Objects.requireNonNull(value), h, false);
+    }
+
+    /**
+     * If the specified key is not already associated with a value,
+     * associates it with the given value, evicting other mappings as
+     * needed.
+     *
+     * @param  key key with which the specified value is to be associated
+     * @param  value value to be associated with the specified key
+     * @return the previous value associated with {@code key}, or
+     *         {@code null} if there was no mapping for {@code key}
+     * @throws NullPointerException if the specified key or value is null
+     * @throws IllegalArgumentException if the weigher returns a negative
+     *         weight
+     */
+    public V putIfAbsent(K key, V value) {
+        int h = HashMap.hash(Objects.requireNonNull(key));
+        return segmentFor(h).put(key, Objects.requireNonNull(value), h, true);
+    }
+
+    /**
+     * Returns the value to which the specified key is mapped, if any,
+     * counting a hit; otherwise counts a miss, and attempts to compute
+     * a value using the given mapping function and enters it into this
+     * cache unless {@code null}.  The function is applied while holding
+     * the lock of the key's segment, so it should be short and simple,
+     * and must not attempt to update this cache.
+     *
+     * @param  key key with which the specified value is to be associated
+     * @param  mappingFunction the function to compute a value
+     * @return the current (existing or computed) value associated with
+     *         the specified key, or null if the computed value is null
+     * @throws NullPointerException if the specified key or
+     *         mappingFunction is null
+     * @throws IllegalArgumentException if the weigher returns a negative
+     *         weight
+     */
+    public V computeIfAbsent(K key,
+                             Function<? super K, ? extends V> mappingFunction) {
+        int h = HashMap.hash(Objects.requireNonNull(key));
+        Objects.requireNonNull(mappingFunction);
+        return segmentFor(h).computeIfAbsent(key, h, mappingFunction);
+    }
+
+    /**
+     * Removes the mapping for a key from this cache if it is present.
+     * Removals are not counted as evictions.
+     *
+     * @param  key key whose mapping is to be removed from the cache
+     * @return the previous value associated with {@code key}, or
+     *         {@code null} if there was no mapping for {@code key}
+     * @throws NullPointerException if the specified key is null
+     */
+    public V remove(Object key) {
+        int h = HashMap.hash(Objects.requireNonNull(key));
+        return segmentFor(h).remove(key);
+    }
+
+    /**
+     * Removes all of the mappings from this cache.  The counts of hits,
+     * misses and evictions are not reset.
+     */
+    public void clear() {
+        for (Segment<K,V> s : segments)
+            s.clear();
+    }
+
+    /**
+     * Returns the number of mappings in this cache.  The result is only
+     * a snapshot if the cache is being updated concurrently.
+     *
+     * @return the number of mappings in this cache
+     */
+    public int size() {
+        long n = 0L;
+        for (Segment<K,V> s : segments)
+            n += s.size();
+        return (n > Integer.MAX_VALUE) ? Integer.MAX_VALUE : (int)n;
+    }
+
+    /**
+     * Returns the total weight of the mappings in this cache, which is
+     * at most {@link #maximumWeight}.
+     *
+     * @return the total weight of the mappings in this cache
+     */
+    public long weightedSize() {
+        long w = 0L;
+        for (Segment<K,V> s : segments)
+            w += s.weight();
+        return w;
+    }
+
+    /**
+     * Returns the maximum total weight of the mappings in this cache.
+     *
+     * @return the maximum weight
+     */
+    public long maximumWeight() {
+        return maximumWeight;
+    }
+
+    /**
+     * Returns the eviction policy of this cache.
+     *
+     * @return the eviction policy
+     */
+    public Policy policy() {
+        return policy;
+    }
+
+    /**
+     * Returns the number of lookups that found a mapping.
+     *
+     * @return the number of hits
+     */
+    public long hitCount() {
+        long n = 0L;
+        for (Segment<K,V> s : segments)
+            n += s.hitCount();
+        return n;
+    }
+
+    /**
+     * Returns the number of lookups that found no mapping.
+     *
+     * @return the number of misses
+     */
+    public long missCount() {
+        long n = 0L;
+        for (Segment<K,V> s : segments)
+            n += s.missCount();
+        return n;
+    }
+
+    /**
+     * Returns the number of mappings evicted, including those rejected
+     * on admission by the {@link Policy#WINDOW_TINY_LFU} policy.
+     *
+     * @return the number of evictions
+     */
+    public long evictionCount() {
+        long n = 0L;
+        for (Segment<K,V> s : segments)
+            n += s.evictionCount();
+        return n;
+    }
+
+    /**
+     * Returns a string representation of this cache, giving its size,
+     * weights and counts.
+     *
+     * @return a string representation of this cache
+     */
+    public String toString() {
+        return "BoundedCache[policy=" + policy +
+            ", size=" + size() +
+            ", weightedSize=" + weightedSize() +
+            ", maximumWeight=" + maximumWeight +
+            ", hits=" + hitCount() +
+            ", misses=" + missCount() +
+            ", evictions=" + evictionCount() + "]";
+    }
+
+    /* ---------------- Segments -------------- */
+
+    /**
+     * A share of the cache, guarded by its own monitor.
+     */
+    static final class Segment<K,V> {
+        final BoundedCache<K,V> cache;
+        final AccessMap<K,V> main;
+        final AccessMap<K,V> window;     // null unless WINDOW_TINY_LFU
+        final FrequencySketch sketch;    // null for LRU
+        long hits, misses, evictions;
+
+        Segment(BoundedCache<K,V> cache, long maximumWeight) {
+            this.cache = cache;
+            Policy p = cache.policy;
+            if (p == Policy.WINDOW_TINY_LFU) {
+                long w = Math.max(1L, maximumWeight * WINDOW_PERCENT / 100);
+                window = new AccessMap<>(this, w);
+                main = new AccessMap<>(this, maximumWeight - w);
+            }
+            else {
+                window = null;
+                main = new AccessMap<>(this, maximumWeight);
+            }
+            // without a weigher, the weight bounds the number of keys
+            sketch = (p == Policy.LRU) ? null :
+                new FrequencySketch((cache.weigher != null) ? 0 :
+                                    (int)Math.min(maximumWeight,
+                                                  FrequencySketch.MAXIMUM_LENGTH));
+        }
+
+        synchronized V get(Object key, int h) {
+            V value;
+            if (sketch != null)
+                sketch.increment(h);
+            if ((value = main.get(key)) == null && window != null)
+                value = window.get(key);
+            if (value == null)
+                ++misses;
+            else
+                ++hits;
+            return value;
+        }
+
+        synchronized boolean containsKey(Object key) {
+            return main.containsKey(key) ||
+                (window != null && window.containsKey(key));
+        }
+
+        synchronized V put(K key, V value, int h, boolean onlyIfAbsent) {
+            if (sketch != null)
+                sketch.increment(h);
+            return putVal(key, value, onlyIfAbsent);
+        }
+
+        synchronized V computeIfAbsent(K key, int h,
+                                       Function<? super K, ? extends V> f) {
+            V value;
+            if ((value = get(key, h)) == null &&
+                (value = f.apply(key)) != null)
+                putVal(key, value, false);
+            return value;
+        }
+
+        synchronized V remove(Object key) {
+            V value;
+            if ((value = main.remove(key)) == null && window != null)
+                value = window.remove(key);
+            return value;
+        }
+
+        synchronized void clear() {
+            main.clear();
+            if (window != null)
+                window.clear();
+        }
+
+        synchronized int size() {
+            return main.size() + ((window == null) ? 0 : window.size());
+        }
+
+        synchronized long weight() {
+            return main.weight + ((window == null) ? 0L : window.weight);
+        }
+
+        synchronized long hitCount()            { return hits; }
+        synchronized long missCount()           { return misses; }
+        synchronized long evictionCount()       { return evictions; }
+
+        /**
+         * Implements put, with the lock held and the use of the key
+         * already recorded.  New mappings go to the window, if any, and
+         * are evicted through afterNodeInsertion.
+         */
+        final V putVal(K key, V value, boolean onlyIfAbsent) {
+            int w = cache.weigh(key, value);
+            AccessMap<K,V> m = main;
+            HashMap.Node<K,V> e = m.getNode(m.keyHash(key), key);
+            if (e == null && window != null)
+                e = (m = window).getNode(m.keyHash(key), key);
+            if (e != null) {
+                V oldValue = e.value;
+                if (onlyIfAbsent)
+                    m.afterNodeAccess(e);
+                else if (w > main.maximumWeight) { // too heavy to keep
+                    m.removeNode(e.hash, key, null, false, false);
+                    ++evictions;
+                }
+                else {
+                    WeightedEntry<K,V> p = (WeightedEntry<K,V>)e;
+                    m.weight += w - p.weight;
+                    p.weight = w;
+                    e.value = value;
+                    m.afterNodeAccess(e);
+                    evict();
+                }
+                return oldValue;
+            }
+            if (w > main.maximumWeight) { // evict at once, displacing nothing
+                ++evictions;
+                return null;
+            }
+            m = (window != null) ? window : main;
+            m.nextWeight = w;
+            m.put(key, value);
+            if (sketch != null)
+                sketch.ensureCapacity(size());
+            return null;
+        }
+
+        /**
+         * Evicts mappings until each map is within its weight, moving
+         * entries leaving the window to the main map.
+         */
+        final void evict() {
+            AccessMap<K,V> w = window, m = main;
+            LinkedHashMap.Entry<K,V> e;
+            if (w != null) {
+                while (w.weight > w.maximumWeight && (e = w.head) != null) {
+                    K key = e.key; V value = e.value; int hash = e.hash;
+                    int weight = ((WeightedEntry<K,V>)e).weight;
+                    w.removeNode(hash, key, null, false, false);
+                    admit(key, value, hash, weight);
+                }
+            }
+            while (m.weight > m.maximumWeight && (e = victim()) != null) {
+                m.removeNode(e.hash, e.key, null, false, false);
+                ++evictions;
+            }
+        }
+
+        /**
+         * Returns the entry of the main map to evict next, or null if
+         * it is empty.
+         */
+        final LinkedHashMap.Entry<K,V> victim() {
+            LinkedHashMap.Entry<K,V> victim = main.head, e;
+            if (cache.policy == Policy.LFU && (e = victim) != null) {
+                int f = sketch.frequency(victim.hash);
+                for (int i = 1; i < LFU_SAMPLE && (e = e.after) != null; ++i) {
+                    int g = sketch.frequency(e.hash);
+                    if (g < f) {
+                        victim = e;
+                        f = g;
+                    }
+                }
+            }
+            return victim;
+        }
+
+        /**
+         * Moves a mapping of weight w leaving the window into the main
+         * map, if its key is used more frequently than those of all the
+         * entries it would displace; otherwise evicts it.  The victims
+         * are only removed once the mapping is known to be admitted.
+         */
+        final void admit(K key, V value, int hash, int w) {
+            AccessMap<K,V> m = main;
+            int f = sketch.frequency(hash);
+            LinkedHashMap.Entry<K,V> end = m.head, e;
+            for (long excess = m.weight + w - m.maximumWeight; excess > 0L;
+                 end = end.after) {
+                if (end == null || sketch.frequency(end.hash) >= f) {
+                    ++evictions;
+                    return;
+                }
+                excess -= ((WeightedEntry<K,V>)end).weight;
+            }
+            while ((e = m.head) != end) {
+                m.removeNode(e.hash, e.key, null, false, false);
+                ++evictions;
+            }
+            m.nextWeight = w;
+            m.putVal(hash, key, value, false, false);
+        }
+    }
+
+    /**
+     * An access-ordered LinkedHashMap keeping the total weight of its
+     * mappings, and evicting through its segment.
+     */
+    static final class AccessMap<K,V> extends LinkedHashMap<K,V> {
+        private static final long serialVersionUID = 4286712153491127406L;
+
+        final transient Segment<K,V> segment;
+        final long maximumWeight;
+        long weight;
+        int nextWeight; // the weight of the mapping being inserted
+
+        AccessMap(Segment<K,V> segment, long maximumWeight) {
+            super(16, 0.75f, true);
+            this.segment = segment;
+            this.maximumWeight = maximumWeight;
+        }
+
+        boolean supportsTreeBins() {
+            return false;
+        }
+
+        Node<K,V> newNode(int hash, K key, V value, Node<K,V> e) {
+            WeightedEntry<K,V> p = new WeightedEntry<>(hash, key, value, e);
+            weight += p.weight = nextWeight;
+            linkNodeLast(p);
+            return p;
+        }
+
+        void afterNodeInsertion(boolean evict) {
+            if (evict)
+                segment.evict();
+        }
+
+        void afterNodeRemoval(Node<K,V> e) {
+            super.afterNodeRemoval(e);
+            weight -= ((WeightedEntry<K,V>)e).weight;
+        }
+
+        public void clear() {
+            super.clear();
+            weight = 0L;
+        }
+    }
+
+    /**
+     * LinkedHashMap entry recording the weight of its mapping.
+     */
+    static final class WeightedEntry<K,V> extends LinkedHashMap.Entry<K,V> {
+        int weight;
+        WeightedEntry(int hash, K key, V value, HashMap.Node<K,V> next) {
+            super(hash, key, value, next);
+        }
+    }
+
+    /**
+     * A count-min sketch estimating how often keys have been used, with
+     * four 4-bit counters per key, all of which are halved periodically
+     * so that old uses count for less than recent ones.
+     */
+    static final class FrequencySketch {
+        static final long[] SEEDS = {
+            0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L,
+            0x9ae16a3b2f90404fL, 0xcbf29ce484222325L
+        };
+        static final long RESET_MASK = 0x7777777777777777L;
+        static final int MAXIMUM_LENGTH = 1 << 20;
+
+        long[] table;       // sixteen counters per long
+        int additions;      // increments since the last halving
+        int sampleSize;     // increments between halvings
+
+        FrequencySketch(int n) {
+            ensureCapacity(n);
+        }
+
+        /**
+         * Grows the sketch if it is too small for the given number of
+         * keys.  Counters keep their counts: since a counter's index in
+         * the larger table only adds high bits to its index in the old
+         * one, each new word starts as a copy of the old word it refines.
+         */
+        void ensureCapacity(int n) {
+            int len = HashMap.tableSizeFor(Math.min(Math.max(n, 16),
+                                                    MAXIMUM_LENGTH));
+            long[] old = table;
+            if (old == null)
+                table = new long[len];
+            else if (old.length < len) {
+                long[] t = new long[len];
+                int mask = old.length - 1;
+                for (int j = 0; j < len; ++j)
+                    t[j] = old[j & mask];
+                table = t;
+            }
+            else
+                return;
+            sampleSize = 10 * len;
+        }
+
+        /**
+         * Returns the index of the counter for hash h in row i.
+         */
+        int indexOf(int h, int i) {
+            long x = (h + SEEDS[i]) * SEEDS[i];
+            x += x >>> 32;
+            return (int)x & ((table.length << 4) - 1);
+        }
+
+        /**
+         * Returns the estimated number of uses of the key with hash h,
+         * at most 15.
+         */
+        int frequency(int h) {
+            long[] t = table;
+            int f = 15;
+            for (int i = 0; i < 4; ++i) {
+                int c = indexOf(h, i);
+                f = Math.min(f, (int)(t[c >>> 4] >>> ((c & 15) << 2)) & 15);
+            }
+            return f;
+        }
+
+        /**
+         * Records a use of the key with hash h.
+         */
+        void increment(int h) {
+            long[] t = table;
+            boolean added = false;
+            for (int i = 0; i < 4; ++i) {
+                int c = indexOf(h, i), j = c >>> 4, s = (c & 15) << 2;
+                if (((t[j] >>> s) & 15L) != 15L) {
+                    t[j] += 1L << s;
+                    added = true;
+                }
+            }
+            if (added && ++additions >= sampleSize) {
+                for (int j = 0; j < t.length; ++j)
+                    t[j] = (t[j] >>> 1) & RESET_MASK;
+                additions >>>= 1;
+            }
+        }
+    }
+}
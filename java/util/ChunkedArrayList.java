@@ -0,0 +1,1301 @@
+/*
+ * Copyright (c) 2018, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package java.util;
+
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
+
+/**
+ * Resizable-array implementation of the {@code List} interface that stores
+ * its elements in a sequence of fixed-capacity arrays, or <em>chunks</em>,
+ * rather than in one array.  It implements all optional list operations
+ * and permits all elements, including {@code null}, with the same
+ * semantics as {@link ArrayList}.
+ *
+ * <p>An {@code ArrayList} grows by allocating an array half again as large
+ * as its current one and copying every element into it, so adding the
+ * hundred-millionth element allocates an array of a hundred and fifty
+ * million references.  Such arrays are too large for the young generation
+ * of most garbage collectors and, with G1, occupy dedicated "humongous"
+ * regions.  This class never allocates an array of more than 4096
+ * elements: a list grows by adding a chunk to a small directory array
+ * that is the only structure ever copied on growth, and it needs roughly
+ * one directory slot per 4096 elements.  Likewise {@link #add(int, Object)
+ * add(index, element)} and {@link #remove(int) remove(index)} move the
+ * elements of a single chunk rather than the whole tail of the list, a
+ * chunk that overflows is split in two, and sparse neighboring chunks are
+ * merged.
+ *
+ * <p>As long as every chunk but the last is full, which is the case for a
+ * list built by appending, {@code get} and {@code set} locate their chunk
+ * with a shift and run in constant time.  Once insertions or removals in
+ * the middle of the list have left a partially filled chunk, positions
+ * after it are located by a binary search over the directory, taking
+ * time logarithmic in the number of chunks.  The {@link #trimToSize
+ * trimToSize} method packs the elements into full chunks again.
+ * Iteration, {@code forEach} and the bulk operations walk the chunks
+ * directly and are not affected.  The {@link #spliterator spliterator}
+ * splits at chunk boundaries, so parallel streams hand whole chunks to
+ * their worker threads.
+ *
+ * <p><strong>Note that this implementation is not synchronized.</strong>
+ * If multiple threads access a {@code ChunkedArrayList} instance
+ * concurrently, and at least one of the threads modifies the list
+ * structurally, it <i>must</i> be synchronized externally.  (A structural
+ * modification is any operation that adds or deletes one or more elements;
+ * merely setting the value of an element is not a structural modification.)
+ *
+ * <p>The iterators returned by this class's {@link #iterator() iterator} and
+ * {@link #listIterator(int) listIterator} methods are <em>fail-fast</em>, in
+ * the same manner as those of {@code ArrayList}.
+ *
+ * @param <E> the type of elements in this list
+ *
+ * @see ArrayList
+ * @see List
+ * @since 11
+ */
+public class ChunkedArrayList<E> extends AbstractList<E>
+        implements List<E>, RandomAccess, Cloneable, java.io.Serializable
+{
+    private static final long serialVersionUID = -2381409476127391592L;
+
+    /*
+     * Implementation notes.
+     *
+     * Chunk c of the directory holds the elements with indices
+     * ends[c - 1] (or 0 for the first chunk) up to ends[c], at the
+     * start of its array.  Chunks are never empty, and every chunk
+     * except the last has an array of exactly CHUNK_SIZE elements; the
+     * last chunk grows like an ArrayList's array, up to CHUNK_SIZE,
+     * so that small lists stay small.  A removal that empties a chunk
+     * drops it, and one that leaves two neighbors together at most
+     * half full merges them.
+     *
+     * The leading chunks that are full, of which there are "aligned",
+     * hold the elements with indices below aligned * CHUNK_SIZE at the
+     * positions given by the index bits, so lookups of those indices
+     * need no search.  Appends keep every chunk full but the last.
+     *
+     * Bulk removals and trimToSize go through pack, which copies the
+     * surviving elements of a run of chunks toward the first of them,
+     * leaving those chunks full, and drops the chunks left empty.
+     * Since no chunk holds more than CHUNK_SIZE elements, an element
+     * is never written to a later chunk than the one it is read from,
+     * or to a later position in the same chunk, so packing is done in
+     * place like ArrayList's batchRemove.
+     */
+
+    /**
+     * The binary logarithm of the capacity of a chunk.
+     */
+    static final int CHUNK_SHIFT = 12;
+
+    /**
+     * The capacity of a chunk.  An array of 4096 references occupies 16
+     * or 32 kilobytes, well below the size at which collectors treat
+     * arrays as large objects.
+     */
+    static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+
+    /**
+     * Default initial capacity of the first chunk.
+     */
+    private static final int DEFAULT_CAPACITY = 10;
+
+    /**
+     * Shared empty directory used for empty instances.
+     */
+    private static final Object[][] EMPTY_DIRECTORY = {};
+
+    /**
+     * Shared empty end index array used for empty instances.
+     */
+    private static final int[] EMPTY_ENDS = {};
+
+    /**
+     * The directory of chunks, of which the first chunkCount are in use.
+     * When the list is empty, chunks[0] may hold a cleared chunk kept for
+     * reuse.
+     */
+    transient Object[][] chunks;
+
+    /**
+     * ends[c] is the index, in the list, one past the last element of
+     * chunk c.
+     */
+    transient int[] ends;
+
+    /**
+     * The number of chunks in use.
+     */
+    transient int chunkCount;
+
+    /**
+     * The number of leading chunks that are full.
+     */
+    transient int aligned;
+
+    /**
+     * The size of the list (the number of elements it contains).
+     *
+     * @serial
+     */
+    private int size;
+
+    /**
+     * Constructs an empty list with the specified initial capacity.
+     * Capacity beyond that of one chunk is reserved in the directory only.
+     *
+     * @param  initialCapacity  the initial capacity of the list
+     * @throws IllegalArgumentException if the specified initial capacity
+     *         is negative
+     */
+    public ChunkedArrayList(int initialCapacity) {
+        if (initialCapacity > 0) {
+            int n = ((initialCapacity - 1) >>> CHUNK_SHIFT) + 1;
+            chunks = new Object[n][];
+            ends = new int[n];
+            chunks[0] = new Object[Math.min(initialCapacity, CHUNK_SIZE)];
+        } else if (initialCapacity == 0) {
+            chunks = EMPTY_DIRECTORY;
+            ends = EMPTY_ENDS;
+        } else {
+            throw new IllegalArgumentException("Illegal Capacity: "+
+                                               initialCapacity);
+        }
+    }
+
+    /**
+     * Constructs an empty list with an initial capacity of ten.
+     */
+    public ChunkedArrayList() {
+        chunks = EMPTY_DIRECTORY;
+        ends = EMPTY_ENDS;
+    }
+
+    /**
+     * Constructs a list containing the elements of the specified
+     * collection, in the order they are returned by the collection's
+     * iterator.
+     *
+     * @param c the collection whose elements are to be placed into this list
+     * @throws NullPointerException if the specified collection is null
+     */
+    public ChunkedArrayList(Collection<? extends E> c) {
+        this(0);
+        addAll(0, c);
+        modCount = 0;
+    }
+
+    // Directory maintenance
+
+    /**
+     * Returns the index in the list of the first element of chunk c.
+     */
+    private int start(int c) {
+        return (c == 0) ? 0 : ends[c - 1];
+    }
+
+    /**
+     * Returns the number of elements in chunk c.
+     */
+    private int count(int c) {
+        return ends[c] - start(c);
+    }
+
+    /**
+     * Returns the chunk holding the element at the given index, which
+     * must be less than size.
+     */
+    private int chunkFor(int index) {
+        if (index < (aligned << CHUNK_SHIFT))
+            return index >>> CHUNK_SHIFT;
+        int lo = aligned, hi = chunkCount - 1;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (ends[mid] <= index)
+                lo = mid + 1;
+            else
+                hi = mid;
+        }
+        return lo;
+    }
+
+    /**
+     * Recomputes aligned after a change to chunk c or the chunks after it.
+     */
+    private void realign(int c) {
+        int a = Math.min(aligned, c);
+        while (a < chunkCount && count(a) == CHUNK_SIZE)
+            a++;
+        aligned = a;
+    }
+
+    /**
+     * Ensures the directory can hold at least minChunks chunks.
+     */
+    private void ensureDirectory(int minChunks) {
+        int oldLength = chunks.length;
+        if (minChunks > oldLength) {
+            int newLength = Math.max(Math.max(minChunks, 4),
+                                     oldLength + (oldLength >> 1));
+            chunks = Arrays.copyOf(chunks, newLength);
+            ends = Arrays.copyOf(ends, newLength);
+        }
+    }
+
+    /**
+     * Inserts n new, empty chunks of full capacity into the directory at
+     * position at.  The caller sets their ends.
+     */
+    private void openChunks(int at, int n) {
+        ensureDirectory(chunkCount + n);
+        Object[][] chunks = this.chunks;
+        System.arraycopy(chunks, at, chunks, at + n, chunkCount - at);
+        System.arraycopy(ends, at, ends, at + n, chunkCount - at);
+        for (int i = at; i < at + n; i++)
+            chunks[i] = new Object[CHUNK_SIZE];
+        chunkCount += n;
+    }
+
+    /**
+     * Removes chunks from through to - 1 from the directory.
+     */
+    private void removeChunks(int from, int to) {
+        Object[][] chunks = this.chunks;
+        int n = chunkCount;
+        System.arraycopy(chunks, to, chunks, from, n - to);
+        System.arraycopy(ends, to, ends, from, n - to);
+        Arrays.fill(chunks, n - (to - from), n, null);
+        chunkCount = n - (to - from);
+    }
+
+    /**
+     * Adds delta to the ends of chunks from c on.
+     */
+    private void adjustEnds(int c, int delta) {
+        int[] ends = this.ends;
+        for (int n = chunkCount; c < n; c++)
+            ends[c] += delta;
+    }
+
+    /**
+     * Appends an empty chunk to the directory and returns it.  The first
+     * chunk of a list starts small, or reuses the chunk kept by clear.
+     */
+    private Object[] newLastChunk() {
+        int c = chunkCount;
+        Object[] chunk;
+        if (c == 0 && chunks.length > 0 && chunks[0] != null) {
+            chunk = chunks[0];
+        } else {
+            ensureDirectory(c + 1);
+            chunk = chunks[c] = new Object[(c == 0) ? DEFAULT_CAPACITY : CHUNK_SIZE];
+        }
+        ends[c] = start(c);
+        chunkCount = c + 1;
+        return chunk;
+    }
+
+    /**
+     * Grows the array of chunk c, which must be the last chunk, to hold at
+     * least minCapacity elements, and returns it.
+     */
+    private Object[] growChunk(int c, int minCapacity) {
+        Object[] chunk = chunks[c];
+        int oldCapacity = chunk.length;
+        int newCapacity = Math.min(CHUNK_SIZE,
+                                   Math.max(minCapacity,
+                                            oldCapacity + (oldCapacity >> 1)));
+        return chunks[c] = Arrays.copyOf(chunk, newCapacity);
+    }
+
+    /**
+     * Splits full chunk c, moving the upper half of its elements into a
+     * new chunk after it.
+     */
+    private void splitChunk(int c) {
+        final int half = CHUNK_SIZE >>> 1;
+        openChunks(c + 1, 1);
+        Object[] chunk = chunks[c];
+        System.arraycopy(chunk, half, chunks[c + 1], 0, CHUNK_SIZE - half);
+        Arrays.fill(chunk, half, CHUNK_SIZE, null);
+        ends[c + 1] = ends[c];
+        ends[c] -= CHUNK_SIZE - half;
+        if (aligned > c)
+            aligned = c;
+    }
+
+    /**
+     * Drops chunk c if it is empty, or else merges it with a neighbor if
+     * together they are at most half full.
+     */
+    private void coalesce(int c) {
+        int n = count(c);
+        if (n == 0)
+            pack(c, c + 1, 0, 0, null);
+        else if (c + 1 < chunkCount && n + count(c + 1) <= CHUNK_SIZE >>> 1)
+            pack(c, c + 2, 0, 0, null);
+        else if (c > 0 && count(c - 1) + n <= CHUNK_SIZE >>> 1)
+            pack(c - 1, c + 1, 0, 0, null);
+    }
+
+    /**
+     * Packs the surviving elements of chunks c0 through c1 - 1 into full
+     * chunks, starting with chunk c0, and drops the chunks left empty.
+     * The elements with indices from through to - 1 do not survive if
+     * deathRow is null; otherwise those whose bit, at their index less
+     * from, is set in deathRow do not survive.
+     *
+     * @return the number of elements removed
+     */
+    private int pack(int c0, int c1, int from, int to, long[] deathRow) {
+        final Object[][] chunks = this.chunks;
+        final int[] ends = this.ends;
+        int wc = c0, wo = 0, wi = start(c0); // write chunk, offset, index
+        Object[] w = chunks[c0];
+        int prevEnd = wi;
+        for (int rc = c0; rc < c1; rc++) {
+            final Object[] r = chunks[rc];
+            final int end = ends[rc];
+            for (int i = prevEnd; i < end; i++) {
+                if (i >= from && i < to) {
+                    if (deathRow == null) {
+                        i = Math.min(end, to) - 1;
+                        continue;
+                    }
+                    if (!isClear(deathRow, i - from))
+                        continue;
+                }
+                if (wo == CHUNK_SIZE) {
+                    ends[wc++] = wi;
+                    w = chunks[wc];
+                    wo = 0;
+                }
+                w[wo++] = r[i - prevEnd];
+                wi++;
+            }
+            prevEnd = end;
+        }
+        if (wo > 0) {
+            Arrays.fill(w, wo, w.length, null);
+            ends[wc++] = wi;
+        }
+        int removed = prevEnd - wi;
+        removeChunks(wc, c1);
+        adjustEnds(wc, -removed);
+        size -= removed;
+        realign(c0);
+        return removed;
+    }
+
+    /**
+     * Trims the capacity of this list to be the list's current size,
+     * packing its elements into full chunks.  An application can use this
+     * operation to minimize the storage of a {@code ChunkedArrayList}
+     * instance, or to restore constant-time positional access after
+     * insertions and removals in the middle of the list.  Unless the
+     * elements are already packed, this takes time linear in the size of
+     * the list.
+     */
+    public void trimToSize() {
+        modCount++;
+        if (aligned < chunkCount - 1)
+            pack(0, chunkCount, 0, 0, null);
+        int c = chunkCount - 1;
+        if (c >= 0 && chunks[c].length > count(c))
+            chunks[c] = Arrays.copyOf(chunks[c], count(c));
+        if (chunks.length > chunkCount) {
+            chunks = (chunkCount == 0)
+                ? EMPTY_DIRECTORY
+                : Arrays.copyOf(chunks, chunkCount);
+            ends = (chunkCount == 0)
+                ? EMPTY_ENDS
+                : Arrays.copyOf(ends, chunkCount);
+        }
+    }
+
+    /**
+     * Increases the capacity of this list, if necessary, to ensure that it
+     * can hold at least the number of elements specified by the minimum
+     * capacity argument.  Only the directory is sized in advance; chunks
+     * are allocated as elements are added.
+     *
+     * @param minCapacity the desired minimum capacity
+     */
+    public void ensureCapacity(int minCapacity) {
+        if (minCapacity > 0) {
+            modCount++;
+            ensureDirectory(((minCapacity - 1) >>> CHUNK_SHIFT) + 1);
+        }
+    }
+
+    /**
+     * Returns the number of elements in this list.
+     *
+     * @return the number of elements in this list
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns {@code true} if this list contains no elements.
+     *
+     * @return {@code true} if this list contains no elements
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns {@code true} if this list contains the specified element.
+     *
+     * @param o element whose presence in this list is to be tested
+     * @return {@code true} if this list contains the specified element
+     */
+    public boolean contains(Object o) {
+        return indexOf(o) >= 0;
+    }
+
+    /**
+     * Returns the index of the first occurrence of the specified element
+     * in this list, or -1 if this list does not contain the element.
+     */
+    public int indexOf(Object o) {
+        final Object[][] chunks = this.chunks;
+        final int[] ends = this.ends;
+        for (int c = 0, s = 0, n = chunkCount; c < n; s = ends[c++]) {
+            Object[] chunk = chunks[c];
+            int m = ends[c] - s;
+            if (o == null) {
+                for (int i = 0; i < m; i++)
+                    if (chunk[i] == null)
+                        return s + i;
+            } else {
+                for (int i = 0; i < m; i++)
+                    if (o.equals(chunk[i]))
+                        return s + i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the index of the last occurrence of the specified element
+     * in this list, or -1 if this list does not contain the element.
+     */
+    public int lastIndexOf(Object o) {
+        final Object[][] chunks = this.chunks;
+        for (int c = chunkCount - 1; c >= 0; c--) {
+            Object[] chunk = chunks[c];
+            int s = start(c);
+            if (o == null) {
+                for (int i = ends[c] - s - 1; i >= 0; i--)
+                    if (chunk[i] == null)
+                        return s + i;
+            } else {
+                for (int i = ends[c] - s - 1; i >= 0; i--)
+                    if (o.equals(chunk[i]))
+                        return s + i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns a shallow copy of this {@code ChunkedArrayList} instance.
+     * (The elements themselves are not copied.)
+     *
+     * @return a clone of this {@code ChunkedArrayList} instance
+     */
+    public Object clone() {
+        try {
+            @SuppressWarnings("unchecked")
+            ChunkedArrayList<E> v = (ChunkedArrayList<E>) super.clone();
+            int n = chunkCount;
+            v.chunks = (n == 0) ? EMPTY_DIRECTORY : new Object[n][];
+            v.ends = (n == 0) ? EMPTY_ENDS : Arrays.copyOf(ends, n);
+            for (int c = 0; c < n; c++)
+                v.chunks[c] = chunks[c].clone();
+            v.modCount = 0;
+            return v;
+        } catch (CloneNotSupportedException e) {
+            // this shouldn't happen, since we are Cloneable
+            throw new InternalError(e);
+        }
+    }
+
+    /**
+     * Returns an array containing all of the elements in this list
+     * in proper sequence (from first to last element).
+     *
+     * @return an array containing all of the elements in this list in
+     *         proper sequence
+     */
+    public Object[] toArray() {
+        return copyInto(new Object[size]);
+    }
+
+    /**
+     * Returns an array containing all of the elements in this list in proper
+     * sequence (from first to last element); the runtime type of the returned
+     * array is that of the specified array, as for {@link
+     * ArrayList#toArray(Object[]) ArrayList.toArray}.
+     *
+     * @param a the array into which the elements of the list are to
+     *          be stored, if it is big enough; otherwise, a new array of the
+     *          same runtime type is allocated for this purpose.
+     * @return an array containing the elements of the list
+     * @throws ArrayStoreException if the runtime type of the specified array
+     *         is not a supertype of the runtime type of every element in
+     *         this list
+     * @throws NullPointerException if the specified array is null
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T[] toArray(T[] a) {
+        if (a.length < size)
+            a = (T[]) java.lang.reflect.Array.newInstance(
+                a.getClass().getComponentType(), size);
+        copyInto(a);
+        if (a.length > size)
+            a[size] = null;
+        return a;
+    }
+
+    private <T> T[] copyInto(T[] a) {
+        final int[] ends = this.ends;
+        for (int c = 0, s = 0, n = chunkCount; c < n; s = ends[c++])
+            System.arraycopy(chunks[c], 0, a, s, ends[c] - s);
+        return a;
+    }
+
+    // Positional Access Operations
+
+    /**
+     * Returns the element at the specified position in this list.
+     *
+     * @param  index index of the element to return
+     * @return the element at the specified position in this list
+     * @throws IndexOutOfBoundsException {@inheritDoc}
+     */
+    @SuppressWarnings("unchecked")
+    public E get(int index) {
+        Objects.checkIndex(index, size);
+        int c = chunkFor(index);
+        return (E) chunks[c][index - start(c)];
+    }
+
+    /**
+     * Replaces the element at the specified position in this list with
+     * the specified element.
+     *
+     * @param index index of the element to replace
+     * @param element element to be stored at the specified position
+     * @return the element previously at the specified position
+     * @throws IndexOutOfBoundsException {@inheritDoc}
+     */
+    public E set(int index, E element) {
+        Objects.checkIndex(index, size);
+        int c = chunkFor(index);
+        Object[] chunk = chunks[c];
+        int o = index - start(c);
+        @SuppressWarnings("unchecked") E oldValue = (E) chunk[o];
+        chunk[o] = element;
+        return oldValue;
+    }
+
+    /**
+     * Appends the specified element to the end of this list.
+     *
+     * @param e element to be appended to this list
+     * @return {@code true} (as specified by {@link Collection#add})
+     */
+    public boolean add(E e) {
+        modCount++;
+        int c = chunkCount - 1, n;
+        Object[] chunk;
+        if (c < 0 || (n = count(c)) == CHUNK_SIZE) {
+            chunk = newLastChunk();
+            c++;
+            n = 0;
+        } else if (n == (chunk = chunks[c]).length) {
+            chunk = growChunk(c, n + 1);
+        }
+        chunk[n] = e;
+        ends[c]++;
+        size++;
+        if (n + 1 == CHUNK_SIZE && aligned == c)
+            aligned = c + 1;
+        return true;
+    }
+
+    /**
+     * Inserts the specified element at the specified position in this
+     * list. Shifts the element currently at that position (if any) and
+     * any subsequent elements to the right (adds one to their indices).
+     * Only the elements of one chunk are moved; if that chunk is full, it
+     * is first split in two.
+     *
+     * @param index index at which the specified element is to be inserted
+     * @param element element to be inserted
+     * @throws IndexOutOfBoundsException {@inheritDoc}
+     */
+    public void add(int index, E element) {
+        rangeCheckForAdd(index);
+        if (index == size) {
+            add(element);
+            return;
+        }
+        modCount++;
+        int c = chunkFor(index);
+        int o = index - start(c);
+        if (count(c) == CHUNK_SIZE) {
+            splitChunk(c);
+            if (o > CHUNK_SIZE >>> 1) {
+                c++;
+                o -= CHUNK_SIZE >>> 1;
+            }
+        }
+        int n = count(c);
+        Object[] chunk = chunks[c];
+        if (n == chunk.length)
+            chunk = growChunk(c, n + 1);
+        System.arraycopy(chunk, o, chunk, o + 1, n - o);
+        chunk[o] = element;
+        adjustEnds(c, 1);
+        size++;
+        realign(c);
+    }
+
+    /**
+     * Removes the element at the specified position in this list.
+     * Shifts any subsequent elements to the left (subtracts one from their
+     * indices).  Only the elements of one chunk are moved, unless the
+     * chunk is then merged with a neighbor.
+     *
+     * @param index the index of the element to be removed
+     * @return the element that was removed from the list
+     * @throws IndexOutOfBoundsException {@inheritDoc}
+     */
+    public E remove(int index) {
+        Objects.checkIndex(index, size);
+        modCount++;
+        int c = chunkFor(index);
+        int s = start(c);
+        Object[] chunk = chunks[c];
+        int o = index - s, n = ends[c] - s;
+        @SuppressWarnings("unchecked") E oldValue = (E) chunk[o];
+        System.arraycopy(chunk, o + 1, chunk, o, n - o - 1);
+        chunk[n - 1] = null;
+        adjustEnds(c, -1);
+        size--;
+        if (aligned > c)
+            aligned = c;
+        coalesce(c);
+        return oldValue;
+    }
+
+    /**
+     * Removes the first occurrence of the specified element from this list,
+     * if it is present.  If the list does not contain the element, it is
+     * unchanged.
+     *
+     * @param o element to be removed from this list, if present
+     * @return {@code true} if this list contained the specified element
+     */
+    public boolean remove(Object o) {
+        int index = indexOf(o);
+        if (index < 0)
+            return false;
+        remove(index);
+        return true;
+    }
+
+    /**
+     * Removes all of the elements from this list.  The list will
+     * be empty after this call returns.
+     */
+    public void clear() {
+        modCount++;
+        int n = chunkCount;
+        if (n > 0) {
+            Arrays.fill(chunks[0], 0, ends[0], null);
+            Arrays.fill(chunks, 1, n, null);
+        }
+        chunkCount = 0;
+        aligned = 0;
+        size = 0;
+    }
+
+    /**
+     * Appends all of the elements in the specified collection to the end of
+     * this list, in the order that they are returned by the
+     * specified collection's Iterator.
+     *
+     * @param c collection containing elements to be added to this list
+     * @return {@code true} if this list changed as a result of the call
+     * @throws NullPointerException if the specified collection is null
+     */
+    public boolean addAll(Collection<? extends E> c) {
+        return addAll(size, c);
+    }
+
+    /**
+     * Inserts all of the elements in the specified collection into this
+     * list, starting at the specified position.  Shifts the element
+     * currently at that position (if any) and any subsequent elements to
+     * the right (increases their indices).  The new elements are placed in
+     * new chunks following the chunk holding the specified position, whose
+     * elements after that position are moved after them; no other elements
+     * are moved.
+     *
+     * @param index index at which to insert the first element from the
+     *              specified collection
+     * @param c collection containing elements to be added to this list
+     * @return {@code true} if this list changed as a result of the call
+     * @throws IndexOutOfBoundsException {@inheritDoc}
+     * @throws NullPointerException if the specified collection is null
+     */
+    public boolean addAll(int index, Collection<? extends E> c) {
+        rangeCheckForAdd(index);
+
+        Object[] a = c.toArray();
+        modCount++;
+        int numNew = a.length;
+        if (numNew == 0)
+            return false;
+        if (numNew > Integer.MAX_VALUE - size)
+            throw new OutOfMemoryError();
+
+        int k, o;
+        if (index == size) {
+            if (chunkCount == 0)
+                newLastChunk();
+            k = chunkCount - 1;
+            o = count(k);
+        } else {
+            k = chunkFor(index);
+            o = index - start(k);
+        }
+        // The elements of chunk k from o on follow the new ones
+        Object[] tail = Arrays.copyOfRange(chunks[k], o, count(k));
+        int total = numNew + tail.length;
+        int extra = (int)(((long)o + total - 1) >>> CHUNK_SHIFT);
+        openChunks(k + 1, extra);
+
+        final Object[][] chunks = this.chunks;
+        final int[] ends = this.ends;
+        int p = 0, e = start(k);
+        for (int last = k + extra; k <= last; k++, o = 0) {
+            int hi = Math.min(CHUNK_SIZE, o + total - p);
+            Object[] chunk = chunks[k];
+            if (chunk.length < hi)
+                chunk = growChunk(k, hi);
+            for (int w = o; w < hi; ) {
+                int q;
+                if (p < numNew)
+                    System.arraycopy(a, p, chunk, w, q = Math.min(hi - w, numNew - p));
+                else
+                    System.arraycopy(tail, p - numNew, chunk, w, q = hi - w);
+                p += q;
+                w += q;
+            }
+            ends[k] = e += hi;
+        }
+        adjustEnds(k, numNew);
+        size += numNew;
+        realign(k - extra - 1);
+        return true;
+    }
+
+    /**
+     * Removes from this list all of the elements whose index is between
+     * {@code fromIndex}, inclusive, and {@code toIndex}, exclusive.
+     * Shifts any succeeding elements to the left (reduces their index).
+     * Chunks wholly within the range are dropped, and only the remaining
+     * elements of the chunks at its ends are moved.
+     *
+     * @throws IndexOutOfBoundsException if {@code fromIndex} or
+     *         {@code toIndex} is out of range
+     *         ({@code fromIndex < 0 ||
+     *          toIndex > size() ||
+     *          toIndex < fromIndex})
+     */
+    protected void removeRange(int fromIndex, int toIndex) {
+        if (fromIndex > toIndex) {
+            throw new IndexOutOfBoundsException(
+                    outOfBoundsMsg(fromIndex, toIndex));
+        }
+        modCount++;
+        if (fromIndex < toIndex)
+            pack(chunkFor(fromIndex), chunkFor(toIndex - 1) + 1,
+                 fromIndex, toIndex, null);
+    }
+
+    /**
+     * A version of rangeCheck used by add and addAll.
+     */
+    private void rangeCheckForAdd(int index) {
+        if (index > size || index < 0)
+            throw new IndexOutOfBoundsException(outOfBoundsMsg(index));
+    }
+
+    /**
+     * Constructs an IndexOutOfBoundsException detail message.
+     */
+    private String outOfBoundsMsg(int index) {
+        return "Index: "+index+", Size: "+size;
+    }
+
+    /**
+     * A version used in checking (fromIndex > toIndex) condition
+     */
+    private static String outOfBoundsMsg(int fromIndex, int toIndex) {
+        return "From Index: " + fromIndex + " > To Index: " + toIndex;
+    }
+
+    /**
+     * Removes from this list all of its elements that are contained in the
+     * specified collection.
+     *
+     * @param c collection containing elements to be removed from this list
+     * @return {@code true} if this list changed as a result of the call
+     * @throws ClassCastException if the class of an element of this list
+     *         is incompatible with the specified collection
+     * (<a href="Collection.html#optional-restrictions">optional</a>)
+     * @throws NullPointerException if this list contains a null element and the
+     *         specified collection does not permit null elements
+     * (<a href="Collection.html#optional-restrictions">optional</a>),
+     *         or if the specified collection is null
+     * @see Collection#contains(Object)
+     */
+    public boolean removeAll(Collection<?> c) {
+        Objects.requireNonNull(c);
+        return removeIf(e -> c.contains(e), 0, size);
+    }
+
+    /**
+     * Retains only the elements in this list that are contained in the
+     * specified collection.  In other words, removes from this list all
+     * of its elements that are not contained in the specified collection.
+     *
+     * @param c collection containing elements to be retained in this list
+     * @return {@code true} if this list changed as a result of the call
+     * @throws ClassCastException if the class of an element of this list
+     *         is incompatible with the specified collection
+     * (<a href="Collection.html#optional-restrictions">optional</a>)
+     * @throws NullPointerException if this list contains a null element and the
+     *         specified collection does not permit null elements
+     * (<a href="Collection.html#optional-restrictions">optional</a>),
+     *         or if the specified collection is null
+     * @see Collection#contains(Object)
+     */
+    public boolean retainAll(Collection<?> c) {
+        Objects.requireNonNull(c);
+        return removeIf(e -> !c.contains(e), 0, size);
+    }
+
+    /**
+     * Saves the state of the {@code ChunkedArrayList} instance to a stream
+     * (that is, serializes it).
+     *
+     * @param s the stream
+     * @throws java.io.IOException if an I/O error occurs
+     * @serialData The size of the list is emitted (int), followed by all of
+     *             its elements (each an {@code Object}) in the proper order.
+     */
+    private void writeObject(java.io.ObjectOutputStream s)
+        throws java.io.IOException {
+        // Write out element count, and any hidden stuff
+        int expectedModCount = modCount;
+        s.defaultWriteObject();
+
+        // Write out size as capacity for compatibility with ArrayList
+        s.writeInt(size);
+
+        // Write out all elements in the proper order.
+        for (int c = 0, i = 0; c < chunkCount; i = ends[c++]) {
+            Object[] chunk = chunks[c];
+            for (int j = 0, n = ends[c] - i; j < n; j++)
+                s.writeObject(chunk[j]);
+        }
+
+        if (modCount != expectedModCount) {
+            throw new ConcurrentModificationException();
+        }
+    }
+
+    /**
+     * Reconstitutes the {@code ChunkedArrayList} instance from a stream
+     * (that is, deserializes it).  The elements are packed into full
+     * chunks.
+     *
+     * @param s the stream
+     * @throws ClassNotFoundException if the class of a serialized object
+     *         could not be found
+     * @throws java.io.IOException if an I/O error occurs
+     */
+    private void readObject(java.io.ObjectInputStream s)
+        throws java.io.IOException, ClassNotFoundException {
+
+        // Read in size, and any hidden stuff
+        s.defaultReadObject();
+
+        // Read in capacity
+        s.readInt(); // ignored
+
+        int size = this.size;
+        if (size < 0)
+            throw new java.io.InvalidObjectException("Invalid size: " + size);
+        int n = (size == 0) ? 0 : ((size - 1) >>> CHUNK_SHIFT) + 1;
+        Object[][] chunks = (n == 0) ? EMPTY_DIRECTORY : new Object[n][];
+        int[] ends = (n == 0) ? EMPTY_ENDS : new int[n];
+
+        // Read in all elements in the proper order, allocating each
+        // chunk only once the previous one is full.
+        for (int c = 0, i = 0; c < n; c++) {
+            Object[] chunk = chunks[c] = new Object[Math.min(CHUNK_SIZE, size - i)];
+            for (int j = 0; j < chunk.length; j++)
+                chunk[j] = s.readObject();
+            ends[c] = i += chunk.length;
+        }
+
+        this.chunks = chunks;
+        this.ends = ends;
+        chunkCount = n;
+        aligned = size >>> CHUNK_SHIFT;
+    }
+
+    /**
+     * Returns an iterator over the elements in this list in proper sequence.
+     *
+     * <p>The returned iterator is <a href="#fail-fast"><i>fail-fast</i></a>.
+     *
+     * @return an iterator over the elements in this list in proper sequence
+     */
+    public Iterator<E> iterator() {
+        return new Itr();
+    }
+
+    /**
+     * An iterator that walks the chunks, rather than locating each element
+     * by its index.
+     */
+    private class Itr implements Iterator<E> {
+        int cursor;       // index of next element to return
+        int lastRet = -1; // index of last element returned; -1 if no such
+        int chunk = -1;   // chunk holding cursor; -1 if not known
+        int expectedModCount = modCount;
+
+        // prevent creating a synthetic constructor
+        Itr() {}
+
+        public boolean hasNext() {
+            return cursor != size;
+        }
+
+        @SuppressWarnings("unchecked")
+        public E next() {
+            checkForComodification();
+            int i = cursor;
+            if (i >= size)
+                throw new NoSuchElementException();
+            int c = chunk;
+            if (c < 0 || i >= ends[c])
+                chunk = c = chunkFor(i);
+            cursor = i + 1;
+            return (E) chunks[c][(lastRet = i) - start(c)];
+        }
+
+        public void remove() {
+            if (lastRet < 0)
+                throw new IllegalStateException();
+            checkForComodification();
+
+            try {
+                ChunkedArrayList.this.remove(lastRet);
+                cursor = lastRet;
+                lastRet = -1;
+                chunk = -1;
+                expectedModCount = modCount;
+            } catch (IndexOutOfBoundsException ex) {
+                throw new ConcurrentModificationException();
+            }
+        }
+
+        @Override
+        public void forEachRemaining(Consumer<? super E> action) {
+            Objects.requireNonNull(action);
+            final int size = ChunkedArrayList.this.size;
+            int i = cursor;
+            if (i < size) {
+                i = forEachRange(action, i, size, expectedModCount);
+                // update once at end to reduce heap write traffic
+                cursor = i;
+                lastRet = i - 1;
+                chunk = -1;
+                checkForComodification();
+            }
+        }
+
+        final void checkForComodification() {
+            if (modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+        }
+    }
+
+    @Override
+    public void forEach(Consumer<? super E> action) {
+        Objects.requireNonNull(action);
+        final int expectedModCount = modCount;
+        forEachRange(action, 0, size, expectedModCount);
+        if (modCount != expectedModCount)
+            throw new ConcurrentModificationException();
+    }
+
+    /**
+     * Performs the action for the elements with indices from i to end,
+     * stopping early if the list is modified, and returns the index at
+     * which it stopped.
+     */
+    @SuppressWarnings("unchecked")
+    int forEachRange(Consumer<? super E> action, int i, final int end,
+                     final int expectedModCount) {
+        if (i >= end)
+            return i;
+        final Object[][] chunks = this.chunks;
+        final int[] ends = this.ends;
+        for (int c = chunkFor(i); i < end && modCount == expectedModCount; c++) {
+            final Object[] chunk = chunks[c];
+            final int s = start(c), hi = Math.min(ends[c], end);
+            for (; i < hi && modCount == expectedModCount; i++)
+                action.accept((E) chunk[i - s]);
+        }
+        return i;
+    }
+
+    /**
+     * Creates a <em><a href="Spliterator.html#binding">late-binding</a></em>
+     * and <em>fail-fast</em> {@link Spliterator} over the elements in this
+     * list.  The spliterator splits at the chunk boundary nearest the middle
+     * of its range, when its range spans more than one chunk.
+     *
+     * <p>The {@code Spliterator} reports {@link Spliterator#SIZED},
+     * {@link Spliterator#SUBSIZED}, and {@link Spliterator#ORDERED}.
+     * Overriding implementations should document the reporting of additional
+     * characteristic values.
+     *
+     * @return a {@code Spliterator} over the elements in this list
+     */
+    @Override
+    public Spliterator<E> spliterator() {
+        return new ChunkSpliterator(0, -1, 0);
+    }
+
+    /** Index-based, chunk-aligned, lazily initialized Spliterator */
+    final class ChunkSpliterator implements Spliterator<E> {
+
+        /*
+         * As for ArrayList.ArrayListSpliterator: the fence and
+         * expectedModCount are initialized lazily, and forEachRemaining
+         * checks for interference only once, at the end.
+         */
+
+        private int index; // current index, modified on advance/split
+        private int fence; // -1 until used; then one past last index
+        private int expectedModCount; // initialized when fence set
+
+        /** Creates new spliterator covering the given range. */
+        ChunkSpliterator(int origin, int fence, int expectedModCount) {
+            this.index = origin;
+            this.fence = fence;
+            this.expectedModCount = expectedModCount;
+        }
+
+        private int getFence() { // initialize fence to size on first use
+            int hi;
+            if ((hi = fence) < 0) {
+                expectedModCount = modCount;
+                hi = fence = size;
+            }
+            return hi;
+        }
+
+        public ChunkSpliterator trySplit() {
+            int hi = getFence(), lo = index, mid = (lo + hi) >>> 1;
+            if (lo >= mid) // too small to split
+                return null;
+            if (modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+            // Move the split point to the nearer boundary of its chunk,
+            // if that lies within the range
+            int c = chunkFor(mid), s = start(c), e = ends[c];
+            if (s > lo && (e >= hi || mid - s <= e - mid))
+                mid = s;
+            else if (e < hi)
+                mid = e;
+            return new ChunkSpliterator(lo, index = mid, expectedModCount);
+        }
+
+        @SuppressWarnings("unchecked")
+        public boolean tryAdvance(Consumer<? super E> action) {
+            if (action == null)
+                throw new NullPointerException();
+            int hi = getFence(), i = index;
+            if (i < hi) {
+                if (modCount != expectedModCount)
+                    throw new ConcurrentModificationException();
+                index = i + 1;
+                int c = chunkFor(i);
+                action.accept((E) chunks[c][i - start(c)]);
+                if (modCount != expectedModCount)
+                    throw new ConcurrentModificationException();
+                return true;
+            }
+            return false;
+        }
+
+        public void forEachRemaining(Consumer<? super E> action) {
+            if (action == null)
+                throw new NullPointerException();
+            int hi, mc; // hoist accesses and checks from loop
+            if ((hi = fence) < 0) {
+                mc = modCount;
+                hi = size;
+            }
+            else
+                mc = expectedModCount;
+            int i = index;
+            if (i >= 0 && hi <= size && modCount == mc) {
+                index = hi;
+                if (forEachRange(action, i, hi, mc) == hi && modCount == mc)
+                    return;
+            }
+            throw new ConcurrentModificationException();
+        }
+
+        public long estimateSize() {
+            return getFence() - index;
+        }
+
+        public int characteristics() {
+            return Spliterator.ORDERED | Spliterator.SIZED | Spliterator.SUBSIZED;
+        }
+    }
+
+    // A tiny bit set implementation
+
+    private static long[] nBits(int n) {
+        return new long[((n - 1) >> 6) + 1];
+    }
+    private static void setBit(long[] bits, int i) {
+        bits[i >> 6] |= 1L << i;
+    }
+    private static boolean isClear(long[] bits, int i) {
+        return (bits[i >> 6] & (1L << i)) == 0;
+    }
+
+    /**
+     * @throws NullPointerException {@inheritDoc}
+     */
+    @Override
+    public boolean removeIf(Predicate<? super E> filter) {
+        return removeIf(filter, 0, size);
+    }
+
+    /**
+     * Removes all elements satisfying the given predicate, from index
+     * i (inclusive) to index end (exclusive).  Only the chunks spanning
+     * that range are packed; the elements after it are not moved.
+     */
+    @SuppressWarnings("unchecked")
+    boolean removeIf(Predicate<? super E> filter, int i, final int end) {
+        Objects.requireNonNull(filter);
+        int expectedModCount = modCount;
+        // Optimize for initial run of survivors
+        Itr it = new Itr();
+        it.cursor = i;
+        int beg = -1;
+        while (it.cursor < end) {
+            if (filter.test(it.next())) {
+                beg = it.lastRet;
+                break;
+            }
+        }
+        // Tolerate predicates that reentrantly access the collection for
+        // read (but writers still get CME), so traverse once to find
+        // elements to delete, a second pass to physically expunge.
+        if (beg >= 0) {
+            final long[] deathRow = nBits(end - beg);
+            deathRow[0] = 1L;   // set bit 0
+            for (i = beg + 1; i < end; i++)
+                if (filter.test(it.next()))
+                    setBit(deathRow, i - beg);
+            if (modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+            modCount++;
+            pack(chunkFor(beg), chunkFor(end - 1) + 1, beg, end, deathRow);
+            return true;
+        } else {
+            if (modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+            return false;
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void replaceAll(UnaryOperator<E> operator) {
+        Objects.requireNonNull(operator);
+        final int expectedModCount = modCount;
+        final Object[][] chunks = this.chunks;
+        final int[] ends = this.ends;
+        for (int c = 0, s = 0; modCount == expectedModCount && c < chunkCount; s = ends[c++]) {
+            final Object[] chunk = chunks[c];
+            for (int j = 0, n = ends[c] - s; modCount == expectedModCount && j < n; j++)
+                chunk[j] = operator.apply((E) chunk[j]);
+        }
+        if (modCount != expectedModCount)
+            throw new ConcurrentModificationException();
+        modCount++;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void sort(Comparator<? super E> c) {
+        final int expectedModCount = modCount;
+        Object[] a = toArray();
+        Arrays.sort((E[]) a, c);
+        if (modCount != expectedModCount)
+            throw new ConcurrentModificationException();
+        for (int k = 0, s = 0; k < chunkCount; s = ends[k++])
+            System.arraycopy(a, s, chunks[k], 0, ends[k] - s);
+        modCount++;
+    }
+}
@@ -0,0 +1,1183 @@
+/*
+ * Copyright (c) 2018, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package java.util;
+
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.Serializable;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import jdk.internal.misc.SharedSecrets;
+
+/**
+ * Hash table based implementation of the {@code Map} interface with a
+ * compact memory layout.  This class provides all of the optional map
+ * operations, permits {@code null} values and the {@code null} key, and has
+ * the same constructors as {@link HashMap}, so that it may be substituted
+ * for a {@code HashMap} by changing only the constructor call.
+ *
+ * <p>A {@code HashMap} allocates a node object for every mapping, holding
+ * the hash of the key, the key, the value and a link to the next node of
+ * its bin.  This class allocates no per-mapping objects at all.  The hashes
+ * of the keys are kept in one {@code int} array, and the keys and values in
+ * a single {@code Object} array in which each key is immediately followed
+ * by its value, as in {@link IdentityHashMap}.  Collisions are resolved by
+ * linear probing.  A mapping thus costs a slot in each array, some twelve
+ * bytes on a typical 64-bit virtual machine with compressed references,
+ * divided by the load factor, where a {@code HashMap} needs a node of
+ * thirty-two bytes plus a table slot.  {@code Map.Entry} objects are created
+ * only when the {@link #entrySet} is iterated.
+ *
+ * <p>Because the hash of each key is stored, lookups compare keys with
+ * {@code equals} only when their hashes match, and resizing never calls
+ * {@code hashCode}.  Removal moves later mappings back to close the gap it
+ * leaves rather than leaving a marker, so lookups never slow down as a
+ * result of earlier removals.
+ *
+ * <p>An instance of {@code CompactHashMap} has the same two performance
+ * parameters as {@code HashMap}: <i>initial capacity</i> and <i>load
+ * factor</i>.  The capacity is the number of slots in the table and is
+ * always a power of two.  Because every mapping occupies a slot of its own,
+ * the load factor may not exceed 7/8; a larger value given to a constructor
+ * is treated as 7/8.
+ *
+ * <p><strong>Note that this implementation is not synchronized.</strong>
+ * If multiple threads access a map concurrently, and at least one of the
+ * threads modifies the map structurally, it <i>must</i> be synchronized
+ * externally.
+ *
+ * <p>The iterators returned by all of this class's "collection view methods"
+ * are <i>fail-fast</i>, in the same manner as those of {@code HashMap}.
+ *
+ * @param <K> the type of keys maintained by this map
+ * @param <V> the type of mapped values
+ *
+ * @see     HashMap
+ * @see     FlatHashMap
+ * @see     Map
+ * @since   11
+ */
+public class CompactHashMap<K,V> extends AbstractMap<K,V>
+    implements Map<K,V>, Cloneable, Serializable {
+
+    private static final long serialVersionUID = 5390474718250468193L;
+
+    /*
+     * Implementation notes.
+     *
+     * Slot i of the table holds the hash of its key in hashes[i], the
+     * key in table[2*i] and the value in table[2*i+1].  A stored hash
+     * is never zero (see method hash), so a zero in hashes marks a
+     * free slot whatever the key; null keys need no masking.  Every
+     * mapping lives at some slot reachable from hash & mask by linear
+     * probing without crossing a free slot.  Removal closes the hole
+     * it leaves by pulling later entries of the same cluster back (see
+     * method removeAt), which keeps that invariant without tombstones.
+     *
+     * Because entries never move across a free slot, an iteration
+     * that starts just past a slot that is free when the iteration
+     * begins sees every cluster whole, and a removal through the
+     * iterator can only pull not-yet-visited entries back into the
+     * slot just visited.  CompactIterator relies on this.
+     *
+     * Footprint.  With compressed references and 8-byte object
+     * alignment, a HashMap of n mappings occupies 32 bytes per Node
+     * plus 4 bytes per table slot, while this class occupies 12 bytes
+     * per slot and nothing per mapping (not counting the keys and
+     * values themselves, which are the same for both).  Filled one
+     * mapping at a time at the default load factor, both reach the
+     * same capacity, giving:
+     *
+     *   mappings   capacity   HashMap          CompactHashMap
+     *   1,000      2^11       40,208 bytes     24,608 bytes
+     *   10^6       2^21       40.4 MB          25.2 MB
+     *   10^7       2^24       387.1 MB         201.3 MB
+     *
+     * Without compressed references the Node grows to 48 bytes and a
+     * reference to 8, so the comparison only improves.  A TreeNode
+     * bin costs a HashMap some 56 bytes per mapping; this class has
+     * no equivalent, and relies on its mixing hash function to keep
+     * clusters short.
+     */
+
+    /**
+     * The default initial capacity - MUST be a power of two.
+     */
+    static final int DEFAULT_INITIAL_CAPACITY = HashMap.DEFAULT_INITIAL_CAPACITY;
+
+    /**
+     * The maximum capacity, MUST be a power of two <= 1<<29, since the
+     * table holds two elements per slot.
+     */
+    static final int MAXIMUM_CAPACITY = 1 << 29;
+
+    /**
+     * The load factor used when none specified in constructor.
+     */
+    static final float DEFAULT_LOAD_FACTOR = HashMap.DEFAULT_LOAD_FACTOR;
+
+    /**
+     * The largest usable load factor.  Linear probing degrades quickly
+     * as the table fills.
+     */
+    static final float MAXIMUM_LOAD_FACTOR = 0.875f;
+
+    /* ---------------- Fields -------------- */
+
+    /**
+     * The hashes of the keys, zero in free slots.  Allocated on first
+     * use, and resized as necessary; its length is always a power of two.
+     */
+    transient int[] hashes;
+
+    /**
+     * The keys and values, interleaved: twice as long as hashes.
+     */
+    transient Object[] table;
+
+    /**
+     * Holds cached entrySet(). Note that AbstractMap fields are used
+     * for keySet() and values().
+     */
+    transient Set<Map.Entry<K,V>> entrySet;
+
+    /**
+     * The number of key-value mappings contained in this map.
+     */
+    transient int size;
+
+    /**
+     * The number of times this map has been structurally modified.
+     * This field is used to make iterators on Collection-views of the
+     * map fail-fast.  (See ConcurrentModificationException).
+     */
+    transient int modCount;
+
+    /**
+     * The size at which to resize.  If the table has not been allocated,
+     * this field holds the initial capacity, or zero signifying
+     * DEFAULT_INITIAL_CAPACITY.
+     */
+    transient int threshold;
+
+    /**
+     * The load factor for the hash table, as given to the constructor.
+     *
+     * @serial
+     */
+    final float loadFactor;
+
+    /* ---------------- Static utilities -------------- */
+
+    /**
+     * Computes key.hashCode() and mixes it so that the low bits, which
+     * select the home slot, depend on all bits of the user hash; linear
+     * probing suffers more than chaining from hash codes that differ
+     * only in their high bits.  Zero is replaced by one, as zero marks
+     * a free slot.
+     */
+    static int hash(Object key) {
+        int h = (key == null) ? 0 : key.hashCode() * 0x9E3779B9;
+        return ((h ^= h >>> 16) != 0) ? h : 1;
+    }
+
+    /**
+     * Returns the number of mappings a table of the given capacity
+     * (at least two) may hold, always leaving at least one slot free.
+     */
+    final int maxLoad(int cap) {
+        float lf = Math.min(loadFactor, MAXIMUM_LOAD_FACTOR);
+        return Math.max(1, Math.min((int)(cap * lf), cap - 1));
+    }
+
+    /* ---------------- Public operations -------------- */
+
+    /**
+     * Constructs an empty {@code CompactHashMap} with the specified initial
+     * capacity and load factor.
+     *
+     * @param  initialCapacity the initial capacity
+     * @param  loadFactor      the load factor
+     * @throws IllegalArgumentException if the initial capacity is negative
+     *         or the load factor is nonpositive
+     */
+    public CompactHashMap(int initialCapacity, float loadFactor) {
+        if (initialCapacity < 0)
+            throw new IllegalArgumentException("Illegal initial capacity: " +
+                                               initialCapacity);
+        if (initialCapacity > MAXIMUM_CAPACITY)
+            initialCapacity = MAXIMUM_CAPACITY;
+        if (loadFactor <= 0 || Float.isNaN(loadFactor))
+            throw new IllegalArgumentException("Illegal load factor: " +
+                                               loadFactor);
+        this.loadFactor = loadFactor;
+        this.threshold = HashMap.tableSizeFor(initialCapacity);
+    }
+
+    /**
+     * Constructs an empty {@code CompactHashMap} with the specified initial
+     * capacity and the default load factor (0.75).
+     *
+     * @param  initialCapacity the initial capacity.
+     * @throws IllegalArgumentException if the initial capacity is negative.
+     */
+    public CompactHashMap(int initialCapacity) {
+        this(initialCapacity, DEFAULT_LOAD_FACTOR);
+    }
+
+    /**
+     * Constructs an empty {@code CompactHashMap} with the default initial
+     * capacity (16) and the default load factor (0.75).
+     */
+    public CompactHashMap() {
+        this.loadFactor = DEFAULT_LOAD_FACTOR;
+    }
+
+    /**
+     * Constructs a new {@code CompactHashMap} with the same mappings as the
+     * specified {@code Map}.  The {@code CompactHashMap} is created with
+     * default load factor (0.75) and an initial capacity sufficient to
+     * hold the mappings in the specified {@code Map}.
+     *
+     * @param   m the map whose mappings are to be placed in this map
+     * @throws  NullPointerException if the specified map is null
+     */
+    public CompactHashMap(Map<? extends K, ? extends V> m) {
+        this.loadFactor = DEFAULT_LOAD_FACTOR;
+        putMapEntries(m);
+    }
+
+    /**
+     * Implements Map.putAll and Map constructor.
+     */
+    final void putMapEntries(Map<? extends K, ? extends V> m) {
+        int s = m.size();
+        if (s > 0) {
+            float ft = ((float)s / Math.min(loadFactor, MAXIMUM_LOAD_FACTOR)) + 1.0F;
+            int t = ((ft < (float)MAXIMUM_CAPACITY) ?
+                     (int)ft : MAXIMUM_CAPACITY);
+            if (hashes == null) { // pre-size
+                if (t > threshold)
+                    threshold = HashMap.tableSizeFor(t);
+            }
+            else if (t > hashes.length)
+                resize(Math.min(HashMap.tableSizeFor(t), MAXIMUM_CAPACITY));
+            for (Map.Entry<? extends K, ? extends V> e : m.entrySet()) {
+                K key = e.getKey();
+                V value = e.getValue();
+                putVal(hash(key), key, value, false);
+            }
+        }
+    }
+
+    /**
+     * Returns the number of key-value mappings in this map.
+     *
+     * @return the number of key-value mappings in this map
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns {@code true} if this map contains no key-value mappings.
+     *
+     * @return {@code true} if this map contains no key-value mappings
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns the value to which the specified key is mapped,
+     * or {@code null} if this map contains no mapping for the key.
+     *
+     * <p>A return value of {@code null} does not <i>necessarily</i>
+     * indicate that the map contains no mapping for the key; it's also
+     * possible that the map explicitly maps the key to {@code null}.
+     * The {@link #containsKey containsKey} operation may be used to
+     * distinguish these two cases.
+     *
+     * @see #put(Object, Object)
+     */
+    @SuppressWarnings("unchecked")
+    public V get(Object key) {
+        int i;
+        return ((i = find(hash(key), key)) < 0) ? null : (V)table[(i << 1) + 1];
+    }
+
+    /**
+     * Implements Map.get and related methods.
+     *
+     * @param hash hash for key
+     * @param key the key
+     * @return the slot holding the key, or -1 if none
+     */
+    final int find(int hash, Object key) {
+        int[] hs; Object[] tab; Object k;
+        if ((hs = hashes) == null)
+            return -1;
+        tab = table;
+        int mask = hs.length - 1;
+        for (int i = hash & mask, h; (h = hs[i]) != 0; i = (i + 1) & mask) {
+            if (h == hash &&
+                ((k = tab[i << 1]) == key || (key != null && key.equals(k))))
+                return i;
+        }
+        return -1;
+    }
+
+    /**
+     * Returns {@code true} if this map contains a mapping for the
+     * specified key.
+     *
+     * @param   key   The key whose presence in this map is to be tested
+     * @return {@code true} if this map contains a mapping for the specified
+     * key.
+     */
+    public boolean containsKey(Object key) {
+        return find(hash(key), key) >= 0;
+    }
+
+    /**
+     * Associates the specified value with the specified key in this map.
+     * If the map previously contained a mapping for the key, the old
+     * value is replaced.
+     *
+     * @param key key with which the specified value is to be associated
+     * @param value value to be associated with the specified key
+     * @return the previous value associated with {@code key}, or
+     *         {@code null} if there was no mapping for {@code key}.
+     *         (A {@code null} return can also indicate that the map
+     *         previously associated {@code null} with {@code key}.)
+     */
+    public V put(K key, V value) {
+        return putVal(hash(key), key, value, false);
+    }
+
+    /**
+     * Implements Map.put and related methods.
+     *
+     * @param hash hash for key
+     * @param key the key
+     * @param value the value to put
+     * @param onlyIfAbsent if true, don't change existing value
+     * @return previous value, or null if none
+     */
+    @SuppressWarnings("unchecked")
+    final V putVal(int hash, K key, V value, boolean onlyIfAbsent) {
+        int i;
+        if ((i = find(hash, key)) >= 0) {
+            Object[] tab = table;
+            V oldValue = (V)tab[(i << 1) + 1];
+            if (!onlyIfAbsent || oldValue == null)
+                tab[(i << 1) + 1] = value;
+            return oldValue;
+        }
+        insert(hash, key, value);
+        return null;
+    }
+
+    /**
+     * Adds a mapping for a key known to be absent, resizing the table
+     * first if it is full.
+     */
+    final void insert(int hash, Object key, Object value) {
+        int[] hs;
+        if ((hs = hashes) == null || size >= threshold)
+            hs = resize(nextCapacity());
+        int mask = hs.length - 1, i = hash & mask;
+        while (hs[i] != 0)
+            i = (i + 1) & mask;
+        hs[i] = hash;
+        table[i << 1] = key;
+        table[(i << 1) + 1] = value;
+        ++modCount;
+        ++size;
+    }
+
+    /**
+     * Returns the capacity of the next table: the initial capacity if
+     * none has been allocated, else double the current one.
+     */
+    final int nextCapacity() {
+        int[] hs;
+        if ((hs = hashes) == null) {
+            int cap = (threshold > 0) ? threshold : DEFAULT_INITIAL_CAPACITY;
+            return Math.max(2, Math.min(cap, MAXIMUM_CAPACITY));
+        }
+        if (hs.length >= MAXIMUM_CAPACITY)
+            throw new IllegalStateException("Map is full");
+        return hs.length << 1;
+    }
+
+    /**
+     * Rebuilds the table at the given capacity, using the stored hashes.
+     *
+     * @return the new hashes
+     */
+    final int[] resize(int newCap) {
+        int[] oldHashes = hashes;
+        Object[] oldTab = table;
+        int[] hs = new int[newCap];
+        Object[] tab = new Object[newCap << 1];
+        if (oldHashes != null) {
+            int mask = newCap - 1;
+            for (int j = 0; j < oldHashes.length; ++j) {
+                int h;
+                if ((h = oldHashes[j]) != 0) {
+                    int i = h & mask;
+                    while (hs[i] != 0)
+                        i = (i + 1) & mask;
+                    hs[i] = h;
+                    tab[i << 1] = oldTab[j << 1];
+                    tab[(i << 1) + 1] = oldTab[(j << 1) + 1];
+                }
+            }
+        }
+        hashes = hs;
+        table = tab;
+        threshold = maxLoad(newCap);
+        ++modCount;
+        return hs;
+    }
+
+    /**
+     * Copies all of the mappings from the specified map to this map.
+     * These mappings will replace any mappings that this map had for
+     * any of the keys currently in the specified map.
+     *
+     * @param m mappings to be stored in this map
+     * @throws NullPointerException if the specified map is null
+     */
+    public void putAll(Map<? extends K, ? extends V> m) {
+        putMapEntries(m);
+    }
+
+    /**
+     * Removes the mapping for the specified key from this map if present.
+     *
+     * @param  key key whose mapping is to be removed from the map
+     * @return the previous value associated with {@code key}, or
+     *         {@code null} if there was no mapping for {@code key}.
+     *         (A {@code null} return can also indicate that the map
+     *         previously associated {@code null} with {@code key}.)
+     */
+    @SuppressWarnings("unchecked")
+    public V remove(Object key) {
+        int i;
+        if ((i = find(hash(key), key)) < 0)
+            return null;
+        V oldValue = (V)table[(i << 1) + 1];
+        removeAt(i);
+        return oldValue;
+    }
+
+    /**
+     * Removes the mapping in the given slot, moving later entries of its
+     * cluster back to fill the gap.
+     *
+     * @return i if an entry was moved into slot i, else -1
+     */
+    final int removeAt(int i) {
+        int[] hs = hashes; Object[] tab = table;
+        int mask = hs.length - 1, gap = i, h;
+        for (int j = (i + 1) & mask; (h = hs[j]) != 0; j = (j + 1) & mask) {
+            // move j back iff gap lies cyclically within [home(j), j)
+            if (((j - (h & mask)) & mask) >= ((j - gap) & mask)) {
+                hs[gap] = h;
+                tab[gap << 1] = tab[j << 1];
+                tab[(gap << 1) + 1] = tab[(j << 1) + 1];
+                gap = j;
+            }
+        }
+        hs[gap] = 0;
+        tab[gap << 1] = null;
+        tab[(gap << 1) + 1] = null;
+        ++modCount;
+        --size;
+        return (gap == i) ? -1 : i;
+    }
+
+    /**
+     * Removes all of the mappings from this map.
+     * The map will be empty after this call returns.
+     */
+    public void clear() {
+        int[] hs;
+        modCount++;
+        if ((hs = hashes) != null && size > 0) {
+            Arrays.fill(hs, 0);
+            Arrays.fill(table, null);
+            size = 0;
+        }
+    }
+
+    /**
+     * Returns {@code true} if this map maps one or more keys to the
+     * specified value.
+     *
+     * @param value value whose presence in this map is to be tested
+     * @return {@code true} if this map maps one or more keys to the
+     *         specified value
+     */
+    public boolean containsValue(Object value) {
+        int[] hs; Object[] tab; Object v;
+        if ((hs = hashes) != null && size > 0) {
+            tab = table;
+            for (int i = 0; i < hs.length; ++i) {
+                if (hs[i] != 0 &&
+                    ((v = tab[(i << 1) + 1]) == value ||
+                     (value != null && value.equals(v))))
+                    return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns a {@link Set} view of the keys contained in this map.
+     * The set is backed by the map, so changes to the map are
+     * reflected in the set, and vice-versa.  If the map is modified
+     * while an iteration over the set is in progress (except through
+     * the iterator's own {@code remove} operation), the results of
+     * the iteration are undefined.  The set supports element removal,
+     * which removes the corresponding mapping from the map, via the
+     * {@code Iterator.remove}, {@code Set.remove},
+     * {@code removeAll}, {@code retainAll}, and {@code clear}
+     * operations.  It does not support the {@code add} or {@code addAll}
+     * operations.
+     *
+     * @return a set view of the keys contained in this map
+     */
+    public Set<K> keySet() {
+        Set<K> ks = keySet;
+        if (ks == null) {
+            ks = new KeySet();
+            keySet = ks;
+        }
+        return ks;
+    }
+
+    final class KeySet extends AbstractSet<K> {
+        public final int size()                 { return size; }
+        public final void clear()               { CompactHashMap.this.clear(); }
+        public final Iterator<K> iterator()     { return new KeyIterator(); }
+        public final boolean contains(Object o) { return containsKey(o); }
+        public final boolean remove(Object key) {
+            int i;
+            if ((i = find(hash(key), key)) < 0)
+                return false;
+            removeAt(i);
+            return true;
+        }
+        @SuppressWarnings("unchecked")
+        public final void forEach(Consumer<? super K> action) {
+            int[] hs;
+            if (action == null)
+                throw new NullPointerException();
+            if (size > 0 && (hs = hashes) != null) {
+                int mc = modCount;
+                Object[] tab = table;
+                for (int i = 0; i < hs.length; ++i) {
+                    if (hs[i] != 0)
+                        action.accept((K)tab[i << 1]);
+                }
+                if (modCount != mc)
+                    throw new ConcurrentModificationException();
+            }
+        }
+    }
+
+    /**
+     * Returns a {@link Collection} view of the values contained in this map.
+     * The collection is backed by the map, so changes to the map are
+     * reflected in the collection, and vice-versa.  If the map is
+     * modified while an iteration over the collection is in progress
+     * (except through the iterator's own {@code remove} operation),
+     * the results of the iteration are undefined.  The collection
+     * supports element removal, which removes the corresponding
+     * mapping from the map, via the {@code Iterator.remove},
+     * {@code Collection.remove}, {@code removeAll},
+     * {@code retainAll} and {@code clear} operations.  It does not
+     * support the {@code add} or {@code addAll} operations.
+     *
+     * @return a view of the values contained in this map
+     */
+    public Collection<V> values() {
+        Collection<V> vs = values;
+        if (vs == null) {
+            vs = new Values();
+            values = vs;
+        }
+        return vs;
+    }
+
+    final class Values extends AbstractCollection<V> {
+        public final int size()                 { return size; }
+        public final void clear()               { CompactHashMap.this.clear(); }
+        public final Iterator<V> iterator()     { return new ValueIterator(); }
+        public final boolean contains(Object o) { return containsValue(o); }
+        @SuppressWarnings("unchecked")
+        public final void forEach(Consumer<? super V> action) {
+            int[] hs;
+            if (action == null)
+                throw new NullPointerException();
+            if (size > 0 && (hs = hashes) != null) {
+                int mc = modCount;
+                Object[] tab = table;
+                for (int i = 0; i < hs.length; ++i) {
+                    if (hs[i] != 0)
+                        action.accept((V)tab[(i << 1) + 1]);
+                }
+                if (modCount != mc)
+                    throw new ConcurrentModificationException();
+            }
+        }
+    }
+
+    /**
+     * Returns a {@link Set} view of the mappings contained in this map.
+     * The set is backed by the map, so changes to the map are
+     * reflected in the set, and vice-versa.  If the map is modified
+     * while an iteration over the set is in progress (except through
+     * the iterator's own {@code remove} operation, or through the
+     * {@code setValue} operation on a map entry returned by the
+     * iterator) the results of the iteration are undefined.  The set
+     * supports element removal, which removes the corresponding
+     * mapping from the map, via the {@code Iterator.remove},
+     * {@code Set.remove}, {@code removeAll}, {@code retainAll} and
+     * {@code clear} operations.  It does not support the
+     * {@code add} or {@code addAll} operations.
+     *
+     * <p>Since mappings are not stored as objects, the entries of this
+     * set are created as they are returned by its iterator.
+     *
+     * @return a set view of the mappings contained in this map
+     */
+    public Set<Map.Entry<K,V>> entrySet() {
+        Set<Map.Entry<K,V>> es;
+        return (es = entrySet) == null ? (entrySet = new EntrySet()) : es;
+    }
+
+    final class EntrySet extends AbstractSet<Map.Entry<K,V>> {
+        public final int size()                 { return size; }
+        public final void clear()               { CompactHashMap.this.clear(); }
+        public final Iterator<Map.Entry<K,V>> iterator() {
+            return new EntryIterator();
+        }
+        public final boolean contains(Object o) {
+            if (!(o instanceof Map.Entry))
+                return false;
+            Map.Entry<?,?> e = (Map.Entry<?,?>) o;
+            Object key = e.getKey();
+            int i = find(hash(key), key);
+            return i >= 0 && Objects.equals(table[(i << 1) + 1], e.getValue());
+        }
+        public final boolean remove(Object o) {
+            if (o instanceof Map.Entry) {
+                Map.Entry<?,?> e = (Map.Entry<?,?>) o;
+                return CompactHashMap.this.remove(e.getKey(), e.getValue());
+            }
+            return false;
+        }
+    }
+
+    // Overrides of JDK8 Map extension methods
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V getOrDefault(Object key, V defaultValue) {
+        int i;
+        return ((i = find(hash(key), key)) < 0) ?
+            defaultValue : (V)table[(i << 1) + 1];
+    }
+
+    @Override
+    public V putIfAbsent(K key, V value) {
+        return putVal(hash(key), key, value, true);
+    }
+
+    @Override
+    public boolean remove(Object key, Object value) {
+        int i;
+        if ((i = find(hash(key), key)) >= 0 &&
+            Objects.equals(table[(i << 1) + 1], value)) {
+            removeAt(i);
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public boolean replace(K key, V oldValue, V newValue) {
+        int i;
+        if ((i = find(hash(key), key)) >= 0 &&
+            Objects.equals(table[(i << 1) + 1], oldValue)) {
+            table[(i << 1) + 1] = newValue;
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V replace(K key, V value) {
+        int i;
+        if ((i = find(hash(key), key)) >= 0) {
+            V oldValue = (V)table[(i << 1) + 1];
+            table[(i << 1) + 1] = value;
+            return oldValue;
+        }
+        return null;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>This method will, on a best-effort basis, throw a
+     * {@link ConcurrentModificationException} if it is detected that the
+     * mapping function modifies this map during computation.
+     *
+     * @throws ConcurrentModificationException if it is detected that the
+     * mapping function modified this map
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public V computeIfAbsent(K key,
+                             Function<? super K, ? extends V> mappingFunction) {
+        if (mappingFunction == null)
+            throw new NullPointerException();
+        int hash = hash(key), i;
+        V oldValue;
+        if ((i = find(hash, key)) >= 0 &&
+            (oldValue = (V)table[(i << 1) + 1]) != null)
+            return oldValue;
+        int mc = modCount;
+        V v = mappingFunction.apply(key);
+        if (mc != modCount) { throw new ConcurrentModificationException(); }
+        if (v == null)
+            return null;
+        else if (i >= 0)
+            table[(i << 1) + 1] = v;
+        else
+            insert(hash, key, v);
+        return v;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>This method will, on a best-effort basis, throw a
+     * {@link ConcurrentModificationException} if it is detected that the
+     * remapping function modifies this map during computation.
+     *
+     * @throws ConcurrentModificationException if it is detected that the
+     * remapping function modified this map
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public V computeIfPresent(K key,
+                              BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
+        if (remappingFunction == null)
+            throw new NullPointerException();
+        int i; V oldValue;
+        if ((i = find(hash(key), key)) >= 0 &&
+            (oldValue = (V)table[(i << 1) + 1]) != null) {
+            int mc = modCount;
+            V v = remappingFunction.apply(key, oldValue);
+            if (mc != modCount) { throw new ConcurrentModificationException(); }
+            if (v != null) {
+                table[(i << 1) + 1] = v;
+                return v;
+            }
+            else
+                removeAt(i);
+        }
+        return null;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>This method will, on a best-effort basis, throw a
+     * {@link ConcurrentModificationException} if it is detected that the
+     * remapping function modifies this map during computation.
+     *
+     * @throws ConcurrentModificationException if it is detected that the
+     * remapping function modified this map
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public V compute(K key,
+                     BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
+        if (remappingFunction == null)
+            throw new NullPointerException();
+        int hash = hash(key), i = find(hash, key);
+        V oldValue = (i < 0) ? null : (V)table[(i << 1) + 1];
+        int mc = modCount;
+        V v = remappingFunction.apply(key, oldValue);
+        if (mc != modCount) { throw new ConcurrentModificationException(); }
+        if (i >= 0) {
+            if (v != null)
+                table[(i << 1) + 1] = v;
+            else
+                removeAt(i);
+        }
+        else if (v != null)
+            insert(hash, key, v);
+        return v;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>This method will, on a best-effort basis, throw a
+     * {@link ConcurrentModificationException} if it is detected that the
+     * remapping function modifies this map during computation.
+     *
+     * @throws ConcurrentModificationException if it is detected that the
+     * remapping function modified this map
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public V merge(K key, V value,
+                   BiFunction<? super V, ? super V, ? extends V> remappingFunction) {
+        if (value == null)
+            throw new NullPointerException();
+        if (remappingFunction == null)
+            throw new NullPointerException();
+        int hash = hash(key), i;
+        if ((i = find(hash, key)) >= 0) {
+            V oldValue = (V)table[(i << 1) + 1], v;
+            if (oldValue != null) {
+                int mc = modCount;
+                v = remappingFunction.apply(oldValue, value);
+                if (mc != modCount) {
+                    throw new ConcurrentModificationException();
+                }
+            } else {
+                v = value;
+            }
+            if (v != null)
+                table[(i << 1) + 1] = v;
+            else
+                removeAt(i);
+            return v;
+        }
+        insert(hash, key, value);
+        return value;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void forEach(BiConsumer<? super K, ? super V> action) {
+        int[] hs;
+        if (action == null)
+            throw new NullPointerException();
+        if (size > 0 && (hs = hashes) != null) {
+            int mc = modCount;
+            Object[] tab = table;
+            for (int i = 0; i < hs.length; ++i) {
+                if (hs[i] != 0)
+                    action.accept((K)tab[i << 1], (V)tab[(i << 1) + 1]);
+            }
+            if (modCount != mc)
+                throw new ConcurrentModificationException();
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void replaceAll(BiFunction<? super K, ? super V, ? extends V> function) {
+        int[] hs;
+        if (function == null)
+            throw new NullPointerException();
+        if (size > 0 && (hs = hashes) != null) {
+            int mc = modCount;
+            Object[] tab = table;
+            for (int i = 0; i < hs.length; ++i) {
+                if (hs[i] != 0)
+                    tab[(i << 1) + 1] = function.apply((K)tab[i << 1],
+                                                       (V)tab[(i << 1) + 1]);
+            }
+            if (modCount != mc)
+                throw new ConcurrentModificationException();
+        }
+    }
+
+    /* ------------------------------------------------------------ */
+    // Cloning and serialization
+
+    /**
+     * Returns a shallow copy of this {@code CompactHashMap} instance: the
+     * keys and values themselves are not cloned.
+     *
+     * @return a shallow copy of this map
+     */
+    @SuppressWarnings("unchecked")
+    @Override
+    public Object clone() {
+        CompactHashMap<K,V> result;
+        try {
+            result = (CompactHashMap<K,V>)super.clone();
+        } catch (CloneNotSupportedException e) {
+            // this shouldn't happen, since we are Cloneable
+            throw new InternalError(e);
+        }
+        if (hashes != null) {
+            result.hashes = hashes.clone();
+            result.table = table.clone();
+        }
+        result.entrySet = null;
+        result.keySet = null;
+        result.values = null;
+        result.modCount = 0;
+        return result;
+    }
+
+    /**
+     * Saves this map to a stream (that is, serializes it).
+     *
+     * @param s the stream
+     * @throws IOException if an I/O error occurs
+     * @serialData The <i>size</i> of the map (an int, the number of
+     *             key-value mappings) is emitted, followed by the key
+     *             (Object) and value (Object) for each key-value mapping.
+     *             The key-value mappings are emitted in no particular
+     *             order.
+     */
+    private void writeObject(java.io.ObjectOutputStream s)
+        throws IOException {
+        int[] hs;
+        s.defaultWriteObject();
+        s.writeInt(size);
+        if (size > 0 && (hs = hashes) != null) {
+            for (int i = 0; i < hs.length; ++i) {
+                if (hs[i] != 0) {
+                    s.writeObject(table[i << 1]);
+                    s.writeObject(table[(i << 1) + 1]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Reconstitutes this map from a stream (that is, deserializes it).
+     * @param s the stream
+     * @throws ClassNotFoundException if the class of a serialized object
+     *         could not be found
+     * @throws IOException if an I/O error occurs
+     */
+    private void readObject(java.io.ObjectInputStream s)
+        throws IOException, ClassNotFoundException {
+        s.defaultReadObject();
+        if (loadFactor <= 0 || Float.isNaN(loadFactor))
+            throw new InvalidObjectException("Illegal load factor: " +
+                                             loadFactor);
+        int mappings = s.readInt();
+        if (mappings < 0)
+            throw new InvalidObjectException("Illegal mappings count: " +
+                                             mappings);
+        hashes = null;
+        table = null;
+        size = 0;
+        threshold = 0;
+        if (mappings > 0) {
+            float fc = (float)mappings / Math.min(loadFactor, MAXIMUM_LOAD_FACTOR) + 1.0f;
+            int cap = ((fc < DEFAULT_INITIAL_CAPACITY) ?
+                       DEFAULT_INITIAL_CAPACITY :
+                       (fc >= MAXIMUM_CAPACITY) ?
+                       MAXIMUM_CAPACITY :
+                       HashMap.tableSizeFor((int)fc));
+            SharedSecrets.getJavaObjectInputStreamAccess().checkArray(s, Object[].class, cap << 1);
+            resize(cap);
+            for (int i = 0; i < mappings; i++) {
+                @SuppressWarnings("unchecked")
+                    K key = (K) s.readObject();
+                @SuppressWarnings("unchecked")
+                    V value = (V) s.readObject();
+                putVal(hash(key), key, value, false);
+            }
+        }
+    }
+
+    /* ------------------------------------------------------------ */
+    // iterators
+
+    abstract class CompactIterator {
+        int cursor;           // index of next slot to examine
+        int end;              // slot that was free on creation
+        int nextSlot;         // slot of next entry, or -1
+        int lastReturned;     // slot of last entry, or -1
+        int expectedModCount; // for fast-fail
+
+        CompactIterator() {
+            expectedModCount = modCount;
+            lastReturned = nextSlot = -1;
+            int[] hs;
+            if ((hs = hashes) != null && size > 0) {
+                int start = 0;
+                while (hs[start] != 0)
+                    ++start;
+                end = start;
+                cursor = (start + 1) & (hs.length - 1);
+                advance();
+            }
+        }
+
+        final void advance() {
+            int[] hs = hashes;
+            nextSlot = -1;
+            while (cursor != end) {
+                int i = cursor;
+                cursor = (i + 1) & (hs.length - 1);
+                if (hs[i] != 0) {
+                    nextSlot = i;
+                    break;
+                }
+            }
+        }
+
+        public final boolean hasNext() {
+            return nextSlot >= 0;
+        }
+
+        final int nextIndex() {
+            int i;
+            if (modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+            if ((i = nextSlot) < 0)
+                throw new NoSuchElementException();
+            lastReturned = i;
+            advance();
+            return i;
+        }
+
+        public final void remove() {
+            int i;
+            if ((i = lastReturned) < 0)
+                throw new IllegalStateException();
+            if (modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+            lastReturned = -1;
+            if (removeAt(i) >= 0) {
+                // an unvisited entry was moved into slot i, and others
+                // may have moved behind it; resume from slot i
+                nextSlot = i;
+                cursor = (i + 1) & (hashes.length - 1);
+            }
+            expectedModCount = modCount;
+        }
+    }
+
+    final class KeyIterator extends CompactIterator
+        implements Iterator<K> {
+        @SuppressWarnings("unchecked")
+        public final K next() { return (K)table[nextIndex() << 1]; }
+    }
+
+    final class ValueIterator extends CompactIterator
+        implements Iterator<V> {
+        @SuppressWarnings("unchecked")
+        public final V next() { return (V)table[(nextIndex() << 1) + 1]; }
+    }
+
+    final class EntryIterator extends CompactIterator
+        implements Iterator<Map.Entry<K,V>> {
+        public final Map.Entry<K,V> next() { return new Entry(nextIndex()); }
+    }
+
+    /**
+     * Entry created on demand by the entry set iterator.  It reads and
+     * writes through to its slot for as long as that still holds its key,
+     * and otherwise goes through the map by key, since removals and
+     * resizing move mappings between slots.
+     */
+    final class Entry implements Map.Entry<K,V> {
+        final K key;
+        int slot;
+        V value;
+
+        @SuppressWarnings("unchecked")
+        Entry(int slot) {
+            this.slot = slot;
+            this.key = (K)table[slot << 1];
+            this.value = (V)table[(slot << 1) + 1];
+        }
+
+        /**
+         * Returns the current slot of the key, or -1 if it has been
+         * removed.
+         */
+        final int locate() {
+            int[] hs = hashes; int i = slot;
+            if (hs != null && i >= 0 && i < hs.length && hs[i] != 0 &&
+                table[i << 1] == key)
+                return i;
+            return slot = find(hash(key), key);
+        }
+
+        public final K getKey()        { return key; }
+
+        @SuppressWarnings("unchecked")
+        public final V getValue() {
+            int i;
+            return ((i = locate()) >= 0) ?
+                (value = (V)table[(i << 1) + 1]) : value;
+        }
+
+        public final V setValue(V newValue) {
+            V oldValue = getValue();
+            int i;
+            if ((i = locate()) >= 0)
+                table[(i << 1) + 1] = newValue;
+            else
+                put(key, newValue);
+            value = newValue;
+            return oldValue;
+        }
+
+        public final String toString() { return key + "=" + getValue(); }
+
+        public final int hashCode() {
+            return Objects.hashCode(key) ^ Objects.hashCode(getValue());
+        }
+
+        public final boolean equals(Object o) {
+            if (o == this)
+                return true;
+            if (o instanceof Map.Entry) {
+                Map.Entry<?,?> e = (Map.Entry<?,?>)o;
+                return Objects.equals(key, e.getKey()) &&
+                    Objects.equals(getValue(), e.getValue());
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,1295 @@
+/*
+ * Copyright (c) 2018, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package java.util;
+
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.Serializable;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import jdk.internal.misc.SharedSecrets;
+
+/**
+ * Hash table based implementation of the {@code Map} interface with
+ * predictable iteration order and a compact memory layout.  Like
+ * {@link LinkedHashMap} in its default mode, this class iterates over its
+ * mappings in the order in which the keys were inserted into the map
+ * (<i>insertion-order</i>).  Insertion order is not affected if a key is
+ * <i>re-inserted</i> into the map.  This class provides all of the optional
+ * map operations, permits {@code null} values and the {@code null} key, and
+ * has the same constructors as {@link HashMap}.
+ *
+ * <p>A {@code LinkedHashMap} allocates a node object for every mapping,
+ * holding the hash of the key, the key, the value, a link to the next node
+ * of its bin and two links that make up the doubly-linked list defining
+ * the iteration order.  This class allocates no per-mapping objects at all.
+ * The mappings are appended, in insertion order, to a dense array in which
+ * each key is immediately followed by its value, and their hashes to a
+ * parallel {@code int} array.  A separate hash table of {@code int} offsets
+ * into those arrays, resolved by linear probing, serves lookups.  The order
+ * of the mappings is thus implicit in their positions, and iteration is a
+ * linear scan of the arrays.  A mapping costs some twelve bytes on a typical
+ * 64-bit virtual machine with compressed references, plus four for each
+ * slot of the hash table, where a {@code LinkedHashMap} needs a node of forty
+ * bytes plus a table slot.  {@code Map.Entry} objects are created only when
+ * the {@link #entrySet} is iterated.
+ *
+ * <p>Removing a mapping leaves a hole in the arrays.  Holes are reclaimed in
+ * batches: when the arrays fill up and at least half of their positions are
+ * holes, or when more than three quarters of them are, the remaining
+ * mappings are moved down, in order, to close the gaps.  Iteration over the
+ * collection views therefore requires time proportional to the size of the
+ * map, as with {@code LinkedHashMap}, and the hash table itself never holds
+ * markers for removed keys, so lookups do not slow down as a result of
+ * earlier removals.
+ *
+ * <p>An instance of {@code CompactLinkedHashMap} has the same two
+ * performance parameters as {@code HashMap}: <i>initial capacity</i> and
+ * <i>load factor</i>.  The capacity is the number of slots in the hash table
+ * and is always a power of two; the arrays holding the mappings have room
+ * for the capacity times the load factor.  Because every mapping occupies a
+ * slot of its own, the load factor may not exceed 7/8; a larger value given
+ * to a constructor is treated as 7/8.
+ *
+ * <p><strong>Note that this implementation is not synchronized.</strong>
+ * If multiple threads access a map concurrently, and at least one of the
+ * threads modifies the map structurally, it <i>must</i> be synchronized
+ * externally.
+ *
+ * <p>The iterators returned by all of this class's "collection view methods"
+ * are <i>fail-fast</i>, in the same manner as those of {@code HashMap}.
+ *
+ * @param <K> the type of keys maintained by this map
+ * @param <V> the type of mapped values
+ *
+ * @see     LinkedHashMap
+ * @see     CompactHashMap
+ * @see     Map
+ * @since   11
+ */
+public class CompactLinkedHashMap<K,V> extends AbstractMap<K,V>
+    implements Map<K,V>, Cloneable, Serializable {
+
+    private static final long serialVersionUID = -2179310946785417023L;
+
+    /*
+     * Implementation notes.
+     *
+     * The mapping at position p holds the hash of its key in
+     * hashes[p], the key in entries[2*p] and the value in
+     * entries[2*p+1].  Positions are handed out in increasing order,
+     * so position order is insertion order; used is the number of
+     * positions handed out so far.  A stored hash is never zero (see
+     * method hash), so a zero in hashes marks a removed mapping, or
+     * hole, whatever the key.  Each slot of the hash table, index,
+     * holds the position of a mapping plus one, or zero if free, and
+     * every mapping is reachable from hash & mask by linear probing
+     * without crossing a free slot.  Removal frees the slot of the
+     * mapping and closes the gap by pulling later slots of the same
+     * cluster back, as in CompactHashMap, using the stored hashes to
+     * find their home slots; only the entry arrays ever hold holes.
+     *
+     * Method compact moves the mappings down over the holes, keeping
+     * their order, and updates their slots in place.  It runs when an
+     * insertion finds the arrays full and at least half of them are
+     * holes (otherwise the table doubles, which compacts as a side
+     * effect), and when a removal leaves fewer than a quarter of the
+     * used positions live.  Either way its cost is covered by the
+     * removals that made the holes.  Holes at the end of the arrays
+     * are given back to used at once, so a map used as a stack never
+     * compacts at all.
+     *
+     * Compaction moves mappings, but only down and in order, so an
+     * iterator that has returned r mappings (less those it removed)
+     * finds its next one at position r afterwards.  CompactIterator
+     * relies on this when its own remove compacts the arrays; any
+     * other compaction bumps modCount.
+     *
+     * A lookup reads index, then hashes, then entries, one cache line
+     * more than CompactHashMap needs.  In exchange the hash table is
+     * a quarter of the size of CompactHashMap's per slot, so tables
+     * with a lower load factor are cheap.
+     *
+     * Footprint.  With compressed references and 8-byte object
+     * alignment, a LinkedHashMap of n mappings occupies 40 bytes per
+     * Entry plus 4 bytes per table slot, while this class occupies 4
+     * bytes per table slot and 12 bytes per position of the entry
+     * arrays, of which there are capacity * loadFactor (not counting
+     * the keys and values themselves, which are the same for both).
+     * Filled one mapping at a time at the default load factor, both
+     * reach the same capacity, giving:
+     *
+     *   mappings   capacity   LinkedHashMap    CompactLinkedHashMap
+     *   1,000      2^11       48,208 bytes     26,672 bytes
+     *   10^6       2^21       48.4 MB          27.3 MB
+     *   10^7       2^24       467.1 MB         218.1 MB
+     *   2*10^7     2^25       934.2 MB         436.2 MB
+     *
+     * A LinkedHashMap bin that has been converted to a tree costs some
+     * 64 bytes per mapping; this class has no equivalent, and relies on
+     * its mixing hash function to keep clusters short.
+     */
+
+    /**
+     * The default initial capacity - MUST be a power of two.
+     */
+    static final int DEFAULT_INITIAL_CAPACITY = HashMap.DEFAULT_INITIAL_CAPACITY;
+
+    /**
+     * The maximum capacity, MUST be a power of two <= 1<<29, since the
+     * entry array holds two elements per position.
+     */
+    static final int MAXIMUM_CAPACITY = 1 << 29;
+
+    /**
+     * The load factor used when none specified in constructor.
+     */
+    static final float DEFAULT_LOAD_FACTOR = HashMap.DEFAULT_LOAD_FACTOR;
+
+    /**
+     * The largest usable load factor.  Linear probing degrades quickly
+     * as the table fills.
+     */
+    static final float MAXIMUM_LOAD_FACTOR = 0.875f;
+
+    /* ---------------- Fields -------------- */
+
+    /**
+     * The hash table: the position of a mapping plus one, zero in free
+     * slots.  Allocated on first use, and resized as necessary; its
+     * length is always a power of two.
+     */
+    transient int[] index;
+
+    /**
+     * The hashes of the keys by position, zero at holes and at
+     * positions not yet used.
+     */
+    transient int[] hashes;
+
+    /**
+     * The keys and values by position, interleaved: twice as long as
+     * hashes.
+     */
+    transient Object[] entries;
+
+    /**
+     * The number of positions handed out, live or not.
+     */
+    transient int used;
+
+    /**
+     * Holds cached entrySet(). Note that AbstractMap fields are used
+     * for keySet() and values().
+     */
+    transient Set<Map.Entry<K,V>> entrySet;
+
+    /**
+     * The number of key-value mappings contained in this map.
+     */
+    transient int size;
+
+    /**
+     * The number of times this map has been structurally modified.
+     * This field is used to make iterators on Collection-views of the
+     * map fail-fast.  (See ConcurrentModificationException).
+     */
+    transient int modCount;
+
+    /**
+     * The number of positions in the entry arrays.  If the table has
+     * not been allocated, this field holds the initial capacity, or
+     * zero signifying DEFAULT_INITIAL_CAPACITY.
+     */
+    transient int threshold;
+
+    /**
+     * The load factor for the hash table, as given to the constructor.
+     *
+     * @serial
+     */
+    final float loadFactor;
+
+    /* ---------------- Static utilities -------------- */
+
+    /**
+     * Computes key.hashCode() and mixes it as CompactHashMap does.
+     * Zero is replaced by one, as zero marks a hole.
+     */
+    static int hash(Object key) {
+        int h = (key == null) ? 0 : key.hashCode() * 0x9E3779B9;
+        return ((h ^= h >>> 16) != 0) ? h : 1;
+    }
+
+    /**
+     * Returns the number of mappings a table of the given capacity
+     * (at least two) may hold, always leaving at least one slot free.
+     */
+    final int maxLoad(int cap) {
+        float lf = Math.min(loadFactor, MAXIMUM_LOAD_FACTOR);
+        return Math.max(1, Math.min((int)(cap * lf), cap - 1));
+    }
+
+    /* ---------------- Public operations -------------- */
+
+    /**
+     * Constructs an empty insertion-ordered {@code CompactLinkedHashMap}
+     * with the specified initial capacity and load factor.
+     *
+     * @param  initialCapacity the initial capacity
+     * @param  loadFactor      the load factor
+     * @throws IllegalArgumentException if the initial capacity is negative
+     *         or the load factor is nonpositive
+     */
+    public CompactLinkedHashMap(int initialCapacity, float loadFactor) {
+        if (initialCapacity < 0)
+            throw new IllegalArgumentException("Illegal initial capacity: " +
+                                               initialCapacity);
+        if (initialCapacity > MAXIMUM_CAPACITY)
+            initialCapacity = MAXIMUM_CAPACITY;
+        if (loadFactor <= 0 || Float.isNaN(loadFactor))
+            throw new IllegalArgumentException("Illegal load factor: " +
+                                               loadFactor);
+        this.loadFactor = loadFactor;
+        this.threshold = HashMap.tableSizeFor(initialCapacity);
+    }
+
+    /**
+     * Constructs an empty insertion-ordered {@code CompactLinkedHashMap}
+     * with the specified initial capacity and the default load factor
+     * (0.75).
+     *
+     * @param  initialCapacity the initial capacity.
+     * @throws IllegalArgumentException if the initial capacity is negative.
+     */
+    public CompactLinkedHashMap(int initialCapacity) {
+        this(initialCapacity, DEFAULT_LOAD_FACTOR);
+    }
+
+    /**
+     * Constructs an empty insertion-ordered {@code CompactLinkedHashMap}
+     * with the default initial capacity (16) and the default load factor
+     * (0.75).
+     */
+    public CompactLinkedHashMap() {
+        this.loadFactor = DEFAULT_LOAD_FACTOR;
+    }
+
+    /**
+     * Constructs an insertion-ordered {@code CompactLinkedHashMap} with the
+     * same mappings as the specified map, in the order of its entry set
+     * iterator.  The {@code CompactLinkedHashMap} is created with default
+     * load factor (0.75) and an initial capacity sufficient to hold the
+     * mappings in the specified map.
+     *
+     * @param   m the map whose mappings are to be placed in this map
+     * @throws  NullPointerException if the specified map is null
+     */
+    public CompactLinkedHashMap(Map<? extends K, ? extends V> m) {
+        this.loadFactor = DEFAULT_LOAD_FACTOR;
+        putMapEntries(m);
+    }
+
+    /**
+     * Implements Map.putAll and Map constructor.
+     */
+    final void putMapEntries(Map<? extends K, ? extends V> m) {
+        int s = m.size();
+        if (s > 0) {
+            float ft = ((float)s / Math.min(loadFactor, MAXIMUM_LOAD_FACTOR)) + 1.0F;
+            int t = ((ft < (float)MAXIMUM_CAPACITY) ?
+                     (int)ft : MAXIMUM_CAPACITY);
+            if (index == null) { // pre-size
+                if (t > threshold)
+                    threshold = HashMap.tableSizeFor(t);
+            }
+            else if (t > index.length)
+                resize(Math.min(HashMap.tableSizeFor(t), MAXIMUM_CAPACITY));
+            for (Map.Entry<? extends K, ? extends V> e : m.entrySet()) {
+                K key = e.getKey();
+                V value = e.getValue();
+                putVal(hash(key), key, value, false);
+            }
+        }
+    }
+
+    /**
+     * Returns the number of key-value mappings in this map.
+     *
+     * @return the number of key-value mappings in this map
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns {@code true} if this map contains no key-value mappings.
+     *
+     * @return {@code true} if this map contains no key-value mappings
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns the value to which the specified key is mapped,
+     * or {@code null} if this map contains no mapping for the key.
+     *
+     * <p>A return value of {@code null} does not <i>necessarily</i>
+     * indicate that the map contains no mapping for the key; it's also
+     * possible that the map explicitly maps the key to {@code null}.
+     * The {@link #containsKey containsKey} operation may be used to
+     * distinguish these two cases.
+     *
+     * @see #put(Object, Object)
+     */
+    @SuppressWarnings("unchecked")
+    public V get(Object key) {
+        int p;
+        return ((p = find(hash(key), key)) < 0) ? null : (V)entries[(p << 1) + 1];
+    }
+
+    /**
+     * Implements Map.get and related methods.
+     *
+     * @param hash hash for key
+     * @param key the key
+     * @return the position of the key, or -1 if none
+     */
+    final int find(int hash, Object key) {
+        int[] idx; int[] hs; Object[] es; Object k;
+        if ((idx = index) == null)
+            return -1;
+        hs = hashes;
+        es = entries;
+        int mask = idx.length - 1;
+        for (int i = hash & mask, q; (q = idx[i]) != 0; i = (i + 1) & mask) {
+            int p = q - 1;
+            if (hs[p] == hash &&
+                ((k = es[p << 1]) == key || (key != null && key.equals(k))))
+                return p;
+        }
+        return -1;
+    }
+
+    /**
+     * Returns {@code true} if this map contains a mapping for the
+     * specified key.
+     *
+     * @param   key   The key whose presence in this map is to be tested
+     * @return {@code true} if this map contains a mapping for the specified
+     * key.
+     */
+    public boolean containsKey(Object key) {
+        return find(hash(key), key) >= 0;
+    }
+
+    /**
+     * Associates the specified value with the specified key in this map.
+     * If the map previously contained a mapping for the key, the old
+     * value is replaced, and the mapping keeps its place in the
+     * iteration order.
+     *
+     * @param key key with which the specified value is to be associated
+     * @param value value to be associated with the specified key
+     * @return the previous value associated with {@code key}, or
+     *         {@code null} if there was no mapping for {@code key}.
+     *         (A {@code null} return can also indicate that the map
+     *         previously associated {@code null} with {@code key}.)
+     */
+    public V put(K key, V value) {
+        return putVal(hash(key), key, value, false);
+    }
+
+    /**
+     * Implements Map.put and related methods.
+     *
+     * @param hash hash for key
+     * @param key the key
+     * @param value the value to put
+     * @param onlyIfAbsent if true, don't change existing value
+     * @return previous value, or null if none
+     */
+    @SuppressWarnings("unchecked")
+    final V putVal(int hash, K key, V value, boolean onlyIfAbsent) {
+        int p;
+        if ((p = find(hash, key)) >= 0) {
+            Object[] es = entries;
+            V oldValue = (V)es[(p << 1) + 1];
+            if (!onlyIfAbsent || oldValue == null)
+                es[(p << 1) + 1] = value;
+            return oldValue;
+        }
+        insert(hash, key, value);
+        return null;
+    }
+
+    /**
+     * Appends a mapping for a key known to be absent, making room in
+     * the entry arrays first if they are full.
+     */
+    final void insert(int hash, Object key, Object value) {
+        if (index == null || used >= threshold)
+            makeRoom();
+        int[] idx = index;
+        int mask = idx.length - 1, i = hash & mask;
+        while (idx[i] != 0)
+            i = (i + 1) & mask;
+        int p = used++;
+        idx[i] = p + 1;
+        hashes[p] = hash;
+        entries[p << 1] = key;
+        entries[(p << 1) + 1] = value;
+        ++modCount;
+        ++size;
+    }
+
+    /**
+     * Frees at least one position at the end of the entry arrays:
+     * allocates the initial table if there is none, compacts the arrays
+     * if at least half of them are holes, and otherwise doubles the
+     * table.
+     */
+    final void makeRoom() {
+        int[] idx;
+        if ((idx = index) == null) {
+            int cap = (threshold > 0) ? threshold : DEFAULT_INITIAL_CAPACITY;
+            resize(Math.max(2, Math.min(cap, MAXIMUM_CAPACITY)));
+        }
+        else if (size <= (used >>> 1))
+            compact();
+        else if (idx.length < MAXIMUM_CAPACITY)
+            resize(idx.length << 1);
+        else if (size < used)
+            compact();
+        else
+            throw new IllegalStateException("Map is full");
+    }
+
+    /**
+     * Rebuilds the table and the entry arrays at the given capacity,
+     * dropping any holes, and using the stored hashes.
+     */
+    final void resize(int newCap) {
+        int[] oldHashes = hashes;
+        Object[] oldEntries = entries;
+        int n = maxLoad(newCap), mask = newCap - 1, p = 0;
+        int[] idx = new int[newCap];
+        int[] hs = new int[n];
+        Object[] es = new Object[n << 1];
+        for (int j = 0, u = used; j < u; ++j) {
+            int h;
+            if ((h = oldHashes[j]) != 0) {
+                int i = h & mask;
+                while (idx[i] != 0)
+                    i = (i + 1) & mask;
+                idx[i] = p + 1;
+                hs[p] = h;
+                es[p << 1] = oldEntries[j << 1];
+                es[(p << 1) + 1] = oldEntries[(j << 1) + 1];
+                ++p;
+            }
+        }
+        index = idx;
+        hashes = hs;
+        entries = es;
+        used = p;
+        threshold = n;
+        ++modCount;
+    }
+
+    /**
+     * Moves the live mappings down over the holes, keeping their order,
+     * and points their table slots at their new positions.
+     */
+    final void compact() {
+        int[] idx = index, hs = hashes;
+        Object[] es = entries;
+        int mask = idx.length - 1, u = used, p = 0;
+        for (int j = 0; j < u; ++j) {
+            int h;
+            if ((h = hs[j]) != 0) {
+                if (p != j) {
+                    int i = h & mask;
+                    while (idx[i] != j + 1)
+                        i = (i + 1) & mask;
+                    idx[i] = p + 1;
+                    hs[p] = h;
+                    es[p << 1] = es[j << 1];
+                    es[(p << 1) + 1] = es[(j << 1) + 1];
+                }
+                ++p;
+            }
+        }
+        Arrays.fill(hs, p, u, 0);
+        Arrays.fill(es, p << 1, u << 1, null);
+        used = p;
+        ++modCount;
+    }
+
+    /**
+     * Copies all of the mappings from the specified map to this map.
+     * These mappings will replace any mappings that this map had for
+     * any of the keys currently in the specified map.
+     *
+     * @param m mappings to be stored in this map
+     * @throws NullPointerException if the specified map is null
+     */
+    public void putAll(Map<? extends K, ? extends V> m) {
+        putMapEntries(m);
+    }
+
+    /**
+     * Removes the mapping for the specified key from this map if present.
+     *
+     * @param  key key whose mapping is to be removed from the map
+     * @return the previous value associated with {@code key}, or
+     *         {@code null} if there was no mapping for {@code key}.
+     *         (A {@code null} return can also indicate that the map
+     *         previously associated {@code null} with {@code key}.)
+     */
+    @SuppressWarnings("unchecked")
+    public V remove(Object key) {
+        int p;
+        if ((p = find(hash(key), key)) < 0)
+            return null;
+        V oldValue = (V)entries[(p << 1) + 1];
+        removeAt(p);
+        return oldValue;
+    }
+
+    /**
+     * Removes the mapping at the given position, freeing its table slot
+     * and leaving a hole in the entry arrays, then compacts the arrays
+     * if fewer than a quarter of the used positions remain live.
+     *
+     * @return true if the arrays were compacted
+     */
+    final boolean removeAt(int p) {
+        int[] idx = index, hs = hashes;
+        Object[] es = entries;
+        int mask = idx.length - 1, i = hs[p] & mask, q;
+        while (idx[i] != p + 1)
+            i = (i + 1) & mask;
+        int gap = i;
+        for (int j = (i + 1) & mask; (q = idx[j]) != 0; j = (j + 1) & mask) {
+            // move j back iff gap lies cyclically within [home(j), j)
+            if (((j - (hs[q - 1] & mask)) & mask) >= ((j - gap) & mask)) {
+                idx[gap] = q;
+                gap = j;
+            }
+        }
+        idx[gap] = 0;
+        hs[p] = 0;
+        es[p << 1] = null;
+        es[(p << 1) + 1] = null;
+        ++modCount;
+        --size;
+        int u = used;
+        while (u > 0 && hs[u - 1] == 0)
+            --u;
+        used = u;
+        if ((size << 2) < u) {
+            compact();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Removes all of the mappings from this map.
+     * The map will be empty after this call returns.
+     */
+    public void clear() {
+        int[] idx;
+        modCount++;
+        if ((idx = index) != null && used > 0) {
+            Arrays.fill(idx, 0);
+            Arrays.fill(hashes, 0, used, 0);
+            Arrays.fill(entries, 0, used << 1, null);
+            used = 0;
+            size = 0;
+        }
+    }
+
+    /**
+     * Returns {@code true} if this map maps one or more keys to the
+     * specified value.
+     *
+     * @param value value whose presence in this map is to be tested
+     * @return {@code true} if this map maps one or more keys to the
+     *         specified value
+     */
+    public boolean containsValue(Object value) {
+        int[] hs; Object[] es; Object v;
+        if (size > 0) {
+            hs = hashes;
+            es = entries;
+            for (int p = 0, u = used; p < u; ++p) {
+                if (hs[p] != 0 &&
+                    ((v = es[(p << 1) + 1]) == value ||
+                     (value != null && value.equals(v))))
+                    return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns a {@link Set} view of the keys contained in this map.
+     * The set is backed by the map, so changes to the map are
+     * reflected in the set, and vice-versa.  If the map is modified
+     * while an iteration over the set is in progress (except through
+     * the iterator's own {@code remove} operation), the results of
+     * the iteration are undefined.  The set supports element removal,
+     * which removes the corresponding mapping from the map, via the
+     * {@code Iterator.remove}, {@code Set.remove},
+     * {@code removeAll}, {@code retainAll}, and {@code clear}
+     * operations.  It does not support the {@code add} or {@code addAll}
+     * operations.
+     * Its {@link Spliterator} typically provides faster sequential
+     * performance but much poorer parallel performance than that of
+     * {@code HashMap}.
+     *
+     * @return a set view of the keys contained in this map
+     */
+    public Set<K> keySet() {
+        Set<K> ks = keySet;
+        if (ks == null) {
+            ks = new KeySet();
+            keySet = ks;
+        }
+        return ks;
+    }
+
+    final class KeySet extends AbstractSet<K> {
+        public final int size()                 { return size; }
+        public final void clear()               { CompactLinkedHashMap.this.clear(); }
+        public final Iterator<K> iterator()     { return new KeyIterator(); }
+        public final boolean contains(Object o) { return containsKey(o); }
+        public final boolean remove(Object key) {
+            int p;
+            if ((p = find(hash(key), key)) < 0)
+                return false;
+            removeAt(p);
+            return true;
+        }
+        public final Spliterator<K> spliterator()  {
+            return Spliterators.spliterator(this, Spliterator.SIZED |
+                                            Spliterator.ORDERED |
+                                            Spliterator.DISTINCT);
+        }
+        @SuppressWarnings("unchecked")
+        public final void forEach(Consumer<? super K> action) {
+            if (action == null)
+                throw new NullPointerException();
+            if (size > 0) {
+                int mc = modCount;
+                int[] hs = hashes;
+                Object[] es = entries;
+                for (int p = 0, u = used; p < u; ++p) {
+                    if (hs[p] != 0)
+                        action.accept((K)es[p << 1]);
+                }
+                if (modCount != mc)
+                    throw new ConcurrentModificationException();
+            }
+        }
+    }
+
+    /**
+     * Returns a {@link Collection} view of the values contained in this map.
+     * The collection is backed by the map, so changes to the map are
+     * reflected in the collection, and vice-versa.  If the map is
+     * modified while an iteration over the collection is in progress
+     * (except through the iterator's own {@code remove} operation),
+     * the results of the iteration are undefined.  The collection
+     * supports element removal, which removes the corresponding
+     * mapping from the map, via the {@code Iterator.remove},
+     * {@code Collection.remove}, {@code removeAll},
+     * {@code retainAll} and {@code clear} operations.  It does not
+     * support the {@code add} or {@code addAll} operations.
+     * Its {@link Spliterator} typically provides faster sequential
+     * performance but much poorer parallel performance than that of
+     * {@code HashMap}.
+     *
+     * @return a view of the values contained in this map
+     */
+    public Collection<V> values() {
+        Collection<V> vs = values;
+        if (vs == null) {
+            vs = new Values();
+            values = vs;
+        }
+        return vs;
+    }
+
+    final class Values extends AbstractCollection<V> {
+        public final int size()                 { return size; }
+        public final void clear()               { CompactLinkedHashMap.this.clear(); }
+        public final Iterator<V> iterator()     { return new ValueIterator(); }
+        public final boolean contains(Object o) { return containsValue(o); }
+        public final Spliterator<V> spliterator() {
+            return Spliterators.spliterator(this, Spliterator.SIZED |
+                                            Spliterator.ORDERED);
+        }
+        @SuppressWarnings("unchecked")
+        public final void forEach(Consumer<? super V> action) {
+            if (action == null)
+                throw new NullPointerException();
+            if (size > 0) {
+                int mc = modCount;
+                int[] hs = hashes;
+                Object[] es = entries;
+                for (int p = 0, u = used; p < u; ++p) {
+                    if (hs[p] != 0)
+                        action.accept((V)es[(p << 1) + 1]);
+                }
+                if (modCount != mc)
+                    throw new ConcurrentModificationException();
+            }
+        }
+    }
+
+    /**
+     * Returns a {@link Set} view of the mappings contained in this map.
+     * The set is backed by the map, so changes to the map are
+     * reflected in the set, and vice-versa.  If the map is modified
+     * while an iteration over the set is in progress (except through
+     * the iterator's own {@code remove} operation, or through the
+     * {@code setValue} operation on a map entry returned by the
+     * iterator) the results of the iteration are undefined.  The set
+     * supports element removal, which removes the corresponding
+     * mapping from the map, via the {@code Iterator.remove},
+     * {@code Set.remove}, {@code removeAll}, {@code retainAll} and
+     * {@code clear} operations.  It does not support the
+     * {@code add} or {@code addAll} operations.
+     * Its {@link Spliterator} typically provides faster sequential
+     * performance but much poorer parallel performance than that of
+     * {@code HashMap}.
+     *
+     * <p>Since mappings are not stored as objects, the entries of this
+     * set are created as they are returned by its iterator.
+     *
+     * @return a set view of the mappings contained in this map
+     */
+    public Set<Map.Entry<K,V>> entrySet() {
+        Set<Map.Entry<K,V>> es;
+        return (es = entrySet) == null ? (entrySet = new EntrySet()) : es;
+    }
+
+    final class EntrySet extends AbstractSet<Map.Entry<K,V>> {
+        public final int size()                 { return size; }
+        public final void clear()               { CompactLinkedHashMap.this.clear(); }
+        public final Iterator<Map.Entry<K,V>> iterator() {
+            return new EntryIterator();
+        }
+        public final boolean contains(Object o) {
+            if (!(o instanceof Map.Entry))
+                return false;
+            Map.Entry<?,?> e = (Map.Entry<?,?>) o;
+            Object key = e.getKey();
+            int p = find(hash(key), key);
+            return p >= 0 && Objects.equals(entries[(p << 1) + 1], e.getValue());
+        }
+        public final boolean remove(Object o) {
+            if (o instanceof Map.Entry) {
+                Map.Entry<?,?> e = (Map.Entry<?,?>) o;
+                return CompactLinkedHashMap.this.remove(e.getKey(), e.getValue());
+            }
+            return false;
+        }
+        public final Spliterator<Map.Entry<K,V>> spliterator() {
+            return Spliterators.spliterator(this, Spliterator.SIZED |
+                                            Spliterator.ORDERED |
+                                            Spliterator.DISTINCT);
+        }
+    }
+
+    // Overrides of JDK8 Map extension methods
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V getOrDefault(Object key, V defaultValue) {
+        int p;
+        return ((p = find(hash(key), key)) < 0) ?
+            defaultValue : (V)entries[(p << 1) + 1];
+    }
+
+    @Override
+    public V putIfAbsent(K key, V value) {
+        return putVal(hash(key), key, value, true);
+    }
+
+    @Override
+    public boolean remove(Object key, Object value) {
+        int p;
+        if ((p = find(hash(key), key)) >= 0 &&
+            Objects.equals(entries[(p << 1) + 1], value)) {
+            removeAt(p);
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public boolean replace(K key, V oldValue, V newValue) {
+        int p;
+        if ((p = find(hash(key), key)) >= 0 &&
+            Objects.equals(entries[(p << 1) + 1], oldValue)) {
+            entries[(p << 1) + 1] = newValue;
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V replace(K key, V value) {
+        int p;
+        if ((p = find(hash(key), key)) >= 0) {
+            V oldValue = (V)entries[(p << 1) + 1];
+            entries[(p << 1) + 1] = value;
+            return oldValue;
+        }
+        return null;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>This method will, on a best-effort basis, throw a
+     * {@link ConcurrentModificationException} if it is detected that the
+     * mapping function modifies this map during computation.
+     *
+     * @throws ConcurrentModificationException if it is detected that the
+     * mapping function modified this map
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public V computeIfAbsent(K key,
+                             Function<? super K, ? extends V> mappingFunction) {
+        if (mappingFunction == null)
+            throw new NullPointerException();
+        int hash = hash(key), p;
+        V oldValue;
+        if ((p = find(hash, key)) >= 0 &&
+            (oldValue = (V)entries[(p << 1) + 1]) != null)
+            return oldValue;
+        int mc = modCount;
+        V v = mappingFunction.apply(key);
+        if (mc != modCount) { throw new ConcurrentModificationException(); }
+        if (v == null)
+            return null;
+        else if (p >= 0)
+            entries[(p << 1) + 1] = v;
+        else
+            insert(hash, key, v);
+        return v;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>This method will, on a best-effort basis, throw a
+     * {@link ConcurrentModificationException} if it is detected that the
+     * remapping function modifies this map during computation.
+     *
+     * @throws ConcurrentModificationException if it is detected that the
+     * remapping function modified this map
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public V computeIfPresent(K key,
+                              BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
+        if (remappingFunction == null)
+            throw new NullPointerException();
+        int p; V oldValue;
+        if ((p = find(hash(key), key)) >= 0 &&
+            (oldValue = (V)entries[(p << 1) + 1]) != null) {
+            int mc = modCount;
+            V v = remappingFunction.apply(key, oldValue);
+            if (mc != modCount) { throw new ConcurrentModificationException(); }
+            if (v != null) {
+                entries[(p << 1) + 1] = v;
+                return v;
+            }
+            else
+                removeAt(p);
+        }
+        return null;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>This method will, on a best-effort basis, throw a
+     * {@link ConcurrentModificationException} if it is detected that the
+     * remapping function modifies this map during computation.
+     *
+     * @throws ConcurrentModificationException if it is detected that the
+     * remapping function modified this map
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public V compute(K key,
+                     BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
+        if (remappingFunction == null)
+            throw new NullPointerException();
+        int hash = hash(key), p = find(hash, key);
+        V oldValue = (p < 0) ? null : (V)entries[(p << 1) + 1];
+        int mc = modCount;
+        V v = remappingFunction.apply(key, oldValue);
+        if (mc != modCount) { throw new ConcurrentModificationException(); }
+        if (p >= 0) {
+            if (v != null)
+                entries[(p << 1) + 1] = v;
+            else
+                removeAt(p);
+        }
+        else if (v != null)
+            insert(hash, key, v);
+        return v;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>This method will, on a best-effort basis, throw a
+     * {@link ConcurrentModificationException} if it is detected that the
+     * remapping function modifies this map during computation.
+     *
+     * @throws ConcurrentModificationException if it is detected that the
+     * remapping function modified this map
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public V merge(K key, V value,
+                   BiFunction<? super V, ? super V, ? extends V> remappingFunction) {
+        if (value == null)
+            throw new NullPointerException();
+        if (remappingFunction == null)
+            throw new NullPointerException();
+        int hash = hash(key), p;
+        if ((p = find(hash, key)) >= 0) {
+            V oldValue = (V)entries[(p << 1) + 1], v;
+            if (oldValue != null) {
+                int mc = modCount;
+                v = remappingFunction.apply(oldValue, value);
+                if (mc != modCount) {
+                    throw new ConcurrentModificationException();
+                }
+            } else {
+                v = value;
+            }
+            if (v != null)
+                entries[(p << 1) + 1] = v;
+            else
+                removeAt(p);
+            return v;
+        }
+        insert(hash, key, value);
+        return value;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void forEach(BiConsumer<? super K, ? super V> action) {
+        if (action == null)
+            throw new NullPointerException();
+        if (size > 0) {
+            int mc = modCount;
+            int[] hs = hashes;
+            Object[] es = entries;
+            for (int p = 0, u = used; p < u; ++p) {
+                if (hs[p] != 0)
+                    action.accept((K)es[p << 1], (V)es[(p << 1) + 1]);
+            }
+            if (modCount != mc)
+                throw new ConcurrentModificationException();
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void replaceAll(BiFunction<? super K, ? super V, ? extends V> function) {
+        if (function == null)
+            throw new NullPointerException();
+        if (size > 0) {
+            int mc = modCount;
+            int[] hs = hashes;
+            Object[] es = entries;
+            for (int p = 0, u = used; p < u; ++p) {
+                if (hs[p] != 0)
+                    es[(p << 1) + 1] = function.apply((K)es[p << 1],
+                                                      (V)es[(p << 1) + 1]);
+            }
+            if (modCount != mc)
+                throw new ConcurrentModificationException();
+        }
+    }
+
+    /* ------------------------------------------------------------ */
+    // Cloning and serialization
+
+    /**
+     * Returns a shallow copy of this {@code CompactLinkedHashMap} instance:
+     * the keys and values themselves are not cloned.
+     *
+     * @return a shallow copy of this map
+     */
+    @SuppressWarnings("unchecked")
+    @Override
+    public Object clone() {
+        CompactLinkedHashMap<K,V> result;
+        try {
+            result = (CompactLinkedHashMap<K,V>)super.clone();
+        } catch (CloneNotSupportedException e) {
+            // this shouldn't happen, since we are Cloneable
+            throw new InternalError(e);
+        }
+        if (index != null) {
+            result.index = index.clone();
+            result.hashes = hashes.clone();
+            result.entries = entries.clone();
+        }
+        result.entrySet = null;
+        result.keySet = null;
+        result.values = null;
+        result.modCount = 0;
+        return result;
+    }
+
+    /**
+     * Saves this map to a stream (that is, serializes it).
+     *
+     * @param s the stream
+     * @throws IOException if an I/O error occurs
+     * @serialData The <i>size</i> of the map (an int, the number of
+     *             key-value mappings) is emitted, followed by the key
+     *             (Object) and value (Object) for each key-value mapping.
+     *             The key-value mappings are emitted in insertion order.
+     */
+    private void writeObject(java.io.ObjectOutputStream s)
+        throws IOException {
+        s.defaultWriteObject();
+        s.writeInt(size);
+        if (size > 0) {
+            int[] hs = hashes;
+            Object[] es = entries;
+            for (int p = 0, u = used; p < u; ++p) {
+                if (hs[p] != 0) {
+                    s.writeObject(es[p << 1]);
+                    s.writeObject(es[(p << 1) + 1]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Reconstitutes this map from a stream (that is, deserializes it).
+     * @param s the stream
+     * @throws ClassNotFoundException if the class of a serialized object
+     *         could not be found
+     * @throws IOException if an I/O error occurs
+     */
+    private void readObject(java.io.ObjectInputStream s)
+        throws IOException, ClassNotFoundException {
+        s.defaultReadObject();
+        if (loadFactor <= 0 || Float.isNaN(loadFactor))
+            throw new InvalidObjectException("Illegal load factor: " +
+                                             loadFactor);
+        int mappings = s.readInt();
+        if (mappings < 0)
+            throw new InvalidObjectException("Illegal mappings count: " +
+                                             mappings);
+        index = null;
+        hashes = null;
+        entries = null;
+        used = 0;
+        size = 0;
+        threshold = 0;
+        if (mappings > 0) {
+            float fc = (float)mappings / Math.min(loadFactor, MAXIMUM_LOAD_FACTOR) + 1.0f;
+            int cap = ((fc < DEFAULT_INITIAL_CAPACITY) ?
+                       DEFAULT_INITIAL_CAPACITY :
+                       (fc >= MAXIMUM_CAPACITY) ?
+                       MAXIMUM_CAPACITY :
+                       HashMap.tableSizeFor((int)fc));
+            SharedSecrets.getJavaObjectInputStreamAccess().checkArray(s, Object[].class, maxLoad(cap) << 1);
+            resize(cap);
+            for (int i = 0; i < mappings; i++) {
+                @SuppressWarnings("unchecked")
+                    K key = (K) s.readObject();
+                @SuppressWarnings("unchecked")
+                    V value = (V) s.readObject();
+                putVal(hash(key), key, value, false);
+            }
+        }
+    }
+
+    /* ------------------------------------------------------------ */
+    // iterators
+
+    abstract class CompactIterator {
+        int next;             // position of next entry, or -1
+        int lastReturned;     // position of last entry, or -1
+        int returned;         // entries returned and not removed
+        int expectedModCount; // for fast-fail
+
+        CompactIterator() {
+            expectedModCount = modCount;
+            lastReturned = -1;
+            advance(0);
+        }
+
+        final void advance(int p) {
+            int[] hs = hashes;
+            int u = used;
+            while (p < u && hs[p] == 0)
+                ++p;
+            next = (p < u) ? p : -1;
+        }
+
+        public final boolean hasNext() {
+            return next >= 0;
+        }
+
+        final int nextIndex() {
+            int p;
+            if (modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+            if ((p = next) < 0)
+                throw new NoSuchElementException();
+            lastReturned = p;
+            ++returned;
+            advance(p + 1);
+            return p;
+        }
+
+        public final void remove() {
+            int p;
+            if ((p = lastReturned) < 0)
+                throw new IllegalStateException();
+            if (modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+            lastReturned = -1;
+            --returned;
+            if (removeAt(p) && next >= 0)
+                // the mappings moved down in order, so the next one
+                // follows those already returned
+                next = returned;
+            expectedModCount = modCount;
+        }
+    }
+
+    final class KeyIterator extends CompactIterator
+        implements Iterator<K> {
+        @SuppressWarnings("unchecked")
+        public final K next() { return (K)entries[nextIndex() << 1]; }
+    }
+
+    final class ValueIterator extends CompactIterator
+        implements Iterator<V> {
+        @SuppressWarnings("unchecked")
+        public final V next() { return (V)entries[(nextIndex() << 1) + 1]; }
+    }
+
+    final class EntryIterator extends CompactIterator
+        implements Iterator<Map.Entry<K,V>> {
+        public final Map.Entry<K,V> next() { return new Entry(nextIndex()); }
+    }
+
+    /**
+     * Entry created on demand by the entry set iterator.  It reads and
+     * writes through to its position for as long as that still holds its
+     * key, and otherwise goes through the map by key, since compaction
+     * and resizing move mappings between positions.
+     */
+    final class Entry implements Map.Entry<K,V> {
+        final K key;
+        int pos;
+        V value;
+
+        @SuppressWarnings("unchecked")
+        Entry(int pos) {
+            this.pos = pos;
+            this.key = (K)entries[pos << 1];
+            this.value = (V)entries[(pos << 1) + 1];
+        }
+
+        /**
+         * Returns the current position of the key, or -1 if it has been
+         * removed.
+         */
+        final int locate() {
+            int p = pos;
+            if (p >= 0 && p < used && hashes[p] != 0 &&
+                entries[p << 1] == key)
+                return p;
+            return pos = find(hash(key), key);
+        }
+
+        public final K getKey()        { return key; }
+
+        @SuppressWarnings("unchecked")
+        public final V getValue() {
+            int p;
+            return ((p = locate()) >= 0) ?
+                (value = (V)entries[(p << 1) + 1]) : value;
+        }
+
+        public final V setValue(V newValue) {
+            V oldValue = getValue();
+            int p;
+            if ((p = locate()) >= 0)
+                entries[(p << 1) + 1] = newValue;
+            else
+                put(key, newValue);
+            value = newValue;
+            return oldValue;
+        }
+
+        public final String toString() { return key + "=" + getValue(); }
+
+        public final int hashCode() {
+            return Objects.hashCode(key) ^ Objects.hashCode(getValue());
+        }
+
+        public final boolean equals(Object o) {
+            if (o == this)
+                return true;
+            if (o instanceof Map.Entry) {
+                Map.Entry<?,?> e = (Map.Entry<?,?>)o;
+                return Objects.equals(key, e.getKey()) &&
+                    Objects.equals(getValue(), e.getValue());
+            }
+            return false;
+        }
+    }
+}
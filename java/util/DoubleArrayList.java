@@ -0,0 +1,1620 @@
+/*
+ * Copyright (c) 2018, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package java.util;
+
+import java.util.function.DoubleConsumer;
+import java.util.function.DoublePredicate;
+import java.util.function.DoubleUnaryOperator;
+import java.util.stream.DoubleStream;
+import java.util.stream.StreamSupport;
+import jdk.internal.misc.SharedSecrets;
+
+/**
+ * Resizable-array list of primitive {@code double} values.  This class is
+ * the counterpart of {@link ArrayList} for {@code double} elements: it has
+ * the same growth policy, the same constant-time positional access, and
+ * the same amortized constant-time {@code add}, but stores its elements in
+ * a {@code double[]} rather than as boxed {@code Double} objects.  A list of
+ * n elements thus takes 8n bytes of array rather than a reference and
+ * an object per element, and loops over it read consecutive memory.
+ *
+ * <p>The elements are accessed through primitive methods: {@link #get get}
+ * and {@link #set set}, {@link #add(double) add}, {@link #removeAt
+ * removeAt} (removal by index) and {@link #removeElement removeElement}
+ * (removal by value), and bulk operations taking {@code double}-valued
+ * functional interfaces.  The {@link #iterator iterator} is a {@link
+ * PrimitiveIterator.OfDouble}, the {@link #spliterator spliterator} a
+ * {@link Spliterator.OfDouble}, and {@link #stream stream} returns a
+ * {@code DoubleStream} reading directly from the backing array.  None of
+ * these box.  The {@link #asList asList} method returns a {@code
+ * List<Double>} view for interoperation with code that expects the
+ * collections framework; that view boxes as usual.
+ *
+ * <p>Elements are compared as by {@link Double#equals Double.equals}, that
+ * is, by their bit patterns as given by {@link Double#doubleToLongBits}.
+ * Thus {@code indexOf(Double.NaN)} finds a {@code NaN} element, and
+ * {@code 0.0} and {@code -0.0} are distinct elements.
+ *
+ * <p><strong>Note that this implementation is not synchronized.</strong>
+ * If multiple threads access a {@code DoubleArrayList} instance concurrently,
+ * and at least one of the threads modifies the list structurally, it
+ * <i>must</i> be synchronized externally.
+ *
+ * <p>The iterators and spliterators returned by this class are
+ * <em>fail-fast</em> in the same manner as those of {@code ArrayList}: if
+ * the list is structurally modified after they are created, other than
+ * through the iterator's own {@code remove} method, they throw a {@link
+ * ConcurrentModificationException} on a best-effort basis.
+ *
+ * @see ArrayList
+ * @see IntArrayList
+ * @see LongArrayList
+ * @since 11
+ */
+public class DoubleArrayList implements RandomAccess, Cloneable, java.io.Serializable {
+    private static final long serialVersionUID = 2704331930172455067L;
+
+    /**
+     * Default initial capacity.
+     */
+    private static final int DEFAULT_CAPACITY = 10;
+
+    /**
+     * Shared empty array instance used for empty instances.
+     */
+    private static final double[] EMPTY_ELEMENTDATA = {};
+
+    /**
+     * Shared empty array instance used for default sized empty instances. We
+     * distinguish this from EMPTY_ELEMENTDATA to know how much to inflate when
+     * first element is added.
+     */
+    private static final double[] DEFAULTCAPACITY_EMPTY_ELEMENTDATA = {};
+
+    /**
+     * The array buffer into which the elements of the list are stored.
+     * The capacity of the list is the length of this array buffer. Any
+     * empty list with elementData == DEFAULTCAPACITY_EMPTY_ELEMENTDATA
+     * will be expanded to DEFAULT_CAPACITY when the first element is added.
+     */
+    transient double[] elementData; // non-private to simplify nested class access
+
+    /**
+     * The size of the list (the number of elements it contains).
+     *
+     * @serial
+     */
+    private int size;
+
+    /**
+     * The number of times this list has been structurally modified, as for
+     * {@link AbstractList#modCount}.
+     */
+    transient int modCount;
+
+    /**
+     * Constructs an empty list with the specified initial capacity.
+     *
+     * @param  initialCapacity  the initial capacity of the list
+     * @throws IllegalArgumentException if the specified initial capacity
+     *         is negative
+     */
+    public DoubleArrayList(int initialCapacity) {
+        if (initialCapacity > 0) {
+            this.elementData = new double[initialCapacity];
+        } else if (initialCapacity == 0) {
+            this.elementData = EMPTY_ELEMENTDATA;
+        } else {
+            throw new IllegalArgumentException("Illegal Capacity: "+
+                                               initialCapacity);
+        }
+    }
+
+    /**
+     * Constructs an empty list with an initial capacity of ten.
+     */
+    public DoubleArrayList() {
+        this.elementData = DEFAULTCAPACITY_EMPTY_ELEMENTDATA;
+    }
+
+    /**
+     * Constructs a list containing the elements of the specified list, in
+     * order.
+     *
+     * @param c the list whose elements are to be placed into this list
+     * @throws NullPointerException if the specified list is null
+     */
+    public DoubleArrayList(DoubleArrayList c) {
+        elementData = c.toArray();
+        if ((size = elementData.length) == 0)
+            elementData = EMPTY_ELEMENTDATA;
+    }
+
+    /**
+     * Trims the capacity of this list to be the list's current size.  An
+     * application can use this operation to minimize the storage of a
+     * {@code DoubleArrayList} instance.
+     */
+    public void trimToSize() {
+        modCount++;
+        if (size < elementData.length) {
+            elementData = (size == 0)
+              ? EMPTY_ELEMENTDATA
+              : Arrays.copyOf(elementData, size);
+        }
+    }
+
+    /**
+     * Increases the capacity of this list, if necessary, to ensure that it
+     * can hold at least the number of elements specified by the minimum
+     * capacity argument.
+     *
+     * @param minCapacity the desired minimum capacity
+     */
+    public void ensureCapacity(int minCapacity) {
+        if (minCapacity > elementData.length
+            && !(elementData == DEFAULTCAPACITY_EMPTY_ELEMENTDATA
+                 && minCapacity <= DEFAULT_CAPACITY)) {
+            modCount++;
+            grow(minCapacity);
+        }
+    }
+
+    /**
+     * The maximum size of array to allocate (unless necessary).
+     * Some VMs reserve some header words in an array.
+     * Attempts to allocate larger arrays may result in
+     * OutOfMemoryError: Requested array size exceeds VM limit
+     */
+    private static final int MAX_ARRAY_SIZE = Integer.MAX_VALUE - 8;
+
+    /**
+     * Increases the capacity to ensure that it can hold at least the
+     * number of elements specified by the minimum capacity argument.
+     *
+     * @param minCapacity the desired minimum capacity
+     * @throws OutOfMemoryError if minCapacity is less than zero
+     */
+    private double[] grow(int minCapacity) {
+        return elementData = Arrays.copyOf(elementData,
+                                           newCapacity(minCapacity));
+    }
+
+    private double[] grow() {
+        return grow(size + 1);
+    }
+
+    /**
+     * Returns a capacity at least as large as the given minimum capacity.
+     * Returns the current capacity increased by 50% if that suffices.
+     * Will not return a capacity greater than MAX_ARRAY_SIZE unless
+     * the given minimum capacity is greater than MAX_ARRAY_SIZE.
+     *
+     * @param minCapacity the desired minimum capacity
+     * @throws OutOfMemoryError if minCapacity is less than zero
+     */
+    private int newCapacity(int minCapacity) {
+        // overflow-conscious code
+        int oldCapacity = elementData.length;
+        int newCapacity = oldCapacity + (oldCapacity >> 1);
+        if (newCapacity - minCapacity <= 0) {
+            if (elementData == DEFAULTCAPACITY_EMPTY_ELEMENTDATA)
+                return Math.max(DEFAULT_CAPACITY, minCapacity);
+            if (minCapacity < 0) // overflow
+                throw new OutOfMemoryError();
+            return minCapacity;
+        }
+        return (newCapacity - MAX_ARRAY_SIZE <= 0)
+            ? newCapacity
+            : hugeCapacity(minCapacity);
+    }
+
+    private static int hugeCapacity(int minCapacity) {
+        if (minCapacity < 0) // overflow
+            throw new OutOfMemoryError();
+        return (minCapacity > MAX_ARRAY_SIZE)
+            ? Integer.MAX_VALUE
+            : MAX_ARRAY_SIZE;
+    }
+
+    /**
+     * Returns the number of elements in this list.
+     *
+     * @return the number of elements in this list
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns {@code true} if this list contains no elements.
+     *
+     * @return {@code true} if this list contains no elements
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns {@code true} if this list contains the specified element.
+     *
+     * @param e element whose presence in this list is to be tested
+     * @return {@code true} if this list contains the specified element
+     */
+    public boolean contains(double e) {
+        return indexOf(e) >= 0;
+    }
+
+    /**
+     * Returns the index of the first occurrence of the specified element
+     * in this list, or -1 if this list does not contain the element.
+     *
+     * @param e element to search for
+     * @return the index of the first occurrence of the element, or -1
+     */
+    public int indexOf(double e) {
+        return indexOfRange(e, 0, size);
+    }
+
+    int indexOfRange(double e, int start, int end) {
+        double[] es = elementData;
+        for (int i = start; i < end; i++) {
+            if (Double.doubleToLongBits(e) == Double.doubleToLongBits(es[i])) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the index of the last occurrence of the specified element
+     * in this list, or -1 if this list does not contain the element.
+     *
+     * @param e element to search for
+     * @return the index of the last occurrence of the element, or -1
+     */
+    public int lastIndexOf(double e) {
+        return lastIndexOfRange(e, 0, size);
+    }
+
+    int lastIndexOfRange(double e, int start, int end) {
+        double[] es = elementData;
+        for (int i = end - 1; i >= start; i--) {
+            if (Double.doubleToLongBits(e) == Double.doubleToLongBits(es[i])) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns a shallow copy of this list, with a capacity equal to its
+     * size.
+     *
+     * @return a clone of this list
+     */
+    public DoubleArrayList clone() {
+        try {
+            DoubleArrayList v = (DoubleArrayList) super.clone();
+            v.elementData = Arrays.copyOf(elementData, size);
+            v.modCount = 0;
+            return v;
+        } catch (CloneNotSupportedException e) {
+            // this shouldn't happen, since we are Cloneable
+            throw new InternalError(e);
+        }
+    }
+
+    /**
+     * Returns an array containing all of the elements in this list in
+     * proper sequence (from first to last element).  The array is newly
+     * allocated, so the caller is free to modify it.
+     *
+     * @return an array containing all of the elements in this list in
+     *         proper sequence
+     */
+    public double[] toArray() {
+        return Arrays.copyOf(elementData, size);
+    }
+
+    /**
+     * Returns the element at the specified position in this list.
+     *
+     * @param  index index of the element to return
+     * @return the element at the specified position in this list
+     * @throws IndexOutOfBoundsException if the index is out of range
+     *         ({@code index < 0 || index >= size()})
+     */
+    public double get(int index) {
+        Objects.checkIndex(index, size);
+        return elementData[index];
+    }
+
+    /**
+     * Replaces the element at the specified position in this list with
+     * the specified element.
+     *
+     * @param index index of the element to replace
+     * @param element element to be stored at the specified position
+     * @return the element previously at the specified position
+     * @throws IndexOutOfBoundsException if the index is out of range
+     *         ({@code index < 0 || index >= size()})
+     */
+    public double set(int index, double element) {
+        Objects.checkIndex(index, size);
+        double oldValue = elementData[index];
+        elementData[index] = element;
+        return oldValue;
+    }
+
+    /**
+     * This helper method split out from add(double) to keep method
+     * bytecode size under 35 (the -XX:MaxInlineSize default value),
+     * which helps when add(double) is called in a C1-compiled loop.
+     */
+    private void add(double e, double[] elementData, int s) {
+        if (s == elementData.length)
+            elementData = grow();
+        elementData[s] = e;
+        size = s + 1;
+    }
+
+    /**
+     * Appends the specified element to the end of this list.
+     *
+     * @param e element to be appended to this list
+     * @return {@code true}
+     */
+    public boolean add(double e) {
+        modCount++;
+        add(e, elementData, size);
+        return true;
+    }
+
+    /**
+     * Inserts the specified element at the specified position in this
+     * list. Shifts the element currently at that position (if any) and
+     * any subsequent elements to the right (adds one to their indices).
+     *
+     * @param index index at which the specified element is to be inserted
+     * @param element element to be inserted
+     * @throws IndexOutOfBoundsException if the index is out of range
+     *         ({@code index < 0 || index > size()})
+     */
+    public void add(int index, double element) {
+        rangeCheckForAdd(index);
+        modCount++;
+        final int s;
+        double[] elementData;
+        if ((s = size) == (elementData = this.elementData).length)
+            elementData = grow();
+        System.arraycopy(elementData, index,
+                         elementData, index + 1,
+                         s - index);
+        elementData[index] = element;
+        size = s + 1;
+    }
+
+    /**
+     * Removes the element at the specified position in this list.
+     * Shifts any subsequent elements to the left (subtracts one from their
+     * indices).
+     *
+     * @param index the index of the element to be removed
+     * @return the element that was removed from the list
+     * @throws IndexOutOfBoundsException if the index is out of range
+     *         ({@code index < 0 || index >= size()})
+     */
+    public double removeAt(int index) {
+        Objects.checkIndex(index, size);
+        final double[] es = elementData;
+
+        double oldValue = es[index];
+        fastRemove(es, index);
+
+        return oldValue;
+    }
+
+    /**
+     * Removes the first occurrence of the specified element from this list,
+     * if it is present.  If the list does not contain the element, it is
+     * unchanged.
+     *
+     * @param e element to be removed from this list, if present
+     * @return {@code true} if this list contained the specified element
+     */
+    public boolean removeElement(double e) {
+        final double[] es = elementData;
+        final int size = this.size;
+        int i = 0;
+        found: {
+            for (; i < size; i++)
+                if (Double.doubleToLongBits(e) == Double.doubleToLongBits(es[i]))
+                    break found;
+            return false;
+        }
+        fastRemove(es, i);
+        return true;
+    }
+
+    /**
+     * Private remove method that skips bounds checking and does not
+     * return the value removed.
+     */
+    private void fastRemove(double[] es, int i) {
+        modCount++;
+        final int newSize;
+        if ((newSize = size - 1) > i)
+            System.arraycopy(es, i + 1, es, i, newSize - i);
+        size = newSize;
+    }
+
+    /**
+     * Removes all of the elements from this list.  The list will
+     * be empty after this call returns.
+     */
+    public void clear() {
+        modCount++;
+        size = 0;
+    }
+
+    /**
+     * Appends all of the elements in the specified list to the end of
+     * this list, in order.
+     *
+     * @param c list containing elements to be added to this list
+     * @return {@code true} if this list changed as a result of the call
+     * @throws NullPointerException if the specified list is null
+     */
+    public boolean addAll(DoubleArrayList c) {
+        return addAll(size, c.toArray());
+    }
+
+    /**
+     * Inserts all of the elements in the specified list into this list,
+     * starting at the specified position.  Shifts the element currently at
+     * that position (if any) and any subsequent elements to the right
+     * (increases their indices).
+     *
+     * @param index index at which to insert the first element from the
+     *              specified list
+     * @param c list containing elements to be added to this list
+     * @return {@code true} if this list changed as a result of the call
+     * @throws IndexOutOfBoundsException if the index is out of range
+     *         ({@code index < 0 || index > size()})
+     * @throws NullPointerException if the specified list is null
+     */
+    public boolean addAll(int index, DoubleArrayList c) {
+        return addAll(index, c.toArray());
+    }
+
+    /**
+     * Appends all of the elements in the specified array to the end of
+     * this list, in order.
+     *
+     * @param a array containing elements to be added to this list
+     * @return {@code true} if this list changed as a result of the call
+     * @throws NullPointerException if the specified array is null
+     */
+    public boolean addAll(double[] a) {
+        return addAll(size, a);
+    }
+
+    /**
+     * Inserts all of the elements in the specified array into this list,
+     * starting at the specified position.  Shifts the element currently at
+     * that position (if any) and any subsequent elements to the right
+     * (increases their indices).
+     *
+     * @param index index at which to insert the first element from the
+     *              specified array
+     * @param a array containing elements to be added to this list
+     * @return {@code true} if this list changed as a result of the call
+     * @throws IndexOutOfBoundsException if the index is out of range
+     *         ({@code index < 0 || index > size()})
+     * @throws NullPointerException if the specified array is null
+     */
+    public boolean addAll(int index, double[] a) {
+        rangeCheckForAdd(index);
+        modCount++;
+        int numNew = a.length;
+        if (numNew == 0)
+            return false;
+        double[] elementData;
+        final int s;
+        if (numNew > (elementData = this.elementData).length - (s = size))
+            elementData = grow(s + numNew);
+
+        int numMoved = s - index;
+        if (numMoved > 0)
+            System.arraycopy(elementData, index,
+                             elementData, index + numNew,
+                             numMoved);
+        System.arraycopy(a, 0, elementData, index, numNew);
+        size = s + numNew;
+        return true;
+    }
+
+    /**
+     * Removes from this list all of the elements whose index is between
+     * {@code fromIndex}, inclusive, and {@code toIndex}, exclusive.
+     * Shifts any succeeding elements to the left (reduces their index).
+     *
+     * @throws IndexOutOfBoundsException if {@code fromIndex} or
+     *         {@code toIndex} is out of range
+     *         ({@code fromIndex < 0 ||
+     *          toIndex > size() ||
+     *          toIndex < fromIndex})
+     */
+    protected void removeRange(int fromIndex, int toIndex) {
+        if (fromIndex > toIndex) {
+            throw new IndexOutOfBoundsException(
+                    outOfBoundsMsg(fromIndex, toIndex));
+        }
+        modCount++;
+        shiftTailOverGap(elementData, fromIndex, toIndex);
+    }
+
+    /** Erases the gap from lo to hi, by sliding down following elements. */
+    private void shiftTailOverGap(double[] es, int lo, int hi) {
+        System.arraycopy(es, hi, es, lo, size - hi);
+        size -= hi - lo;
+    }
+
+    /**
+     * A version of rangeCheck used by add and addAll.
+     */
+    private void rangeCheckForAdd(int index) {
+        if (index > size || index < 0)
+            throw new IndexOutOfBoundsException(outOfBoundsMsg(index));
+    }
+
+    /**
+     * Constructs an IndexOutOfBoundsException detail message.
+     */
+    private String outOfBoundsMsg(int index) {
+        return "Index: "+index+", Size: "+size;
+    }
+
+    /**
+     * A version used in checking (fromIndex > toIndex) condition
+     */
+    private static String outOfBoundsMsg(int fromIndex, int toIndex) {
+        return "From Index: " + fromIndex + " > To Index: " + toIndex;
+    }
+
+    /**
+     * Removes from this list all of its elements that are contained in the
+     * specified list.
+     *
+     * @param c list containing elements to be removed from this list
+     * @return {@code true} if this list changed as a result of the call
+     * @throws NullPointerException if the specified list is null
+     */
+    public boolean removeAll(DoubleArrayList c) {
+        return batchRemove(c, false, 0, size);
+    }
+
+    /**
+     * Retains only the elements in this list that are contained in the
+     * specified list.  In other words, removes from this list all
+     * of its elements that are not contained in the specified list.
+     *
+     * @param c list containing elements to be retained in this list
+     * @return {@code true} if this list changed as a result of the call
+     * @throws NullPointerException if the specified list is null
+     */
+    public boolean retainAll(DoubleArrayList c) {
+        return batchRemove(c, true, 0, size);
+    }
+
+    boolean batchRemove(DoubleArrayList c, boolean complement,
+                        final int from, final int end) {
+        Objects.requireNonNull(c);
+        final double[] es = elementData;
+        int r;
+        // Optimize for initial run of survivors
+        for (r = from;; r++) {
+            if (r == end)
+                return false;
+            if (c.contains(es[r]) != complement)
+                break;
+        }
+        int w = r++;
+        try {
+            for (double e; r < end; r++)
+                if (c.contains(e = es[r]) == complement)
+                    es[w++] = e;
+        } catch (Throwable ex) {
+            // Leave the list consistent even if c.contains() throws.
+            System.arraycopy(es, r, es, w, end - r);
+            w += end - r;
+            throw ex;
+        } finally {
+            modCount += end - w;
+            shiftTailOverGap(es, w, end);
+        }
+        return true;
+    }
+
+    /**
+     * Saves the state of the {@code DoubleArrayList} instance to a stream
+     * (that is, serializes it).
+     *
+     * @param s the stream
+     * @throws java.io.IOException if an I/O error occurs
+     * @serialData The size of the list is emitted (int), followed by all of
+     *             its elements (each a {@code double}) in the proper order.
+     */
+    private void writeObject(java.io.ObjectOutputStream s)
+        throws java.io.IOException {
+        // Write out element count, and any hidden stuff
+        int expectedModCount = modCount;
+        s.defaultWriteObject();
+
+        // Write out size as capacity for behavioral compatibility with clone()
+        s.writeInt(size);
+
+        // Write out all elements in the proper order.
+        for (int i=0; i<size; i++) {
+            s.writeDouble(elementData[i]);
+        }
+
+        if (modCount != expectedModCount) {
+            throw new ConcurrentModificationException();
+        }
+    }
+
+    /**
+     * Reconstitutes the {@code DoubleArrayList} instance from a stream (that
+     * is, deserializes it).
+     *
+     * @param s the stream
+     * @throws ClassNotFoundException if the class of a serialized object
+     *         could not be found
+     * @throws java.io.IOException if an I/O error occurs
+     */
+    private void readObject(java.io.ObjectInputStream s)
+        throws java.io.IOException, ClassNotFoundException {
+
+        // Read in size, and any hidden stuff
+        s.defaultReadObject();
+
+        // Read in capacity
+        s.readInt(); // ignored
+
+        if (size > 0) {
+            // like clone(), allocate array based upon size not capacity
+            SharedSecrets.getJavaObjectInputStreamAccess().checkArray(s, double[].class, size);
+            double[] elements = new double[size];
+
+            // Read in all elements in the proper order.
+            for (int i = 0; i < size; i++) {
+                elements[i] = s.readDouble();
+            }
+
+            elementData = elements;
+        } else if (size == 0) {
+            elementData = EMPTY_ELEMENTDATA;
+        } else {
+            throw new java.io.InvalidObjectException("Invalid size: " + size);
+        }
+    }
+
+    /**
+     * Returns an iterator over the elements in this list in proper sequence.
+     *
+     * <p>The returned iterator is <i>fail-fast</i>.
+     *
+     * @return an iterator over the elements in this list in proper sequence
+     */
+    public PrimitiveIterator.OfDouble iterator() {
+        return new Itr();
+    }
+
+    /**
+     * An optimized version of ArrayList.Itr
+     */
+    private class Itr implements PrimitiveIterator.OfDouble {
+        int cursor;       // index of next element to return
+        int lastRet = -1; // index of last element returned; -1 if no such
+        int expectedModCount = modCount;
+
+        // prevent creating a synthetic constructor
+        Itr() {}
+
+        public boolean hasNext() {
+            return cursor != size;
+        }
+
+        public double nextDouble() {
+            checkForComodification();
+            int i = cursor;
+            if (i >= size)
+                throw new NoSuchElementException();
+            double[] elementData = DoubleArrayList.this.elementData;
+            if (i >= elementData.length)
+                throw new ConcurrentModificationException();
+            cursor = i + 1;
+            return elementData[lastRet = i];
+        }
+
+        public void remove() {
+            if (lastRet < 0)
+                throw new IllegalStateException();
+            checkForComodification();
+
+            try {
+                DoubleArrayList.this.removeAt(lastRet);
+                cursor = lastRet;
+                lastRet = -1;
+                expectedModCount = modCount;
+            } catch (IndexOutOfBoundsException ex) {
+                throw new ConcurrentModificationException();
+            }
+        }
+
+        @Override
+        public void forEachRemaining(DoubleConsumer action) {
+            Objects.requireNonNull(action);
+            final int size = DoubleArrayList.this.size;
+            int i = cursor;
+            if (i < size) {
+                final double[] es = elementData;
+                if (i >= es.length)
+                    throw new ConcurrentModificationException();
+                for (; i < size && modCount == expectedModCount; i++)
+                    action.accept(es[i]);
+                // update once at end to reduce heap write traffic
+                cursor = i;
+                lastRet = i - 1;
+                checkForComodification();
+            }
+        }
+
+        final void checkForComodification() {
+            if (modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+        }
+    }
+
+    /**
+     * Returns a view of the portion of this list between the specified
+     * {@code fromIndex}, inclusive, and {@code toIndex}, exclusive.  (If
+     * {@code fromIndex} and {@code toIndex} are equal, the returned list is
+     * empty.)  The returned list is backed by this list, so changes in
+     * the returned list are reflected in this list, and vice-versa, and it
+     * supports all of the operations of this class.  Its capacity is that
+     * of this list, so {@code trimToSize} and {@code ensureCapacity} have
+     * no effect on it.  {@code clone} and serialization copy its elements
+     * into a new {@code DoubleArrayList}.
+     *
+     * <p>The semantics of the list returned by this method become undefined
+     * if the backing list (i.e., this list) is <i>structurally modified</i>
+     * in any way other than via the returned list, as for {@link
+     * ArrayList#subList ArrayList.subList}.
+     *
+     * @param fromIndex low endpoint (inclusive) of the subList
+     * @param toIndex high endpoint (exclusive) of the subList
+     * @return a view of the specified range within this list
+     * @throws IndexOutOfBoundsException if an endpoint index value is out of
+     *         range {@code (fromIndex < 0 || toIndex > size)}
+     * @throws IllegalArgumentException if the endpoint indices are out of
+     *         order {@code (fromIndex > toIndex)}
+     */
+    public DoubleArrayList subList(int fromIndex, int toIndex) {
+        AbstractList.subListRangeCheck(fromIndex, toIndex, size);
+        return new SubList(this, fromIndex, toIndex);
+    }
+
+    private static class SubList extends DoubleArrayList {
+        private static final long serialVersionUID = -6478103924652103319L;
+
+        private final DoubleArrayList root;
+        private final SubList parent;
+        private final int offset;
+        private int size;
+
+        /**
+         * Constructs a sublist of an arbitrary DoubleArrayList.
+         */
+        public SubList(DoubleArrayList root, int fromIndex, int toIndex) {
+            super(0);
+            this.root = root;
+            this.parent = null;
+            this.offset = fromIndex;
+            this.size = toIndex - fromIndex;
+            this.modCount = root.modCount;
+        }
+
+        /**
+         * Constructs a sublist of another SubList.
+         */
+        private SubList(SubList parent, int fromIndex, int toIndex) {
+            super(0);
+            this.root = parent.root;
+            this.parent = parent;
+            this.offset = parent.offset + fromIndex;
+            this.size = toIndex - fromIndex;
+            this.modCount = root.modCount;
+        }
+
+        double[] elements() {
+            return root.elementData;
+        }
+
+        int offset() {
+            return offset;
+        }
+
+        public void trimToSize() {
+            checkForComodification();
+        }
+
+        public void ensureCapacity(int minCapacity) {
+            checkForComodification();
+        }
+
+        public double set(int index, double element) {
+            Objects.checkIndex(index, size);
+            checkForComodification();
+            double oldValue = root.elementData[offset + index];
+            root.elementData[offset + index] = element;
+            return oldValue;
+        }
+
+        public double get(int index) {
+            Objects.checkIndex(index, size);
+            checkForComodification();
+            return root.elementData[offset + index];
+        }
+
+        public int size() {
+            checkForComodification();
+            return size;
+        }
+
+        public boolean isEmpty() {
+            return size() == 0;
+        }
+
+        public boolean add(double e) {
+            add(this.size, e);
+            return true;
+        }
+
+        public void add(int index, double element) {
+            rangeCheckForAdd(index);
+            checkForComodification();
+            root.add(offset + index, element);
+            updateSizeAndModCount(1);
+        }
+
+        public double removeAt(int index) {
+            Objects.checkIndex(index, size);
+            checkForComodification();
+            double result = root.removeAt(offset + index);
+            updateSizeAndModCount(-1);
+            return result;
+        }
+
+        public boolean removeElement(double e) {
+            int index = indexOf(e);
+            if (index < 0)
+                return false;
+            removeAt(index);
+            return true;
+        }
+
+        public void clear() {
+            removeRange(0, size);
+        }
+
+        protected void removeRange(int fromIndex, int toIndex) {
+            checkForComodification();
+            root.removeRange(offset + fromIndex, offset + toIndex);
+            updateSizeAndModCount(fromIndex - toIndex);
+        }
+
+        public boolean addAll(DoubleArrayList c) {
+            return addAll(this.size, c.toArray());
+        }
+
+        public boolean addAll(int index, DoubleArrayList c) {
+            return addAll(index, c.toArray());
+        }
+
+        public boolean addAll(double[] a) {
+            return addAll(this.size, a);
+        }
+
+        public boolean addAll(int index, double[] a) {
+            rangeCheckForAdd(index);
+            int cSize = a.length;
+            if (cSize==0)
+                return false;
+            checkForComodification();
+            root.addAll(offset + index, a);
+            updateSizeAndModCount(cSize);
+            return true;
+        }
+
+        public void replaceAll(DoubleUnaryOperator operator) {
+            checkForComodification();
+            root.replaceAllRange(operator, offset, offset + size);
+            updateSizeAndModCount(0);
+        }
+
+        public void sort() {
+            checkForComodification();
+            root.sortRange(offset, offset + size);
+            updateSizeAndModCount(0);
+        }
+
+        public boolean removeAll(DoubleArrayList c) {
+            return batchRemove(c, false);
+        }
+
+        public boolean retainAll(DoubleArrayList c) {
+            return batchRemove(c, true);
+        }
+
+        private boolean batchRemove(DoubleArrayList c, boolean complement) {
+            checkForComodification();
+            int oldSize = root.size;
+            boolean modified =
+                root.batchRemove(c, complement, offset, offset + size);
+            if (modified)
+                updateSizeAndModCount(root.size - oldSize);
+            return modified;
+        }
+
+        public boolean removeIf(DoublePredicate filter) {
+            checkForComodification();
+            int oldSize = root.size;
+            boolean modified = root.removeIf(filter, offset, offset + size);
+            if (modified)
+                updateSizeAndModCount(root.size - oldSize);
+            return modified;
+        }
+
+        public double[] toArray() {
+            checkForComodification();
+            return Arrays.copyOfRange(root.elementData, offset, offset + size);
+        }
+
+        public DoubleArrayList clone() {
+            return new DoubleArrayList(this);
+        }
+
+        public boolean equals(Object o) {
+            if (o == this) {
+                return true;
+            }
+
+            if (!(o instanceof DoubleArrayList)) {
+                return false;
+            }
+
+            boolean equal = root.equalsRange((DoubleArrayList)o, offset, offset + size);
+            checkForComodification();
+            return equal;
+        }
+
+        public int hashCode() {
+            int hash = root.hashCodeRange(offset, offset + size);
+            checkForComodification();
+            return hash;
+        }
+
+        public String toString() {
+            String s = root.toStringRange(offset, offset + size);
+            checkForComodification();
+            return s;
+        }
+
+        public int indexOf(double e) {
+            int index = root.indexOfRange(e, offset, offset + size);
+            checkForComodification();
+            return index >= 0 ? index - offset : -1;
+        }
+
+        public int lastIndexOf(double e) {
+            int index = root.lastIndexOfRange(e, offset, offset + size);
+            checkForComodification();
+            return index >= 0 ? index - offset : -1;
+        }
+
+        public boolean contains(double e) {
+            return indexOf(e) >= 0;
+        }
+
+        public void forEach(DoubleConsumer action) {
+            Objects.requireNonNull(action);
+            checkForComodification();
+            root.forEachRange(action, offset, offset + size);
+        }
+
+        public PrimitiveIterator.OfDouble iterator() {
+            checkForComodification();
+
+            return new PrimitiveIterator.OfDouble() {
+                int cursor = 0;
+                int lastRet = -1;
+                int expectedModCount = root.modCount;
+
+                public boolean hasNext() {
+                    return cursor != SubList.this.size;
+                }
+
+                public double nextDouble() {
+                    checkForComodification();
+                    int i = cursor;
+                    if (i >= SubList.this.size)
+                        throw new NoSuchElementException();
+                    double[] elementData = root.elementData;
+                    if (offset + i >= elementData.length)
+                        throw new ConcurrentModificationException();
+                    cursor = i + 1;
+                    return elementData[offset + (lastRet = i)];
+                }
+
+                public void forEachRemaining(DoubleConsumer action) {
+                    Objects.requireNonNull(action);
+                    final int size = SubList.this.size;
+                    int i = cursor;
+                    if (i < size) {
+                        final double[] es = root.elementData;
+                        if (offset + i >= es.length)
+                            throw new ConcurrentModificationException();
+                        for (; i < size && root.modCount == expectedModCount; i++)
+                            action.accept(es[offset + i]);
+                        // update once at end to reduce heap write traffic
+                        cursor = i;
+                        lastRet = i - 1;
+                        checkForComodification();
+                    }
+                }
+
+                public void remove() {
+                    if (lastRet < 0)
+                        throw new IllegalStateException();
+                    checkForComodification();
+
+                    try {
+                        SubList.this.removeAt(lastRet);
+                        cursor = lastRet;
+                        lastRet = -1;
+                        expectedModCount = root.modCount;
+                    } catch (IndexOutOfBoundsException ex) {
+                        throw new ConcurrentModificationException();
+                    }
+                }
+
+                final void checkForComodification() {
+                    if (root.modCount != expectedModCount)
+                        throw new ConcurrentModificationException();
+                }
+            };
+        }
+
+        public DoubleArrayList subList(int fromIndex, int toIndex) {
+            AbstractList.subListRangeCheck(fromIndex, toIndex, size);
+            return new SubList(this, fromIndex, toIndex);
+        }
+
+        private void rangeCheckForAdd(int index) {
+            if (index < 0 || index > this.size)
+                throw new IndexOutOfBoundsException(outOfBoundsMsg(index));
+        }
+
+        private String outOfBoundsMsg(int index) {
+            return "Index: "+index+", Size: "+this.size;
+        }
+
+        private void checkForComodification() {
+            if (root.modCount != modCount)
+                throw new ConcurrentModificationException();
+        }
+
+        private void updateSizeAndModCount(int sizeChange) {
+            SubList slist = this;
+            do {
+                slist.size += sizeChange;
+                slist.modCount = root.modCount;
+                slist = slist.parent;
+            } while (slist != null);
+        }
+
+        public Spliterator.OfDouble spliterator() {
+            checkForComodification();
+
+            // DoubleArrayListSpliterator not used here due to late-binding
+            // SubList
+            return new Spliterator.OfDouble() {
+                private int index = offset; // current index, modified on advance/split
+                private int fence = -1; // -1 until used; then one past last index
+                private int expectedModCount; // initialized when fence set
+
+                private int getFence() { // initialize fence to size on first use
+                    int hi;
+                    if ((hi = fence) < 0) {
+                        expectedModCount = modCount;
+                        hi = fence = offset + size;
+                    }
+                    return hi;
+                }
+
+                public Spliterator.OfDouble trySplit() {
+                    int hi = getFence(), lo = index, mid = (lo + hi) >>> 1;
+                    // DoubleArrayListSpliterator can be used here as the source is already bound
+                    return (lo >= mid) ? null : // divide range in half unless too small
+                        root.new DoubleArrayListSpliterator(lo, index = mid, expectedModCount);
+                }
+
+                public boolean tryAdvance(DoubleConsumer action) {
+                    Objects.requireNonNull(action);
+                    int hi = getFence(), i = index;
+                    if (i < hi) {
+                        index = i + 1;
+                        action.accept(root.elementData[i]);
+                        if (root.modCount != expectedModCount)
+                            throw new ConcurrentModificationException();
+                        return true;
+                    }
+                    return false;
+                }
+
+                public void forEachRemaining(DoubleConsumer action) {
+                    Objects.requireNonNull(action);
+                    int i, hi, mc; // hoist accesses and checks from loop
+                    DoubleArrayList lst = root;
+                    double[] a;
+                    if ((a = lst.elementData) != null) {
+                        if ((hi = fence) < 0) {
+                            mc = modCount;
+                            hi = offset + size;
+                        }
+                        else
+                            mc = expectedModCount;
+                        if ((i = index) >= 0 && (index = hi) <= a.length) {
+                            for (; i < hi; ++i)
+                                action.accept(a[i]);
+                            if (lst.modCount == mc)
+                                return;
+                        }
+                    }
+                    throw new ConcurrentModificationException();
+                }
+
+                public long estimateSize() {
+                    return getFence() - index;
+                }
+
+                public int characteristics() {
+                    return Spliterator.ORDERED | Spliterator.SIZED | Spliterator.SUBSIZED;
+                }
+            };
+        }
+
+        private Object writeReplace() {
+            return new DoubleArrayList(this);
+        }
+    }
+
+    /**
+     * Performs the given action for each element of this list, in order.
+     *
+     * @param action The action to be performed for each element
+     * @throws NullPointerException if the specified action is null
+     */
+    public void forEach(DoubleConsumer action) {
+        Objects.requireNonNull(action);
+        forEachRange(action, 0, size);
+    }
+
+    void forEachRange(DoubleConsumer action, int i, final int end) {
+        final int expectedModCount = modCount;
+        final double[] es = elementData;
+        for (; modCount == expectedModCount && i < end; i++)
+            action.accept(es[i]);
+        if (modCount != expectedModCount)
+            throw new ConcurrentModificationException();
+    }
+
+    /**
+     * Creates a <em><a href="Spliterator.html#binding">late-binding</a></em>
+     * and <em>fail-fast</em> {@link Spliterator.OfDouble} over the elements in
+     * this list.
+     *
+     * <p>The {@code Spliterator} reports {@link Spliterator#SIZED},
+     * {@link Spliterator#SUBSIZED}, and {@link Spliterator#ORDERED}.
+     *
+     * @return a {@code Spliterator.OfDouble} over the elements in this list
+     */
+    public Spliterator.OfDouble spliterator() {
+        return new DoubleArrayListSpliterator(0, -1, 0);
+    }
+
+    /**
+     * Returns a sequential {@code DoubleStream} with this list as its source.
+     * The stream reads the elements directly from the backing array, through
+     * the list's {@link #spliterator spliterator}, without copying or boxing
+     * them.
+     *
+     * @return a sequential {@code DoubleStream} over the elements in this list
+     */
+    public DoubleStream stream() {
+        return StreamSupport.doubleStream(spliterator(), false);
+    }
+
+    /**
+     * Returns a possibly parallel {@code DoubleStream} with this list as its
+     * source.  The spliterator splits the backing array in halves, so the
+     * stream parallelizes well.
+     *
+     * @return a possibly parallel {@code DoubleStream} over the elements in
+     *         this list
+     */
+    public DoubleStream parallelStream() {
+        return StreamSupport.doubleStream(spliterator(), true);
+    }
+
+    /** Index-based split-by-two, lazily initialized Spliterator */
+    final class DoubleArrayListSpliterator implements Spliterator.OfDouble {
+
+        /*
+         * As for ArrayList.ArrayListSpliterator: fence and
+         * expectedModCount are initialized lazily, and forEachRemaining
+         * checks for interference only once, at the end.
+         */
+
+        private int index; // current index, modified on advance/split
+        private int fence; // -1 until used; then one past last index
+        private int expectedModCount; // initialized when fence set
+
+        /** Creates new spliterator covering the given range. */
+        DoubleArrayListSpliterator(int origin, int fence, int expectedModCount) {
+            this.index = origin;
+            this.fence = fence;
+            this.expectedModCount = expectedModCount;
+        }
+
+        private int getFence() { // initialize fence to size on first use
+            int hi; // (a specialized variant appears in method forEach)
+            if ((hi = fence) < 0) {
+                expectedModCount = modCount;
+                hi = fence = size;
+            }
+            return hi;
+        }
+
+        public DoubleArrayListSpliterator trySplit() {
+            int hi = getFence(), lo = index, mid = (lo + hi) >>> 1;
+            return (lo >= mid) ? null : // divide range in half unless too small
+                new DoubleArrayListSpliterator(lo, index = mid, expectedModCount);
+        }
+
+        public boolean tryAdvance(DoubleConsumer action) {
+            if (action == null)
+                throw new NullPointerException();
+            int hi = getFence(), i = index;
+            if (i < hi) {
+                index = i + 1;
+                action.accept(elementData[i]);
+                if (modCount != expectedModCount)
+                    throw new ConcurrentModificationException();
+                return true;
+            }
+            return false;
+        }
+
+        public void forEachRemaining(DoubleConsumer action) {
+            int i, hi, mc; // hoist accesses and checks from loop
+            double[] a;
+            if (action == null)
+                throw new NullPointerException();
+            if ((a = elementData) != null) {
+                if ((hi = fence) < 0) {
+                    mc = modCount;
+                    hi = size;
+                }
+                else
+                    mc = expectedModCount;
+                if ((i = index) >= 0 && (index = hi) <= a.length) {
+                    for (; i < hi; ++i)
+                        action.accept(a[i]);
+                    if (modCount == mc)
+                        return;
+                }
+            }
+            throw new ConcurrentModificationException();
+        }
+
+        public long estimateSize() {
+            return getFence() - index;
+        }
+
+        public int characteristics() {
+            return Spliterator.ORDERED | Spliterator.SIZED | Spliterator.SUBSIZED;
+        }
+    }
+
+    // A tiny bit set implementation
+
+    private static long[] nBits(int n) {
+        return new long[((n - 1) >> 6) + 1];
+    }
+    private static void setBit(long[] bits, int i) {
+        bits[i >> 6] |= 1L << i;
+    }
+    private static boolean isClear(long[] bits, int i) {
+        return (bits[i >> 6] & (1L << i)) == 0;
+    }
+
+    /**
+     * Removes all of the elements of this list that satisfy the given
+     * predicate.  The predicate is applied to every element before any is
+     * removed.
+     *
+     * @param filter a predicate which returns {@code true} for elements to be
+     *        removed
+     * @return {@code true} if any elements were removed
+     * @throws NullPointerException if the specified filter is null
+     */
+    public boolean removeIf(DoublePredicate filter) {
+        return removeIf(filter, 0, size);
+    }
+
+    /**
+     * Removes all elements satisfying the given predicate, from index
+     * i (inclusive) to index end (exclusive).
+     */
+    boolean removeIf(DoublePredicate filter, int i, final int end) {
+        Objects.requireNonNull(filter);
+        int expectedModCount = modCount;
+        final double[] es = elementData;
+        // Optimize for initial run of survivors
+        for (; i < end && !filter.test(es[i]); i++)
+            ;
+        // Tolerate predicates that reentrantly access the collection for
+        // read (but writers still get CME), so traverse once to find
+        // elements to delete, a second pass to physically expunge.
+        if (i < end) {
+            final int beg = i;
+            final long[] deathRow = nBits(end - beg);
+            deathRow[0] = 1L;   // set bit 0
+            for (i = beg + 1; i < end; i++)
+                if (filter.test(es[i]))
+                    setBit(deathRow, i - beg);
+            if (modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+            modCount++;
+            int w = beg;
+            for (i = beg; i < end; i++)
+                if (isClear(deathRow, i - beg))
+                    es[w++] = es[i];
+            shiftTailOverGap(es, w, end);
+            return true;
+        } else {
+            if (modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+            return false;
+        }
+    }
+
+    /**
+     * Replaces each element of this list with the result of applying the
+     * operator to that element.
+     *
+     * @param operator the operator to apply to each element
+     * @throws NullPointerException if the specified operator is null
+     */
+    public void replaceAll(DoubleUnaryOperator operator) {
+        replaceAllRange(operator, 0, size);
+        modCount++;
+    }
+
+    void replaceAllRange(DoubleUnaryOperator operator, int i, int end) {
+        Objects.requireNonNull(operator);
+        final int expectedModCount = modCount;
+        final double[] es = elementData;
+        for (; modCount == expectedModCount && i < end; i++)
+            es[i] = operator.applyAsDouble(es[i]);
+        if (modCount != expectedModCount)
+            throw new ConcurrentModificationException();
+    }
+
+    /**
+     * Sorts this list into ascending numerical order, as by {@link
+     * Arrays#sort(double[]) Arrays.sort}.
+     */
+    public void sort() {
+        sortRange(0, size);
+        modCount++;
+    }
+
+    void sortRange(int from, int to) {
+        Arrays.sort(elementData, from, to);
+    }
+
+    /**
+     * Compares the specified object with this list for equality.  Returns
+     * {@code true} if and only if the specified object is also a
+     * {@code DoubleArrayList}, or a sublist of one, and both lists contain
+     * the same elements in the same order, compared as by {@link Double#equals}.
+     *
+     * @param o the object to be compared for equality with this list
+     * @return {@code true} if the specified object is equal to this list
+     */
+    public boolean equals(Object o) {
+        if (o == this) {
+            return true;
+        }
+
+        if (!(o instanceof DoubleArrayList)) {
+            return false;
+        }
+
+        final int expectedModCount = modCount;
+        boolean equal = equalsRange((DoubleArrayList) o, 0, size);
+        checkForComodification(expectedModCount);
+        return equal;
+    }
+
+    boolean equalsRange(DoubleArrayList other, int from, int to) {
+        final double[] es = elementData;
+        if (to > es.length) {
+            throw new ConcurrentModificationException();
+        }
+        int n = to - from;
+        if (other.size() != n)
+            return false;
+        final double[] otherEs = other.elements();
+        for (int i = from, j = other.offset(); i < to; i++, j++) {
+            if (Double.doubleToLongBits(es[i]) != Double.doubleToLongBits(otherEs[j])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void checkForComodification(final int expectedModCount) {
+        if (modCount != expectedModCount) {
+            throw new ConcurrentModificationException();
+        }
+    }
+
+    /**
+     * Returns the hash code value for this list.  This is the hash code
+     * that a {@code List<Double>} of the same elements would have, as
+     * defined by {@link List#hashCode}.
+     *
+     * @return the hash code value for this list
+     */
+    public int hashCode() {
+        int expectedModCount = modCount;
+        int hash = hashCodeRange(0, size);
+        checkForComodification(expectedModCount);
+        return hash;
+    }
+
+    int hashCodeRange(int from, int to) {
+        final double[] es = elementData;
+        if (to > es.length) {
+            throw new ConcurrentModificationException();
+        }
+        int hashCode = 1;
+        for (int i = from; i < to; i++) {
+            hashCode = 31 * hashCode + Double.hashCode(es[i]);
+        }
+        return hashCode;
+    }
+
+    /**
+     * Returns a string representation of this list, in the form of a
+     * {@code List<Double>}: the elements in order, enclosed in square
+     * brackets ({@code "[]"}) and separated by {@code ", "}.
+     *
+     * @return a string representation of this list
+     */
+    public String toString() {
+        return toStringRange(0, size);
+    }
+
+    String toStringRange(int from, int to) {
+        if (from == to)
+            return "[]";
+        final double[] es = elementData;
+        StringBuilder sb = new StringBuilder();
+        sb.append('[');
+        for (int i = from;;) {
+            sb.append(es[i]);
+            if (++i == to)
+                return sb.append(']').toString();
+            sb.append(',').append(' ');
+        }
+    }
+
+    /**
+     * Returns the array holding the elements of this list, from offset().
+     */
+    double[] elements() {
+        return elementData;
+    }
+
+    /**
+     * Returns the index in elements() of the first element of this list.
+     */
+    int offset() {
+        return 0;
+    }
+
+    /**
+     * Returns a {@code List<Double>} view of this list.  The view is
+     * backed by this list, so changes to either are reflected in the other;
+     * it boxes and unboxes elements as it reads and writes them, and
+     * rejects {@code null} elements with {@code NullPointerException}.
+     *
+     * @return a {@code List} view of this list
+     */
+    public List<Double> asList() {
+        return new ListView();
+    }
+
+    private final class ListView extends AbstractList<Double> implements RandomAccess {
+        public Double get(int index) {
+            return DoubleArrayList.this.get(index);
+        }
+        public Double set(int index, Double element) {
+            return DoubleArrayList.this.set(index, element);
+        }
+        public void add(int index, Double element) {
+            DoubleArrayList.this.add(index, (double) element);
+            modCount++;
+        }
+        public Double remove(int index) {
+            double oldValue = DoubleArrayList.this.removeAt(index);
+            modCount++;
+            return oldValue;
+        }
+        public int size() {
+            return DoubleArrayList.this.size();
+        }
+        public boolean contains(Object o) {
+            return indexOf(o) >= 0;
+        }
+        public int indexOf(Object o) {
+            return (o instanceof Double) ? DoubleArrayList.this.indexOf((Double) o) : -1;
+        }
+        public int lastIndexOf(Object o) {
+            return (o instanceof Double) ? DoubleArrayList.this.lastIndexOf((Double) o) : -1;
+        }
+        public Spliterator<Double> spliterator() {
+            return DoubleArrayList.this.spliterator();
+        }
+    }
+}
@@ -0,0 +1,1232 @@
+/*
+ * Copyright (c) 2018, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package java.util;
+
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.Serializable;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import jdk.internal.misc.SharedSecrets;
+
+/**
+ * Hash table based implementation of the {@code Map} interface that stores
+ * its mappings in flat arrays rather than in linked nodes.  This class
+ * provides all of the optional map operations, permits {@code null} values
+ * and the {@code null} key, and has the same constructors as
+ * {@link HashMap}, so that it may be substituted for a {@code HashMap} by
+ * changing only the constructor call.
+ *
+ * <p>Keys and values live in two parallel arrays, and a third array holds
+ * one <i>control byte</i> per slot: either a marker for a free or deleted
+ * slot, or seven bits taken from the hash of the key in that slot.  Slots
+ * are grouped in eights, and a lookup loads the eight control bytes of a
+ * group as a single {@code long} and compares all of them against the
+ * seven hash bits of the key at once.  Keys are only compared with
+ * {@code equals} in slots whose control byte matches, which rarely happens
+ * for keys other than the one sought.  A lookup thus touches the control
+ * bytes of one group and, in the common case, a single key, rather than
+ * following a chain of nodes as {@code HashMap.get} does.
+ *
+ * <p>An instance of {@code FlatHashMap} has the same two performance
+ * parameters as {@code HashMap}: <i>initial capacity</i> and <i>load
+ * factor</i>.  The capacity is the number of slots in the table and is
+ * always a power of two of at least eight.  Because every mapping occupies
+ * a slot of its own, the load factor may not exceed 7/8; a larger value
+ * given to a constructor is treated as 7/8.
+ *
+ * <p>Removal marks the freed slot as deleted if lookups may have probed
+ * past it, and such slots are reclaimed when the table is next rebuilt.
+ * A table whose growth is exhausted mostly by deleted slots is rebuilt at
+ * the same capacity rather than doubled.
+ *
+ * <p><strong>Note that this implementation is not synchronized.</strong>
+ * If multiple threads access a map concurrently, and at least one of the
+ * threads modifies the map structurally, it <i>must</i> be synchronized
+ * externally.
+ *
+ * <p>The iterators returned by all of this class's "collection view methods"
+ * are <i>fail-fast</i>, in the same manner as those of {@code HashMap}.
+ *
+ * @param <K> the type of keys maintained by this map
+ * @param <V> the type of mapped values
+ *
+ * @see     HashMap
+ * @see     Map
+ * @since   11
+ */
+public class FlatHashMap<K,V> extends AbstractMap<K,V>
+    implements Map<K,V>, Cloneable, Serializable {
+
+    private static final long serialVersionUID = -1577361294713440652L;
+
+    /*
+     * Implementation notes.
+     *
+     * The table is a power-of-two number of groups of GROUP_WIDTH
+     * slots.  The hash of a key is split into h1 (the high 25 bits),
+     * which selects the first group to probe, and h2 (the low 7
+     * bits), which is stored in the control byte of the slot the key
+     * occupies.  Control bytes of full slots are therefore in 0..127,
+     * while EMPTY and DELETED both have the sign bit set.
+     *
+     * Groups are probed in triangular order (home, +1, +3, +6, ...),
+     * which visits every group of a power-of-two table.  A lookup
+     * stops at the first group that contains an EMPTY slot: an
+     * insertion would have used that slot (or an earlier one) had
+     * the key been added after it became free.  A removal may only
+     * turn its slot EMPTY when its group already has an EMPTY slot,
+     * since otherwise some probe sequence passing through the group
+     * would be cut short; it marks the slot DELETED instead.
+     *
+     * Field growthLeft counts the EMPTY slots that insertions may
+     * still claim before the table must be rebuilt.  Reusing a
+     * DELETED slot does not consume growth.  Keeping at least one
+     * eighth of the slots EMPTY guarantees that every probe
+     * terminates.
+     *
+     * Control bytes are read a group at a time through a VarHandle
+     * view of the byte array as longs, in little-endian order, so
+     * that byte j of a group is bits 8*j..8*j+7 of the word and the
+     * number of trailing zeros of a match mask, divided by 8, is the
+     * slot within the group.
+     *
+     * Removal never moves other mappings, so iterators need no
+     * special handling of Iterator.remove.
+     */
+
+    /**
+     * The number of slots in a group, whose control bytes are compared
+     * together as one long.
+     */
+    static final int GROUP_WIDTH = 8;
+
+    /**
+     * The default initial capacity - MUST be a power of two.
+     */
+    static final int DEFAULT_INITIAL_CAPACITY = HashMap.DEFAULT_INITIAL_CAPACITY;
+
+    /**
+     * The maximum capacity, MUST be a power of two <= 1<<30.
+     */
+    static final int MAXIMUM_CAPACITY = HashMap.MAXIMUM_CAPACITY;
+
+    /**
+     * The load factor used when none specified in constructor.
+     */
+    static final float DEFAULT_LOAD_FACTOR = HashMap.DEFAULT_LOAD_FACTOR;
+
+    /**
+     * The largest usable load factor.  At least one slot in eight must
+     * stay EMPTY for probes to terminate.
+     */
+    static final float MAXIMUM_LOAD_FACTOR = 0.875f;
+
+    /** Control byte of a slot that has never been used since the last rebuild. */
+    static final byte EMPTY = (byte)0x80;
+
+    /** Control byte of a slot whose mapping has been removed. */
+    static final byte DELETED = (byte)0xFE;
+
+    /** Bytes of a long, each set to 0x01. */
+    static final long LSBS = 0x0101010101010101L;
+
+    /** Bytes of a long, each set to 0x80. */
+    static final long MSBS = 0x8080808080808080L;
+
+    /** Reads eight control bytes at once. */
+    static final VarHandle GROUP =
+        MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
+    /* ---------------- Fields -------------- */
+
+    /**
+     * The control bytes, one per slot, initialized on first use.  When
+     * allocated, length is always a power of two and at least GROUP_WIDTH.
+     */
+    transient byte[] ctrl;
+
+    /**
+     * The keys, parallel to ctrl.
+     */
+    transient Object[] keys;
+
+    /**
+     * The values, parallel to ctrl.
+     */
+    transient Object[] vals;
+
+    /**
+     * Holds cached entrySet(). Note that AbstractMap fields are used
+     * for keySet() and values().
+     */
+    transient Set<Map.Entry<K,V>> entrySet;
+
+    /**
+     * The number of key-value mappings contained in this map.
+     */
+    transient int size;
+
+    /**
+     * The number of times this map has been structurally modified.
+     * This field is used to make iterators on Collection-views of the
+     * map fail-fast.  (See ConcurrentModificationException).
+     */
+    transient int modCount;
+
+    /**
+     * The number of EMPTY slots that may still be claimed before the
+     * table is rebuilt.  If the table has not been allocated, this field
+     * holds the initial capacity, or zero signifying
+     * DEFAULT_INITIAL_CAPACITY.
+     */
+    transient int growthLeft;
+
+    /**
+     * The load factor for the hash table, as given to the constructor.
+     *
+     * @serial
+     */
+    final float loadFactor;
+
+    /* ---------------- Static utilities -------------- */
+
+    /**
+     * Computes key.hashCode() and mixes it so that both the low seven
+     * bits (h2) and the high bits (h1) depend on all bits of the user
+     * hash.  HashMap.hash only XORs the high half downward, which is
+     * not enough here: sets of keys with consecutive hash codes, the
+     * most common case of all, would otherwise crowd into few groups.
+     */
+    static int hash(Object key) {
+        int h;
+        if (key == null)
+            return 0;
+        h = key.hashCode() * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * Returns a mask with the high bit of each byte of the group set
+     * where the control byte may equal h2.  (The subtraction can yield
+     * false positives above a true match, but never reports a slot that
+     * is not full; callers compare keys anyway.)
+     */
+    static long matchH2(long group, int h2) {
+        long x = group ^ (LSBS * h2);
+        return (x - LSBS) & ~x & MSBS;
+    }
+
+    /**
+     * Returns a mask with the high bit of each EMPTY byte of the group set.
+     * Of the special control bytes, only EMPTY has bit 1 clear.
+     */
+    static long matchEmpty(long group) {
+        return group & (~group << 6) & MSBS;
+    }
+
+    /**
+     * Returns a mask with the high bit of each EMPTY or DELETED byte of
+     * the group set.
+     */
+    static long matchFree(long group) {
+        return group & MSBS;
+    }
+
+    /**
+     * Returns the usable number of slots of a table of the given capacity.
+     */
+    final int maxLoad(int cap) {
+        float lf = Math.min(loadFactor, MAXIMUM_LOAD_FACTOR);
+        return Math.max(1, Math.min((int)(cap * lf), cap - cap / GROUP_WIDTH));
+    }
+
+    /* ---------------- Public operations -------------- */
+
+    /**
+     * Constructs an empty {@code FlatHashMap} with the specified initial
+     * capacity and load factor.
+     *
+     * @param  initialCapacity the initial capacity
+     * @param  loadFactor      the load factor
+     * @throws IllegalArgumentException if the initial capacity is negative
+     *         or the load factor is nonpositive
+     */
+    public FlatHashMap(int initialCapacity, float loadFactor) {
+        if (initialCapacity < 0)
+            throw new IllegalArgumentException("Illegal initial capacity: " +
+                                               initialCapacity);
+        if (initialCapacity > MAXIMUM_CAPACITY)
+            initialCapacity = MAXIMUM_CAPACITY;
+        if (loadFactor <= 0 || Float.isNaN(loadFactor))
+            throw new IllegalArgumentException("Illegal load factor: " +
+                                               loadFactor);
+        this.loadFactor = loadFactor;
+        this.growthLeft = HashMap.tableSizeFor(initialCapacity);
+    }
+
+    /**
+     * Constructs an empty {@code FlatHashMap} with the specified initial
+     * capacity and the default load factor (0.75).
+     *
+     * @param  initialCapacity the initial capacity.
+     * @throws IllegalArgumentException if the initial capacity is negative.
+     */
+    public FlatHashMap(int initialCapacity) {
+        this(initialCapacity, DEFAULT_LOAD_FACTOR);
+    }
+
+    /**
+     * Constructs an empty {@code FlatHashMap} with the default initial
+     * capacity (16) and the default load factor (0.75).
+     */
+    public FlatHashMap() {
+        this.loadFactor = DEFAULT_LOAD_FACTOR;
+    }
+
+    /**
+     * Constructs a new {@code FlatHashMap} with the same mappings as the
+     * specified {@code Map}.  The {@code FlatHashMap} is created with
+     * default load factor (0.75) and an initial capacity sufficient to
+     * hold the mappings in the specified {@code Map}.
+     *
+     * @param   m the map whose mappings are to be placed in this map
+     * @throws  NullPointerException if the specified map is null
+     */
+    public FlatHashMap(Map<? extends K, ? extends V> m) {
+        this.loadFactor = DEFAULT_LOAD_FACTOR;
+        putMapEntries(m);
+    }
+
+    /**
+     * Implements Map.putAll and Map constructor.
+     */
+    final void putMapEntries(Map<? extends K, ? extends V> m) {
+        int s = m.size();
+        if (s > 0) {
+            float ft = ((float)s / Math.min(loadFactor, MAXIMUM_LOAD_FACTOR)) + 1.0F;
+            int t = ((ft < (float)MAXIMUM_CAPACITY) ?
+                     (int)ft : MAXIMUM_CAPACITY);
+            if (ctrl == null) { // pre-size
+                if (t > growthLeft)
+                    growthLeft = HashMap.tableSizeFor(t);
+            }
+            else if (t > ctrl.length)
+                rehash(HashMap.tableSizeFor(t));
+            for (Map.Entry<? extends K, ? extends V> e : m.entrySet()) {
+                K key = e.getKey();
+                V value = e.getValue();
+                putVal(hash(key), key, value, false);
+            }
+        }
+    }
+
+    /**
+     * Returns the number of key-value mappings in this map.
+     *
+     * @return the number of key-value mappings in this map
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns {@code true} if this map contains no key-value mappings.
+     *
+     * @return {@code true} if this map contains no key-value mappings
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns the value to which the specified key is mapped,
+     * or {@code null} if this map contains no mapping for the key.
+     *
+     * <p>A return value of {@code null} does not <i>necessarily</i>
+     * indicate that the map contains no mapping for the key; it's also
+     * possible that the map explicitly maps the key to {@code null}.
+     * The {@link #containsKey containsKey} operation may be used to
+     * distinguish these two cases.
+     *
+     * @see #put(Object, Object)
+     */
+    @SuppressWarnings("unchecked")
+    public V get(Object key) {
+        int i;
+        return ((i = find(hash(key), key)) < 0) ? null : (V)vals[i];
+    }
+
+    /**
+     * Implements Map.get and related methods.
+     *
+     * @param hash hash for key
+     * @param key the key
+     * @return the slot holding the key, or -1 if none
+     */
+    final int find(int hash, Object key) {
+        byte[] c; Object[] ks; Object k;
+        if ((c = ctrl) == null)
+            return -1;
+        ks = keys;
+        int groupMask = (c.length / GROUP_WIDTH) - 1, h2 = hash & 0x7F;
+        for (int g = (hash >>> 7) & groupMask, probe = 0; ;
+             g = (g + ++probe) & groupMask) {
+            int base = g * GROUP_WIDTH;
+            long group = (long)GROUP.get(c, base);
+            for (long m = matchH2(group, h2); m != 0; m &= m - 1) {
+                int i = base + (Long.numberOfTrailingZeros(m) >>> 3);
+                if ((k = ks[i]) == key || (key != null && key.equals(k)))
+                    return i;
+            }
+            if (matchEmpty(group) != 0)
+                return -1;
+        }
+    }
+
+    /**
+     * Returns {@code true} if this map contains a mapping for the
+     * specified key.
+     *
+     * @param   key   The key whose presence in this map is to be tested
+     * @return {@code true} if this map contains a mapping for the specified
+     * key.
+     */
+    public boolean containsKey(Object key) {
+        return find(hash(key), key) >= 0;
+    }
+
+    /**
+     * Associates the specified value with the specified key in this map.
+     * If the map previously contained a mapping for the key, the old
+     * value is replaced.
+     *
+     * @param key key with which the specified value is to be associated
+     * @param value value to be associated with the specified key
+     * @return the previous value associated with {@code key}, or
+     *         {@code null} if there was no mapping for {@code key}.
+     *         (A {@code null} return can also indicate that the map
+     *         previously associated {@code null} with {@code key}.)
+     */
+    public V put(K key, V value) {
+        return putVal(hash(key), key, value, false);
+    }
+
+    /**
+     * Implements Map.put and related methods.
+     *
+     * @param hash hash for key
+     * @param key the key
+     * @param value the value to put
+     * @param onlyIfAbsent if true, don't change existing value
+     * @return previous value, or null if none
+     */
+    @SuppressWarnings("unchecked")
+    final V putVal(int hash, K key, V value, boolean onlyIfAbsent) {
+        int i;
+        if ((i = find(hash, key)) >= 0) {
+            V oldValue = (V)vals[i];
+            if (!onlyIfAbsent || oldValue == null)
+                vals[i] = value;
+            return oldValue;
+        }
+        insert(hash, key, value);
+        return null;
+    }
+
+    /**
+     * Adds a mapping for a key known to be absent, rebuilding the table
+     * first if no growth is left.
+     *
+     * @return the slot of the new mapping
+     */
+    final int insert(int hash, Object key, Object value) {
+        byte[] c; int i;
+        if ((c = ctrl) == null)
+            c = rehash(initialCapacity());
+        if (c[i = findFree(c, hash)] == EMPTY) {
+            if (growthLeft == 0) {
+                c = rehash(nextCapacity(c.length));
+                i = findFree(c, hash);
+            }
+            --growthLeft;
+        }
+        c[i] = (byte)(hash & 0x7F);
+        keys[i] = key;
+        vals[i] = value;
+        ++modCount;
+        ++size;
+        return i;
+    }
+
+    /**
+     * Returns the first EMPTY or DELETED slot on the probe sequence of
+     * the given hash.
+     */
+    static int findFree(byte[] c, int hash) {
+        int groupMask = (c.length / GROUP_WIDTH) - 1;
+        for (int g = (hash >>> 7) & groupMask, probe = 0; ;
+             g = (g + ++probe) & groupMask) {
+            int base = g * GROUP_WIDTH;
+            long m = matchFree((long)GROUP.get(c, base));
+            if (m != 0)
+                return base + (Long.numberOfTrailingZeros(m) >>> 3);
+        }
+    }
+
+    /**
+     * Returns the capacity with which to allocate the table on first use.
+     */
+    final int initialCapacity() {
+        int cap = (growthLeft > 0) ? growthLeft : DEFAULT_INITIAL_CAPACITY;
+        return Math.max(cap, GROUP_WIDTH);
+    }
+
+    /**
+     * Returns the capacity to rebuild a table of the given capacity into
+     * once its growth is exhausted: the same capacity if at most half of
+     * the usable slots are live (the rest being DELETED), else double.
+     */
+    final int nextCapacity(int cap) {
+        if (size <= maxLoad(cap) / 2)
+            return cap;
+        if (cap >= MAXIMUM_CAPACITY)
+            throw new IllegalStateException("Map is full");
+        return cap << 1;
+    }
+
+    /**
+     * Rebuilds the table at the given capacity, dropping all DELETED
+     * slots.  Every mapping is rehashed, since control bytes hold only
+     * seven bits of the hash.
+     *
+     * @return the new control bytes
+     */
+    final byte[] rehash(int newCap) {
+        byte[] oldCtrl = ctrl;
+        Object[] oldKeys = keys, oldVals = vals;
+        byte[] c = new byte[newCap];
+        Arrays.fill(c, EMPTY);
+        Object[] ks = new Object[newCap], vs = new Object[newCap];
+        if (oldCtrl != null) {
+            for (int j = 0; j < oldCtrl.length; ++j) {
+                if (oldCtrl[j] >= 0) {
+                    Object k = oldKeys[j];
+                    int h = hash(k), i = findFree(c, h);
+                    c[i] = (byte)(h & 0x7F);
+                    ks[i] = k;
+                    vs[i] = oldVals[j];
+                }
+            }
+        }
+        ctrl = c;
+        keys = ks;
+        vals = vs;
+        growthLeft = maxLoad(newCap) - size;
+        ++modCount;
+        return c;
+    }
+
+    /**
+     * Copies all of the mappings from the specified map to this map.
+     * These mappings will replace any mappings that this map had for
+     * any of the keys currently in the specified map.
+     *
+     * @param m mappings to be stored in this map
+     * @throws NullPointerException if the specified map is null
+     */
+    public void putAll(Map<? extends K, ? extends V> m) {
+        putMapEntries(m);
+    }
+
+    /**
+     * Removes the mapping for the specified key from this map if present.
+     *
+     * @param  key key whose mapping is to be removed from the map
+     * @return the previous value associated with {@code key}, or
+     *         {@code null} if there was no mapping for {@code key}.
+     *         (A {@code null} return can also indicate that the map
+     *         previously associated {@code null} with {@code key}.)
+     */
+    @SuppressWarnings("unchecked")
+    public V remove(Object key) {
+        int i;
+        if ((i = find(hash(key), key)) < 0)
+            return null;
+        V oldValue = (V)vals[i];
+        removeAt(i);
+        return oldValue;
+    }
+
+    /**
+     * Removes the mapping in the given slot.
+     */
+    final void removeAt(int i) {
+        byte[] c = ctrl;
+        int base = i & ~(GROUP_WIDTH - 1);
+        if (matchEmpty((long)GROUP.get(c, base)) != 0) {
+            c[i] = EMPTY;
+            ++growthLeft;
+        }
+        else
+            c[i] = DELETED;
+        keys[i] = null;
+        vals[i] = null;
+        ++modCount;
+        --size;
+    }
+
+    /**
+     * Removes all of the mappings from this map.
+     * The map will be empty after this call returns.
+     */
+    public void clear() {
+        byte[] c;
+        modCount++;
+        if ((c = ctrl) != null && size > 0) {
+            Arrays.fill(c, EMPTY);
+            Arrays.fill(keys, null);
+            Arrays.fill(vals, null);
+            size = 0;
+            growthLeft = maxLoad(c.length);
+        }
+    }
+
+    /**
+     * Returns {@code true} if this map maps one or more keys to the
+     * specified value.
+     *
+     * @param value value whose presence in this map is to be tested
+     * @return {@code true} if this map maps one or more keys to the
+     *         specified value
+     */
+    public boolean containsValue(Object value) {
+        byte[] c; Object[] vs; Object v;
+        if ((c = ctrl) != null && size > 0) {
+            vs = vals;
+            for (int i = 0; i < c.length; ++i) {
+                if (c[i] >= 0 &&
+                    ((v = vs[i]) == value || (value != null && value.equals(v))))
+                    return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns a {@link Set} view of the keys contained in this map.
+     * The set is backed by the map, so changes to the map are
+     * reflected in the set, and vice-versa.  If the map is modified
+     * while an iteration over the set is in progress (except through
+     * the iterator's own {@code remove} operation), the results of
+     * the iteration are undefined.  The set supports element removal,
+     * which removes the corresponding mapping from the map, via the
+     * {@code Iterator.remove}, {@code Set.remove},
+     * {@code removeAll}, {@code retainAll}, and {@code clear}
+     * operations.  It does not support the {@code add} or {@code addAll}
+     * operations.
+     *
+     * @return a set view of the keys contained in this map
+     */
+    public Set<K> keySet() {
+        Set<K> ks = keySet;
+        if (ks == null) {
+            ks = new KeySet();
+            keySet = ks;
+        }
+        return ks;
+    }
+
+    final class KeySet extends AbstractSet<K> {
+        public final int size()                 { return size; }
+        public final void clear()               { FlatHashMap.this.clear(); }
+        public final Iterator<K> iterator()     { return new KeyIterator(); }
+        public final boolean contains(Object o) { return containsKey(o); }
+        public final boolean remove(Object key) {
+            int i;
+            if ((i = find(hash(key), key)) < 0)
+                return false;
+            removeAt(i);
+            return true;
+        }
+        @SuppressWarnings("unchecked")
+        public final void forEach(Consumer<? super K> action) {
+            byte[] c;
+            if (action == null)
+                throw new NullPointerException();
+            if (size > 0 && (c = ctrl) != null) {
+                int mc = modCount;
+                Object[] ks = keys;
+                for (int i = 0; i < c.length; ++i) {
+                    if (c[i] >= 0)
+                        action.accept((K)ks[i]);
+                }
+                if (modCount != mc)
+                    throw new ConcurrentModificationException();
+            }
+        }
+    }
+
+    /**
+     * Returns a {@link Collection} view of the values contained in this map.
+     * The collection is backed by the map, so changes to the map are
+     * reflected in the collection, and vice-versa.  If the map is
+     * modified while an iteration over the collection is in progress
+     * (except through the iterator's own {@code remove} operation),
+     * the results of the iteration are undefined.  The collection
+     * supports element removal, which removes the corresponding
+     * mapping from the map, via the {@code Iterator.remove},
+     * {@code Collection.remove}, {@code removeAll},
+     * {@code retainAll} and {@code clear} operations.  It does not
+     * support the {@code add} or {@code addAll} operations.
+     *
+     * @return a view of the values contained in this map
+     */
+    public Collection<V> values() {
+        Collection<V> vs = values;
+        if (vs == null) {
+            vs = new Values();
+            values = vs;
+        }
+        return vs;
+    }
+
+    final class Values extends AbstractCollection<V> {
+        public final int size()                 { return size; }
+        public final void clear()               { FlatHashMap.this.clear(); }
+        public final Iterator<V> iterator()     { return new ValueIterator(); }
+        public final boolean contains(Object o) { return containsValue(o); }
+        @SuppressWarnings("unchecked")
+        public final void forEach(Consumer<? super V> action) {
+            byte[] c;
+            if (action == null)
+                throw new NullPointerException();
+            if (size > 0 && (c = ctrl) != null) {
+                int mc = modCount;
+                Object[] vs = vals;
+                for (int i = 0; i < c.length; ++i) {
+                    if (c[i] >= 0)
+                        action.accept((V)vs[i]);
+                }
+                if (modCount != mc)
+                    throw new ConcurrentModificationException();
+            }
+        }
+    }
+
+    /**
+     * Returns a {@link Set} view of the mappings contained in this map.
+     * The set is backed by the map, so changes to the map are
+     * reflected in the set, and vice-versa.  If the map is modified
+     * while an iteration over the set is in progress (except through
+     * the iterator's own {@code remove} operation, or through the
+     * {@code setValue} operation on a map entry returned by the
+     * iterator) the results of the iteration are undefined.  The set
+     * supports element removal, which removes the corresponding
+     * mapping from the map, via the {@code Iterator.remove},
+     * {@code Set.remove}, {@code removeAll}, {@code retainAll} and
+     * {@code clear} operations.  It does not support the
+     * {@code add} or {@code addAll} operations.
+     *
+     * <p>Since mappings are not stored as objects, the entries of this
+     * set are created as they are returned by its iterator.
+     *
+     * @return a set view of the mappings contained in this map
+     */
+    public Set<Map.Entry<K,V>> entrySet() {
+        Set<Map.Entry<K,V>> es;
+        return (es = entrySet) == null ? (entrySet = new EntrySet()) : es;
+    }
+
+    final class EntrySet extends AbstractSet<Map.Entry<K,V>> {
+        public final int size()                 { return size; }
+        public final void clear()               { FlatHashMap.this.clear(); }
+        public final Iterator<Map.Entry<K,V>> iterator() {
+            return new EntryIterator();
+        }
+        public final boolean contains(Object o) {
+            if (!(o instanceof Map.Entry))
+                return false;
+            Map.Entry<?,?> e = (Map.Entry<?,?>) o;
+            Object key = e.getKey();
+            int i = find(hash(key), key);
+            return i >= 0 && Objects.equals(vals[i], e.getValue());
+        }
+        public final boolean remove(Object o) {
+            if (o instanceof Map.Entry) {
+                Map.Entry<?,?> e = (Map.Entry<?,?>) o;
+                return FlatHashMap.this.remove(e.getKey(), e.getValue());
+            }
+            return false;
+        }
+    }
+
+    // Overrides of JDK8 Map extension methods
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V getOrDefault(Object key, V defaultValue) {
+        int i;
+        return ((i = find(hash(key), key)) < 0) ? defaultValue : (V)vals[i];
+    }
+
+    @Override
+    public V putIfAbsent(K key, V value) {
+        return putVal(hash(key), key, value, true);
+    }
+
+    @Override
+    public boolean remove(Object key, Object value) {
+        int i;
+        if ((i = find(hash(key), key)) >= 0 && Objects.equals(vals[i], value)) {
+            removeAt(i);
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public boolean replace(K key, V oldValue, V newValue) {
+        int i;
+        if ((i = find(hash(key), key)) >= 0 && Objects.equals(vals[i], oldValue)) {
+            vals[i] = newValue;
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V replace(K key, V value) {
+        int i;
+        if ((i = find(hash(key), key)) >= 0) {
+            V oldValue = (V)vals[i];
+            vals[i] = value;
+            return oldValue;
+        }
+        return null;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>This method will, on a best-effort basis, throw a
+     * {@link ConcurrentModificationException} if it is detected that the
+     * mapping function modifies this map during computation.
+     *
+     * @throws ConcurrentModificationException if it is detected that the
+     * mapping function modified this map
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public V computeIfAbsent(K key,
+                             Function<? super K, ? extends V> mappingFunction) {
+        if (mappingFunction == null)
+            throw new NullPointerException();
+        int hash = hash(key), i;
+        V oldValue;
+        if ((i = find(hash, key)) >= 0 && (oldValue = (V)vals[i]) != null)
+            return oldValue;
+        int mc = modCount;
+        V v = mappingFunction.apply(key);
+        if (mc != modCount) { throw new ConcurrentModificationException(); }
+        if (v == null)
+            return null;
+        else if (i >= 0)
+            vals[i] = v;
+        else
+            insert(hash, key, v);
+        return v;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>This method will, on a best-effort basis, throw a
+     * {@link ConcurrentModificationException} if it is detected that the
+     * remapping function modifies this map during computation.
+     *
+     * @throws ConcurrentModificationException if it is detected that the
+     * remapping function modified this map
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public V computeIfPresent(K key,
+                              BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
+        if (remappingFunction == null)
+            throw new NullPointerException();
+        int i; V oldValue;
+        if ((i = find(hash(key), key)) >= 0 &&
+            (oldValue = (V)vals[i]) != null) {
+            int mc = modCount;
+            V v = remappingFunction.apply(key, oldValue);
+            if (mc != modCount) { throw new ConcurrentModificationException(); }
+            if (v != null) {
+                vals[i] = v;
+                return v;
+            }
+            else
+                removeAt(i);
+        }
+        return null;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>This method will, on a best-effort basis, throw a
+     * {@link ConcurrentModificationException} if it is detected that the
+     * remapping function modifies this map during computation.
+     *
+     * @throws ConcurrentModificationException if it is detected that the
+     * remapping function modified this map
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public V compute(K key,
+                     BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
+        if (remappingFunction == null)
+            throw new NullPointerException();
+        int hash = hash(key), i = find(hash, key);
+        V oldValue = (i < 0) ? null : (V)vals[i];
+        int mc = modCount;
+        V v = remappingFunction.apply(key, oldValue);
+        if (mc != modCount) { throw new ConcurrentModificationException(); }
+        if (i >= 0) {
+            if (v != null)
+                vals[i] = v;
+            else
+                removeAt(i);
+        }
+        else if (v != null)
+            insert(hash, key, v);
+        return v;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>This method will, on a best-effort basis, throw a
+     * {@link ConcurrentModificationException} if it is detected that the
+     * remapping function modifies this map during computation.
+     *
+     * @throws ConcurrentModificationException if it is detected that the
+     * remapping function modified this map
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public V merge(K key, V value,
+                   BiFunction<? super V, ? super V, ? extends V> remappingFunction) {
+        if (value == null)
+            throw new NullPointerException();
+        if (remappingFunction == null)
+            throw new NullPointerException();
+        int hash = hash(key), i;
+        if ((i = find(hash, key)) >= 0) {
+            V oldValue = (V)vals[i], v;
+            if (oldValue != null) {
+                int mc = modCount;
+                v = remappingFunction.apply(oldValue, value);
+                if (mc != modCount) {
+                    throw new ConcurrentModificationException();
+                }
+            } else {
+                v = value;
+            }
+            if (v != null)
+                vals[i] = v;
+            else
+                removeAt(i);
+            return v;
+        }
+        insert(hash, key, value);
+        return value;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void forEach(BiConsumer<? super K, ? super V> action) {
+        byte[] c;
+        if (action == null)
+            throw new NullPointerException();
+        if (size > 0 && (c = ctrl) != null) {
+            int mc = modCount;
+            Object[] ks = keys, vs = vals;
+            for (int i = 0; i < c.length; ++i) {
+                if (c[i] >= 0)
+                    action.accept((K)ks[i], (V)vs[i]);
+            }
+            if (modCount != mc)
+                throw new ConcurrentModificationException();
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void replaceAll(BiFunction<? super K, ? super V, ? extends V> function) {
+        byte[] c;
+        if (function == null)
+            throw new NullPointerException();
+        if (size > 0 && (c = ctrl) != null) {
+            int mc = modCount;
+            Object[] ks = keys, vs = vals;
+            for (int i = 0; i < c.length; ++i) {
+                if (c[i] >= 0)
+                    vs[i] = function.apply((K)ks[i], (V)vs[i]);
+            }
+            if (modCount != mc)
+                throw new ConcurrentModificationException();
+        }
+    }
+
+    /* ------------------------------------------------------------ */
+    // Cloning and serialization
+
+    /**
+     * Returns a shallow copy of this {@code FlatHashMap} instance: the keys
+     * and values themselves are not cloned.
+     *
+     * @return a shallow copy of this map
+     */
+    @SuppressWarnings("unchecked")
+    @Override
+    public Object clone() {
+        FlatHashMap<K,V> result;
+        try {
+            result = (FlatHashMap<K,V>)super.clone();
+        } catch (CloneNotSupportedException e) {
+            // this shouldn't happen, since we are Cloneable
+            throw new InternalError(e);
+        }
+        if (ctrl != null) {
+            result.ctrl = ctrl.clone();
+            result.keys = keys.clone();
+            result.vals = vals.clone();
+        }
+        result.entrySet = null;
+        result.keySet = null;
+        result.values = null;
+        result.modCount = 0;
+        return result;
+    }
+
+    /**
+     * Saves this map to a stream (that is, serializes it).
+     *
+     * @param s the stream
+     * @throws IOException if an I/O error occurs
+     * @serialData The <i>size</i> of the map (an int, the number of
+     *             key-value mappings) is emitted, followed by the key
+     *             (Object) and value (Object) for each key-value mapping.
+     *             The key-value mappings are emitted in no particular
+     *             order.
+     */
+    private void writeObject(java.io.ObjectOutputStream s)
+        throws IOException {
+        byte[] c;
+        s.defaultWriteObject();
+        s.writeInt(size);
+        if (size > 0 && (c = ctrl) != null) {
+            for (int i = 0; i < c.length; ++i) {
+                if (c[i] >= 0) {
+                    s.writeObject(keys[i]);
+                    s.writeObject(vals[i]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Reconstitutes this map from a stream (that is, deserializes it).
+     * @param s the stream
+     * @throws ClassNotFoundException if the class of a serialized object
+     *         could not be found
+     * @throws IOException if an I/O error occurs
+     */
+    private void readObject(java.io.ObjectInputStream s)
+        throws IOException, ClassNotFoundException {
+        s.defaultReadObject();
+        if (loadFactor <= 0 || Float.isNaN(loadFactor))
+            throw new InvalidObjectException("Illegal load factor: " +
+                                             loadFactor);
+        int mappings = s.readInt();
+        if (mappings < 0)
+            throw new InvalidObjectException("Illegal mappings count: " +
+                                             mappings);
+        ctrl = null;
+        keys = vals = null;
+        size = 0;
+        growthLeft = 0;
+        if (mappings > 0) {
+            float fc = (float)mappings / Math.min(loadFactor, MAXIMUM_LOAD_FACTOR) + 1.0f;
+            int cap = ((fc < DEFAULT_INITIAL_CAPACITY) ?
+                       DEFAULT_INITIAL_CAPACITY :
+                       (fc >= MAXIMUM_CAPACITY) ?
+                       MAXIMUM_CAPACITY :
+                       HashMap.tableSizeFor((int)fc));
+            SharedSecrets.getJavaObjectInputStreamAccess().checkArray(s, Object[].class, cap);
+            rehash(cap);
+            for (int i = 0; i < mappings; i++) {
+                @SuppressWarnings("unchecked")
+                    K key = (K) s.readObject();
+                @SuppressWarnings("unchecked")
+                    V value = (V) s.readObject();
+                putVal(hash(key), key, value, false);
+            }
+        }
+    }
+
+    /* ------------------------------------------------------------ */
+    // iterators
+
+    abstract class FlatIterator {
+        int next;              // slot of next entry to return, or -1
+        int current;           // slot of current entry, or -1
+        int expectedModCount;  // for fast-fail
+
+        FlatIterator() {
+            expectedModCount = modCount;
+            current = -1;
+            next = (size > 0) ? advance(0) : -1;
+        }
+
+        /**
+         * Returns the first full slot at or after i, or -1 if none.
+         */
+        final int advance(int i) {
+            byte[] c = ctrl;
+            for (; i < c.length; ++i) {
+                if (c[i] >= 0)
+                    return i;
+            }
+            return -1;
+        }
+
+        public final boolean hasNext() {
+            return next >= 0;
+        }
+
+        final int nextIndex() {
+            int i = next;
+            if (modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+            if (i < 0)
+                throw new NoSuchElementException();
+            next = advance(i + 1);
+            return current = i;
+        }
+
+        public final void remove() {
+            int i = current;
+            if (i < 0)
+                throw new IllegalStateException();
+            if (modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+            current = -1;
+            removeAt(i);
+            expectedModCount = modCount;
+        }
+    }
+
+    final class KeyIterator extends FlatIterator
+        implements Iterator<K> {
+        @SuppressWarnings("unchecked")
+        public final K next() { return (K)keys[nextIndex()]; }
+    }
+
+    final class ValueIterator extends FlatIterator
+        implements Iterator<V> {
+        @SuppressWarnings("unchecked")
+        public final V next() { return (V)vals[nextIndex()]; }
+    }
+
+    final class EntryIterator extends FlatIterator
+        implements Iterator<Map.Entry<K,V>> {
+        public final Map.Entry<K,V> next() { return new Entry(nextIndex()); }
+    }
+
+    /**
+     * Entry created on demand by the entry set iterator.  It reads and
+     * writes through to its slot for as long as that still holds its key,
+     * that is, until the mapping is removed or the table rebuilt.
+     */
+    final class Entry implements Map.Entry<K,V> {
+        final K key;
+        final int slot;
+        V value;
+
+        @SuppressWarnings("unchecked")
+        Entry(int slot) {
+            this.slot = slot;
+            this.key = (K)keys[slot];
+            this.value = (V)vals[slot];
+        }
+
+        final boolean live() {
+            byte[] c = ctrl;
+            return c != null && slot < c.length && c[slot] >= 0 && keys[slot] == key;
+        }
+
+        public final K getKey()        { return key; }
+
+        @SuppressWarnings("unchecked")
+        public final V getValue() {
+            return live() ? (value = (V)vals[slot]) : value;
+        }
+
+        public final V setValue(V newValue) {
+            V oldValue = getValue();
+            if (live())
+                vals[slot] = newValue;
+            else
+                put(key, newValue);
+            value = newValue;
+            return oldValue;
+        }
+
+        public final String toString() { return key + "=" + getValue(); }
+
+        public final int hashCode() {
+            return Objects.hashCode(key) ^ Objects.hashCode(getValue());
+        }
+
+        public final boolean equals(Object o) {
+            if (o == this)
+                return true;
+            if (o instanceof Map.Entry) {
+                Map.Entry<?,?> e = (Map.Entry<?,?>)o;
+                return Objects.equals(key, e.getKey()) &&
+                    Objects.equals(getValue(), e.getValue());
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,870 @@
+/*
+ * Copyright (c) 2018, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package java.util;
+
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
+import jdk.internal.misc.SharedSecrets;
+
+/**
+ * Gap-buffer implementation of the {@code List} interface.  Implements all
+ * optional list operations, and permits all elements, including
+ * {@code null}, with the same semantics as {@link ArrayList}.
+ *
+ * <p>Like an {@code ArrayList}, this class stores its elements in an array,
+ * and {@code get} and {@code set} run in constant time.  Unlike an
+ * {@code ArrayList}, it keeps the unused capacity of that array as a
+ * <em>gap</em> at the position of the most recent insertion or removal
+ * rather than at the end.  An insertion or removal first moves the gap to
+ * its position, moving only the elements between the old and the new
+ * position of the gap, and then fills or widens the gap in constant time.
+ * A sequence of edits at or near one position, such as those made by a
+ * text editor at its cursor, or through a {@link ListIterator}, thus
+ * takes amortized constant time per edit however long the list, where an
+ * {@code ArrayList} moves every element after the edit each time.  Edits
+ * at scattered positions cost about as much as with an {@code ArrayList},
+ * and {@link #add(Object) add(e)} is amortized constant time once the gap
+ * is at the end.
+ *
+ * <p>For large lists edited at arbitrary positions, {@link TreeList}
+ * provides logarithmic-time insertion and removal anywhere, at the cost
+ * of logarithmic-time positional access.
+ *
+ * <p><strong>Note that this implementation is not synchronized.</strong>
+ * If multiple threads access a {@code GapList} instance concurrently,
+ * and at least one of the threads modifies the list structurally, it
+ * <i>must</i> be synchronized externally.  (A structural modification is
+ * any operation that adds or deletes one or more elements; merely setting
+ * the value of an element is not a structural modification.)
+ *
+ * <p>The iterators returned by this class's {@link #iterator() iterator} and
+ * {@link #listIterator(int) listIterator} methods are <em>fail-fast</em>, in
+ * the same manner as those of {@code ArrayList}.
+ *
+ * @param <E> the type of elements in this list
+ *
+ * @see ArrayList
+ * @see TreeList
+ * @since 11
+ */
+public class GapList<E> extends AbstractList<E>
+        implements List<E>, RandomAccess, Cloneable, java.io.Serializable
+{
+    private static final long serialVersionUID = 7126490812374420193L;
+
+    /**
+     * Default initial capacity.
+     */
+    private static final int DEFAULT_CAPACITY = 10;
+
+    /**
+     * Shared empty array instance used for empty instances.
+     */
+    private static final Object[] EMPTY_ELEMENTDATA = {};
+
+    /**
+     * Shared empty array instance used for default sized empty instances. We
+     * distinguish this from EMPTY_ELEMENTDATA to know how much to inflate when
+     * first element is added.
+     */
+    private static final Object[] DEFAULTCAPACITY_EMPTY_ELEMENTDATA = {};
+
+    /**
+     * The maximum size of array to allocate (unless necessary).
+     */
+    private static final int MAX_ARRAY_SIZE = Integer.MAX_VALUE - 8;
+
+    /**
+     * The array buffer into which the elements of the list are stored.
+     * The elements with indices less than gapStart are at those indices;
+     * the others follow the gap, at their index plus its length.  Slots
+     * in the gap are null.
+     */
+    transient Object[] elementData; // non-private to simplify nested class access
+
+    /**
+     * The index in elementData of the first slot of the gap.
+     */
+    transient int gapStart;
+
+    /**
+     * The index in elementData one past the last slot of the gap.
+     */
+    transient int gapEnd;
+
+    /**
+     * The size of the list (the number of elements it contains).
+     *
+     * @serial
+     */
+    private int size;
+
+    /**
+     * Constructs an empty list with the specified initial capacity.
+     *
+     * @param  initialCapacity  the initial capacity of the list
+     * @throws IllegalArgumentException if the specified initial capacity
+     *         is negative
+     */
+    public GapList(int initialCapacity) {
+        if (initialCapacity > 0) {
+            this.elementData = new Object[initialCapacity];
+        } else if (initialCapacity == 0) {
+            this.elementData = EMPTY_ELEMENTDATA;
+        } else {
+            throw new IllegalArgumentException("Illegal Capacity: "+
+                                               initialCapacity);
+        }
+        gapEnd = elementData.length;
+    }
+
+    /**
+     * Constructs an empty list with an initial capacity of ten.
+     */
+    public GapList() {
+        this.elementData = DEFAULTCAPACITY_EMPTY_ELEMENTDATA;
+    }
+
+    /**
+     * Constructs a list containing the elements of the specified
+     * collection, in the order they are returned by the collection's
+     * iterator.  The gap is at the end of the list.
+     *
+     * @param c the collection whose elements are to be placed into this list
+     * @throws NullPointerException if the specified collection is null
+     */
+    public GapList(Collection<? extends E> c) {
+        Object[] a = c.toArray();
+        if ((size = a.length) != 0) {
+            elementData = Arrays.copyOf(a, size, Object[].class);
+        } else {
+            elementData = EMPTY_ELEMENTDATA;
+        }
+        gapStart = gapEnd = size;
+    }
+
+    /**
+     * Trims the capacity of this list to be the list's current size,
+     * leaving an empty gap at the end.
+     */
+    public void trimToSize() {
+        modCount++;
+        if (size < elementData.length) {
+            moveGap(size);
+            elementData = (size == 0)
+              ? EMPTY_ELEMENTDATA
+              : Arrays.copyOf(elementData, size);
+            gapEnd = size;
+        }
+    }
+
+    /**
+     * Increases the capacity of this list, if necessary, to ensure that it
+     * can hold at least the number of elements specified by the minimum
+     * capacity argument.
+     *
+     * @param minCapacity the desired minimum capacity
+     */
+    public void ensureCapacity(int minCapacity) {
+        if (minCapacity > elementData.length
+            && !(elementData == DEFAULTCAPACITY_EMPTY_ELEMENTDATA
+                 && minCapacity <= DEFAULT_CAPACITY)) {
+            modCount++;
+            grow(minCapacity);
+        }
+    }
+
+    /**
+     * Increases the capacity to ensure that it can hold at least the
+     * number of elements specified by the minimum capacity argument,
+     * widening the gap in place.
+     *
+     * @param minCapacity the desired minimum capacity
+     * @throws OutOfMemoryError if minCapacity is less than zero
+     */
+    private void grow(int minCapacity) {
+        final Object[] old = elementData;
+        final int newCapacity = newCapacity(minCapacity);
+        final Object[] es = new Object[newCapacity];
+        final int tail = old.length - gapEnd;
+        System.arraycopy(old, 0, es, 0, gapStart);
+        System.arraycopy(old, gapEnd, es, newCapacity - tail, tail);
+        elementData = es;
+        gapEnd = newCapacity - tail;
+    }
+
+    /**
+     * Returns a capacity at least as large as the given minimum capacity,
+     * as for ArrayList.
+     */
+    private int newCapacity(int minCapacity) {
+        // overflow-conscious code
+        int oldCapacity = elementData.length;
+        int newCapacity = oldCapacity + (oldCapacity >> 1);
+        if (newCapacity - minCapacity <= 0) {
+            if (elementData == DEFAULTCAPACITY_EMPTY_ELEMENTDATA)
+                return Math.max(DEFAULT_CAPACITY, minCapacity);
+            if (minCapacity < 0) // overflow
+                throw new OutOfMemoryError();
+            return minCapacity;
+        }
+        return (newCapacity - MAX_ARRAY_SIZE <= 0)
+            ? newCapacity
+            : hugeCapacity(minCapacity);
+    }
+
+    private static int hugeCapacity(int minCapacity) {
+        if (minCapacity < 0) // overflow
+            throw new OutOfMemoryError();
+        return (minCapacity > MAX_ARRAY_SIZE)
+            ? Integer.MAX_VALUE
+            : MAX_ARRAY_SIZE;
+    }
+
+    /**
+     * Moves the gap so that it starts at the given index of the list,
+     * moving the elements between its old and new positions across it.
+     */
+    private void moveGap(int index) {
+        final Object[] es = elementData;
+        final int gs = gapStart, ge = gapEnd;
+        if (index < gs) {
+            int n = gs - index;
+            System.arraycopy(es, index, es, ge - n, n);
+            Arrays.fill(es, index, Math.min(gs, ge - n), null);
+            gapStart = index;
+            gapEnd = ge - n;
+        } else if (index > gs) {
+            int n = index - gs;
+            System.arraycopy(es, ge, es, gs, n);
+            Arrays.fill(es, Math.max(ge, index), ge + n, null);
+            gapStart = index;
+            gapEnd = ge + n;
+        }
+    }
+
+    /**
+     * Returns the index in elementData of the element at the given index.
+     */
+    private int physical(int index) {
+        return (index < gapStart) ? index : index + (gapEnd - gapStart);
+    }
+
+    /**
+     * Returns the number of elements in this list.
+     *
+     * @return the number of elements in this list
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns {@code true} if this list contains no elements.
+     *
+     * @return {@code true} if this list contains no elements
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns {@code true} if this list contains the specified element.
+     *
+     * @param o element whose presence in this list is to be tested
+     * @return {@code true} if this list contains the specified element
+     */
+    public boolean contains(Object o) {
+        return indexOf(o) >= 0;
+    }
+
+    /**
+     * Returns the index of the first occurrence of the specified element
+     * in this list, or -1 if this list does not contain the element.
+     */
+    public int indexOf(Object o) {
+        int i = indexOfRange(o, 0, gapStart);
+        if (i < 0 && (i = indexOfRange(o, gapEnd, elementData.length)) >= 0)
+            i -= gapEnd - gapStart;
+        return i;
+    }
+
+    private int indexOfRange(Object o, int start, int end) {
+        Object[] es = elementData;
+        if (o == null) {
+            for (int i = start; i < end; i++) {
+                if (es[i] == null) {
+                    return i;
+                }
+            }
+        } else {
+            for (int i = start; i < end; i++) {
+                if (o.equals(es[i])) {
+                    return i;
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the index of the last occurrence of the specified element
+     * in this list, or -1 if this list does not contain the element.
+     */
+    public int lastIndexOf(Object o) {
+        int i = lastIndexOfRange(o, gapEnd, elementData.length);
+        return (i >= 0) ? i - (gapEnd - gapStart) : lastIndexOfRange(o, 0, gapStart);
+    }
+
+    private int lastIndexOfRange(Object o, int start, int end) {
+        Object[] es = elementData;
+        if (o == null) {
+            for (int i = end - 1; i >= start; i--) {
+                if (es[i] == null) {
+                    return i;
+                }
+            }
+        } else {
+            for (int i = end - 1; i >= start; i--) {
+                if (o.equals(es[i])) {
+                    return i;
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns a shallow copy of this {@code GapList} instance.  (The
+     * elements themselves are not copied.)
+     *
+     * @return a clone of this {@code GapList} instance
+     */
+    public Object clone() {
+        try {
+            GapList<?> v = (GapList<?>) super.clone();
+            v.elementData = elementData.clone();
+            v.modCount = 0;
+            return v;
+        } catch (CloneNotSupportedException e) {
+            // this shouldn't happen, since we are Cloneable
+            throw new InternalError(e);
+        }
+    }
+
+    /**
+     * Returns an array containing all of the elements in this list
+     * in proper sequence (from first to last element).
+     *
+     * @return an array containing all of the elements in this list in
+     *         proper sequence
+     */
+    public Object[] toArray() {
+        return copyInto(new Object[size]);
+    }
+
+    /**
+     * Returns an array containing all of the elements in this list in proper
+     * sequence (from first to last element); the runtime type of the returned
+     * array is that of the specified array, as for {@link
+     * ArrayList#toArray(Object[]) ArrayList.toArray}.
+     *
+     * @param a the array into which the elements of the list are to
+     *          be stored, if it is big enough; otherwise, a new array of the
+     *          same runtime type is allocated for this purpose.
+     * @return an array containing the elements of the list
+     * @throws ArrayStoreException if the runtime type of the specified array
+     *         is not a supertype of the runtime type of every element in
+     *         this list
+     * @throws NullPointerException if the specified array is null
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T[] toArray(T[] a) {
+        if (a.length < size)
+            a = (T[]) java.lang.reflect.Array.newInstance(
+                a.getClass().getComponentType(), size);
+        copyInto(a);
+        if (a.length > size)
+            a[size] = null;
+        return a;
+    }
+
+    private <T> T[] copyInto(T[] a) {
+        final Object[] es = elementData;
+        System.arraycopy(es, 0, a, 0, gapStart);
+        System.arraycopy(es, gapEnd, a, gapStart, es.length - gapEnd);
+        return a;
+    }
+
+    // Positional Access Operations
+
+    /**
+     * Returns the element at the specified position in this list.
+     *
+     * @param  index index of the element to return
+     * @return the element at the specified position in this list
+     * @throws IndexOutOfBoundsException {@inheritDoc}
+     */
+    @SuppressWarnings("unchecked")
+    public E get(int index) {
+        Objects.checkIndex(index, size);
+        return (E) elementData[physical(index)];
+    }
+
+    /**
+     * Replaces the element at the specified position in this list with
+     * the specified element.  Does not move the gap.
+     *
+     * @param index index of the element to replace
+     * @param element element to be stored at the specified position
+     * @return the element previously at the specified position
+     * @throws IndexOutOfBoundsException {@inheritDoc}
+     */
+    public E set(int index, E element) {
+        Objects.checkIndex(index, size);
+        int i = physical(index);
+        @SuppressWarnings("unchecked") E oldValue = (E) elementData[i];
+        elementData[i] = element;
+        return oldValue;
+    }
+
+    /**
+     * Appends the specified element to the end of this list, moving the
+     * gap to the end if it is not already there.
+     *
+     * @param e element to be appended to this list
+     * @return {@code true} (as specified by {@link Collection#add})
+     */
+    public boolean add(E e) {
+        add(size, e);
+        return true;
+    }
+
+    /**
+     * Inserts the specified element at the specified position in this
+     * list. Shifts the element currently at that position (if any) and
+     * any subsequent elements to the right (adds one to their indices).
+     * Moves the gap to the specified position, and then takes its first
+     * slot.
+     *
+     * @param index index at which the specified element is to be inserted
+     * @param element element to be inserted
+     * @throws IndexOutOfBoundsException {@inheritDoc}
+     */
+    public void add(int index, E element) {
+        rangeCheckForAdd(index);
+        modCount++;
+        if (index != gapStart)
+            moveGap(index);
+        if (gapStart == gapEnd)
+            grow(size + 1);
+        elementData[gapStart++] = element;
+        size++;
+    }
+
+    /**
+     * Removes the element at the specified position in this list.
+     * Shifts any subsequent elements to the left (subtracts one from their
+     * indices).  Moves the gap to the specified position, and then widens
+     * it by one slot.
+     *
+     * @param index the index of the element to be removed
+     * @return the element that was removed from the list
+     * @throws IndexOutOfBoundsException {@inheritDoc}
+     */
+    public E remove(int index) {
+        Objects.checkIndex(index, size);
+        modCount++;
+        final Object[] es;
+        final E oldValue;
+        if (index < gapStart) {
+            // The element becomes the last one before the gap
+            moveGap(index + 1);
+            es = elementData;
+            @SuppressWarnings("unchecked") E e = (E) es[--gapStart];
+            oldValue = e;
+            es[gapStart] = null;
+        } else {
+            moveGap(index);
+            es = elementData;
+            @SuppressWarnings("unchecked") E e = (E) es[gapEnd];
+            oldValue = e;
+            es[gapEnd++] = null;
+        }
+        size--;
+        return oldValue;
+    }
+
+    /**
+     * Removes the first occurrence of the specified element from this list,
+     * if it is present.  If the list does not contain the element, it is
+     * unchanged.
+     *
+     * @param o element to be removed from this list, if present
+     * @return {@code true} if this list contained the specified element
+     */
+    public boolean remove(Object o) {
+        int index = indexOf(o);
+        if (index < 0)
+            return false;
+        remove(index);
+        return true;
+    }
+
+    /**
+     * Removes all of the elements from this list.  The list will
+     * be empty after this call returns.
+     */
+    public void clear() {
+        modCount++;
+        final Object[] es = elementData;
+        Arrays.fill(es, 0, gapStart, null);
+        Arrays.fill(es, gapEnd, es.length, null);
+        gapStart = 0;
+        gapEnd = es.length;
+        size = 0;
+    }
+
+    /**
+     * Appends all of the elements in the specified collection to the end of
+     * this list, in the order that they are returned by the
+     * specified collection's Iterator.
+     *
+     * @param c collection containing elements to be added to this list
+     * @return {@code true} if this list changed as a result of the call
+     * @throws NullPointerException if the specified collection is null
+     */
+    public boolean addAll(Collection<? extends E> c) {
+        return addAll(size, c);
+    }
+
+    /**
+     * Inserts all of the elements in the specified collection into this
+     * list, starting at the specified position.  Shifts the element
+     * currently at that position (if any) and any subsequent elements to
+     * the right (increases their indices).  Moves the gap to the specified
+     * position, and then fills its first slots.
+     *
+     * @param index index at which to insert the first element from the
+     *              specified collection
+     * @param c collection containing elements to be added to this list
+     * @return {@code true} if this list changed as a result of the call
+     * @throws IndexOutOfBoundsException {@inheritDoc}
+     * @throws NullPointerException if the specified collection is null
+     */
+    public boolean addAll(int index, Collection<? extends E> c) {
+        rangeCheckForAdd(index);
+
+        Object[] a = c.toArray();
+        modCount++;
+        int numNew = a.length;
+        if (numNew == 0)
+            return false;
+        moveGap(index);
+        if (gapEnd - gapStart < numNew)
+            grow(size + numNew);
+        System.arraycopy(a, 0, elementData, gapStart, numNew);
+        gapStart += numNew;
+        size += numNew;
+        return true;
+    }
+
+    /**
+     * Removes from this list all of the elements whose index is between
+     * {@code fromIndex}, inclusive, and {@code toIndex}, exclusive.
+     * Shifts any succeeding elements to the left (reduces their index).
+     * Moves the gap to the range, unless the range already adjoins or
+     * spans it, and then widens it over the range.
+     *
+     * @throws IndexOutOfBoundsException if {@code fromIndex} or
+     *         {@code toIndex} is out of range
+     *         ({@code fromIndex < 0 ||
+     *          toIndex > size() ||
+     *          toIndex < fromIndex})
+     */
+    protected void removeRange(int fromIndex, int toIndex) {
+        if (fromIndex > toIndex) {
+            throw new IndexOutOfBoundsException(
+                    outOfBoundsMsg(fromIndex, toIndex));
+        }
+        modCount++;
+        final int n = toIndex - fromIndex;
+        if (n == 0)
+            return;
+        if (toIndex <= gapStart) {
+            moveGap(toIndex);
+            Arrays.fill(elementData, fromIndex, toIndex, null);
+            gapStart = fromIndex;
+        } else if (fromIndex >= gapStart) {
+            moveGap(fromIndex);
+            Arrays.fill(elementData, gapEnd, gapEnd + n, null);
+            gapEnd += n;
+        } else {
+            // The range spans the gap
+            int after = toIndex - gapStart;
+            Arrays.fill(elementData, fromIndex, gapStart, null);
+            Arrays.fill(elementData, gapEnd, gapEnd + after, null);
+            gapStart = fromIndex;
+            gapEnd += after;
+        }
+        size -= n;
+    }
+
+    /**
+     * A version of rangeCheck used by add and addAll.
+     */
+    private void rangeCheckForAdd(int index) {
+        if (index > size || index < 0)
+            throw new IndexOutOfBoundsException(outOfBoundsMsg(index));
+    }
+
+    /**
+     * Constructs an IndexOutOfBoundsException detail message.
+     */
+    private String outOfBoundsMsg(int index) {
+        return "Index: "+index+", Size: "+size;
+    }
+
+    /**
+     * A version used in checking (fromIndex > toIndex) condition
+     */
+    private static String outOfBoundsMsg(int fromIndex, int toIndex) {
+        return "From Index: " + fromIndex + " > To Index: " + toIndex;
+    }
+
+    /**
+     * Removes from this list all of its elements that are contained in the
+     * specified collection.
+     *
+     * @param c collection containing elements to be removed from this list
+     * @return {@code true} if this list changed as a result of the call
+     * @throws ClassCastException if the class of an element of this list
+     *         is incompatible with the specified collection
+     * (<a href="Collection.html#optional-restrictions">optional</a>)
+     * @throws NullPointerException if this list contains a null element and the
+     *         specified collection does not permit null elements
+     * (<a href="Collection.html#optional-restrictions">optional</a>),
+     *         or if the specified collection is null
+     * @see Collection#contains(Object)
+     */
+    public boolean removeAll(Collection<?> c) {
+        Objects.requireNonNull(c);
+        return removeIf(e -> c.contains(e));
+    }
+
+    /**
+     * Retains only the elements in this list that are contained in the
+     * specified collection.  In other words, removes from this list all
+     * of its elements that are not contained in the specified collection.
+     *
+     * @param c collection containing elements to be retained in this list
+     * @return {@code true} if this list changed as a result of the call
+     * @throws ClassCastException if the class of an element of this list
+     *         is incompatible with the specified collection
+     * (<a href="Collection.html#optional-restrictions">optional</a>)
+     * @throws NullPointerException if this list contains a null element and the
+     *         specified collection does not permit null elements
+     * (<a href="Collection.html#optional-restrictions">optional</a>),
+     *         or if the specified collection is null
+     * @see Collection#contains(Object)
+     */
+    public boolean retainAll(Collection<?> c) {
+        Objects.requireNonNull(c);
+        return removeIf(e -> !c.contains(e));
+    }
+
+    /**
+     * Saves the state of the {@code GapList} instance to a stream
+     * (that is, serializes it).
+     *
+     * @param s the stream
+     * @throws java.io.IOException if an I/O error occurs
+     * @serialData The size of the list is emitted (int), followed by all of
+     *             its elements (each an {@code Object}) in the proper order.
+     */
+    private void writeObject(java.io.ObjectOutputStream s)
+        throws java.io.IOException {
+        // Write out element count, and any hidden stuff
+        int expectedModCount = modCount;
+        s.defaultWriteObject();
+
+        // Write out size as capacity for compatibility with ArrayList
+        s.writeInt(size);
+
+        // Write out all elements in the proper order.
+        final Object[] es = elementData;
+        for (int i = 0; i < gapStart; i++)
+            s.writeObject(es[i]);
+        for (int i = gapEnd; i < es.length; i++)
+            s.writeObject(es[i]);
+
+        if (modCount != expectedModCount) {
+            throw new ConcurrentModificationException();
+        }
+    }
+
+    /**
+     * Reconstitutes the {@code GapList} instance from a stream (that is,
+     * deserializes it).  The gap is at the end of the list.
+     *
+     * @param s the stream
+     * @throws ClassNotFoundException if the class of a serialized object
+     *         could not be found
+     * @throws java.io.IOException if an I/O error occurs
+     */
+    private void readObject(java.io.ObjectInputStream s)
+        throws java.io.IOException, ClassNotFoundException {
+
+        // Read in size, and any hidden stuff
+        s.defaultReadObject();
+
+        // Read in capacity
+        s.readInt(); // ignored
+
+        if (size > 0) {
+            // like clone(), allocate array based upon size not capacity
+            SharedSecrets.getJavaObjectInputStreamAccess().checkArray(s, Object[].class, size);
+            Object[] elements = new Object[size];
+
+            // Read in all elements in the proper order.
+            for (int i = 0; i < size; i++) {
+                elements[i] = s.readObject();
+            }
+
+            elementData = elements;
+        } else if (size == 0) {
+            elementData = EMPTY_ELEMENTDATA;
+        } else {
+            throw new java.io.InvalidObjectException("Invalid size: " + size);
+        }
+        gapStart = gapEnd = size;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void forEach(Consumer<? super E> action) {
+        Objects.requireNonNull(action);
+        final int expectedModCount = modCount;
+        final Object[] es = elementData;
+        final int gs = gapStart;
+        for (int i = 0; modCount == expectedModCount && i < gs; i++)
+            action.accept((E) es[i]);
+        for (int i = gapEnd; modCount == expectedModCount && i < es.length; i++)
+            action.accept((E) es[i]);
+        if (modCount != expectedModCount)
+            throw new ConcurrentModificationException();
+    }
+
+    // A tiny bit set implementation
+
+    private static long[] nBits(int n) {
+        return new long[((n - 1) >> 6) + 1];
+    }
+    private static void setBit(long[] bits, int i) {
+        bits[i >> 6] |= 1L << i;
+    }
+    private static boolean isClear(long[] bits, int i) {
+        return (bits[i >> 6] & (1L << i)) == 0;
+    }
+
+    /**
+     * Removes all of the elements of this list that satisfy the given
+     * predicate.  Closes the gap, if the list has an element after it,
+     * before removing any element, and leaves it at the end of the list.
+     *
+     * @throws NullPointerException {@inheritDoc}
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public boolean removeIf(Predicate<? super E> filter) {
+        Objects.requireNonNull(filter);
+        int expectedModCount = modCount;
+        moveGap(size);
+        final Object[] es = elementData;
+        final int end = size;
+        int i;
+        // Optimize for initial run of survivors
+        for (i = 0; i < end && !filter.test((E) es[i]); i++)
+            ;
+        // Tolerate predicates that reentrantly access the collection for
+        // read (but writers still get CME), so traverse once to find
+        // elements to delete, a second pass to physically expunge.
+        if (i < end) {
+            final int beg = i;
+            final long[] deathRow = nBits(end - beg);
+            deathRow[0] = 1L;   // set bit 0
+            for (i = beg + 1; i < end; i++)
+                if (filter.test((E) es[i]))
+                    setBit(deathRow, i - beg);
+            if (modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+            modCount++;
+            int w = beg;
+            for (i = beg; i < end; i++)
+                if (isClear(deathRow, i - beg))
+                    es[w++] = es[i];
+            Arrays.fill(es, w, end, null);
+            gapStart = size = w;
+            return true;
+        } else {
+            if (modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+            return false;
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void replaceAll(UnaryOperator<E> operator) {
+        Objects.requireNonNull(operator);
+        final int expectedModCount = modCount;
+        final Object[] es = elementData;
+        final int gs = gapStart;
+        for (int i = 0; modCount == expectedModCount && i < gs; i++)
+            es[i] = operator.apply((E) es[i]);
+        for (int i = gapEnd; modCount == expectedModCount && i < es.length; i++)
+            es[i] = operator.apply((E) es[i]);
+        if (modCount != expectedModCount)
+            throw new ConcurrentModificationException();
+        modCount++;
+    }
+
+    /**
+     * Sorts this list according to the order induced by the specified
+     * {@link Comparator}.  Moves the gap to the end of the list first.
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public void sort(Comparator<? super E> c) {
+        final int expectedModCount = modCount;
+        moveGap(size);
+        Arrays.sort((E[]) elementData, 0, size, c);
+        if (modCount != expectedModCount)
+            throw new ConcurrentModificationException();
+        modCount++;
+    }
+}
@@ -34,6 +34,12 @@ import java.util.function.BiConsumer;
 import java.util.function.BiFunction;
 import java.util.function.Consumer;
 import java.util.function.Function;
+import java.util.function.LongBinaryOperator;
+import java.util.function.ToLongBiFunction;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.ThreadLocalRandom;
 import jdk.internal.misc.SharedSecrets;
 
 /**
@@ -85,6 +91,31 @@ import jdk.internal.misc.SharedSecrets;
  * are {@link Comparable}, this class may use comparison order among
  * keys to help break ties.
  *
+ * <p>Where keys may be chosen by an adversary, for example strings taken
+ * from network input, even tie-breaking by comparison leaves the map open
+ * to deliberate slowdown, since colliding {@code String} hash codes are
+ * easy to generate.  A map constructed with
+ * {@link #HashMap(int, float, boolean, boolean) randomized hashing} keeps
+ * a secret seed of its own, drawn when the map is created (or
+ * deserialized), and places {@code String} keys by a keyed hash of their
+ * characters rather than by {@code String.hashCode()}, so that which
+ * strings collide cannot be predicted without knowing the seed.  Hash
+ * codes of other keys are mixed with the seed, which varies their
+ * placement from map to map, but keys whose hash codes are equal
+ * necessarily still collide.  Randomized hashing costs a pass over the
+ * characters of a {@code String} key on every operation, as that hash,
+ * unlike {@code hashCode()}, is not cached.
+ *
+ * <p>Rehashing normally happens all at once, in the {@code put} (or other
+ * insertion) that takes the size of the map past its threshold, and so
+ * takes time proportional to the size of the map.  A map constructed with
+ * {@link #HashMap(int, float, boolean) incremental resizing} instead keeps
+ * the old table alongside the new one and moves a bounded number of bins
+ * on each subsequent structural modification, so that no single operation
+ * pays for the whole rehash.  Lookups consult whichever of the two tables
+ * holds the bin for the key until the move is complete.  Traversing the
+ * map through a {@link Spliterator} completes any pending move first.
+ *
  * <p><strong>Note that this implementation is not synchronized.</strong>
  * If multiple threads access a hash map concurrently, and at least one of
  * the threads modifies the map structurally, it <i>must</i> be
@@ -226,6 +257,22 @@ public class HashMap<K,V> extends AbstractMap<K,V>
      * requires that a map instance be passed to some utility methods
      * that may create new nodes.)
      *
+     * With incremental resizing, resize() leaves the old table in
+     * field oldTable and returns without moving any bins.  Each bin
+     * of the old table is either still there (non-null), in which
+     * case it holds every mapping whose hash selects it, or has been
+     * transferred (null), in which case those mappings are all in the
+     * new table.  Methods addressing a single key pick the table by
+     * that rule (see tableFor), so a key whose old bin is still
+     * pending is found, replaced, removed or added in the old table.
+     * Structural modifications then transfer the next few bins in
+     * index order (see transferSome), using the same lo/hi split as a
+     * full resize; the split never collides with mappings added to
+     * the new table meanwhile, since a pending old bin keeps both of
+     * its target bins empty.  Removal through an iterator does not
+     * transfer bins, so that iterators, which visit the old table
+     * before the new one, see each mapping exactly once.
+     *
      * The concurrent-programming-like SSA-based coding style helps
      * avoid aliasing errors amid all of the twisty pointer operations.
      */
@@ -272,6 +319,24 @@ public class HashMap<K,V> extends AbstractMap<K,V>
      */
     static final int MIN_TREEIFY_CAPACITY = 64;
 
+    /**
+     * The number of old-table bins transferred after each structural
+     * modification while an incremental resize is pending.  Must be
+     * large enough that a transfer normally completes before the next
+     * resize is due, which takes at least 1/loadFactor bins per
+     * insertion; a transfer still pending at that point is completed
+     * at once.  Tables of at most this many bins are always resized
+     * in one step.
+     */
+    static final int INCREMENTAL_TRANSFER_BINS = 16;
+
+    /**
+     * The minimum number of mappings, or of bins, handled by each
+     * subtask of a parallel bulk load.  Inputs smaller than this are
+     * loaded sequentially.
+     */
+    static final int BULK_LOAD_GRAIN = 1 << 13;
+
     /**
      * Basic hash bin node, used for most entries.  (See below for
      * TreeNode subclass, and in LinkedHashMap for its Entry subclass.)
@@ -339,6 +404,56 @@ public class HashMap<K,V> extends AbstractMap<K,V>
         return (key == null) ? 0 : (h = key.hashCode()) ^ (h >>> 16);
     }
 
+    /**
+     * Computes the hash of a key under a nonzero seed.  Strings are
+     * hashed by their characters with the 32-bit variant of MurmurHash3,
+     * keyed by the seed, so that, unlike with String.hashCode, sets of
+     * colliding strings cannot be precomputed.  Other keys can only be
+     * hashed through hashCode, which is XORed with the seed.  Either
+     * way the result goes through MurmurHash3's finalizer, leaving no
+     * need to spread high bits as in hash.
+     */
+    static final int seededHash(int seed, Object key) {
+        int h;
+        if (key instanceof String) {
+            String s = (String)key;
+            int len = s.length(), i = 0, k;
+            h = seed;
+            for (; i + 1 < len; i += 2) {
+                k = s.charAt(i) | (s.charAt(i + 1) << 16);
+                k = Integer.rotateLeft(k * 0xcc9e2d51, 15) * 0x1b873593;
+                h = Integer.rotateLeft(h ^ k, 13) * 5 + 0xe6546b64;
+            }
+            if (i < len) {
+                k = s.charAt(i);
+                h ^= Integer.rotateLeft(k * 0xcc9e2d51, 15) * 0x1b873593;
+            }
+            h ^= len << 1;
+        }
+        else
+            h = ((key == null) ? 0 : key.hashCode()) ^ seed;
+        h = (h ^ (h >>> 16)) * 0x85ebca6b;
+        h = (h ^ (h >>> 13)) * 0xc2b2ae35;
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * Returns a new nonzero seed for randomized hashing.
+     */
+    static int newHashSeed() {
+        return ThreadLocalRandom.current().nextInt() | 1;
+    }
+
+    /**
+     * Computes the hash of a key for this map: hash(key), or
+     * seededHash if this map uses randomized hashing.  All methods
+     * hashing keys supplied by callers must use this rather than hash.
+     */
+    final int keyHash(Object key) {
+        int seed;
+        return ((seed = hashSeed) == 0) ? hash(key) : seededHash(seed, key);
+    }
+
     /**
      * Returns x's Class if it is of the form "class C implements
      * Comparable<C>", else null.
@@ -390,6 +505,17 @@ public class HashMap<K,V> extends AbstractMap<K,V>
      */
     transient Node<K,V>[] table;
 
+    /**
+     * The table being replaced by an incremental resize, or null if no
+     * resize is pending.  Bins already transferred are null.
+     */
+    transient Node<K,V>[] oldTable;
+
+    /**
+     * The index of the next bin of oldTable to transfer.
+     */
+    transient int transferIndex;
+
     /**
      * Holds cached entrySet(). Note that AbstractMap fields are used
      * for keySet() and values().
@@ -428,6 +554,32 @@ public class HashMap<K,V> extends AbstractMap<K,V>
      */
     final float loadFactor;
 
+    /**
+     * Whether the table is resized incrementally.
+     *
+     * @serial
+     */
+    boolean incrementalResize;
+
+    /**
+     * Whether keys are hashed with a per-instance random seed.
+     *
+     * @serial
+     */
+    boolean randomizedHashing;
+
+    /**
+     * The seed for randomized hashing, or zero if keys are hashed
+     * with hash(Object).  Drawn afresh on deserialization.
+     */
+    transient int hashSeed;
+
+    /**
+     * The counters reported by stats(), or null unless enabled by
+     * setStatsEnabled.
+     */
+    transient StatsCounter statsCounter;
+
     /* ---------------- Public operations -------------- */
 
     /**
@@ -452,6 +604,61 @@ public class HashMap<K,V> extends AbstractMap<K,V>
         this.threshold = tableSizeFor(initialCapacity);
     }
 
+    /**
+     * Constructs an empty {@code HashMap} with the specified initial
+     * capacity, load factor and resizing mode.
+     *
+     * <p>In incremental mode, a resize allocates the new table but moves
+     * the mappings of the old one over a series of later insertions and
+     * removals, a few bins at a time, rather than all at once.  This
+     * bounds the latency of every operation at the cost of keeping both
+     * tables reachable until the move completes.
+     *
+     * @param  initialCapacity   the initial capacity
+     * @param  loadFactor        the load factor
+     * @param  incrementalResize {@code true} to spread the cost of each
+     *         resize over subsequent operations, {@code false} to rehash
+     *         all at once
+     * @throws IllegalArgumentException if the initial capacity is negative
+     *         or the load factor is nonpositive
+     * @since 11
+     */
+    public HashMap(int initialCapacity, float loadFactor,
+                   boolean incrementalResize) {
+        this(initialCapacity, loadFactor);
+        this.incrementalResize = incrementalResize;
+    }
+
+    /**
+     * Constructs an empty {@code HashMap} with the specified initial
+     * capacity, load factor, resizing mode and hashing mode.
+     *
+     * <p>With randomized hashing, the map draws a random seed and hashes
+     * keys with it, so that keys chosen to collide in one map, or in
+     * maps hashing with {@code hashCode()} alone, are unlikely to
+     * collide in this one.  See the class description for its effect on
+     * {@code String} and other keys.
+     *
+     * @param  initialCapacity   the initial capacity
+     * @param  loadFactor        the load factor
+     * @param  incrementalResize {@code true} to spread the cost of each
+     *         resize over subsequent operations, {@code false} to rehash
+     *         all at once
+     * @param  randomizedHashing {@code true} to hash keys with a seed
+     *         private to this map
+     * @throws IllegalArgumentException if the initial capacity is negative
+     *         or the load factor is nonpositive
+     * @since 11
+     */
+    public HashMap(int initialCapacity, float loadFactor,
+                   boolean incrementalResize, boolean randomizedHashing) {
+        this(initialCapacity, loadFactor);
+        this.incrementalResize = incrementalResize;
+        this.randomizedHashing = randomizedHashing;
+        if (randomizedHashing)
+            this.hashSeed = newHashSeed();
+    }
+
     /**
      * Constructs an empty {@code HashMap} with the specified initial
      * capacity and the default load factor (0.75).
@@ -485,6 +692,27 @@ public class HashMap<K,V> extends AbstractMap<K,V>
         putMapEntries(m, false);
     }
 
+    /**
+     * Constructs a new {@code HashMap} mapping each element of
+     * {@code keys} to the element of {@code values} at the same index.
+     * If a key occurs more than once, the last occurrence wins, as if
+     * the mappings had been added one at a time in index order.  The
+     * {@code HashMap} is created with default load factor (0.75) and an
+     * initial capacity sufficient to hold all the mappings, and is
+     * loaded as by {@link #putAll(Object[], Object[])}.
+     *
+     * @param  keys the keys of the mappings to be placed in this map
+     * @param  values the values of the mappings, index for index
+     * @throws NullPointerException if either array is null
+     * @throws IllegalArgumentException if the arrays differ in length
+     * @since 11
+     */
+    public HashMap(K[] keys, V[] values) {
+        this.loadFactor = DEFAULT_LOAD_FACTOR;
+        int n = checkBulkArrays(keys, values);
+        putAllBulk(keys, values, null, n, false, false);
+    }
+
     /**
      * Implements Map.putAll and Map constructor.
      *
@@ -504,11 +732,241 @@ public class HashMap<K,V> extends AbstractMap<K,V>
             }
             else if (s > threshold)
                 resize();
-            for (Map.Entry<? extends K, ? extends V> e : m.entrySet()) {
-                K key = e.getKey();
-                V value = e.getValue();
-                putVal(hash(key), key, value, false, evict);
+            if (m.getClass() == HashMap.class && supportsBulkLoad() &&
+                ((HashMap<?,?>)m).hashSeed == hashSeed) {
+                // reuse the hashes already cached in the source nodes;
+                // subclasses may override entrySet, so are not read so
+                @SuppressWarnings("unchecked")
+                HashMap<Object,Object> hm = (HashMap<Object,Object>)m;
+                Object[] ks = new Object[s], vs = new Object[s];
+                int[] hs = new int[s];
+                int i = 0;
+                for (Node<Object,Object>[] tab = hm.firstTable(); tab != null;
+                     tab = hm.nextTable(tab)) {
+                    for (Node<Object,Object> e : tab) {
+                        for (; e != null && i < s; e = e.next) {
+                            ks[i] = e.key;
+                            vs[i] = e.value;
+                            hs[i++] = e.hash;
+                        }
+                    }
+                }
+                putAllBulk(ks, vs, hs, i, false, evict);
+            }
+            else {
+                for (Map.Entry<? extends K, ? extends V> e : m.entrySet()) {
+                    K key = e.getKey();
+                    V value = e.getValue();
+                    putVal(keyHash(key), key, value, false, evict);
+                }
+            }
+        }
+    }
+
+    /**
+     * Checks the arrays passed to a bulk load, returning their common
+     * length.
+     */
+    static int checkBulkArrays(Object[] keys, Object[] values) {
+        int n = keys.length;
+        if (n != values.length)
+            throw new IllegalArgumentException("keys.length " + n +
+                                               " != values.length " +
+                                               values.length);
+        return n;
+    }
+
+    /**
+     * Implements bulk loading: putAll from arrays, spliterators and
+     * other HashMaps.  Rather than calling putVal once per mapping,
+     * presizes the table once, computes all the hashes up front,
+     * counting-sorts the mappings by bin index, and then fills each
+     * bin in turn, linking new nodes in input order and treeifying a
+     * bin at most once, when it first reaches TREEIFY_THRESHOLD.
+     * Since no two bins share state, the hashing and bin-filling
+     * phases may be split among fork-join tasks.  Falls back to
+     * putVal when subclass hooks need every insertion reported in
+     * order (see supportsBulkLoad).
+     *
+     * As in putMapEntries, the table is presized for the larger of
+     * the current size and n, since the keys need not be new, and
+     * resized afterwards if the new mappings call for it.  The new
+     * nodes are counted as they are linked, and added to size even
+     * if a key's equals or hashCode method throws partway through.
+     *
+     * @param ks the keys, of which the first n are used
+     * @param vs the values, index for index
+     * @param hs the hashes of the keys, or null if not yet computed
+     * @param n the number of mappings
+     * @param parallel true if large inputs may be loaded in parallel
+     * in the common pool
+     * @param evict relayed to putVal in the fallback case
+     */
+    @SuppressWarnings("unchecked")
+    final void putAllBulk(Object[] ks, Object[] vs, int[] hs, int n,
+                          boolean parallel, boolean evict) {
+        if (n <= 0)
+            return;
+        if (!supportsBulkLoad()) {
+            for (int i = 0; i < n; ++i) {
+                K key = (K)ks[i];
+                putVal((hs == null) ? keyHash(key) : hs[i], key, (V)vs[i],
+                       false, evict);
+            }
+            return;
+        }
+        if (oldTable != null)
+            finishTransfer();
+        float ft = ((float)Math.max(size, n) / loadFactor) + 1.0F;
+        int cap = tableSizeFor((ft < (float)MAXIMUM_CAPACITY) ?
+                               (int)ft : MAXIMUM_CAPACITY);
+        Node<K,V>[] tab;
+        if ((tab = table) == null) {
+            if (cap > threshold)
+                threshold = cap;
+            tab = resize();
+        }
+        else {
+            while (tab.length < cap && tab.length < MAXIMUM_CAPACITY) {
+                tab = resize();
+                if (oldTable != null)
+                    finishTransfer();
+            }
+        }
+        parallel = parallel && n > BULK_LOAD_GRAIN &&
+            ForkJoinPool.getCommonPoolParallelism() > 1;
+        if (hs == null) {
+            hs = new int[n];
+            if (parallel)
+                new BulkLoad<>(this, null, ks, vs, hs, null, null,
+                               0, n).invoke();
+            else {
+                for (int i = 0; i < n; ++i)
+                    hs[i] = keyHash(ks[i]);
+            }
+        }
+        // start[b] is the index in order of the first mapping for bin b
+        int bins = tab.length, mask = bins - 1;
+        int[] start = new int[bins + 1], order = new int[n];
+        for (int i = 0; i < n; ++i)
+            ++start[hs[i] & mask];
+        for (int b = 0, sum = 0; b <= bins; ++b)
+            start[b] = (sum += start[b]);
+        for (int i = n - 1; i >= 0; --i)
+            order[--start[hs[i] & mask]] = i;
+        BulkLoad<K,V> task = new BulkLoad<>(this, tab, ks, vs, hs,
+                                            start, order, 0, bins);
+        try {
+            if (parallel && bins > BULK_LOAD_GRAIN)
+                task.invoke();
+            else
+                putBins(tab, ks, vs, hs, start, order, 0, bins, task);
+        } finally {
+            if (task.added > 0) {
+                ++modCount;
+                size += task.added;
+            }
+        }
+        while (size > threshold) // as in putVal
+            resize();
+    }
+
+    /**
+     * Adds the counting-sorted mappings for bins lo (inclusive) to hi
+     * (exclusive) of tab, as for putVal, counting each new node in
+     * task.added as it is linked.  Touches no state outside those bins
+     * and the task.
+     */
+    @SuppressWarnings("unchecked")
+    final void putBins(Node<K,V>[] tab, Object[] ks, Object[] vs, int[] hs,
+                       int[] start, int[] order, int lo, int hi,
+                       BulkLoad<K,V> task) {
+        int n = tab.length;
+        for (int b = lo; b < hi; ++b) {
+            for (int j = start[b], end = start[b + 1]; j < end; ++j) {
+                int i = order[j], h = hs[i];
+                K key = (K)ks[i]; V value = (V)vs[i];
+                Node<K,V> p = tab[b], e;
+                if (p instanceof TreeNode) {
+                    if ((e = ((TreeNode<K,V>)p).putTreeVal(this, tab, h,
+                                                           key, value)) == null)
+                        ++task.added;
+                }
+                else {
+                    int binCount = 0;
+                    for (e = p; e != null; p = e, e = e.next, ++binCount) {
+                        K k;
+                        if (e.hash == h &&
+                            ((k = e.key) == key || (key != null && key.equals(k))))
+                            break;
+                    }
+                    if (e == null) {
+                        Node<K,V> x = newNode(h, key, value, null);
+                        if (binCount == 0)
+                            tab[b] = x;
+                        else
+                            p.next = x;
+                        ++task.added;
+                        if (binCount >= TREEIFY_THRESHOLD - 1 &&
+                            n >= MIN_TREEIFY_CAPACITY)
+                            treeifyBin(tab, h);
+                    }
+                }
+                if (e != null)
+                    e.value = value;
+            }
+        }
+    }
+
+    /**
+     * Fork-join task for a parallel bulk load (see putAllBulk).  With
+     * a null table, computes the hashes of keys lo to hi; otherwise
+     * fills bins lo to hi, leaving the number of new nodes in added,
+     * also when filling a bin throws.  A task waits for both its
+     * subtasks before completing, so that none is still linking
+     * nodes when putAllBulk settles the size.
+     */
+    static final class BulkLoad<K,V> extends RecursiveAction {
+        private static final long serialVersionUID = 2461570392728449125L;
+        final HashMap<K,V> map;
+        final Node<K,V>[] tab;
+        final Object[] ks, vs;
+        final int[] hs, start, order;
+        final int lo, hi;
+        int added;
+
+        BulkLoad(HashMap<K,V> map, Node<K,V>[] tab, Object[] ks, Object[] vs,
+                 int[] hs, int[] start, int[] order, int lo, int hi) {
+            this.map = map; this.tab = tab; this.ks = ks; this.vs = vs;
+            this.hs = hs; this.start = start; this.order = order;
+            this.lo = lo; this.hi = hi;
+        }
+
+        protected void compute() {
+            int lo = this.lo, hi = this.hi;
+            if (hi - lo > BULK_LOAD_GRAIN) {
+                int mid = (lo + hi) >>> 1;
+                BulkLoad<K,V> left = new BulkLoad<>(map, tab, ks, vs, hs,
+                                                    start, order, lo, mid);
+                BulkLoad<K,V> right = new BulkLoad<>(map, tab, ks, vs, hs,
+                                                     start, order, mid, hi);
+                right.fork();
+                try {
+                    left.compute();
+                } finally {
+                    right.quietlyJoin();
+                    added = left.added + right.added;
+                }
+                right.join(); // rethrow any exception
             }
+            else if (tab == null) {
+                Object[] ks = this.ks; int[] hs = this.hs;
+                HashMap<K,V> map = this.map;
+                for (int i = lo; i < hi; ++i)
+                    hs[i] = map.keyHash(ks[i]);
+            }
+            else
+                map.putBins(tab, ks, vs, hs, start, order, lo, hi, this);
         }
     }
 
@@ -549,7 +1007,7 @@ public class HashMap<K,V> extends AbstractMap<K,V>
      */
     public V get(Object key) {
         Node<K,V> e;
-        return (e = getNode(hash(key), key)) == null ? null : e.value;
+        return (e = getNode(keyHash(key), key)) == null ? null : e.value;
     }
 
     /**
@@ -561,7 +1019,9 @@ public class HashMap<K,V> extends AbstractMap<K,V>
      */
     final Node<K,V> getNode(int hash, Object key) {
         Node<K,V>[] tab; Node<K,V> first, e; int n; K k;
-        if ((tab = table) != null && (n = tab.length) > 0 &&
+        if (statsCounter != null)
+            return getNodeCounted(hash, key);
+        if ((tab = tableFor(hash)) != null && (n = tab.length) > 0 &&
             (first = tab[(n - 1) & hash]) != null) {
             if (first.hash == hash && // always check first node
                 ((k = first.key) == key || (key != null && key.equals(k))))
@@ -588,7 +1048,7 @@ public class HashMap<K,V> extends AbstractMap<K,V>
      * key.
      */
     public boolean containsKey(Object key) {
-        return getNode(hash(key), key) != null;
+        return getNode(keyHash(key), key) != null;
     }
 
     /**
@@ -604,7 +1064,7 @@ public class HashMap<K,V> extends AbstractMap<K,V>
      *         previously associated {@code null} with {@code key}.)
      */
     public V put(K key, V value) {
-        return putVal(hash(key), key, value, false, true);
+        return putVal(keyHash(key), key, value, false, true);
     }
 
     /**
@@ -622,6 +1082,8 @@ public class HashMap<K,V> extends AbstractMap<K,V>
         Node<K,V>[] tab; Node<K,V> p; int n, i;
         if ((tab = table) == null || (n = tab.length) == 0)
             n = (tab = resize()).length;
+        else if (oldTable != null)
+            n = (tab = tableFor(hash)).length;
         if ((p = tab[i = (n - 1) & hash]) == null)
             tab[i] = newNode(hash, key, value, null);
         else {
@@ -646,16 +1108,25 @@ public class HashMap<K,V> extends AbstractMap<K,V>
                 }
             }
             if (e != null) { // existing mapping for key
+                if (isExpired(e)) { // treat as absent
+                    removeNode(hash, key, null, false, true);
+                    return putVal(hash, key, value, onlyIfAbsent, evict);
+                }
                 V oldValue = e.value;
-                if (!onlyIfAbsent || oldValue == null)
+                if (!onlyIfAbsent || oldValue == null) {
                     e.value = value;
-                afterNodeAccess(e);
+                    afterNodeWrite(e);
+                }
+                else
+                    afterNodeAccess(e);
                 return oldValue;
             }
         }
         ++modCount;
         if (++size > threshold)
             resize();
+        else if (oldTable != null)
+            transferSome();
         afterNodeInsertion(evict);
         return null;
     }
@@ -665,11 +1136,18 @@ public class HashMap<K,V> extends AbstractMap<K,V>
      * accord with initial capacity target held in field threshold.
      * Otherwise, because we are using power-of-two expansion, the
      * elements from each bin must either stay at same index, or move
-     * with a power of two offset in the new table.
+     * with a power of two offset in the new table.  In incremental
+     * mode, the elements are left in the old table, to be moved by
+     * later calls to transferSome; any move still pending from the
+     * previous resize is completed first.
      *
      * @return the table
      */
     final Node<K,V>[] resize() {
+        StatsCounter sc = statsCounter;
+        long startTime = (sc != null) ? System.nanoTime() : 0L;
+        if (oldTable != null)
+            finishTransfer();
         Node<K,V>[] oldTab = table;
         int oldCap = (oldTab == null) ? 0 : oldTab.length;
         int oldThr = threshold;
@@ -699,50 +1177,129 @@ public class HashMap<K,V> extends AbstractMap<K,V>
         Node<K,V>[] newTab = (Node<K,V>[])new Node[newCap];
         table = newTab;
         if (oldTab != null) {
-            for (int j = 0; j < oldCap; ++j) {
-                Node<K,V> e;
-                if ((e = oldTab[j]) != null) {
-                    oldTab[j] = null;
-                    if (e.next == null)
-                        newTab[e.hash & (newCap - 1)] = e;
-                    else if (e instanceof TreeNode)
-                        ((TreeNode<K,V>)e).split(this, newTab, j, oldCap);
-                    else { // preserve order
-                        Node<K,V> loHead = null, loTail = null;
-                        Node<K,V> hiHead = null, hiTail = null;
-                        Node<K,V> next;
-                        do {
-                            next = e.next;
-                            if ((e.hash & oldCap) == 0) {
-                                if (loTail == null)
-                                    loHead = e;
-                                else
-                                    loTail.next = e;
-                                loTail = e;
-                            }
-                            else {
-                                if (hiTail == null)
-                                    hiHead = e;
-                                else
-                                    hiTail.next = e;
-                                hiTail = e;
-                            }
-                        } while ((e = next) != null);
-                        if (loTail != null) {
-                            loTail.next = null;
-                            newTab[j] = loHead;
-                        }
-                        if (hiTail != null) {
-                            hiTail.next = null;
-                            newTab[j + oldCap] = hiHead;
-                        }
-                    }
+            if (incrementalResize && oldCap > INCREMENTAL_TRANSFER_BINS) {
+                oldTable = oldTab;
+                transferIndex = 0;
+            }
+            else {
+                for (int j = 0; j < oldCap; ++j) {
+                    if (oldTab[j] != null)
+                        transferBin(oldTab, j, newTab);
                 }
             }
+            if (sc != null) {
+                ++sc.resizes;
+                sc.resizeNanos += System.nanoTime() - startTime;
+            }
         }
         return newTab;
     }
 
+    /**
+     * Moves the nodes of bin j of oldTab, which must be non-empty, to
+     * newTab, whose length must be twice that of oldTab.  Nodes either
+     * stay at index j or move to index j + oldTab.length.
+     */
+    final void transferBin(Node<K,V>[] oldTab, int j, Node<K,V>[] newTab) {
+        int oldCap = oldTab.length, newCap = newTab.length;
+        Node<K,V> e = oldTab[j];
+        oldTab[j] = null;
+        if (e.next == null)
+            newTab[e.hash & (newCap - 1)] = e;
+        else if (e instanceof TreeNode)
+            ((TreeNode<K,V>)e).split(this, newTab, j, oldCap);
+        else { // preserve order
+            Node<K,V> loHead = null, loTail = null;
+            Node<K,V> hiHead = null, hiTail = null;
+            Node<K,V> next;
+            do {
+                next = e.next;
+                if ((e.hash & oldCap) == 0) {
+                    if (loTail == null)
+                        loHead = e;
+                    else
+                        loTail.next = e;
+                    loTail = e;
+                }
+                else {
+                    if (hiTail == null)
+                        hiHead = e;
+                    else
+                        hiTail.next = e;
+                    hiTail = e;
+                }
+            } while ((e = next) != null);
+            if (loTail != null) {
+                loTail.next = null;
+                newTab[j] = loHead;
+            }
+            if (hiTail != null) {
+                hiTail.next = null;
+                newTab[j + oldCap] = hiHead;
+            }
+        }
+    }
+
+    /**
+     * Transfers the next INCREMENTAL_TRANSFER_BINS bins of a pending
+     * incremental resize, dropping the old table once all are moved.
+     */
+    final void transferSome() {
+        Node<K,V>[] oldTab = oldTable, newTab = table;
+        int j = transferIndex, n = oldTab.length;
+        for (int end = Math.min(n, j + INCREMENTAL_TRANSFER_BINS); j < end; ++j) {
+            if (oldTab[j] != null)
+                transferBin(oldTab, j, newTab);
+        }
+        if ((transferIndex = j) >= n) {
+            oldTable = null;
+            transferIndex = 0;
+        }
+    }
+
+    /**
+     * Completes a pending incremental resize.
+     */
+    final void finishTransfer() {
+        Node<K,V>[] oldTab, newTab = table;
+        if ((oldTab = oldTable) != null) {
+            for (int j = transferIndex; j < oldTab.length; ++j) {
+                if (oldTab[j] != null)
+                    transferBin(oldTab, j, newTab);
+            }
+            oldTable = null;
+            transferIndex = 0;
+        }
+    }
+
+    /**
+     * Returns the table holding the bin for the given hash: the old
+     * table while an incremental resize has yet to transfer that bin,
+     * else the current table.
+     */
+    final Node<K,V>[] tableFor(int hash) {
+        Node<K,V>[] old;
+        return ((old = oldTable) != null &&
+                old[(old.length - 1) & hash] != null) ? old : table;
+    }
+
+    /**
+     * Returns the first table to traverse when visiting every node:
+     * the old table while an incremental resize is pending, else the
+     * current table.  Use with nextTable.
+     */
+    final Node<K,V>[] firstTable() {
+        Node<K,V>[] old;
+        return ((old = oldTable) != null) ? old : table;
+    }
+
+    /**
+     * Returns the table to traverse after t, or null if none.
+     */
+    final Node<K,V>[] nextTable(Node<K,V>[] t) {
+        return (t == oldTable) ? table : null;
+    }
+
     /**
      * Replaces all linked nodes in bin at index for given hash unless
      * table is too small, in which case resizes instead.
@@ -751,7 +1308,7 @@ public class HashMap<K,V> extends AbstractMap<K,V>
         int n, index; Node<K,V> e;
         if (tab == null || (n = tab.length) < MIN_TREEIFY_CAPACITY)
             resize();
-        else if ((e = tab[index = (n - 1) & hash]) != null) {
+        else if (supportsTreeBins() && (e = tab[index = (n - 1) & hash]) != null) {
             TreeNode<K,V> hd = null, tl = null;
             do {
                 TreeNode<K,V> p = replacementTreeNode(e, null);
@@ -780,6 +1337,79 @@ public class HashMap<K,V> extends AbstractMap<K,V>
         putMapEntries(m, true);
     }
 
+    /**
+     * Maps each element of {@code keys} to the element of
+     * {@code values} at the same index, replacing any mappings that
+     * this map had for those keys.  If a key occurs more than once, the
+     * last occurrence wins.  The effect is that of calling
+     * {@link #put put} for each index in turn, but the mappings are
+     * added in one pass: the table is resized at most once, all keys
+     * are hashed before any is inserted, and each bin is filled (and
+     * if need be converted to a tree bin) in a single visit.
+     *
+     * @param keys the keys of the mappings to be stored in this map
+     * @param values the values of the mappings, index for index
+     * @throws NullPointerException if either array is null
+     * @throws IllegalArgumentException if the arrays differ in length
+     * @since 11
+     */
+    public void putAll(K[] keys, V[] values) {
+        int n = checkBulkArrays(keys, values);
+        putAllBulk(keys, values, null, n, false, true);
+    }
+
+    /**
+     * Copies all of the mappings covered by the given spliterator to
+     * this map, as by {@link #putAll(Object[], Object[])}, in encounter
+     * order.  The spliterator is traversed in full before any mapping
+     * is added.
+     *
+     * @param entries a spliterator over the mappings to be stored in
+     *        this map
+     * @throws NullPointerException if {@code entries} is null or
+     *         covers a null entry
+     * @since 11
+     */
+    public void putAll(Spliterator<? extends Map.Entry<? extends K, ? extends V>> entries) {
+        long est = entries.getExactSizeIfKnown();
+        int cap = (est >= 0L && est < (long)MAXIMUM_CAPACITY) ?
+            (int)est : DEFAULT_INITIAL_CAPACITY;
+        Object[][] buf = { new Object[cap], new Object[cap] };
+        int[] count = new int[1];
+        entries.forEachRemaining(e -> {
+            int i = count[0];
+            if (i == buf[0].length) {
+                if (i >= MAXIMUM_CAPACITY)
+                    throw new OutOfMemoryError("Required map size too large");
+                int len = Math.min(i + (i >> 1) + 1, MAXIMUM_CAPACITY);
+                buf[0] = Arrays.copyOf(buf[0], len);
+                buf[1] = Arrays.copyOf(buf[1], len);
+            }
+            buf[0][i] = e.getKey();
+            buf[1][i] = e.getValue();
+            count[0] = i + 1;
+        });
+        putAllBulk(buf[0], buf[1], null, count[0], false, true);
+    }
+
+    /**
+     * Performs {@link #putAll(Object[], Object[])}, splitting the
+     * hashing of the keys and the filling of bins among tasks in the
+     * {@link ForkJoinPool#commonPool() common pool} when the input is
+     * large enough to benefit.  The map must not be accessed by other
+     * threads until this method returns.
+     *
+     * @param keys the keys of the mappings to be stored in this map
+     * @param values the values of the mappings, index for index
+     * @throws NullPointerException if either array is null
+     * @throws IllegalArgumentException if the arrays differ in length
+     * @since 11
+     */
+    public void parallelPutAll(K[] keys, V[] values) {
+        int n = checkBulkArrays(keys, values);
+        putAllBulk(keys, values, null, n, true, true);
+    }
+
     /**
      * Removes the mapping for the specified key from this map if present.
      *
@@ -791,8 +1421,8 @@ public class HashMap<K,V> extends AbstractMap<K,V>
      */
     public V remove(Object key) {
         Node<K,V> e;
-        return (e = removeNode(hash(key), key, null, false, true)) == null ?
-            null : e.value;
+        return ((e = removeNode(keyHash(key), key, null, false, true)) == null ||
+                isExpired(e)) ? null : e.value;
     }
 
     /**
@@ -808,7 +1438,7 @@ public class HashMap<K,V> extends AbstractMap<K,V>
     final Node<K,V> removeNode(int hash, Object key, Object value,
                                boolean matchValue, boolean movable) {
         Node<K,V>[] tab; Node<K,V> p; int n, index;
-        if ((tab = table) != null && (n = tab.length) > 0 &&
+        if ((tab = tableFor(hash)) != null && (n = tab.length) > 0 &&
             (p = tab[index = (n - 1) & hash]) != null) {
             Node<K,V> node = null, e; K k; V v;
             if (p.hash == hash &&
@@ -839,6 +1469,8 @@ public class HashMap<K,V> extends AbstractMap<K,V>
                     p.next = node.next;
                 ++modCount;
                 --size;
+                if (movable && oldTable != null)
+                    transferSome();
                 afterNodeRemoval(node);
                 return node;
             }
@@ -846,6 +1478,24 @@ public class HashMap<K,V> extends AbstractMap<K,V>
         return null;
     }
 
+    /**
+     * Implements lookups for methods that act on an existing mapping.
+     * Unlike getNode, removes the node if it has expired, and then
+     * reports it absent.
+     *
+     * @param hash hash for key
+     * @param key the key
+     * @return the node, or null if none
+     */
+    final Node<K,V> getLiveNode(int hash, Object key) {
+        Node<K,V> e;
+        if ((e = getNode(hash, key)) != null && isExpired(e)) {
+            removeNode(hash, key, null, false, true);
+            return null;
+        }
+        return e;
+    }
+
     /**
      * Removes all of the mappings from this map.
      * The map will be empty after this call returns.
@@ -858,6 +1508,8 @@ public class HashMap<K,V> extends AbstractMap<K,V>
             for (int i = 0; i < tab.length; ++i)
                 tab[i] = null;
         }
+        oldTable = null;
+        transferIndex = 0;
     }
 
     /**
@@ -869,13 +1521,15 @@ public class HashMap<K,V> extends AbstractMap<K,V>
      *         specified value
      */
     public boolean containsValue(Object value) {
-        Node<K,V>[] tab; V v;
-        if ((tab = table) != null && size > 0) {
-            for (Node<K,V> e : tab) {
-                for (; e != null; e = e.next) {
-                    if ((v = e.value) == value ||
-                        (value != null && value.equals(v)))
-                        return true;
+        V v;
+        if (size > 0) {
+            for (Node<K,V>[] tab = firstTable(); tab != null; tab = nextTable(tab)) {
+                for (Node<K,V> e : tab) {
+                    for (; e != null; e = e.next) {
+                        if ((v = e.value) == value ||
+                            (value != null && value.equals(v)))
+                            return true;
+                    }
                 }
             }
         }
@@ -912,20 +1566,21 @@ public class HashMap<K,V> extends AbstractMap<K,V>
         public final Iterator<K> iterator()     { return new KeyIterator(); }
         public final boolean contains(Object o) { return containsKey(o); }
         public final boolean remove(Object key) {
-            return removeNode(hash(key), key, null, false, true) != null;
+            return removeNode(keyHash(key), key, null, false, true) != null;
         }
         public final Spliterator<K> spliterator() {
             return new KeySpliterator<>(HashMap.this, 0, -1, 0, 0);
         }
         public final void forEach(Consumer<? super K> action) {
-            Node<K,V>[] tab;
             if (action == null)
                 throw new NullPointerException();
-            if (size > 0 && (tab = table) != null) {
+            if (size > 0) {
                 int mc = modCount;
-                for (Node<K,V> e : tab) {
-                    for (; e != null; e = e.next)
-                        action.accept(e.key);
+                for (Node<K,V>[] tab = firstTable(); tab != null; tab = nextTable(tab)) {
+                    for (Node<K,V> e : tab) {
+                        for (; e != null; e = e.next)
+                            action.accept(e.key);
+                    }
                 }
                 if (modCount != mc)
                     throw new ConcurrentModificationException();
@@ -966,14 +1621,15 @@ public class HashMap<K,V> extends AbstractMap<K,V>
             return new ValueSpliterator<>(HashMap.this, 0, -1, 0, 0);
         }
         public final void forEach(Consumer<? super V> action) {
-            Node<K,V>[] tab;
             if (action == null)
                 throw new NullPointerException();
-            if (size > 0 && (tab = table) != null) {
+            if (size > 0) {
                 int mc = modCount;
-                for (Node<K,V> e : tab) {
-                    for (; e != null; e = e.next)
-                        action.accept(e.value);
+                for (Node<K,V>[] tab = firstTable(); tab != null; tab = nextTable(tab)) {
+                    for (Node<K,V> e : tab) {
+                        for (; e != null; e = e.next)
+                            action.accept(e.value);
+                    }
                 }
                 if (modCount != mc)
                     throw new ConcurrentModificationException();
@@ -1013,7 +1669,7 @@ public class HashMap<K,V> extends AbstractMap<K,V>
                 return false;
             Map.Entry<?,?> e = (Map.Entry<?,?>) o;
             Object key = e.getKey();
-            Node<K,V> candidate = getNode(hash(key), key);
+            Node<K,V> candidate = getNode(keyHash(key), key);
             return candidate != null && candidate.equals(e);
         }
         public final boolean remove(Object o) {
@@ -1021,7 +1677,7 @@ public class HashMap<K,V> extends AbstractMap<K,V>
                 Map.Entry<?,?> e = (Map.Entry<?,?>) o;
                 Object key = e.getKey();
                 Object value = e.getValue();
-                return removeNode(hash(key), key, value, true, true) != null;
+                return removeNode(keyHash(key), key, value, true, true) != null;
             }
             return false;
         }
@@ -1029,14 +1685,15 @@ public class HashMap<K,V> extends AbstractMap<K,V>
             return new EntrySpliterator<>(HashMap.this, 0, -1, 0, 0);
         }
         public final void forEach(Consumer<? super Map.Entry<K,V>> action) {
-            Node<K,V>[] tab;
             if (action == null)
                 throw new NullPointerException();
-            if (size > 0 && (tab = table) != null) {
+            if (size > 0) {
                 int mc = modCount;
-                for (Node<K,V> e : tab) {
-                    for (; e != null; e = e.next)
-                        action.accept(e);
+                for (Node<K,V>[] tab = firstTable(); tab != null; tab = nextTable(tab)) {
+                    for (Node<K,V> e : tab) {
+                        for (; e != null; e = e.next)
+                            action.accept(e);
+                    }
                 }
                 if (modCount != mc)
                     throw new ConcurrentModificationException();
@@ -1049,26 +1706,28 @@ public class HashMap<K,V> extends AbstractMap<K,V>
     @Override
     public V getOrDefault(Object key, V defaultValue) {
         Node<K,V> e;
-        return (e = getNode(hash(key), key)) == null ? defaultValue : e.value;
+        return (e = getNode(keyHash(key), key)) == null ? defaultValue : e.value;
     }
 
     @Override
     public V putIfAbsent(K key, V value) {
-        return putVal(hash(key), key, value, true, true);
+        return putVal(keyHash(key), key, value, true, true);
     }
 
     @Override
     public boolean remove(Object key, Object value) {
-        return removeNode(hash(key), key, value, true, true) != null;
+        Node<K,V> e;
+        return (e = removeNode(keyHash(key), key, value, true, true)) != null &&
+            !isExpired(e);
     }
 
     @Override
     public boolean replace(K key, V oldValue, V newValue) {
         Node<K,V> e; V v;
-        if ((e = getNode(hash(key), key)) != null &&
+        if ((e = getLiveNode(keyHash(key), key)) != null &&
             ((v = e.value) == oldValue || (v != null && v.equals(oldValue)))) {
             e.value = newValue;
-            afterNodeAccess(e);
+            afterNodeWrite(e);
             return true;
         }
         return false;
@@ -1077,10 +1736,10 @@ public class HashMap<K,V> extends AbstractMap<K,V>
     @Override
     public V replace(K key, V value) {
         Node<K,V> e;
-        if ((e = getNode(hash(key), key)) != null) {
+        if ((e = getLiveNode(keyHash(key), key)) != null) {
             V oldValue = e.value;
             e.value = value;
-            afterNodeAccess(e);
+            afterNodeWrite(e);
             return oldValue;
         }
         return null;
@@ -1101,7 +1760,7 @@ public class HashMap<K,V> extends AbstractMap<K,V>
                              Function<? super K, ? extends V> mappingFunction) {
         if (mappingFunction == null)
             throw new NullPointerException();
-        int hash = hash(key);
+        int hash = keyHash(key);
         Node<K,V>[] tab; Node<K,V> first; int n, i;
         int binCount = 0;
         TreeNode<K,V> t = null;
@@ -1109,6 +1768,8 @@ public class HashMap<K,V> extends AbstractMap<K,V>
         if (size > threshold || (tab = table) == null ||
             (n = tab.length) == 0)
             n = (tab = resize()).length;
+        if (oldTable != null)
+            n = (tab = tableFor(hash)).length;
         if ((first = tab[i = (n - 1) & hash]) != null) {
             if (first instanceof TreeNode)
                 old = (t = (TreeNode<K,V>)first).getTreeNode(hash, key);
@@ -1123,6 +1784,10 @@ public class HashMap<K,V> extends AbstractMap<K,V>
                     ++binCount;
                 } while ((e = e.next) != null);
             }
+            if (old != null && isExpired(old)) { // treat as absent
+                removeNode(hash, key, null, false, true);
+                return computeIfAbsent(key, mappingFunction);
+            }
             V oldValue;
             if (old != null && (oldValue = old.value) != null) {
                 afterNodeAccess(old);
@@ -1136,7 +1801,7 @@ public class HashMap<K,V> extends AbstractMap<K,V>
             return null;
         } else if (old != null) {
             old.value = v;
-            afterNodeAccess(old);
+            afterNodeWrite(old);
             return v;
         }
         else if (t != null)
@@ -1148,6 +1813,8 @@ public class HashMap<K,V> extends AbstractMap<K,V>
         }
         modCount = mc + 1;
         ++size;
+        if (oldTable != null)
+            transferSome();
         afterNodeInsertion(true);
         return v;
     }
@@ -1168,15 +1835,15 @@ public class HashMap<K,V> extends AbstractMap<K,V>
         if (remappingFunction == null)
             throw new NullPointerException();
         Node<K,V> e; V oldValue;
-        int hash = hash(key);
-        if ((e = getNode(hash, key)) != null &&
+        int hash = keyHash(key);
+        if ((e = getLiveNode(hash, key)) != null &&
             (oldValue = e.value) != null) {
             int mc = modCount;
             V v = remappingFunction.apply(key, oldValue);
             if (mc != modCount) { throw new ConcurrentModificationException(); }
             if (v != null) {
                 e.value = v;
-                afterNodeAccess(e);
+                afterNodeWrite(e);
                 return v;
             }
             else
@@ -1200,7 +1867,7 @@ public class HashMap<K,V> extends AbstractMap<K,V>
                      BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
         if (remappingFunction == null)
             throw new NullPointerException();
-        int hash = hash(key);
+        int hash = keyHash(key);
         Node<K,V>[] tab; Node<K,V> first; int n, i;
         int binCount = 0;
         TreeNode<K,V> t = null;
@@ -1208,6 +1875,8 @@ public class HashMap<K,V> extends AbstractMap<K,V>
         if (size > threshold || (tab = table) == null ||
             (n = tab.length) == 0)
             n = (tab = resize()).length;
+        if (oldTable != null)
+            n = (tab = tableFor(hash)).length;
         if ((first = tab[i = (n - 1) & hash]) != null) {
             if (first instanceof TreeNode)
                 old = (t = (TreeNode<K,V>)first).getTreeNode(hash, key);
@@ -1223,6 +1892,10 @@ public class HashMap<K,V> extends AbstractMap<K,V>
                 } while ((e = e.next) != null);
             }
         }
+        if (old != null && isExpired(old)) { // treat as absent
+            removeNode(hash, key, null, false, true);
+            return compute(key, remappingFunction);
+        }
         V oldValue = (old == null) ? null : old.value;
         int mc = modCount;
         V v = remappingFunction.apply(key, oldValue);
@@ -1230,7 +1903,7 @@ public class HashMap<K,V> extends AbstractMap<K,V>
         if (old != null) {
             if (v != null) {
                 old.value = v;
-                afterNodeAccess(old);
+                afterNodeWrite(old);
             }
             else
                 removeNode(hash, key, null, false, true);
@@ -1245,6 +1918,8 @@ public class HashMap<K,V> extends AbstractMap<K,V>
             }
             modCount = mc + 1;
             ++size;
+            if (oldTable != null)
+                transferSome();
             afterNodeInsertion(true);
         }
         return v;
@@ -1267,7 +1942,7 @@ public class HashMap<K,V> extends AbstractMap<K,V>
             throw new NullPointerException();
         if (remappingFunction == null)
             throw new NullPointerException();
-        int hash = hash(key);
+        int hash = keyHash(key);
         Node<K,V>[] tab; Node<K,V> first; int n, i;
         int binCount = 0;
         TreeNode<K,V> t = null;
@@ -1275,6 +1950,8 @@ public class HashMap<K,V> extends AbstractMap<K,V>
         if (size > threshold || (tab = table) == null ||
             (n = tab.length) == 0)
             n = (tab = resize()).length;
+        if (oldTable != null)
+            n = (tab = tableFor(hash)).length;
         if ((first = tab[i = (n - 1) & hash]) != null) {
             if (first instanceof TreeNode)
                 old = (t = (TreeNode<K,V>)first).getTreeNode(hash, key);
@@ -1290,6 +1967,10 @@ public class HashMap<K,V> extends AbstractMap<K,V>
                 } while ((e = e.next) != null);
             }
         }
+        if (old != null && isExpired(old)) { // treat as absent
+            removeNode(hash, key, null, false, true);
+            return merge(key, value, remappingFunction);
+        }
         if (old != null) {
             V v;
             if (old.value != null) {
@@ -1303,7 +1984,7 @@ public class HashMap<K,V> extends AbstractMap<K,V>
             }
             if (v != null) {
                 old.value = v;
-                afterNodeAccess(old);
+                afterNodeWrite(old);
             }
             else
                 removeNode(hash, key, null, false, true);
@@ -1319,6 +2000,8 @@ public class HashMap<K,V> extends AbstractMap<K,V>
             }
             ++modCount;
             ++size;
+            if (oldTable != null)
+                transferSome();
             afterNodeInsertion(true);
         }
         return value;
@@ -1326,14 +2009,15 @@ public class HashMap<K,V> extends AbstractMap<K,V>
 
     @Override
     public void forEach(BiConsumer<? super K, ? super V> action) {
-        Node<K,V>[] tab;
         if (action == null)
             throw new NullPointerException();
-        if (size > 0 && (tab = table) != null) {
+        if (size > 0) {
             int mc = modCount;
-            for (Node<K,V> e : tab) {
-                for (; e != null; e = e.next)
-                    action.accept(e.key, e.value);
+            for (Node<K,V>[] tab = firstTable(); tab != null; tab = nextTable(tab)) {
+                for (Node<K,V> e : tab) {
+                    for (; e != null; e = e.next)
+                        action.accept(e.key, e.value);
+                }
             }
             if (modCount != mc)
                 throw new ConcurrentModificationException();
@@ -1342,14 +2026,15 @@ public class HashMap<K,V> extends AbstractMap<K,V>
 
     @Override
     public void replaceAll(BiFunction<? super K, ? super V, ? extends V> function) {
-        Node<K,V>[] tab;
         if (function == null)
             throw new NullPointerException();
-        if (size > 0 && (tab = table) != null) {
+        if (size > 0) {
             int mc = modCount;
-            for (Node<K,V> e : tab) {
-                for (; e != null; e = e.next) {
-                    e.value = function.apply(e.key, e.value);
+            for (Node<K,V>[] tab = firstTable(); tab != null; tab = nextTable(tab)) {
+                for (Node<K,V> e : tab) {
+                    for (; e != null; e = e.next) {
+                        e.value = function.apply(e.key, e.value);
+                    }
                 }
             }
             if (modCount != mc)
@@ -1357,22 +2042,630 @@ public class HashMap<K,V> extends AbstractMap<K,V>
         }
     }
 
-    /* ------------------------------------------------------------ */
-    // Cloning and serialization
-
     /**
-     * Returns a shallow copy of this {@code HashMap} instance: the keys and
-     * values themselves are not cloned.
+     * Performs the given action for each mapping in this map, in the
+     * order of iteration of the entry set, without checking for
+     * concurrent modification.  Unlike {@code entrySet().forEach},
+     * the caller promises that neither the action nor any other
+     * thread modifies this map structurally during the traversal;
+     * if it does, the results are undefined, and no
+     * {@code ConcurrentModificationException} is thrown.
      *
-     * @return a shallow copy of this map
+     * <p>The entries passed to the action are the map's own, and are
+     * only valid during the call.  As for entries returned by the
+     * entry set iterator, their {@code setValue} writes through to
+     * the map.
+     *
+     * @param action the action to be performed for each mapping
+     * @throws NullPointerException if the specified action is null
+     * @since 11
      */
-    @SuppressWarnings("unchecked")
-    @Override
-    public Object clone() {
-        HashMap<K,V> result;
-        try {
-            result = (HashMap<K,V>)super.clone();
-        } catch (CloneNotSupportedException e) {
+    public void forEachUnchecked(Consumer<? super Map.Entry<K,V>> action) {
+        if (action == null)
+            throw new NullPointerException();
+        if (size > 0) {
+            for (Node<K,V>[] tab = firstTable(); tab != null; tab = nextTable(tab)) {
+                for (Node<K,V> e : tab) {
+                    for (; e != null; e = e.next)
+                        action.accept(e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns a new cursor over the mappings in this map, positioned
+     * before the first mapping.  The cursor visits the mappings in the
+     * order of iteration of the entry set, which for a {@code HashMap}
+     * is the order of the bins in the table.  Unlike an iterator, it
+     * hands out keys and values rather than entries, and may be
+     * {@linkplain Cursor#reset reset} and reused for any number of
+     * traversals, so that traversing the map allocates nothing.
+     *
+     * <p>The cursor is <i>fail-fast</i> in the same way as the
+     * iterators of this map: if the map is structurally modified after
+     * the cursor is created or reset, in any way except through the
+     * cursor's own {@code remove} method, {@code advance} throws a
+     * {@link ConcurrentModificationException}.
+     *
+     * @return a cursor over the mappings in this map
+     * @since 11
+     */
+    public Cursor<K,V> cursor() {
+        return new HashCursor();
+    }
+
+    /**
+     * A reusable, allocation-free cursor over the mappings of a map.
+     * A cursor starts out positioned before the first mapping; each
+     * call to {@link #advance} moves it to the next, after which
+     * {@link #key} and {@link #value} return the mapping's key and
+     * value.  A cursor is typically used as follows:
+     *
+     * <pre> {@code
+     * HashMap.Cursor<K,V> c = map.cursor();
+     * while (c.advance())
+     *     process(c.key(), c.value());
+     * c.reset(); // ready for the next traversal
+     * }</pre>
+     *
+     * @param <K> the type of keys
+     * @param <V> the type of values
+     * @see HashMap#cursor
+     * @since 11
+     */
+    public interface Cursor<K,V> {
+        /**
+         * Moves this cursor to the next mapping, if any.
+         *
+         * @return {@code true} if the cursor is positioned on a
+         *         mapping, {@code false} if there are no more
+         * @throws ConcurrentModificationException if the map was
+         *         structurally modified other than through this cursor
+         */
+        boolean advance();
+
+        /**
+         * Returns the key of the current mapping.
+         *
+         * @return the key of the current mapping
+         * @throws IllegalStateException if the cursor is not positioned
+         *         on a mapping
+         */
+        K key();
+
+        /**
+         * Returns the value of the current mapping.
+         *
+         * @return the value of the current mapping
+         * @throws IllegalStateException if the cursor is not positioned
+         *         on a mapping
+         */
+        V value();
+
+        /**
+         * Replaces the value of the current mapping, writing through to
+         * the map.
+         *
+         * @param value new value to be stored in the current mapping
+         * @return the old value of the current mapping
+         * @throws IllegalStateException if the cursor is not positioned
+         *         on a mapping
+         */
+        V setValue(V value);
+
+        /**
+         * Removes the current mapping from the map.  The cursor is then
+         * no longer positioned on a mapping until the next
+         * {@code advance}.
+         *
+         * @throws IllegalStateException if the cursor is not positioned
+         *         on a mapping
+         * @throws ConcurrentModificationException if the map was
+         *         structurally modified other than through this cursor
+         */
+        void remove();
+
+        /**
+         * Moves this cursor back before the first mapping of the map,
+         * as it is now.
+         */
+        void reset();
+    }
+
+    /* ------------------------------------------------------------ */
+    // Parallel bulk operations
+
+    /*
+     * These methods mirror the bulk operations of ConcurrentHashMap.
+     * Each takes a parallelismThreshold: the operation runs
+     * sequentially in the calling thread if the map has fewer mappings
+     * than that, and is otherwise split by ranges of bins, as by
+     * KeySpliterator.trySplit, into tasks run in the common
+     * ForkJoinPool.  Long.MAX_VALUE thus suppresses all parallelism,
+     * and 1 allows as many tasks as the pool can usefully run.
+     * Unlike those of ConcurrentHashMap, these methods are not
+     * thread-safe with respect to other operations on the map: the
+     * functions supplied must not modify the map, and nothing else may
+     * modify it while the operation runs, else the operation throws
+     * ConcurrentModificationException on a best-effort basis.
+     */
+
+    /**
+     * Returns the number of bins of tab each task of a parallel bulk
+     * operation should process: all of them if the operation is to run
+     * sequentially, else enough to make about four tasks per thread of
+     * the common pool, or fewer tasks if the threshold calls for it.
+     * Completes any pending incremental resize, as bulk tasks traverse
+     * only the current table.
+     */
+    final int bulkGrain(long parallelismThreshold) {
+        if (oldTable != null)
+            finishTransfer();
+        int n = table.length, p = ForkJoinPool.getCommonPoolParallelism();
+        long s = size, tasks;
+        if (p <= 1 || s <= 1L || s < parallelismThreshold)
+            return n;
+        tasks = (parallelismThreshold <= 0L) ? (long)p << 2 :
+            Math.min(s / parallelismThreshold, (long)p << 2);
+        return (tasks <= 1L) ? n : (int)Math.max(1L, n / tasks);
+    }
+
+    /**
+     * Performs the given action for each mapping, as by
+     * {@link #forEach(BiConsumer)}, but possibly in parallel and so in no
+     * particular order.
+     *
+     * @param parallelismThreshold the (estimated) number of mappings
+     *        needed for this operation to be executed in parallel
+     * @param action the action
+     * @throws NullPointerException if the action is null
+     * @throws ConcurrentModificationException if the map is found to
+     *         have been structurally modified during the operation
+     * @since 11
+     */
+    public void parallelForEach(long parallelismThreshold,
+                                BiConsumer<? super K, ? super V> action) {
+        if (action == null)
+            throw new NullPointerException();
+        if (size > 0) {
+            int mc = modCount, grain = bulkGrain(parallelismThreshold);
+            new ForEachTask<K,V>(table, 0, table.length, grain, action).invoke();
+            if (modCount != mc)
+                throw new ConcurrentModificationException();
+        }
+    }
+
+    /**
+     * Replaces each mapping's value with the result of invoking the given
+     * function on that mapping, as by {@link #replaceAll(BiFunction)}, but
+     * possibly in parallel and so in no particular order.
+     *
+     * @param parallelismThreshold the (estimated) number of mappings
+     *        needed for this operation to be executed in parallel
+     * @param function the function to apply to each mapping
+     * @throws NullPointerException if the function is null
+     * @throws ConcurrentModificationException if the map is found to
+     *         have been structurally modified during the operation
+     * @since 11
+     */
+    public void parallelReplaceAll(long parallelismThreshold,
+                                   BiFunction<? super K, ? super V, ? extends V> function) {
+        if (function == null)
+            throw new NullPointerException();
+        if (size > 0) {
+            int mc = modCount, grain = bulkGrain(parallelismThreshold);
+            new ReplaceAllTask<K,V>(table, 0, table.length, grain, function).invoke();
+            if (modCount != mc)
+                throw new ConcurrentModificationException();
+        }
+    }
+
+    /**
+     * Returns the result of accumulating the given transformation
+     * of all (key, value) pairs using the given reducer to
+     * combine values, or null if none.
+     *
+     * @param parallelismThreshold the (estimated) number of mappings
+     *        needed for this operation to be executed in parallel
+     * @param transformer a function returning the transformation
+     *        for an element, or null if there is no transformation (in
+     *        which case it is not combined)
+     * @param reducer a commutative associative combining function
+     * @param <U> the return type of the transformer
+     * @return the result of accumulating the given transformation
+     *         of all (key, value) pairs
+     * @throws NullPointerException if the transformer or reducer is null
+     * @throws ConcurrentModificationException if the map is found to
+     *         have been structurally modified during the operation
+     * @since 11
+     */
+    public <U> U reduce(long parallelismThreshold,
+                        BiFunction<? super K, ? super V, ? extends U> transformer,
+                        BiFunction<? super U, ? super U, ? extends U> reducer) {
+        if (transformer == null || reducer == null)
+            throw new NullPointerException();
+        if (size == 0)
+            return null;
+        int mc = modCount, grain = bulkGrain(parallelismThreshold);
+        U r = new ReduceTask<K,V,U>(table, 0, table.length, grain,
+                                    transformer, reducer).invoke();
+        if (modCount != mc)
+            throw new ConcurrentModificationException();
+        return r;
+    }
+
+    /**
+     * Returns the result of accumulating all non-null keys using the
+     * given reducer to combine values, or null if none.
+     *
+     * @param parallelismThreshold the (estimated) number of mappings
+     *        needed for this operation to be executed in parallel
+     * @param reducer a commutative associative combining function
+     * @return the result of accumulating all non-null keys using the
+     *         given reducer to combine values, or null if none
+     * @throws NullPointerException if the reducer is null
+     * @throws ConcurrentModificationException if the map is found to
+     *         have been structurally modified during the operation
+     * @since 11
+     */
+    public K reduceKeys(long parallelismThreshold,
+                        BiFunction<? super K, ? super K, ? extends K> reducer) {
+        if (reducer == null)
+            throw new NullPointerException();
+        return reduce(parallelismThreshold, (k, v) -> k, reducer);
+    }
+
+    /**
+     * Returns the result of accumulating all non-null values using the
+     * given reducer to combine values, or null if none.
+     *
+     * @param parallelismThreshold the (estimated) number of mappings
+     *        needed for this operation to be executed in parallel
+     * @param reducer a commutative associative combining function
+     * @return the result of accumulating all non-null values using the
+     *         given reducer to combine values, or null if none
+     * @throws NullPointerException if the reducer is null
+     * @throws ConcurrentModificationException if the map is found to
+     *         have been structurally modified during the operation
+     * @since 11
+     */
+    public V reduceValues(long parallelismThreshold,
+                          BiFunction<? super V, ? super V, ? extends V> reducer) {
+        if (reducer == null)
+            throw new NullPointerException();
+        return reduce(parallelismThreshold, (k, v) -> v, reducer);
+    }
+
+    /**
+     * Returns the result of accumulating the given transformation
+     * of all (key, value) pairs using the given reducer to
+     * combine values, and the given basis as an identity value.
+     *
+     * @param parallelismThreshold the (estimated) number of mappings
+     *        needed for this operation to be executed in parallel
+     * @param transformer a function returning the transformation
+     *        for an element
+     * @param basis the identity (initial default value) for the reduction
+     * @param reducer a commutative associative combining function
+     * @return the result of accumulating the given transformation
+     *         of all (key, value) pairs
+     * @throws NullPointerException if the transformer or reducer is null
+     * @throws ConcurrentModificationException if the map is found to
+     *         have been structurally modified during the operation
+     * @since 11
+     */
+    public long reduceToLong(long parallelismThreshold,
+                             ToLongBiFunction<? super K, ? super V> transformer,
+                             long basis,
+                             LongBinaryOperator reducer) {
+        if (transformer == null || reducer == null)
+            throw new NullPointerException();
+        if (size == 0)
+            return basis;
+        int mc = modCount, grain = bulkGrain(parallelismThreshold);
+        ReduceToLongTask<K,V> task =
+            new ReduceToLongTask<K,V>(table, 0, table.length, grain,
+                                      transformer, basis, reducer);
+        task.invoke();
+        if (modCount != mc)
+            throw new ConcurrentModificationException();
+        return task.result;
+    }
+
+    /* ------------------------------------------------------------ */
+    // Statistics
+
+    /**
+     * Enables or disables the counting of events reported by
+     * {@link #stats}: resizes of the table, and lookups of keys along
+     * with the number of nodes they examine.  Counting is disabled by
+     * default, and costs a little on each lookup and resize while
+     * enabled.  Enabling it, even if already enabled, resets the
+     * counts to zero.  Counting is disabled in clones and deserialized
+     * copies of a map.
+     *
+     * @param enabled whether to count events
+     * @since 11
+     */
+    public void setStatsEnabled(boolean enabled) {
+        statsCounter = enabled ? new StatsCounter() : null;
+    }
+
+    /**
+     * Returns a snapshot of statistics about this map, useful for
+     * diagnosing degraded performance, typically due to poorly
+     * distributed hash codes.  The shape of the table (the length of
+     * its bins, how many have been converted to trees, and the load
+     * actually reached) is computed by examining every bin, and so
+     * takes time proportional to the capacity of the map.  Counts of
+     * resizes and lookups are only kept while enabled by
+     * {@link #setStatsEnabled}, and are otherwise zero.
+     *
+     * @return a snapshot of statistics about this map
+     * @since 11
+     */
+    public Stats stats() {
+        int[] histogram = new int[TREEIFY_THRESHOLD + 1];
+        int maxBinLength = 0, treeBins = 0;
+        Node<K,V>[] tab = table, oldTab = oldTable;
+        int oldCap = (oldTab == null) ? 0 : oldTab.length;
+        if (tab != null) {
+            for (int i = 0; i < tab.length; ++i) {
+                Node<K,V> e = tab[i];
+                boolean tree = e instanceof TreeNode;
+                int len = 0;
+                for (; e != null; e = e.next)
+                    ++len;
+                int j;
+                if (oldCap > 0 && (j = i & (oldCap - 1)) >= transferIndex &&
+                    (e = oldTab[j]) != null) {
+                    // count the part of the pending bin that transferBin
+                    // would move to index i, as split would leave it
+                    int bit = (i < oldCap) ? 0 : oldCap, part = 0;
+                    boolean oldTree = e instanceof TreeNode;
+                    for (; e != null; e = e.next) {
+                        if ((e.hash & oldCap) == bit)
+                            ++part;
+                    }
+                    if (oldTree && part > UNTREEIFY_THRESHOLD)
+                        tree = true;
+                    len += part;
+                }
+                if (tree)
+                    ++treeBins;
+                ++histogram[Math.min(len, TREEIFY_THRESHOLD)];
+                if (len > maxBinLength)
+                    maxBinLength = len;
+            }
+        }
+        return new Stats(size, (tab == null) ? 0 : tab.length, loadFactor,
+                         histogram, maxBinLength, treeBins, statsCounter);
+    }
+
+    /**
+     * Version of getNode counting lookups and the nodes they examine.
+     */
+    final Node<K,V> getNodeCounted(int hash, Object key) {
+        StatsCounter sc = statsCounter;
+        Node<K,V>[] tab; Node<K,V> e; int n; K k;
+        ++sc.lookups;
+        if ((tab = tableFor(hash)) != null && (n = tab.length) > 0 &&
+            (e = tab[(n - 1) & hash]) != null) {
+            if (e instanceof TreeNode) {
+                ++sc.treeLookups;
+                return ((TreeNode<K,V>)e).getTreeNode(hash, key);
+            }
+            int probes = 0;
+            do {
+                ++probes;
+                if (e.hash == hash &&
+                    ((k = e.key) == key || (key != null && key.equals(k))))
+                    break;
+            } while ((e = e.next) != null);
+            sc.probes += probes;
+            if (probes > sc.maxProbeLength)
+                sc.maxProbeLength = probes;
+            return e;
+        }
+        return null;
+    }
+
+    /**
+     * The mutable counters behind Stats.
+     */
+    static final class StatsCounter {
+        long resizes, resizeNanos, lookups, treeLookups, probes;
+        int maxProbeLength;
+    }
+
+    /**
+     * An immutable snapshot of statistics about a {@code HashMap}, as
+     * returned by {@link HashMap#stats}.
+     *
+     * @since 11
+     */
+    public static final class Stats {
+        private final int size, capacity, maxBinLength, treeifiedBins;
+        private final float loadFactor;
+        private final int[] binLengthHistogram;
+        private final long resizes, resizeNanos, lookups, treeLookups, probes;
+        private final int maxProbeLength;
+
+        Stats(int size, int capacity, float loadFactor,
+              int[] binLengthHistogram, int maxBinLength, int treeifiedBins,
+              StatsCounter sc) {
+            this.size = size;
+            this.capacity = capacity;
+            this.loadFactor = loadFactor;
+            this.binLengthHistogram = binLengthHistogram;
+            this.maxBinLength = maxBinLength;
+            this.treeifiedBins = treeifiedBins;
+            if (sc != null) {
+                resizes = sc.resizes;
+                resizeNanos = sc.resizeNanos;
+                lookups = sc.lookups;
+                treeLookups = sc.treeLookups;
+                probes = sc.probes;
+                maxProbeLength = sc.maxProbeLength;
+            }
+            else {
+                resizes = resizeNanos = lookups = treeLookups = probes = 0L;
+                maxProbeLength = 0;
+            }
+        }
+
+        /**
+         * Returns the number of mappings in the map.
+         *
+         * @return the number of mappings
+         */
+        public int size() { return size; }
+
+        /**
+         * Returns the number of bins in the table, which is zero if
+         * the table has not been allocated.
+         *
+         * @return the capacity of the map
+         */
+        public int capacity() { return capacity; }
+
+        /**
+         * Returns the load factor with which the map was created.
+         *
+         * @return the configured load factor
+         */
+        public float loadFactor() { return loadFactor; }
+
+        /**
+         * Returns the load actually reached: the number of mappings
+         * divided by the capacity, or zero if the capacity is zero.
+         *
+         * @return the current load of the map
+         */
+        public float load() {
+            return (capacity == 0) ? 0.0f : (float)size / capacity;
+        }
+
+        /**
+         * Returns a histogram of bin lengths: element {@code i} of the
+         * returned array is the number of bins holding exactly
+         * {@code i} mappings, except for the last element, which is the
+         * number of bins holding at least
+         * {@code binLengthHistogram().length - 1}, the length at which
+         * bins may be converted to trees.  The histogram covers the
+         * {@link #capacity()} bins of the current table; while a resize
+         * is in progress incrementally, bins not yet transferred are
+         * counted as they will be once split into that table.
+         *
+         * @return a new array holding the histogram
+         */
+        public int[] binLengthHistogram() { return binLengthHistogram.clone(); }
+
+        /**
+         * Returns the number of mappings in the longest bin.
+         *
+         * @return the length of the longest bin
+         */
+        public int maxBinLength() { return maxBinLength; }
+
+        /**
+         * Returns the number of bins that have been converted to trees.
+         *
+         * @return the number of treeified bins
+         */
+        public int treeifiedBins() { return treeifiedBins; }
+
+        /**
+         * Returns the number of times the table was grown while
+         * counting was enabled.
+         *
+         * @return the number of resizes
+         */
+        public long resizeCount() { return resizes; }
+
+        /**
+         * Returns the total time spent growing the table while counting
+         * was enabled.  With incremental resizing, this excludes the
+         * bins transferred after each resize by later insertions.
+         *
+         * @return the time spent resizing, in nanoseconds
+         */
+        public long resizeNanos() { return resizeNanos; }
+
+        /**
+         * Returns the number of lookups of keys made while counting was
+         * enabled, by operations such as {@code get} and
+         * {@code containsKey}.
+         *
+         * @return the number of lookups
+         */
+        public long lookupCount() { return lookups; }
+
+        /**
+         * Returns how many of the lookups counted by
+         * {@link #lookupCount} searched a treeified bin.  Such lookups
+         * are not included in the probe counts.
+         *
+         * @return the number of lookups in treeified bins
+         */
+        public long treeLookupCount() { return treeLookups; }
+
+        /**
+         * Returns the total number of nodes examined by the lookups
+         * counted by {@link #lookupCount} that searched a non-empty,
+         * non-treeified bin.
+         *
+         * @return the number of nodes examined
+         */
+        public long probeCount() { return probes; }
+
+        /**
+         * Returns the largest number of nodes examined by a single
+         * lookup counted by {@link #probeCount}.
+         *
+         * @return the longest probe
+         */
+        public int maxProbeLength() { return maxProbeLength; }
+
+        /**
+         * Returns a string summarizing these statistics.
+         *
+         * @return a string summarizing these statistics
+         */
+        public String toString() {
+            return "HashMap.Stats[size=" + size +
+                ", capacity=" + capacity +
+                ", loadFactor=" + loadFactor +
+                ", load=" + load() +
+                ", binLengthHistogram=" + Arrays.toString(binLengthHistogram) +
+                ", maxBinLength=" + maxBinLength +
+                ", treeifiedBins=" + treeifiedBins +
+                ", resizeCount=" + resizes +
+                ", resizeNanos=" + resizeNanos +
+                ", lookupCount=" + lookups +
+                ", treeLookupCount=" + treeLookups +
+                ", probeCount=" + probes +
+                ", maxProbeLength=" + maxProbeLength + "]";
+        }
+    }
+
+    /* ------------------------------------------------------------ */
+    // Cloning and serialization
+
+    /**
+     * Returns a shallow copy of this {@code HashMap} instance: the keys and
+     * values themselves are not cloned.
+     *
+     * @return a shallow copy of this map
+     */
+    @SuppressWarnings("unchecked")
+    @Override
+    public Object clone() {
+        HashMap<K,V> result;
+        try {
+            result = (HashMap<K,V>)super.clone();
+        } catch (CloneNotSupportedException e) {
             // this shouldn't happen, since we are Cloneable
             throw new InternalError(e);
         }
@@ -1426,6 +2719,7 @@ public class HashMap<K,V> extends AbstractMap<K,V>
         if (loadFactor <= 0 || Float.isNaN(loadFactor))
             throw new InvalidObjectException("Illegal load factor: " +
                                              loadFactor);
+        hashSeed = randomizedHashing ? newHashSeed() : 0;
         s.readInt();                // Read and ignore number of buckets
         int mappings = s.readInt(); // Read number of mappings (size)
         if (mappings < 0)
@@ -1458,7 +2752,7 @@ public class HashMap<K,V> extends AbstractMap<K,V>
                     K key = (K) s.readObject();
                 @SuppressWarnings("unchecked")
                     V value = (V) s.readObject();
-                putVal(hash(key), key, value, false, false);
+                putVal(keyHash(key), key, value, false, false);
             }
         }
     }
@@ -1471,15 +2765,40 @@ public class HashMap<K,V> extends AbstractMap<K,V>
         Node<K,V> current;     // current entry
         int expectedModCount;  // for fast-fail
         int index;             // current slot
+        Node<K,V>[] tab;       // table being traversed, old one first
 
         HashIterator() {
+            start();
+        }
+
+        /**
+         * Positions this iterator before the first entry.
+         */
+        final void start() {
             expectedModCount = modCount;
-            Node<K,V>[] t = table;
             current = next = null;
             index = 0;
-            if (t != null && size > 0) { // advance to first entry
-                do {} while (index < t.length && (next = t[index++]) == null);
+            tab = null;
+            if (size > 0) { // advance to first entry
+                tab = firstTable();
+                next = nextBin();
+            }
+        }
+
+        /**
+         * Returns the first node of the next non-empty bin, moving on
+         * from the old table to the current one, or null if none.
+         */
+        final Node<K,V> nextBin() {
+            Node<K,V>[] t; Node<K,V> e = null;
+            while ((t = tab) != null) {
+                do {} while (index < t.length && (e = t[index++]) == null);
+                if (e != null)
+                    return e;
+                tab = nextTable(t);
+                index = 0;
             }
+            return null;
         }
 
         public final boolean hasNext() {
@@ -1487,15 +2806,13 @@ public class HashMap<K,V> extends AbstractMap<K,V>
         }
 
         final Node<K,V> nextNode() {
-            Node<K,V>[] t;
             Node<K,V> e = next;
             if (modCount != expectedModCount)
                 throw new ConcurrentModificationException();
             if (e == null)
                 throw new NoSuchElementException();
-            if ((next = (current = e).next) == null && (t = table) != null) {
-                do {} while (index < t.length && (next = t[index++]) == null);
-            }
+            if ((next = (current = e).next) == null)
+                next = nextBin();
             return e;
         }
 
@@ -1526,6 +2843,35 @@ public class HashMap<K,V> extends AbstractMap<K,V>
         public final Map.Entry<K,V> next() { return nextNode(); }
     }
 
+    final class HashCursor extends HashIterator implements Cursor<K,V> {
+        public final boolean advance() {
+            if (next == null) {
+                if (modCount != expectedModCount)
+                    throw new ConcurrentModificationException();
+                current = null;
+                return false;
+            }
+            nextNode();
+            return true;
+        }
+        public final K key()                    { return currentNode().key; }
+        public final V value()                  { return currentNode().value; }
+        public final V setValue(V value) {
+            Node<K,V> p = currentNode();
+            V oldValue = p.value;
+            p.value = value;
+            return oldValue;
+        }
+        public final void reset()               { start(); }
+
+        final Node<K,V> currentNode() {
+            Node<K,V> p;
+            if ((p = current) == null)
+                throw new IllegalStateException();
+            return p;
+        }
+    }
+
     /* ------------------------------------------------------------ */
     // spliterators
 
@@ -1551,6 +2897,8 @@ public class HashMap<K,V> extends AbstractMap<K,V>
             int hi;
             if ((hi = fence) < 0) {
                 HashMap<K,V> m = map;
+                if (m.oldTable != null)
+                    m.finishTransfer(); // bind to a single table
                 est = m.size;
                 expectedModCount = m.modCount;
                 Node<K,V>[] tab = m.table;
@@ -1585,6 +2933,8 @@ public class HashMap<K,V> extends AbstractMap<K,V>
             if (action == null)
                 throw new NullPointerException();
             HashMap<K,V> m = map;
+            if (fence < 0 && m.oldTable != null)
+                m.finishTransfer(); // bind to a single table
             Node<K,V>[] tab = m.table;
             if ((hi = fence) < 0) {
                 mc = expectedModCount = m.modCount;
@@ -1657,6 +3007,8 @@ public class HashMap<K,V> extends AbstractMap<K,V>
             if (action == null)
                 throw new NullPointerException();
             HashMap<K,V> m = map;
+            if (fence < 0 && m.oldTable != null)
+                m.finishTransfer(); // bind to a single table
             Node<K,V>[] tab = m.table;
             if ((hi = fence) < 0) {
                 mc = expectedModCount = m.modCount;
@@ -1728,6 +3080,8 @@ public class HashMap<K,V> extends AbstractMap<K,V>
             if (action == null)
                 throw new NullPointerException();
             HashMap<K,V> m = map;
+            if (fence < 0 && m.oldTable != null)
+                m.finishTransfer(); // bind to a single table
             Node<K,V>[] tab = m.table;
             if ((hi = fence) < 0) {
                 mc = expectedModCount = m.modCount;
@@ -1780,6 +3134,166 @@ public class HashMap<K,V> extends AbstractMap<K,V>
         }
     }
 
+    /* ------------------------------------------------------------ */
+    // Tasks for parallel bulk operations
+
+    /**
+     * Base class for the tasks of parallel bulk operations.  Processes
+     * bins lo (inclusive) to hi (exclusive) of tab, splitting the range
+     * in halves until at most grain bins remain, and combining the
+     * results of the halves.
+     */
+    abstract static class BinTask<K,V,R> extends RecursiveTask<R> {
+        private static final long serialVersionUID = -3285612437091785140L;
+        final Node<K,V>[] tab;
+        final int lo, hi, grain;
+
+        BinTask(Node<K,V>[] tab, int lo, int hi, int grain) {
+            this.tab = tab; this.lo = lo; this.hi = hi; this.grain = grain;
+        }
+
+        /** Returns a task of the same kind for bins lo to hi. */
+        abstract BinTask<K,V,R> subtask(int lo, int hi);
+
+        /** Processes bins lo to hi sequentially. */
+        abstract R compute(int lo, int hi);
+
+        /** Combines the results for two adjacent ranges of bins. */
+        R combine(R x, R y) { return null; }
+
+        protected final R compute() {
+            int lo = this.lo, hi = this.hi;
+            if (hi - lo <= grain)
+                return compute(lo, hi);
+            int mid = (lo + hi) >>> 1;
+            BinTask<K,V,R> right = subtask(mid, hi);
+            right.fork();
+            R r = subtask(lo, mid).compute();
+            return combine(r, right.join());
+        }
+    }
+
+    static final class ForEachTask<K,V> extends BinTask<K,V,Void> {
+        private static final long serialVersionUID = 5043170620498232951L;
+        final BiConsumer<? super K, ? super V> action;
+        ForEachTask(Node<K,V>[] tab, int lo, int hi, int grain,
+                    BiConsumer<? super K, ? super V> action) {
+            super(tab, lo, hi, grain);
+            this.action = action;
+        }
+        BinTask<K,V,Void> subtask(int lo, int hi) {
+            return new ForEachTask<K,V>(tab, lo, hi, grain, action);
+        }
+        Void compute(int lo, int hi) {
+            Node<K,V>[] tab = this.tab;
+            for (int i = lo; i < hi; ++i) {
+                for (Node<K,V> e = tab[i]; e != null; e = e.next)
+                    action.accept(e.key, e.value);
+            }
+            return null;
+        }
+    }
+
+    static final class ReplaceAllTask<K,V> extends BinTask<K,V,Void> {
+        private static final long serialVersionUID = -7423856306741452019L;
+        final BiFunction<? super K, ? super V, ? extends V> function;
+        ReplaceAllTask(Node<K,V>[] tab, int lo, int hi, int grain,
+                       BiFunction<? super K, ? super V, ? extends V> function) {
+            super(tab, lo, hi, grain);
+            this.function = function;
+        }
+        BinTask<K,V,Void> subtask(int lo, int hi) {
+            return new ReplaceAllTask<K,V>(tab, lo, hi, grain, function);
+        }
+        Void compute(int lo, int hi) {
+            Node<K,V>[] tab = this.tab;
+            for (int i = lo; i < hi; ++i) {
+                for (Node<K,V> e = tab[i]; e != null; e = e.next)
+                    e.value = function.apply(e.key, e.value);
+            }
+            return null;
+        }
+    }
+
+    static final class ReduceTask<K,V,U> extends BinTask<K,V,U> {
+        private static final long serialVersionUID = 8129573390542172436L;
+        final BiFunction<? super K, ? super V, ? extends U> transformer;
+        final BiFunction<? super U, ? super U, ? extends U> reducer;
+        ReduceTask(Node<K,V>[] tab, int lo, int hi, int grain,
+                   BiFunction<? super K, ? super V, ? extends U> transformer,
+                   BiFunction<? super U, ? super U, ? extends U> reducer) {
+            super(tab, lo, hi, grain);
+            this.transformer = transformer; this.reducer = reducer;
+        }
+        BinTask<K,V,U> subtask(int lo, int hi) {
+            return new ReduceTask<K,V,U>(tab, lo, hi, grain, transformer, reducer);
+        }
+        U compute(int lo, int hi) {
+            Node<K,V>[] tab = this.tab;
+            U r = null, u;
+            for (int i = lo; i < hi; ++i) {
+                for (Node<K,V> e = tab[i]; e != null; e = e.next) {
+                    if ((u = transformer.apply(e.key, e.value)) != null)
+                        r = (r == null) ? u : reducer.apply(r, u);
+                }
+            }
+            return r;
+        }
+        U combine(U x, U y) {
+            return (x == null) ? y : (y == null) ? x : reducer.apply(x, y);
+        }
+    }
+
+    /**
+     * Task for reduceToLong.  Like BinTask, but keeps its result in a
+     * long field rather than returning it boxed, as do the primitive
+     * reduction tasks of ConcurrentHashMap.
+     */
+    static final class ReduceToLongTask<K,V> extends RecursiveAction {
+        private static final long serialVersionUID = -1946017580133512376L;
+        final Node<K,V>[] tab;
+        final int lo, hi, grain;
+        final ToLongBiFunction<? super K, ? super V> transformer;
+        final long basis;
+        final LongBinaryOperator reducer;
+        long result;
+        ReduceToLongTask(Node<K,V>[] tab, int lo, int hi, int grain,
+                         ToLongBiFunction<? super K, ? super V> transformer,
+                         long basis, LongBinaryOperator reducer) {
+            this.tab = tab; this.lo = lo; this.hi = hi; this.grain = grain;
+            this.transformer = transformer; this.basis = basis;
+            this.reducer = reducer;
+        }
+        protected void compute() {
+            final ToLongBiFunction<? super K, ? super V> transformer =
+                this.transformer;
+            final LongBinaryOperator reducer = this.reducer;
+            int lo = this.lo, hi = this.hi;
+            if (hi - lo > grain) {
+                int mid = (lo + hi) >>> 1;
+                ReduceToLongTask<K,V> right =
+                    new ReduceToLongTask<K,V>(tab, mid, hi, grain,
+                                              transformer, basis, reducer);
+                ReduceToLongTask<K,V> left =
+                    new ReduceToLongTask<K,V>(tab, lo, mid, grain,
+                                              transformer, basis, reducer);
+                right.fork();
+                left.compute();
+                right.join();
+                result = reducer.applyAsLong(left.result, right.result);
+            }
+            else {
+                Node<K,V>[] tab = this.tab;
+                long r = basis;
+                for (int i = lo; i < hi; ++i) {
+                    for (Node<K,V> e = tab[i]; e != null; e = e.next)
+                        r = reducer.applyAsLong(r, transformer.applyAsLong(e.key, e.value));
+                }
+                result = r;
+            }
+        }
+    }
+
     /* ------------------------------------------------------------ */
     // LinkedHashMap support
 
@@ -1812,11 +3326,26 @@ public class HashMap<K,V> extends AbstractMap<K,V>
         return new TreeNode<>(p.hash, p.key, p.value, next);
     }
 
+    // Whether putAllBulk may create nodes out of order, concurrently,
+    // and without calling afterNodeInsertion
+    boolean supportsBulkLoad() {
+        return true;
+    }
+
+    // Whether treeifyBin may replace nodes by TreeNodes, which would
+    // drop the fields of node subclasses
+    boolean supportsTreeBins() {
+        return true;
+    }
+
     /**
      * Reset to initial default state.  Called by clone and readObject.
      */
     void reinitialize() {
         table = null;
+        oldTable = null;
+        transferIndex = 0;
+        statsCounter = null;
         entrySet = null;
         keySet = null;
         values = null;
@@ -1825,19 +3354,22 @@ public class HashMap<K,V> extends AbstractMap<K,V>
         size = 0;
     }
 
-    // Callbacks to allow LinkedHashMap post-actions
+    // Callbacks to allow LinkedHashMap pre- and post-actions
+    boolean isExpired(Node<K,V> p) { return false; }
     void afterNodeAccess(Node<K,V> p) { }
+    void afterNodeWrite(Node<K,V> p) { }
     void afterNodeInsertion(boolean evict) { }
     void afterNodeRemoval(Node<K,V> p) { }
 
     // Called only from writeObject, to ensure compatible ordering.
     void internalWriteEntries(java.io.ObjectOutputStream s) throws IOException {
-        Node<K,V>[] tab;
-        if (size > 0 && (tab = table) != null) {
-            for (Node<K,V> e : tab) {
-                for (; e != null; e = e.next) {
-                    s.writeObject(e.key);
-                    s.writeObject(e.value);
+        if (size > 0) {
+            for (Node<K,V>[] tab = firstTable(); tab != null; tab = nextTable(tab)) {
+                for (Node<K,V> e : tab) {
+                    for (; e != null; e = e.next) {
+                        s.writeObject(e.key);
+                        s.writeObject(e.value);
+                    }
                 }
             }
         }
@@ -98,6 +98,21 @@ public class HashSet<E>
     // Dummy value to associate with an Object in the backing Map
     private static final Object PRESENT = new Object();
 
+    /**
+     * The modes of the backing map, written as fields in place of the
+     * map itself, which is transient.
+     *
+     * @serialField incrementalResize boolean
+     *              whether the backing map resizes incrementally
+     * @serialField randomizedHashing boolean
+     *              whether the backing map hashes elements with a seed
+     *              private to it
+     */
+    private static final java.io.ObjectStreamField[] serialPersistentFields = {
+        new java.io.ObjectStreamField("incrementalResize", Boolean.TYPE),
+        new java.io.ObjectStreamField("randomizedHashing", Boolean.TYPE)
+    };
+
     /**
      * Constructs a new, empty set; the backing {@code HashMap} instance has
      * default initial capacity (16) and load factor (0.75).
@@ -145,6 +160,30 @@ public class HashSet<E>
         map = new HashMap<>(initialCapacity);
     }
 
+    /**
+     * Constructs a new, empty set; the backing {@code HashMap} instance has
+     * the specified initial capacity, load factor, resizing mode and
+     * hashing mode (see {@link HashMap#HashMap(int, float, boolean, boolean)
+     * HashMap}).  Both modes are preserved by serialization; a set with
+     * randomized hashing that is reconstituted by deserialization draws
+     * a new seed.
+     *
+     * @param      initialCapacity   the initial capacity of the hash map
+     * @param      loadFactor        the load factor of the hash map
+     * @param      incrementalResize {@code true} to spread the cost of
+     *             each resize of the hash map over subsequent operations
+     * @param      randomizedHashing {@code true} to hash elements with a
+     *             seed private to this set
+     * @throws     IllegalArgumentException if the initial capacity is less
+     *             than zero, or if the load factor is nonpositive
+     * @since 11
+     */
+    public HashSet(int initialCapacity, float loadFactor,
+                   boolean incrementalResize, boolean randomizedHashing) {
+        map = new HashMap<>(initialCapacity, loadFactor,
+                            incrementalResize, randomizedHashing);
+    }
+
     /**
      * Constructs a new, empty linked hash set.  (This package private
      * constructor is only used by LinkedHashSet.) The backing
@@ -273,8 +312,11 @@ public class HashSet<E>
      */
     private void writeObject(java.io.ObjectOutputStream s)
         throws java.io.IOException {
-        // Write out any hidden serialization magic
-        s.defaultWriteObject();
+        // Write out the modes of the backing map
+        java.io.ObjectOutputStream.PutField fields = s.putFields();
+        fields.put("incrementalResize", map.incrementalResize);
+        fields.put("randomizedHashing", map.randomizedHashing);
+        s.writeFields();
 
         // Write out HashMap capacity and load factor
         s.writeInt(map.capacity());
@@ -294,8 +336,11 @@ public class HashSet<E>
      */
     private void readObject(java.io.ObjectInputStream s)
         throws java.io.IOException, ClassNotFoundException {
-        // Read in any hidden serialization magic
-        s.defaultReadObject();
+        // Read in the modes of the backing map, absent from streams
+        // written before Java 11
+        java.io.ObjectInputStream.GetField fields = s.readFields();
+        boolean incrementalResize = fields.get("incrementalResize", false);
+        boolean randomizedHashing = fields.get("randomizedHashing", false);
 
         // Read capacity and verify non-negative.
         int capacity = s.readInt();
@@ -332,8 +377,10 @@ public class HashSet<E>
 
         // Create backing HashMap
         map = (((HashSet<?>)this) instanceof LinkedHashSet ?
-               new LinkedHashMap<>(capacity, loadFactor) :
-               new HashMap<>(capacity, loadFactor));
+               new LinkedHashMap<>(capacity, loadFactor, false,
+                                   randomizedHashing) :
+               new HashMap<>(capacity, loadFactor,
+                             incrementalResize, randomizedHashing));
 
         // Read in all elements in the proper order.
         for (int i=0; i<size; i++) {
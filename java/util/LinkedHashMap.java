@@ -25,6 +25,7 @@
 
 package java.util;
 
+import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 import java.util.function.BiConsumer;
 import java.util.function.BiFunction;
@@ -78,6 +79,29 @@ import java.io.IOException;
  * impose a policy for removing stale mappings automatically when new mappings
  * are added to the map.
  *
+ * <p>Alternatively, or in addition, a map constructed with {@link
+ * #LinkedHashMap(int, float, boolean, long, long, TimeUnit)} removes
+ * mappings a fixed time after they were last written, or last accessed.
+ * Expired mappings are removed lazily: a lookup of an expired mapping by
+ * any method taking a key, such as {@code get}, {@code containsKey},
+ * {@code putIfAbsent} or {@code merge}, removes it and treats it as
+ * absent, and each insertion of a new mapping, as well as each
+ * call to {@link #expireEntries}, removes the mappings that have expired
+ * since the last such removal.  These batches are found with a
+ * hierarchical timing wheel, so their cost is proportional to the number of
+ * mappings removed rather than the size of the map.  Until removed, expired
+ * mappings are still counted by {@code size} and visited by iteration.
+ *
+ * <p>A map constructed with {@link #LinkedHashMap(int, float, int)} is
+ * ordered by a <i>segmented LRU</i> policy, which protects frequently used
+ * mappings from being flushed by a scan of mappings used only once.  Its
+ * entries are divided into a <i>probation</i> segment, which receives new
+ * mappings, and a <i>protected</i> segment of bounded size, to which a
+ * mapping is promoted when it is accessed.  Each segment is kept in access
+ * order, and iteration visits the probation segment first, so that the
+ * eldest entry offered to {@link #removeEldestEntry(Map.Entry, boolean)}
+ * is the least recently used entry on probation, if there is any.
+ *
  * <p>This class provides all of the optional {@code Map} operations, and
  * permits null elements.  Like {@code HashMap}, it provides constant-time
  * performance for the basic operations ({@code add}, {@code contains} and
@@ -191,11 +215,26 @@ public class LinkedHashMap<K,V>
      */
     static class Entry<K,V> extends HashMap.Node<K,V> {
         Entry<K,V> before, after;
+        boolean promoted; // in the protected segment of a segmented LRU map
         Entry(int hash, K key, V value, Node<K,V> next) {
             super(hash, key, value, next);
         }
     }
 
+    /**
+     * Entry subclass for maps with expiry, also linked into a bucket of
+     * the timing wheel.  Bucket sentinels are TimedEntries linked to
+     * themselves.
+     */
+    static final class TimedEntry<K,V> extends LinkedHashMap.Entry<K,V> {
+        long expiresAt;           // System.nanoTime() at which to expire
+        long writeExpiresAt;      // expiresAt as of the last write
+        TimedEntry<K,V> prevTimer, nextTimer; // null unless scheduled
+        TimedEntry(int hash, K key, V value, Node<K,V> next) {
+            super(hash, key, value, next);
+        }
+    }
+
     private static final long serialVersionUID = 3801124242820219131L;
 
     /**
@@ -216,11 +255,63 @@ public class LinkedHashMap<K,V>
      */
     final boolean accessOrder;
 
+    /**
+     * The time after which mappings expire once written, in nanoseconds,
+     * or zero if they do not.
+     *
+     * @serial
+     */
+    final long expireAfterWriteNanos;
+
+    /**
+     * The time after which mappings expire once accessed, in nanoseconds,
+     * or zero if they do not.
+     *
+     * @serial
+     */
+    final long expireAfterAccessNanos;
+
+    /**
+     * The timing wheel scheduling expiry, or null if mappings do not
+     * expire.
+     */
+    transient TimerWheel timerWheel;
+
+    /**
+     * The maximum number of entries in the protected segment of a
+     * segmented LRU map, or zero if this map is not one.
+     *
+     * @serial
+     */
+    final int protectedCapacity;
+
+    /**
+     * The eldest entry of the protected segment, which follows all the
+     * entries on probation, or null if the segment is empty.
+     */
+    transient LinkedHashMap.Entry<K,V> protectedHead;
+
+    /**
+     * The number of entries in the protected segment.
+     */
+    transient int protectedSize;
+
     // internal utilities
 
-    // link at the end of list
-    private void linkNodeLast(LinkedHashMap.Entry<K,V> p) {
-        LinkedHashMap.Entry<K,V> last = tail;
+    // link at the end of list, or of the probation segment
+    final void linkNodeLast(LinkedHashMap.Entry<K,V> p) {
+        LinkedHashMap.Entry<K,V> last = tail, ph;
+        if ((ph = protectedHead) != null) {
+            LinkedHashMap.Entry<K,V> b = ph.before;
+            p.before = b;
+            p.after = ph;
+            ph.before = p;
+            if (b == null)
+                head = p;
+            else
+                b.after = p;
+            return;
+        }
         tail = p;
         if (last == null)
             head = p;
@@ -235,6 +326,9 @@ public class LinkedHashMap<K,V>
                                LinkedHashMap.Entry<K,V> dst) {
         LinkedHashMap.Entry<K,V> b = dst.before = src.before;
         LinkedHashMap.Entry<K,V> a = dst.after = src.after;
+        dst.promoted = src.promoted;
+        if (protectedHead == src)
+            protectedHead = dst;
         if (b == null)
             head = dst;
         else
@@ -249,12 +343,30 @@ public class LinkedHashMap<K,V>
 
     void reinitialize() {
         super.reinitialize();
-        head = tail = null;
+        head = tail = protectedHead = null;
+        protectedSize = 0;
+        timerWheel = newTimerWheel();
+    }
+
+    boolean supportsBulkLoad() {
+        return false;
+    }
+
+    boolean supportsTreeBins() {
+        return timerWheel == null;
     }
 
     Node<K,V> newNode(int hash, K key, V value, Node<K,V> e) {
-        LinkedHashMap.Entry<K,V> p =
-            new LinkedHashMap.Entry<>(hash, key, value, e);
+        LinkedHashMap.Entry<K,V> p;
+        TimerWheel w;
+        if ((w = timerWheel) == null)
+            p = new LinkedHashMap.Entry<>(hash, key, value, e);
+        else {
+            TimedEntry<K,V> t = new TimedEntry<>(hash, key, value, e);
+            setExpiry(t, System.nanoTime(), true);
+            w.schedule(t);
+            p = t;
+        }
         linkNodeLast(p);
         return p;
     }
@@ -283,6 +395,13 @@ public class LinkedHashMap<K,V>
     void afterNodeRemoval(Node<K,V> e) { // unlink
         LinkedHashMap.Entry<K,V> p =
             (LinkedHashMap.Entry<K,V>)e, b = p.before, a = p.after;
+        if (timerWheel != null)
+            unlinkTimer((TimedEntry<K,V>)e);
+        if (p.promoted) {
+            --protectedSize;
+            if (p == protectedHead)
+                protectedHead = a;
+        }
         p.before = p.after = null;
         if (b == null)
             head = a;
@@ -296,15 +415,53 @@ public class LinkedHashMap<K,V>
 
     void afterNodeInsertion(boolean evict) { // possibly remove eldest
         LinkedHashMap.Entry<K,V> first;
-        if (evict && (first = head) != null && removeEldestEntry(first)) {
+        TimerWheel w;
+        if ((w = timerWheel) != null)
+            w.advance(System.nanoTime());
+        if (evict && (first = head) != null &&
+            removeEldestEntry(first, first.promoted)) {
             K key = first.key;
-            removeNode(hash(key), key, null, false, true);
+            removeNode(keyHash(key), key, null, false, true);
         }
     }
 
+    boolean isExpired(Node<K,V> e) {
+        return timerWheel != null &&
+            ((TimedEntry<K,V>)e).expiresAt - System.nanoTime() <= 0L;
+    }
+
     void afterNodeAccess(Node<K,V> e) { // move node to last
+        TimerWheel w;
+        if ((w = timerWheel) != null && expireAfterAccessNanos != 0L) {
+            TimedEntry<K,V> t = (TimedEntry<K,V>)e;
+            setExpiry(t, System.nanoTime(), false);
+            w.reschedule(t);
+        }
+        if (accessOrder)
+            moveToLast(e);
+    }
+
+    void afterNodeWrite(Node<K,V> e) { // renew expiry, move node to last
+        TimerWheel w;
+        if ((w = timerWheel) != null) {
+            TimedEntry<K,V> t = (TimedEntry<K,V>)e;
+            setExpiry(t, System.nanoTime(), true);
+            w.reschedule(t);
+        }
+        if (accessOrder)
+            moveToLast(e);
+    }
+
+    void moveToLast(Node<K,V> e) {
+        if (protectedCapacity != 0)
+            promote((LinkedHashMap.Entry<K,V>)e);
+        else
+            relinkLast(e);
+    }
+
+    private void relinkLast(Node<K,V> e) {
         LinkedHashMap.Entry<K,V> last;
-        if (accessOrder && (last = tail) != e) {
+        if ((last = tail) != e) {
             LinkedHashMap.Entry<K,V> p =
                 (LinkedHashMap.Entry<K,V>)e, b = p.before, a = p.after;
             p.after = null;
@@ -327,6 +484,30 @@ public class LinkedHashMap<K,V>
         }
     }
 
+    /**
+     * Records an access to an entry of a segmented LRU map, moving it
+     * to the tail of the protected segment, and demoting the eldest
+     * protected entries, which lie just after the probation segment, to
+     * the tail of that segment while the protected one is too large.
+     */
+    private void promote(LinkedHashMap.Entry<K,V> p) {
+        if (!p.promoted) {
+            p.promoted = true;
+            if (protectedHead == null)
+                protectedHead = p;
+            ++protectedSize;
+        }
+        else if (p == protectedHead && p != tail)
+            protectedHead = p.after;
+        relinkLast(p);
+        while (protectedSize > protectedCapacity) {
+            LinkedHashMap.Entry<K,V> d = protectedHead;
+            d.promoted = false;
+            protectedHead = d.after;
+            --protectedSize;
+        }
+    }
+
     void internalWriteEntries(java.io.ObjectOutputStream s) throws IOException {
         for (LinkedHashMap.Entry<K,V> e = head; e != null; e = e.after) {
             s.writeObject(e.key);
@@ -334,6 +515,222 @@ public class LinkedHashMap<K,V>
         }
     }
 
+    /**
+     * Reconstitutes this map from a stream (that is, deserializes it).
+     * HashMap.readObject has already read the mappings, but before the
+     * fields of this class, so for a map with expiry the entries it
+     * created are replaced by timed ones.
+     */
+    private void readObject(java.io.ObjectInputStream s)
+        throws IOException, ClassNotFoundException {
+        s.defaultReadObject();
+        if (expireAfterWriteNanos < 0L || expireAfterAccessNanos < 0L)
+            throw new java.io.InvalidObjectException("Illegal expiry time");
+        if (protectedCapacity < 0)
+            throw new java.io.InvalidObjectException("Illegal protected capacity");
+        if (newTimerWheel() != null) {
+            LinkedHashMap.Entry<K,V> e = head;
+            reinitialize();
+            for (; e != null; e = e.after)
+                putVal(e.hash, e.key, e.value, false, false);
+        }
+    }
+
+    // expiry
+
+    /*
+     * The timing wheel has a level of buckets for each of several
+     * spans of time; WHEEL_SPANS[i] is the span covered by one bucket
+     * of level i, about one second, minute, hour and day, and the last
+     * level is a single bucket for all later times.  An entry is kept
+     * in the bucket of the lowest level whose buckets, together,
+     * cover the time from the wheel's current time to its expiry.
+     * When the wheel is advanced, the buckets of each level it has
+     * moved through are emptied, removing the entries that have
+     * expired and rescheduling the others, which thereby cascade to
+     * lower levels as their time approaches.  Scheduling is thus
+     * constant time, and each advance takes time proportional to the
+     * entries removed plus those cascaded.
+     */
+
+    /** The number of buckets in each level of a timing wheel. */
+    static final int[] WHEEL_BUCKETS = { 64, 64, 32, 4, 1 };
+
+    /** The span of a bucket of each level, ending with the total span. */
+    static final long[] WHEEL_SPANS = {
+        1L << 30,                      // 1.07s
+        1L << 36,                      // 1.14m
+        1L << 42,                      // 1.22h
+        1L << 47,                      // 1.63d
+        WHEEL_BUCKETS[3] * (1L << 47), // 6.5d
+        WHEEL_BUCKETS[3] * (1L << 47)  // 6.5d
+    };
+
+    /** log2 of the span of a bucket of each level. */
+    static final long[] WHEEL_SHIFTS = { 30, 36, 42, 47, 49 };
+
+    /**
+     * Returns a new timing wheel if mappings expire, else null.
+     */
+    final TimerWheel newTimerWheel() {
+        return (expireAfterWriteNanos != 0L || expireAfterAccessNanos != 0L)
+            ? new TimerWheel(System.nanoTime()) : null;
+    }
+
+    /**
+     * Sets the expiry time of an entry read or written at the given
+     * time.  The entry must be rescheduled afterwards if it already
+     * was scheduled.
+     */
+    final void setExpiry(TimedEntry<K,V> e, long now, boolean write) {
+        long ttl = expireAfterWriteNanos, tti = expireAfterAccessNanos;
+        if (write && ttl != 0L)
+            e.writeExpiresAt = now + ttl;
+        long t = (tti != 0L) ? now + tti : e.writeExpiresAt;
+        if (ttl != 0L && e.writeExpiresAt - t < 0L)
+            t = e.writeExpiresAt;
+        e.expiresAt = t;
+    }
+
+    /**
+     * Handles a read of an entry of a map with expiry, removing it if
+     * it has expired.
+     *
+     * @return false if the entry has expired
+     */
+    final boolean afterTimedRead(Node<K,V> e) {
+        TimedEntry<K,V> t = (TimedEntry<K,V>)e;
+        long now = System.nanoTime();
+        if (t.expiresAt - now <= 0L) {
+            removeNode(t.hash, t.key, null, false, true);
+            return false;
+        }
+        if (expireAfterAccessNanos != 0L) {
+            setExpiry(t, now, false);
+            timerWheel.reschedule(t);
+        }
+        return true;
+    }
+
+    /**
+     * Removes an entry from its bucket of the timing wheel, if any.
+     */
+    static <K,V> void unlinkTimer(TimedEntry<K,V> e) {
+        TimedEntry<K,V> p = e.prevTimer, n = e.nextTimer;
+        if (n != null) {
+            p.nextTimer = n;
+            n.prevTimer = p;
+            e.prevTimer = e.nextTimer = null;
+        }
+    }
+
+    /**
+     * A hierarchical timing wheel of entries.  Each bucket is a
+     * circular list of entries linked through prevTimer and nextTimer
+     * to a sentinel.
+     */
+    final class TimerWheel {
+        final TimedEntry<K,V>[][] wheel;
+        long nanos; // the time of the last advance
+
+        @SuppressWarnings({"rawtypes","unchecked"})
+        TimerWheel(long now) {
+            nanos = now;
+            TimedEntry<K,V>[][] w =
+                (TimedEntry<K,V>[][])new TimedEntry[WHEEL_BUCKETS.length][];
+            for (int i = 0; i < w.length; ++i) {
+                w[i] = (TimedEntry<K,V>[])new TimedEntry[WHEEL_BUCKETS[i]];
+                for (int j = 0; j < w[i].length; ++j) {
+                    TimedEntry<K,V> s = new TimedEntry<>(0, null, null, null);
+                    s.prevTimer = s.nextTimer = s;
+                    w[i][j] = s;
+                }
+            }
+            wheel = w;
+        }
+
+        /**
+         * Adds an unscheduled entry to the bucket for its expiry time.
+         */
+        void schedule(TimedEntry<K,V> e) {
+            TimedEntry<K,V> s = bucketFor(e.expiresAt), last = s.prevTimer;
+            e.prevTimer = last;
+            e.nextTimer = s;
+            last.nextTimer = e;
+            s.prevTimer = e;
+        }
+
+        /**
+         * Moves an entry to the bucket for its current expiry time.
+         */
+        void reschedule(TimedEntry<K,V> e) {
+            unlinkTimer(e);
+            schedule(e);
+        }
+
+        /**
+         * Returns the sentinel of the bucket for the given time.
+         */
+        TimedEntry<K,V> bucketFor(long time) {
+            long duration = time - nanos;
+            int last = wheel.length - 1;
+            for (int i = 0; i < last; ++i) {
+                if (duration < WHEEL_SPANS[i + 1]) {
+                    long ticks = time >>> WHEEL_SHIFTS[i];
+                    return wheel[i][(int)ticks & (wheel[i].length - 1)];
+                }
+            }
+            return wheel[last][0];
+        }
+
+        /**
+         * Advances the wheel to the given time, removing the entries of
+         * the map that have expired.
+         *
+         * @return the number of entries removed
+         */
+        int advance(long now) {
+            long previous = nanos;
+            int removed = 0;
+            nanos = now;
+            for (int i = 0; i < WHEEL_SHIFTS.length; ++i) {
+                long previousTicks = previous >>> WHEEL_SHIFTS[i];
+                long delta = (now >>> WHEEL_SHIFTS[i]) - previousTicks;
+                if (delta <= 0L)
+                    break;
+                removed += expire(i, previousTicks, delta);
+            }
+            return removed;
+        }
+
+        /**
+         * Empties the buckets of a level from that of the given ticks
+         * on, for the given number of ticks and the current one.
+         */
+        int expire(int level, long previousTicks, long delta) {
+            TimedEntry<K,V>[] buckets = wheel[level];
+            int mask = buckets.length - 1, removed = 0;
+            int start = (int)previousTicks & mask;
+            int end = start + (int)Math.min(delta + 1L, buckets.length);
+            for (int i = start; i < end; ++i) {
+                TimedEntry<K,V> s = buckets[i & mask], e = s.nextTimer;
+                s.prevTimer = s.nextTimer = s;
+                while (e != s) {
+                    TimedEntry<K,V> next = e.nextTimer;
+                    e.prevTimer = e.nextTimer = null;
+                    if (e.expiresAt - nanos <= 0L) {
+                        removeNode(e.hash, e.key, null, false, false);
+                        ++removed;
+                    }
+                    else
+                        schedule(e);
+                    e = next;
+                }
+            }
+            return removed;
+        }
+    }
+
     /**
      * Constructs an empty insertion-ordered {@code LinkedHashMap} instance
      * with the specified initial capacity and load factor.
@@ -346,6 +743,8 @@ public class LinkedHashMap<K,V>
     public LinkedHashMap(int initialCapacity, float loadFactor) {
         super(initialCapacity, loadFactor);
         accessOrder = false;
+        expireAfterWriteNanos = expireAfterAccessNanos = 0L;
+        protectedCapacity = 0;
     }
 
     /**
@@ -358,6 +757,8 @@ public class LinkedHashMap<K,V>
     public LinkedHashMap(int initialCapacity) {
         super(initialCapacity);
         accessOrder = false;
+        expireAfterWriteNanos = expireAfterAccessNanos = 0L;
+        protectedCapacity = 0;
     }
 
     /**
@@ -367,6 +768,8 @@ public class LinkedHashMap<K,V>
     public LinkedHashMap() {
         super();
         accessOrder = false;
+        expireAfterWriteNanos = expireAfterAccessNanos = 0L;
+        protectedCapacity = 0;
     }
 
     /**
@@ -381,6 +784,8 @@ public class LinkedHashMap<K,V>
     public LinkedHashMap(Map<? extends K, ? extends V> m) {
         super();
         accessOrder = false;
+        expireAfterWriteNanos = expireAfterAccessNanos = 0L;
+        protectedCapacity = 0;
         putMapEntries(m, false);
     }
 
@@ -400,6 +805,131 @@ public class LinkedHashMap<K,V>
                          boolean accessOrder) {
         super(initialCapacity, loadFactor);
         this.accessOrder = accessOrder;
+        expireAfterWriteNanos = expireAfterAccessNanos = 0L;
+        protectedCapacity = 0;
+    }
+
+    /**
+     * Constructs an empty {@code LinkedHashMap} instance with the
+     * specified initial capacity, load factor, ordering mode and hashing
+     * mode.  Randomized hashing changes only how keys are placed in the
+     * hash table, not the iteration order; see {@link
+     * HashMap#HashMap(int, float, boolean, boolean) HashMap}.
+     *
+     * @param  initialCapacity   the initial capacity
+     * @param  loadFactor        the load factor
+     * @param  accessOrder       the ordering mode - {@code true} for
+     *         access-order, {@code false} for insertion-order
+     * @param  randomizedHashing {@code true} to hash keys with a seed
+     *         private to this map
+     * @throws IllegalArgumentException if the initial capacity is negative
+     *         or the load factor is nonpositive
+     * @since 11
+     */
+    public LinkedHashMap(int initialCapacity,
+                         float loadFactor,
+                         boolean accessOrder,
+                         boolean randomizedHashing) {
+        super(initialCapacity, loadFactor, false, randomizedHashing);
+        this.accessOrder = accessOrder;
+        expireAfterWriteNanos = expireAfterAccessNanos = 0L;
+        protectedCapacity = 0;
+    }
+
+    /**
+     * Constructs an empty {@code LinkedHashMap} instance with the
+     * specified initial capacity, load factor, ordering mode and expiry
+     * times.  A mapping expires once the given time has elapsed since it
+     * was last written, or since it was last read or written, whichever
+     * comes first; either time may be zero, in which case mappings do not
+     * expire on that account.
+     *
+     * <p>A mapping is written when it is created, and when its value is
+     * set by one of the map's methods, such as {@code put}, {@code replace},
+     * {@code compute}, or {@code merge}.  A mapping is read by the methods
+     * {@code get} and {@code getOrDefault}, and by methods that may set its
+     * value but leave it unchanged, such as {@code putIfAbsent} and {@code
+     * computeIfAbsent} when the key is present.  Setting the value of an
+     * entry of the {@link #entrySet entrySet} neither reads nor writes the
+     * mapping.
+     *
+     * <p>Maps with expiry never convert bins to trees, so the performance
+     * of a map holding many keys with colliding hash codes degrades as for
+     * a {@code HashMap} before Java 8.  A copy made by {@code clone} or by
+     * deserialization expires its mappings as if they were all written
+     * when the copy was made.
+     *
+     * @param  initialCapacity   the initial capacity
+     * @param  loadFactor        the load factor
+     * @param  accessOrder       the ordering mode - {@code true} for
+     *         access-order, {@code false} for insertion-order
+     * @param  expireAfterWrite  the time after which a mapping expires once
+     *         written, or zero
+     * @param  expireAfterAccess the time after which a mapping expires once
+     *         read or written, or zero
+     * @param  unit              the unit of the expiry times
+     * @throws IllegalArgumentException if the initial capacity is negative,
+     *         the load factor is nonpositive, or either expiry time is
+     *         negative
+     * @throws NullPointerException if the unit is null
+     * @see #expireEntries
+     * @since 11
+     */
+    public LinkedHashMap(int initialCapacity,
+                         float loadFactor,
+                         boolean accessOrder,
+                         long expireAfterWrite,
+                         long expireAfterAccess,
+                         TimeUnit unit) {
+        super(initialCapacity, loadFactor);
+        if (expireAfterWrite < 0L || expireAfterAccess < 0L)
+            throw new IllegalArgumentException("Illegal expiry time: " +
+                                               Math.min(expireAfterWrite,
+                                                        expireAfterAccess));
+        this.accessOrder = accessOrder;
+        this.expireAfterWriteNanos = unit.toNanos(expireAfterWrite);
+        this.expireAfterAccessNanos = unit.toNanos(expireAfterAccess);
+        this.protectedCapacity = 0;
+        this.timerWheel = newTimerWheel();
+    }
+
+    /**
+     * Constructs an empty segmented LRU {@code LinkedHashMap} instance
+     * with the specified initial capacity, load factor and capacity of
+     * the protected segment.  New mappings are put on probation, and are
+     * promoted to the protected segment when next accessed, or accessed
+     * again if already protected, by {@code get}, {@code getOrDefault},
+     * or a write to an existing mapping, as for an access-ordered map.
+     * When the protected segment grows beyond its capacity, its least
+     * recently used entries are demoted to become the most recently used
+     * ones on probation.
+     *
+     * <p>The map itself is not bounded; typically {@link
+     * #removeEldestEntry(Map.Entry) removeEldestEntry} is overridden to
+     * bound it, with the protected capacity set to a large fraction of
+     * that bound, such as 80%.  Which segment an entry belongs to is not
+     * preserved by {@code clone} or serialization, whose copies put all
+     * entries on probation.
+     *
+     * @param  initialCapacity   the initial capacity
+     * @param  loadFactor        the load factor
+     * @param  protectedCapacity the maximum number of entries in the
+     *         protected segment
+     * @throws IllegalArgumentException if the initial capacity is negative,
+     *         the load factor is nonpositive, or the protected capacity is
+     *         not positive
+     * @since 11
+     */
+    public LinkedHashMap(int initialCapacity,
+                         float loadFactor,
+                         int protectedCapacity) {
+        super(initialCapacity, loadFactor);
+        if (protectedCapacity <= 0)
+            throw new IllegalArgumentException("Illegal protected capacity: " +
+                                               protectedCapacity);
+        this.accessOrder = true;
+        this.expireAfterWriteNanos = this.expireAfterAccessNanos = 0L;
+        this.protectedCapacity = protectedCapacity;
     }
 
 
@@ -437,10 +967,11 @@ public class LinkedHashMap<K,V>
      */
     public V get(Object key) {
         Node<K,V> e;
-        if ((e = getNode(hash(key), key)) == null)
+        if ((e = getNode(keyHash(key), key)) == null ||
+            (timerWheel != null && !afterTimedRead(e)))
             return null;
         if (accessOrder)
-            afterNodeAccess(e);
+            moveToLast(e);
         return e.value;
     }
 
@@ -449,19 +980,48 @@ public class LinkedHashMap<K,V>
      */
     public V getOrDefault(Object key, V defaultValue) {
        Node<K,V> e;
-       if ((e = getNode(hash(key), key)) == null)
+       if ((e = getNode(keyHash(key), key)) == null ||
+           (timerWheel != null && !afterTimedRead(e)))
            return defaultValue;
        if (accessOrder)
-           afterNodeAccess(e);
+           moveToLast(e);
        return e.value;
    }
 
+    /**
+     * {@inheritDoc}
+     */
+    public boolean containsKey(Object key) {
+        return getLiveNode(keyHash(key), key) != null;
+    }
+
     /**
      * {@inheritDoc}
      */
     public void clear() {
         super.clear();
-        head = tail = null;
+        head = tail = protectedHead = null;
+        protectedSize = 0;
+        timerWheel = newTimerWheel();
+    }
+
+    /**
+     * Removes all mappings that have expired.  Mappings are otherwise
+     * removed only when looked up or when new mappings are inserted, so
+     * this method may be called periodically, for instance by a {@link
+     * java.util.concurrent.ScheduledExecutorService}, to bound how long
+     * expired mappings are retained by a map that is rarely updated.
+     * Like insertions, it takes time proportional to the number of
+     * mappings removed, but may leave mappings that expired within the
+     * last second in place.  If mappings do not expire, this method
+     * does nothing.
+     *
+     * @return the number of mappings removed
+     * @since 11
+     */
+    public int expireEntries() {
+        TimerWheel w;
+        return ((w = timerWheel) == null) ? 0 : w.advance(System.nanoTime());
     }
 
     /**
@@ -509,6 +1069,33 @@ public class LinkedHashMap<K,V>
         return false;
     }
 
+    /**
+     * Returns {@code true} if this map should remove its eldest entry,
+     * given the segment of a segmented LRU map that the entry belongs to.
+     * This method is invoked in place of {@link
+     * #removeEldestEntry(Map.Entry)}, whose contract it shares, and which
+     * it invokes by default.  It may be overridden by implementations
+     * that treat victims differently depending on whether they were ever
+     * used again after being added, such as to count evictions from each
+     * segment.
+     *
+     * @param    eldest the least recently inserted entry in the map, or
+     *           for an access-ordered or segmented LRU map, the least
+     *           recently accessed entry on probation if any, else the
+     *           least recently accessed entry
+     * @param    protectedSegment {@code true} if the eldest entry is in
+     *           the protected segment of a segmented LRU map, which only
+     *           happens when the probation segment is empty
+     * @return   {@code true} if the eldest entry should be removed
+     *           from the map; {@code false} if it should be retained.
+     * @see #LinkedHashMap(int, float, int)
+     * @since 11
+     */
+    protected boolean removeEldestEntry(Map.Entry<K,V> eldest,
+                                        boolean protectedSegment) {
+        return removeEldestEntry(eldest);
+    }
+
     /**
      * Returns a {@link Set} view of the keys contained in this map.
      * The set is backed by the map, so changes to the map are
@@ -544,7 +1131,7 @@ public class LinkedHashMap<K,V>
         }
         public final boolean contains(Object o) { return containsKey(o); }
         public final boolean remove(Object key) {
-            return removeNode(hash(key), key, null, false, true) != null;
+            return removeNode(keyHash(key), key, null, false, true) != null;
         }
         public final Spliterator<K> spliterator()  {
             return Spliterators.spliterator(this, Spliterator.SIZED |
@@ -646,7 +1233,7 @@ public class LinkedHashMap<K,V>
                 return false;
             Map.Entry<?,?> e = (Map.Entry<?,?>) o;
             Object key = e.getKey();
-            Node<K,V> candidate = getNode(hash(key), key);
+            Node<K,V> candidate = getNode(keyHash(key), key);
             return candidate != null && candidate.equals(e);
         }
         public final boolean remove(Object o) {
@@ -654,7 +1241,7 @@ public class LinkedHashMap<K,V>
                 Map.Entry<?,?> e = (Map.Entry<?,?>) o;
                 Object key = e.getKey();
                 Object value = e.getValue();
-                return removeNode(hash(key), key, value, true, true) != null;
+                return removeNode(keyHash(key), key, value, true, true) != null;
             }
             return false;
         }
@@ -696,6 +1283,39 @@ public class LinkedHashMap<K,V>
             throw new ConcurrentModificationException();
     }
 
+    /**
+     * {@inheritDoc}
+     *
+     * <p>The mappings are visited in the order of iteration of this map,
+     * following the links between entries rather than the bins of the
+     * table.  Visiting a mapping does not count as an access to it, so
+     * it neither reorders an access-ordered map nor delays the expiry
+     * of the mapping; as for iteration, mappings that have expired but
+     * have not yet been removed are visited.
+     *
+     * @throws NullPointerException {@inheritDoc}
+     * @since 11
+     */
+    public void forEachUnchecked(Consumer<? super Map.Entry<K,V>> action) {
+        if (action == null)
+            throw new NullPointerException();
+        for (LinkedHashMap.Entry<K,V> e = head; e != null; e = e.after)
+            action.accept(e);
+    }
+
+    /**
+     * Returns a new cursor over the mappings in this map, positioned
+     * before the first mapping.  The cursor visits the mappings in the
+     * order of iteration of this map, following the links between
+     * entries rather than the bins of the table.
+     *
+     * @return a cursor over the mappings in this map
+     * @since 11
+     */
+    public Cursor<K,V> cursor() {
+        return new LinkedHashCursor();
+    }
+
     // Iterators
 
     abstract class LinkedHashIterator {
@@ -704,6 +1324,10 @@ public class LinkedHashMap<K,V>
         int expectedModCount;
 
         LinkedHashIterator() {
+            start();
+        }
+
+        final void start() {
             next = head;
             expectedModCount = modCount;
             current = null;
@@ -751,5 +1375,35 @@ public class LinkedHashMap<K,V>
         public final Map.Entry<K,V> next() { return nextNode(); }
     }
 
+    final class LinkedHashCursor extends LinkedHashIterator
+        implements Cursor<K,V> {
+        public final boolean advance() {
+            if (next == null) {
+                if (modCount != expectedModCount)
+                    throw new ConcurrentModificationException();
+                current = null;
+                return false;
+            }
+            nextNode();
+            return true;
+        }
+        public final K key()                    { return currentNode().key; }
+        public final V value()                  { return currentNode().value; }
+        public final V setValue(V value) {
+            LinkedHashMap.Entry<K,V> p = currentNode();
+            V oldValue = p.value;
+            p.value = value;
+            return oldValue;
+        }
+        public final void reset()               { start(); }
+
+        final LinkedHashMap.Entry<K,V> currentNode() {
+            LinkedHashMap.Entry<K,V> p;
+            if ((p = current) == null)
+                throw new IllegalStateException();
+            return p;
+        }
+    }
+
 
 }
@@ -0,0 +1,831 @@
+/*
+ * Copyright (c) 2018, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package java.util;
+
+import java.util.function.LongLongConsumer;
+import java.util.function.LongUnaryOperator;
+
+/**
+ * Hash table from primitive {@code long} keys to primitive {@code long}
+ * values, using open addressing over parallel arrays.  Unlike a
+ * {@code HashMap<Long,Long>}, this class neither boxes keys or values nor
+ * allocates a node per mapping: once the table has reached its steady
+ * size, {@code get}, {@code put}, {@code addTo} and {@code remove} do not
+ * allocate at all.  Every {@code long} value, including zero, is a legal
+ * key.
+ *
+ * <p>Since values are primitive, there is no {@code null} to report an
+ * absent mapping.  Methods that return a value for a key that is not
+ * present return zero instead; {@link #containsKey} and
+ * {@link #getOrDefault} may be used to distinguish the two cases.
+ *
+ * <p>Collisions are resolved by linear probing.  Removal uses backward-shift
+ * deletion rather than tombstones, so lookups never slow down as a result of
+ * earlier removals.  The table is sized by the same power-of-two rule as
+ * {@link HashMap}, and must always keep at least one free slot, so the load
+ * factor is required to be strictly less than one.
+ *
+ * <p>The {@link #asMap} method returns a {@code Map<Long,Long>} view for
+ * interoperation with code that expects the collections framework.  That
+ * view boxes keys and values and allocates iterators and entries as usual;
+ * the primitive methods of this class should be preferred on hot paths.
+ *
+ * <p><strong>Note that this implementation is not synchronized.</strong>
+ * If multiple threads access the map concurrently, and at least one of the
+ * threads modifies it structurally, it <i>must</i> be synchronized
+ * externally.  The iterators of the {@code asMap} view are fail-fast in the
+ * same manner as those of {@code HashMap}.
+ *
+ * @see HashMap
+ * @see IntObjHashMap
+ * @see LongObjHashMap
+ * @since 11
+ */
+public class LongLongHashMap implements Cloneable {
+
+    /*
+     * Implementation notes.
+     *
+     * The table layout, probing, backward-shift removal and iteration
+     * order are exactly those of LongObjHashMap (see the notes there);
+     * only the values array differs.
+     */
+
+    /**
+     * The default initial capacity - MUST be a power of two.
+     */
+    static final int DEFAULT_INITIAL_CAPACITY = HashMap.DEFAULT_INITIAL_CAPACITY;
+
+    /**
+     * The maximum capacity, MUST be a power of two <= 1<<30.
+     */
+    static final int MAXIMUM_CAPACITY = HashMap.MAXIMUM_CAPACITY;
+
+    /**
+     * The load factor used when none specified in constructor.
+     */
+    static final float DEFAULT_LOAD_FACTOR = HashMap.DEFAULT_LOAD_FACTOR;
+
+    /**
+     * The keys of the table, zero in free slots.  Allocated on first use,
+     * and resized as necessary; its length is always a power of two.
+     */
+    transient long[] keys;
+
+    /**
+     * The values of the table, parallel to keys.
+     */
+    transient long[] values;
+
+    /**
+     * Whether a mapping for key zero is present.
+     */
+    transient boolean hasZeroKey;
+
+    /**
+     * The value mapped to key zero, if hasZeroKey.
+     */
+    transient long zeroValue;
+
+    /**
+     * The number of key-value mappings contained in this map.
+     */
+    transient int size;
+
+    /**
+     * The number of times this map has been structurally modified.  Used to
+     * make iterators of the asMap view fail-fast.
+     */
+    transient int modCount;
+
+    /**
+     * The next size value at which to resize (capacity * load factor).
+     * If the table has not been allocated, this field holds the initial
+     * capacity, or zero signifying DEFAULT_INITIAL_CAPACITY.
+     */
+    int threshold;
+
+    /**
+     * The load factor for the hash table.
+     */
+    final float loadFactor;
+
+    /**
+     * Cached asMap view.
+     */
+    transient Map<Long,Long> mapView;
+
+    /**
+     * Constructs an empty map with the specified initial capacity and load
+     * factor.
+     *
+     * @param  initialCapacity the initial capacity
+     * @param  loadFactor      the load factor
+     * @throws IllegalArgumentException if the initial capacity is negative
+     *         or the load factor is not in the range {@code (0, 1)}
+     */
+    public LongLongHashMap(int initialCapacity, float loadFactor) {
+        if (initialCapacity < 0)
+            throw new IllegalArgumentException("Illegal initial capacity: " +
+                                               initialCapacity);
+        if (initialCapacity > MAXIMUM_CAPACITY)
+            initialCapacity = MAXIMUM_CAPACITY;
+        if (!(loadFactor > 0 && loadFactor < 1))
+            throw new IllegalArgumentException("Illegal load factor: " +
+                                               loadFactor);
+        this.loadFactor = loadFactor;
+        this.threshold = HashMap.tableSizeFor(initialCapacity);
+    }
+
+    /**
+     * Constructs an empty map with the specified initial capacity and the
+     * default load factor (0.75).
+     *
+     * @param  initialCapacity the initial capacity.
+     * @throws IllegalArgumentException if the initial capacity is negative.
+     */
+    public LongLongHashMap(int initialCapacity) {
+        this(initialCapacity, DEFAULT_LOAD_FACTOR);
+    }
+
+    /**
+     * Constructs an empty map with the default initial capacity (16) and
+     * the default load factor (0.75).
+     */
+    public LongLongHashMap() {
+        this.loadFactor = DEFAULT_LOAD_FACTOR;
+    }
+
+    /* ---------------- Public operations -------------- */
+
+    /**
+     * Returns the number of key-value mappings in this map.
+     *
+     * @return the number of key-value mappings in this map
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns {@code true} if this map contains no key-value mappings.
+     *
+     * @return {@code true} if this map contains no key-value mappings
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns the value to which the specified key is mapped, or zero if
+     * this map contains no mapping for the key.
+     *
+     * @param key the key whose associated value is to be returned
+     * @return the value mapped to the key, or zero if none
+     */
+    public long get(long key) {
+        int i;
+        if (key == 0)
+            return zeroValue;
+        return ((i = indexOf(key)) < 0) ? 0L : values[i];
+    }
+
+    /**
+     * Returns the value to which the specified key is mapped, or
+     * {@code defaultValue} if this map contains no mapping for the key.
+     *
+     * @param key the key whose associated value is to be returned
+     * @param defaultValue the default mapping of the key
+     * @return the value mapped to the key, or {@code defaultValue} if none
+     */
+    public long getOrDefault(long key, long defaultValue) {
+        int i;
+        if (key == 0)
+            return hasZeroKey ? zeroValue : defaultValue;
+        return ((i = indexOf(key)) < 0) ? defaultValue : values[i];
+    }
+
+    /**
+     * Returns {@code true} if this map contains a mapping for the
+     * specified key.
+     *
+     * @param key the key whose presence in this map is to be tested
+     * @return {@code true} if this map contains a mapping for the key
+     */
+    public boolean containsKey(long key) {
+        return (key == 0) ? hasZeroKey : indexOf(key) >= 0;
+    }
+
+    /**
+     * Returns {@code true} if this map maps one or more keys to the
+     * specified value.  This operation requires time linear in the
+     * capacity of the map.
+     *
+     * @param value value whose presence in this map is to be tested
+     * @return {@code true} if this map maps one or more keys to the value
+     */
+    public boolean containsValue(long value) {
+        if (hasZeroKey && zeroValue == value)
+            return true;
+        long[] ks; long[] vs;
+        if ((ks = keys) != null && size > 0) {
+            vs = values;
+            for (int i = 0; i < ks.length; ++i) {
+                if (ks[i] != 0 && vs[i] == value)
+                    return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Associates the specified value with the specified key in this map.
+     * If the map previously contained a mapping for the key, the old value
+     * is replaced.
+     *
+     * @param key key with which the specified value is to be associated
+     * @param value value to be associated with the specified key
+     * @return the previous value associated with {@code key}, or zero if
+     *         there was no mapping for {@code key}
+     */
+    public long put(long key, long value) {
+        int i;
+        if (key == 0) {
+            long oldValue = zeroValue;
+            zeroValue = value;
+            if (!hasZeroKey) {
+                hasZeroKey = true;
+                ++modCount;
+                ++size;
+            }
+            return oldValue;
+        }
+        if ((i = insertionIndex(key)) < 0) {
+            i = ~i;
+            long oldValue = values[i];
+            values[i] = value;
+            return oldValue;
+        }
+        values[i] = value;
+        afterInsertion();
+        return 0L;
+    }
+
+    /**
+     * Adds the given increment to the value mapped to the specified key,
+     * treating an absent mapping as zero.  This is the allocation-free
+     * equivalent of {@code merge(key, increment, Long::sum)} on a
+     * {@code Map<Long,Long>}, and is intended for counters.
+     *
+     * @param key key whose value is to be incremented
+     * @param increment the amount to add
+     * @return the new value associated with {@code key}
+     */
+    public long addTo(long key, long increment) {
+        int i;
+        if (key == 0) {
+            if (!hasZeroKey) {
+                hasZeroKey = true;
+                ++modCount;
+                ++size;
+            }
+            return zeroValue += increment;
+        }
+        if ((i = insertionIndex(key)) < 0)
+            return values[~i] += increment;
+        values[i] = increment;
+        afterInsertion();
+        return increment;
+    }
+
+    /**
+     * If the specified key is not already associated with a value,
+     * computes its value using the given mapping function and enters it
+     * into this map.
+     *
+     * @param key key with which the specified value is to be associated
+     * @param mappingFunction the mapping function to compute a value
+     * @return the current (existing or computed) value associated with
+     *         the specified key
+     * @throws NullPointerException if the mapping function is null
+     * @throws ConcurrentModificationException if it is detected that the
+     *         mapping function modified this map
+     */
+    public long computeIfAbsent(long key, LongUnaryOperator mappingFunction) {
+        if (mappingFunction == null)
+            throw new NullPointerException();
+        int i;
+        if (key == 0) {
+            if (hasZeroKey)
+                return zeroValue;
+        }
+        else if ((i = indexOf(key)) >= 0)
+            return values[i];
+        int mc = modCount;
+        long v = mappingFunction.applyAsLong(key);
+        if (mc != modCount)
+            throw new ConcurrentModificationException();
+        put(key, v);
+        return v;
+    }
+
+    /**
+     * Removes the mapping for the specified key from this map if present.
+     *
+     * @param key key whose mapping is to be removed from the map
+     * @return the previous value associated with {@code key}, or zero if
+     *         there was no mapping for {@code key}
+     */
+    public long remove(long key) {
+        if (key == 0) {
+            if (!hasZeroKey)
+                return 0L;
+            long oldValue = zeroValue;
+            hasZeroKey = false;
+            zeroValue = 0L;
+            ++modCount;
+            --size;
+            return oldValue;
+        }
+        int i;
+        if ((i = indexOf(key)) < 0)
+            return 0L;
+        long oldValue = values[i];
+        removeAt(i);
+        return oldValue;
+    }
+
+    /**
+     * Removes all of the mappings from this map.  The table keeps its
+     * capacity, so refilling it to the same size does not allocate.
+     */
+    public void clear() {
+        long[] ks;
+        modCount++;
+        if ((ks = keys) != null && size > 0) {
+            Arrays.fill(ks, 0L);
+            Arrays.fill(values, 0L);
+        }
+        hasZeroKey = false;
+        zeroValue = 0L;
+        size = 0;
+    }
+
+    /**
+     * Performs the given action for each mapping in this map until all
+     * mappings have been processed or the action throws an exception.
+     * Unlike iteration over the {@link #asMap} view, this method neither
+     * boxes nor allocates.
+     *
+     * @param action the action to be performed for each mapping
+     * @throws NullPointerException if the specified action is null
+     * @throws ConcurrentModificationException if the action modifies the
+     *         map structurally
+     */
+    public void forEach(LongLongConsumer action) {
+        if (action == null)
+            throw new NullPointerException();
+        int mc = modCount;
+        if (hasZeroKey)
+            action.accept(0L, zeroValue);
+        long[] ks; long[] vs; long k;
+        if ((ks = keys) != null && size > 0) {
+            vs = values;
+            for (int i = 0; i < ks.length && modCount == mc; ++i) {
+                if ((k = ks[i]) != 0)
+                    action.accept(k, vs[i]);
+            }
+        }
+        if (modCount != mc)
+            throw new ConcurrentModificationException();
+    }
+
+    /**
+     * Returns a {@link Map} view of the mappings contained in this map.
+     * The map is backed by this one, so changes to either are reflected in
+     * the other.  The view supports all optional map operations; it does
+     * not permit {@code null} keys or values, since no {@code long}
+     * corresponds to them.
+     *
+     * @return a map view of this map
+     */
+    public Map<Long,Long> asMap() {
+        Map<Long,Long> mv;
+        return (mv = mapView) == null ? (mapView = new MapView()) : mv;
+    }
+
+    /**
+     * Returns a copy of this map.
+     *
+     * @return a copy of this map
+     */
+    @Override
+    public LongLongHashMap clone() {
+        LongLongHashMap result;
+        try {
+            result = (LongLongHashMap)super.clone();
+        } catch (CloneNotSupportedException e) {
+            // this shouldn't happen, since we are Cloneable
+            throw new InternalError(e);
+        }
+        if (keys != null) {
+            result.keys = keys.clone();
+            result.values = values.clone();
+        }
+        result.modCount = 0;
+        result.mapView = null;
+        return result;
+    }
+
+    /**
+     * Compares the specified object with this map for equality.  Returns
+     * {@code true} if the given object is also a {@code LongLongHashMap}
+     * holding the same mappings.
+     *
+     * @param o object to be compared for equality with this map
+     * @return {@code true} if the specified object is equal to this map
+     */
+    public boolean equals(Object o) {
+        if (o == this)
+            return true;
+        if (!(o instanceof LongLongHashMap))
+            return false;
+        LongLongHashMap m = (LongLongHashMap)o;
+        if (m.size != size)
+            return false;
+        if (hasZeroKey && !(m.hasZeroKey && zeroValue == m.zeroValue))
+            return false;
+        long[] ks; long[] vs; long k; int j;
+        if ((ks = keys) != null && size > 0) {
+            vs = values;
+            for (int i = 0; i < ks.length; ++i) {
+                if ((k = ks[i]) != 0 &&
+                    ((j = m.indexOf(k)) < 0 || vs[i] != m.values[j]))
+                    return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the hash code value for this map, defined as for
+     * {@link Map#hashCode} on the boxed mappings, so that it agrees with
+     * the hash code of the {@link #asMap} view.
+     *
+     * @return the hash code value for this map
+     */
+    public int hashCode() {
+        int h = 0;
+        if (hasZeroKey)
+            h += Long.hashCode(zeroValue);
+        long[] ks; long[] vs; long k;
+        if ((ks = keys) != null && size > 0) {
+            vs = values;
+            for (int i = 0; i < ks.length; ++i) {
+                if ((k = ks[i]) != 0)
+                    h += Long.hashCode(k) ^ Long.hashCode(vs[i]);
+            }
+        }
+        return h;
+    }
+
+    /**
+     * Returns a string representation of this map, in the same format as
+     * {@link AbstractMap#toString}.
+     *
+     * @return a string representation of this map
+     */
+    public String toString() {
+        StringBuilder sb = new StringBuilder().append('{');
+        boolean first = true;
+        if (hasZeroKey) {
+            sb.append(0L).append('=').append(zeroValue);
+            first = false;
+        }
+        long[] ks; long[] vs; long k;
+        if ((ks = keys) != null && size > 0) {
+            vs = values;
+            for (int i = 0; i < ks.length; ++i) {
+                if ((k = ks[i]) != 0) {
+                    if (!first)
+                        sb.append(',').append(' ');
+                    first = false;
+                    sb.append(k).append('=').append(vs[i]);
+                }
+            }
+        }
+        return sb.append('}').toString();
+    }
+
+    /* ---------------- Internals -------------- */
+
+    /**
+     * Spreads a key into a table index hash, exactly as
+     * LongObjHashMap.hash does.
+     */
+    static int hash(long key) {
+        return LongObjHashMap.hash(key);
+    }
+
+    /**
+     * Returns the slot holding the given non-zero key, or -1 if none.
+     */
+    final int indexOf(long key) {
+        long[] ks; long k; int mask;
+        if ((ks = keys) == null)
+            return -1;
+        mask = ks.length - 1;
+        for (int i = hash(key) & mask; ; i = (i + 1) & mask) {
+            if ((k = ks[i]) == key)
+                return i;
+            if (k == 0)
+                return -1;
+        }
+    }
+
+    /**
+     * Finds the slot for the given non-zero key, claiming a free one if
+     * the key is absent.  In that case the caller must store the value
+     * and then call afterInsertion.
+     *
+     * @return the claimed free slot, or the one's complement of the slot
+     * already holding the key
+     */
+    final int insertionIndex(long key) {
+        long[] ks; long k; int mask, i;
+        if ((ks = keys) == null)
+            ks = resize();
+        mask = ks.length - 1;
+        for (i = hash(key) & mask; (k = ks[i]) != 0; i = (i + 1) & mask) {
+            if (k == key)
+                return ~i;
+        }
+        ks[i] = key;
+        return i;
+    }
+
+    /**
+     * Accounts for a mapping added through insertionIndex.
+     */
+    final void afterInsertion() {
+        ++modCount;
+        if (++size > threshold)
+            resize();
+    }
+
+    /**
+     * Removes the entry in the given slot, shifting later members of its
+     * cluster back so that each stays reachable from its home slot.
+     *
+     * @return the given slot if an entry from later in the cluster was
+     * moved into it, or -1 if it was left free
+     */
+    final int removeAt(int i) {
+        long[] ks = keys; long[] vs = values;
+        int mask = ks.length - 1, gap = i; long k;
+        for (int j = (i + 1) & mask; (k = ks[j]) != 0; j = (j + 1) & mask) {
+            // move k back iff gap lies cyclically within [home(k), j)
+            if (((j - (hash(k) & mask)) & mask) >= ((j - gap) & mask)) {
+                ks[gap] = k;
+                vs[gap] = vs[j];
+                gap = j;
+            }
+        }
+        ks[gap] = 0L;
+        vs[gap] = 0L;
+        ++modCount;
+        --size;
+        return (gap == i) ? -1 : i;
+    }
+
+    /**
+     * Initializes or doubles table size, rehashing every entry into the
+     * new arrays.
+     *
+     * @return the new keys array
+     */
+    final long[] resize() {
+        long[] oldKeys = keys;
+        long[] oldVals = values;
+        int oldCap = (oldKeys == null) ? 0 : oldKeys.length;
+        int newCap;
+        if (oldCap > 0) {
+            if (oldCap >= MAXIMUM_CAPACITY) {
+                // keep one slot free; fail once only it remains
+                if (size >= MAXIMUM_CAPACITY - 1)
+                    throw new IllegalStateException("Map is full");
+                threshold = MAXIMUM_CAPACITY - 2;
+                return oldKeys;
+            }
+            newCap = oldCap << 1;
+        }
+        else if (threshold > 0) // initial capacity was placed in threshold
+            newCap = Math.max(threshold, 2);
+        else
+            newCap = DEFAULT_INITIAL_CAPACITY;
+        // always leave at least one free slot to terminate probes
+        threshold = Math.min((int)(newCap * loadFactor), newCap - 1);
+        long[] newKeys = new long[newCap];
+        long[] newVals = new long[newCap];
+        int mask = newCap - 1, j; long k;
+        for (int i = 0; i < oldCap; ++i) {
+            if ((k = oldKeys[i]) != 0) {
+                for (j = hash(k) & mask; newKeys[j] != 0; j = (j + 1) & mask)
+                    ;
+                newKeys[j] = k;
+                newVals[j] = oldVals[i];
+            }
+        }
+        keys = newKeys;
+        values = newVals;
+        return newKeys;
+    }
+
+    /* ---------------- Map view -------------- */
+
+    /**
+     * Map view returned by asMap.
+     */
+    final class MapView extends AbstractMap<Long,Long> {
+        transient Set<Map.Entry<Long,Long>> entrySet;
+
+        public final int size()                 { return size; }
+        public final boolean isEmpty()          { return size == 0; }
+        public final void clear()               { LongLongHashMap.this.clear(); }
+        public final boolean containsValue(Object value) {
+            return (value instanceof Long) &&
+                LongLongHashMap.this.containsValue((Long)value);
+        }
+        public final boolean containsKey(Object key) {
+            return (key instanceof Long) &&
+                LongLongHashMap.this.containsKey((Long)key);
+        }
+        public final Long get(Object key) {
+            long k;
+            return (key instanceof Long &&
+                    LongLongHashMap.this.containsKey(k = (Long)key)) ?
+                LongLongHashMap.this.get(k) : null;
+        }
+        public final Long put(Long key, Long value) {
+            long k = key, v = value; // null-check before mutating
+            Long oldValue = get(key);
+            LongLongHashMap.this.put(k, v);
+            return oldValue;
+        }
+        public final Long remove(Object key) {
+            Long oldValue = get(key);
+            if (oldValue != null)
+                LongLongHashMap.this.remove((Long)key);
+            return oldValue;
+        }
+        public final Set<Map.Entry<Long,Long>> entrySet() {
+            Set<Map.Entry<Long,Long>> es;
+            return (es = entrySet) == null ? (entrySet = new EntrySet()) : es;
+        }
+    }
+
+    final class EntrySet extends AbstractSet<Map.Entry<Long,Long>> {
+        public final int size()                 { return size; }
+        public final void clear()               { LongLongHashMap.this.clear(); }
+        public final Iterator<Map.Entry<Long,Long>> iterator() {
+            return new EntryIterator();
+        }
+        public final boolean contains(Object o) {
+            if (!(o instanceof Map.Entry))
+                return false;
+            Map.Entry<?,?> e = (Map.Entry<?,?>) o;
+            Object key = e.getKey(), value = e.getValue();
+            if (!(key instanceof Long) || !(value instanceof Long))
+                return false;
+            long k = (Long)key;
+            return containsKey(k) && get(k) == (Long)value;
+        }
+        public final boolean remove(Object o) {
+            if (contains(o)) {
+                LongLongHashMap.this.remove((Long)((Map.Entry<?,?>)o).getKey());
+                return true;
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Iterator over the slots of the table, in the same order and with
+     * the same removal handling as LongObjHashMap.MapIterator.
+     */
+    final class EntryIterator implements Iterator<Map.Entry<Long,Long>> {
+        int cursor;           // index of next slot to examine
+        int end;              // slot that was free on creation
+        int nextSlot;         // slot of next entry, -2 for zero key, -1 none
+        int lastReturned;     // slot of last entry, -2 for zero key, -1 none
+        int expectedModCount; // for fast-fail
+        boolean zeroPending;  // zero key not yet returned
+
+        EntryIterator() {
+            expectedModCount = modCount;
+            lastReturned = nextSlot = -1;
+            zeroPending = hasZeroKey;
+            long[] ks;
+            if ((ks = keys) != null && size > 0) {
+                int start = 0;
+                while (ks[start] != 0)
+                    ++start;
+                end = start;
+                cursor = (start + 1) & (ks.length - 1);
+            }
+            advance();
+        }
+
+        final void advance() {
+            if (zeroPending) {
+                zeroPending = false;
+                nextSlot = -2;
+                return;
+            }
+            long[] ks = keys;
+            nextSlot = -1;
+            while (cursor != end) {
+                int i = cursor;
+                cursor = (i + 1) & (ks.length - 1);
+                if (ks[i] != 0) {
+                    nextSlot = i;
+                    break;
+                }
+            }
+        }
+
+        public final boolean hasNext() {
+            return nextSlot != -1;
+        }
+
+        public final Map.Entry<Long,Long> next() {
+            int i;
+            if (modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+            if ((i = nextSlot) == -1)
+                throw new NoSuchElementException();
+            lastReturned = i;
+            advance();
+            return (i == -2) ? new MapEntry(0L, zeroValue)
+                : new MapEntry(keys[i], values[i]);
+        }
+
+        public final void remove() {
+            int i;
+            if ((i = lastReturned) == -1)
+                throw new IllegalStateException();
+            if (modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+            lastReturned = -1;
+            if (i == -2)
+                LongLongHashMap.this.remove(0L);
+            else if (removeAt(i) >= 0) {
+                // an unvisited entry was moved into slot i, and others
+                // may have moved behind it; resume from slot i
+                nextSlot = i;
+                cursor = (i + 1) & (keys.length - 1);
+            }
+            expectedModCount = modCount;
+        }
+    }
+
+    /**
+     * Entry handed out by the asMap view.  Writes through to the map by
+     * key, since the slot of a key may change as other keys are removed.
+     */
+    final class MapEntry extends AbstractMap.SimpleEntry<Long,Long> {
+        private static final long serialVersionUID = 1L;
+
+        MapEntry(long key, long value) {
+            super(key, value);
+        }
+
+        public Long setValue(Long value) {
+            LongLongHashMap.this.put(getKey(), value);
+            return super.setValue(value);
+        }
+    }
+}
@@ -0,0 +1,850 @@
+/*
+ * Copyright (c) 2018, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package java.util;
+
+import java.util.function.LongFunction;
+import java.util.function.LongObjConsumer;
+
+/**
+ * Hash table from primitive {@code long} keys to object values, using open
+ * addressing over parallel arrays.  Unlike a {@code HashMap<Long,V>},
+ * this class neither boxes keys nor allocates a node per mapping: once the
+ * table has reached its steady size, {@code get}, {@code put} and
+ * {@code remove} do not allocate at all.  {@code null} values are
+ * permitted; every {@code long} value, including zero, is a legal key.
+ *
+ * <p>Collisions are resolved by linear probing.  Removal uses backward-shift
+ * deletion rather than tombstones, so lookups never slow down as a result of
+ * earlier removals.  The table is sized by the same power-of-two rule as
+ * {@link HashMap}, and must always keep at least one free slot, so the load
+ * factor is required to be strictly less than one.
+ *
+ * <p>The {@link #asMap} method returns a {@code Map<Long,V>} view for
+ * interoperation with code that expects the collections framework.  That
+ * view boxes keys and allocates iterators and entries as usual; the
+ * primitive methods of this class should be preferred on hot paths.
+ *
+ * <p><strong>Note that this implementation is not synchronized.</strong>
+ * If multiple threads access the map concurrently, and at least one of the
+ * threads modifies it structurally, it <i>must</i> be synchronized
+ * externally.  The iterators of the {@code asMap} view are fail-fast in the
+ * same manner as those of {@code HashMap}.
+ *
+ * @param <V> the type of mapped values
+ *
+ * @see HashMap
+ * @see LongObjHashMap
+ * @see LongLongHashMap
+ * @since 11
+ */
+public class LongObjHashMap<V> implements Cloneable {
+
+    /*
+     * Implementation notes.
+     *
+     * Key zero marks a free slot in the keys array, so a mapping for
+     * key zero is held aside in fields hasZeroKey/zeroValue.  Every
+     * other mapping lives at keys[i]/values[i] for some i reachable
+     * from hash(key) & mask by linear probing without crossing a free
+     * slot.  Removal closes the hole it leaves by pulling later
+     * entries of the same cluster back (see method removeAt), which
+     * keeps that invariant without tombstones.
+     *
+     * Because entries never move across a free slot, an iteration
+     * that starts just past a slot that is free when the iteration
+     * begins sees every cluster whole, and a removal through the
+     * iterator can only pull not-yet-visited entries back into the
+     * slot just visited.  MapIterator relies on this.
+     */
+
+    /**
+     * The default initial capacity - MUST be a power of two.
+     */
+    static final int DEFAULT_INITIAL_CAPACITY = HashMap.DEFAULT_INITIAL_CAPACITY;
+
+    /**
+     * The maximum capacity, MUST be a power of two <= 1<<30.
+     */
+    static final int MAXIMUM_CAPACITY = HashMap.MAXIMUM_CAPACITY;
+
+    /**
+     * The load factor used when none specified in constructor.
+     */
+    static final float DEFAULT_LOAD_FACTOR = HashMap.DEFAULT_LOAD_FACTOR;
+
+    /**
+     * The keys of the table, zero in free slots.  Allocated on first use,
+     * and resized as necessary; its length is always a power of two.
+     */
+    transient long[] keys;
+
+    /**
+     * The values of the table, parallel to keys.
+     */
+    transient Object[] values;
+
+    /**
+     * Whether a mapping for key zero is present.
+     */
+    transient boolean hasZeroKey;
+
+    /**
+     * The value mapped to key zero, if hasZeroKey.
+     */
+    transient V zeroValue;
+
+    /**
+     * The number of key-value mappings contained in this map.
+     */
+    transient int size;
+
+    /**
+     * The number of times this map has been structurally modified.  Used to
+     * make iterators of the asMap view fail-fast.
+     */
+    transient int modCount;
+
+    /**
+     * The next size value at which to resize (capacity * load factor).
+     * If the table has not been allocated, this field holds the initial
+     * capacity, or zero signifying DEFAULT_INITIAL_CAPACITY.
+     */
+    int threshold;
+
+    /**
+     * The load factor for the hash table.
+     */
+    final float loadFactor;
+
+    /**
+     * Cached asMap view.
+     */
+    transient Map<Long,V> mapView;
+
+    /**
+     * Constructs an empty map with the specified initial capacity and load
+     * factor.
+     *
+     * @param  initialCapacity the initial capacity
+     * @param  loadFactor      the load factor
+     * @throws IllegalArgumentException if the initial capacity is negative
+     *         or the load factor is not in the range {@code (0, 1)}
+     */
+    public LongObjHashMap(int initialCapacity, float loadFactor) {
+        if (initialCapacity < 0)
+            throw new IllegalArgumentException("Illegal initial capacity: " +
+                                               initialCapacity);
+        if (initialCapacity > MAXIMUM_CAPACITY)
+            initialCapacity = MAXIMUM_CAPACITY;
+        if (!(loadFactor > 0 && loadFactor < 1))
+            throw new IllegalArgumentException("Illegal load factor: " +
+                                               loadFactor);
+        this.loadFactor = loadFactor;
+        this.threshold = HashMap.tableSizeFor(initialCapacity);
+    }
+
+    /**
+     * Constructs an empty map with the specified initial capacity and the
+     * default load factor (0.75).
+     *
+     * @param  initialCapacity the initial capacity.
+     * @throws IllegalArgumentException if the initial capacity is negative.
+     */
+    public LongObjHashMap(int initialCapacity) {
+        this(initialCapacity, DEFAULT_LOAD_FACTOR);
+    }
+
+    /**
+     * Constructs an empty map with the default initial capacity (16) and
+     * the default load factor (0.75).
+     */
+    public LongObjHashMap() {
+        this.loadFactor = DEFAULT_LOAD_FACTOR;
+    }
+
+    /* ---------------- Static utilities -------------- */
+
+    /**
+     * Spreads a key into a table index hash.  The key is scrambled by a
+     * 64-bit golden-ratio multiply, folded to 32 bits as Long.hashCode
+     * does, and then has its high bits XORed downward exactly as in
+     * HashMap.hash.  (Open addressing has no tree bins to fall back on
+     * when many keys share their low bits, so the plain HashMap
+     * spreading alone is not enough here.)
+     */
+    static int hash(long key) {
+        long l = key * 0x9E3779B97F4A7C15L;
+        int h = (int)(l ^ (l >>> 32));
+        return h ^ (h >>> 16);
+    }
+
+    /* ---------------- Public operations -------------- */
+
+    /**
+     * Returns the number of key-value mappings in this map.
+     *
+     * @return the number of key-value mappings in this map
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns {@code true} if this map contains no key-value mappings.
+     *
+     * @return {@code true} if this map contains no key-value mappings
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns the value to which the specified key is mapped, or
+     * {@code null} if this map contains no mapping for the key.  As with
+     * {@code HashMap}, a {@code null} return can also indicate that the
+     * key is explicitly mapped to {@code null}.
+     *
+     * @param key the key whose associated value is to be returned
+     * @return the value mapped to the key, or {@code null} if none
+     */
+    @SuppressWarnings("unchecked")
+    public V get(long key) {
+        int i;
+        if (key == 0)
+            return zeroValue;
+        return ((i = indexOf(key)) < 0) ? null : (V)values[i];
+    }
+
+    /**
+     * Returns the value to which the specified key is mapped, or
+     * {@code defaultValue} if this map contains no mapping for the key.
+     *
+     * @param key the key whose associated value is to be returned
+     * @param defaultValue the default mapping of the key
+     * @return the value mapped to the key, or {@code defaultValue} if none
+     */
+    @SuppressWarnings("unchecked")
+    public V getOrDefault(long key, V defaultValue) {
+        int i;
+        if (key == 0)
+            return hasZeroKey ? zeroValue : defaultValue;
+        return ((i = indexOf(key)) < 0) ? defaultValue : (V)values[i];
+    }
+
+    /**
+     * Returns {@code true} if this map contains a mapping for the
+     * specified key.
+     *
+     * @param key the key whose presence in this map is to be tested
+     * @return {@code true} if this map contains a mapping for the key
+     */
+    public boolean containsKey(long key) {
+        return (key == 0) ? hasZeroKey : indexOf(key) >= 0;
+    }
+
+    /**
+     * Returns {@code true} if this map maps one or more keys to the
+     * specified value.  This operation requires time linear in the
+     * capacity of the map.
+     *
+     * @param value value whose presence in this map is to be tested
+     * @return {@code true} if this map maps one or more keys to the value
+     */
+    public boolean containsValue(Object value) {
+        if (hasZeroKey && Objects.equals(value, zeroValue))
+            return true;
+        long[] ks; Object[] vs;
+        if ((ks = keys) != null && size > 0) {
+            vs = values;
+            for (int i = 0; i < ks.length; ++i) {
+                if (ks[i] != 0 && Objects.equals(value, vs[i]))
+                    return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Associates the specified value with the specified key in this map.
+     * If the map previously contained a mapping for the key, the old value
+     * is replaced.
+     *
+     * @param key key with which the specified value is to be associated
+     * @param value value to be associated with the specified key
+     * @return the previous value associated with {@code key}, or
+     *         {@code null} if there was no mapping for {@code key}
+     */
+    public V put(long key, V value) {
+        return putVal(key, value, false);
+    }
+
+    /**
+     * If the specified key is not already associated with a value (or is
+     * mapped to {@code null}) associates it with the given value and
+     * returns {@code null}, else returns the current value.
+     *
+     * @param key key with which the specified value is to be associated
+     * @param value value to be associated with the specified key
+     * @return the previous value associated with the specified key, or
+     *         {@code null} if there was no mapping for the key
+     */
+    public V putIfAbsent(long key, V value) {
+        return putVal(key, value, true);
+    }
+
+    /**
+     * If the specified key is not already associated with a value (or is
+     * mapped to {@code null}), attempts to compute its value using the
+     * given mapping function and enters it into this map unless
+     * {@code null}.
+     *
+     * @param key key with which the specified value is to be associated
+     * @param mappingFunction the mapping function to compute a value
+     * @return the current (existing or computed) value associated with
+     *         the specified key, or null if the computed value is null
+     * @throws NullPointerException if the mapping function is null
+     * @throws ConcurrentModificationException if it is detected that the
+     *         mapping function modified this map
+     */
+    public V computeIfAbsent(long key,
+                             LongFunction<? extends V> mappingFunction) {
+        if (mappingFunction == null)
+            throw new NullPointerException();
+        V v;
+        if ((v = get(key)) != null)
+            return v;
+        int mc = modCount;
+        v = mappingFunction.apply(key);
+        if (mc != modCount)
+            throw new ConcurrentModificationException();
+        if (v != null)
+            putVal(key, v, false);
+        return v;
+    }
+
+    /**
+     * Removes the mapping for the specified key from this map if present.
+     *
+     * @param key key whose mapping is to be removed from the map
+     * @return the previous value associated with {@code key}, or
+     *         {@code null} if there was no mapping for {@code key}
+     */
+    @SuppressWarnings("unchecked")
+    public V remove(long key) {
+        if (key == 0) {
+            if (!hasZeroKey)
+                return null;
+            V oldValue = zeroValue;
+            hasZeroKey = false;
+            zeroValue = null;
+            ++modCount;
+            --size;
+            return oldValue;
+        }
+        int i;
+        if ((i = indexOf(key)) < 0)
+            return null;
+        V oldValue = (V)values[i];
+        removeAt(i);
+        return oldValue;
+    }
+
+    /**
+     * Removes all of the mappings from this map.  The table keeps its
+     * capacity, so refilling it to the same size does not allocate.
+     */
+    public void clear() {
+        long[] ks;
+        modCount++;
+        if ((ks = keys) != null && size > 0) {
+            Arrays.fill(ks, 0L);
+            Arrays.fill(values, null);
+        }
+        hasZeroKey = false;
+        zeroValue = null;
+        size = 0;
+    }
+
+    /**
+     * Performs the given action for each mapping in this map until all
+     * mappings have been processed or the action throws an exception.
+     * Unlike iteration over the {@link #asMap} view, this method neither
+     * boxes keys nor allocates.
+     *
+     * @param action the action to be performed for each mapping
+     * @throws NullPointerException if the specified action is null
+     * @throws ConcurrentModificationException if the action modifies the
+     *         map structurally
+     */
+    @SuppressWarnings("unchecked")
+    public void forEach(LongObjConsumer<? super V> action) {
+        if (action == null)
+            throw new NullPointerException();
+        int mc = modCount;
+        if (hasZeroKey)
+            action.accept(0L, zeroValue);
+        long[] ks; Object[] vs; long k;
+        if ((ks = keys) != null && size > 0) {
+            vs = values;
+            for (int i = 0; i < ks.length && modCount == mc; ++i) {
+                if ((k = ks[i]) != 0)
+                    action.accept(k, (V)vs[i]);
+            }
+        }
+        if (modCount != mc)
+            throw new ConcurrentModificationException();
+    }
+
+    /**
+     * Returns a {@link Map} view of the mappings contained in this map.
+     * The map is backed by this one, so changes to either are reflected in
+     * the other.  The view supports all optional map operations; it does
+     * not permit {@code null} keys, since no {@code long} corresponds to
+     * them.
+     *
+     * @return a map view of this map
+     */
+    public Map<Long,V> asMap() {
+        Map<Long,V> mv;
+        return (mv = mapView) == null ? (mapView = new MapView()) : mv;
+    }
+
+    /**
+     * Returns a shallow copy of this map: the keys and values themselves
+     * are not cloned.
+     *
+     * @return a shallow copy of this map
+     */
+    @Override
+    public LongObjHashMap<V> clone() {
+        LongObjHashMap<V> result;
+        try {
+            @SuppressWarnings("unchecked")
+            LongObjHashMap<V> r = (LongObjHashMap<V>)super.clone();
+            result = r;
+        } catch (CloneNotSupportedException e) {
+            // this shouldn't happen, since we are Cloneable
+            throw new InternalError(e);
+        }
+        if (keys != null) {
+            result.keys = keys.clone();
+            result.values = values.clone();
+        }
+        result.modCount = 0;
+        result.mapView = null;
+        return result;
+    }
+
+    /**
+     * Compares the specified object with this map for equality.  Returns
+     * {@code true} if the given object is also a {@code LongObjHashMap}
+     * holding the same mappings.
+     *
+     * @param o object to be compared for equality with this map
+     * @return {@code true} if the specified object is equal to this map
+     */
+    public boolean equals(Object o) {
+        if (o == this)
+            return true;
+        if (!(o instanceof LongObjHashMap))
+            return false;
+        LongObjHashMap<?> m = (LongObjHashMap<?>)o;
+        if (m.size != size)
+            return false;
+        if (hasZeroKey && !(m.hasZeroKey &&
+                            Objects.equals(zeroValue, m.zeroValue)))
+            return false;
+        long[] ks; Object[] vs; long k; int j;
+        if ((ks = keys) != null && size > 0) {
+            vs = values;
+            for (int i = 0; i < ks.length; ++i) {
+                if ((k = ks[i]) != 0 &&
+                    ((j = m.indexOf(k)) < 0 ||
+                     !Objects.equals(vs[i], m.values[j])))
+                    return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the hash code value for this map, defined as for
+     * {@link Map#hashCode} on the boxed mappings, so that it agrees with
+     * the hash code of the {@link #asMap} view.
+     *
+     * @return the hash code value for this map
+     */
+    public int hashCode() {
+        int h = 0;
+        if (hasZeroKey)
+            h += Objects.hashCode(zeroValue);
+        long[] ks; Object[] vs; long k;
+        if ((ks = keys) != null && size > 0) {
+            vs = values;
+            for (int i = 0; i < ks.length; ++i) {
+                if ((k = ks[i]) != 0)
+                    h += Long.hashCode(k) ^ Objects.hashCode(vs[i]);
+            }
+        }
+        return h;
+    }
+
+    /**
+     * Returns a string representation of this map, in the same format as
+     * {@link AbstractMap#toString}.
+     *
+     * @return a string representation of this map
+     */
+    public String toString() {
+        StringBuilder sb = new StringBuilder().append('{');
+        boolean first = true;
+        if (hasZeroKey) {
+            sb.append(0L).append('=').append(zeroValue == this ? "(this Map)" : zeroValue);
+            first = false;
+        }
+        long[] ks; Object[] vs; long k;
+        if ((ks = keys) != null && size > 0) {
+            vs = values;
+            for (int i = 0; i < ks.length; ++i) {
+                if ((k = ks[i]) != 0) {
+                    if (!first)
+                        sb.append(',').append(' ');
+                    first = false;
+                    Object v = vs[i];
+                    sb.append(k).append('=').append(v == this ? "(this Map)" : v);
+                }
+            }
+        }
+        return sb.append('}').toString();
+    }
+
+    /* ---------------- Internals -------------- */
+
+    /**
+     * Returns the slot holding the given non-zero key, or -1 if none.
+     */
+    final int indexOf(long key) {
+        long[] ks; long k; int mask;
+        if ((ks = keys) == null)
+            return -1;
+        mask = ks.length - 1;
+        for (int i = hash(key) & mask; ; i = (i + 1) & mask) {
+            if ((k = ks[i]) == key)
+                return i;
+            if (k == 0)
+                return -1;
+        }
+    }
+
+    /**
+     * Implements put and putIfAbsent.
+     *
+     * @param key the key
+     * @param value the value to put
+     * @param onlyIfAbsent if true, don't change existing non-null value
+     * @return previous value, or null if none
+     */
+    @SuppressWarnings("unchecked")
+    final V putVal(long key, V value, boolean onlyIfAbsent) {
+        if (key == 0) {
+            V oldValue = zeroValue;
+            if (hasZeroKey) {
+                if (!onlyIfAbsent || oldValue == null)
+                    zeroValue = value;
+                return oldValue;
+            }
+            hasZeroKey = true;
+            zeroValue = value;
+            ++modCount;
+            ++size;
+            return null;
+        }
+        long[] ks; long k; int mask, i;
+        if ((ks = keys) == null)
+            ks = resize();
+        mask = ks.length - 1;
+        for (i = hash(key) & mask; (k = ks[i]) != 0; i = (i + 1) & mask) {
+            if (k == key) {
+                V oldValue = (V)values[i];
+                if (!onlyIfAbsent || oldValue == null)
+                    values[i] = value;
+                return oldValue;
+            }
+        }
+        ks[i] = key;
+        values[i] = value;
+        ++modCount;
+        if (++size > threshold)
+            resize();
+        return null;
+    }
+
+    /**
+     * Removes the entry in the given slot, shifting later members of its
+     * cluster back so that each stays reachable from its home slot.
+     *
+     * @return the given slot if an entry from later in the cluster was
+     * moved into it, or -1 if it was left free
+     */
+    final int removeAt(int i) {
+        long[] ks = keys; Object[] vs = values;
+        int mask = ks.length - 1, gap = i; long k;
+        for (int j = (i + 1) & mask; (k = ks[j]) != 0; j = (j + 1) & mask) {
+            // move k back iff gap lies cyclically within [home(k), j)
+            if (((j - (hash(k) & mask)) & mask) >= ((j - gap) & mask)) {
+                ks[gap] = k;
+                vs[gap] = vs[j];
+                gap = j;
+            }
+        }
+        ks[gap] = 0;
+        vs[gap] = null;
+        ++modCount;
+        --size;
+        return (gap == i) ? -1 : i;
+    }
+
+    /**
+     * Initializes or doubles table size, rehashing every entry into the
+     * new arrays.
+     *
+     * @return the new keys array
+     */
+    final long[] resize() {
+        long[] oldKeys = keys;
+        Object[] oldVals = values;
+        int oldCap = (oldKeys == null) ? 0 : oldKeys.length;
+        int newCap;
+        if (oldCap > 0) {
+            if (oldCap >= MAXIMUM_CAPACITY) {
+                // keep one slot free; fail once only it remains
+                if (size >= MAXIMUM_CAPACITY - 1)
+                    throw new IllegalStateException("Map is full");
+                threshold = MAXIMUM_CAPACITY - 2;
+                return oldKeys;
+            }
+            newCap = oldCap << 1;
+        }
+        else if (threshold > 0) // initial capacity was placed in threshold
+            newCap = Math.max(threshold, 2);
+        else
+            newCap = DEFAULT_INITIAL_CAPACITY;
+        // always leave at least one free slot to terminate probes
+        threshold = Math.min((int)(newCap * loadFactor), newCap - 1);
+        long[] newKeys = new long[newCap];
+        Object[] newVals = new Object[newCap];
+        int mask = newCap - 1, j; long k;
+        for (int i = 0; i < oldCap; ++i) {
+            if ((k = oldKeys[i]) != 0) {
+                for (j = hash(k) & mask; newKeys[j] != 0; j = (j + 1) & mask)
+                    ;
+                newKeys[j] = k;
+                newVals[j] = oldVals[i];
+            }
+        }
+        keys = newKeys;
+        values = newVals;
+        return newKeys;
+    }
+
+    /* ---------------- Map view -------------- */
+
+    /**
+     * Map view returned by asMap.
+     */
+    final class MapView extends AbstractMap<Long,V> {
+        transient Set<Map.Entry<Long,V>> entrySet;
+
+        public final int size()                 { return size; }
+        public final boolean isEmpty()          { return size == 0; }
+        public final void clear()               { LongObjHashMap.this.clear(); }
+        public final boolean containsValue(Object value) {
+            return LongObjHashMap.this.containsValue(value);
+        }
+        public final boolean containsKey(Object key) {
+            return (key instanceof Long) &&
+                LongObjHashMap.this.containsKey((Long)key);
+        }
+        public final V get(Object key) {
+            return (key instanceof Long) ?
+                LongObjHashMap.this.get((Long)key) : null;
+        }
+        public final V getOrDefault(Object key, V defaultValue) {
+            return (key instanceof Long) ?
+                LongObjHashMap.this.getOrDefault((Long)key, defaultValue) :
+                defaultValue;
+        }
+        public final V put(Long key, V value) {
+            return putVal(key, value, false);
+        }
+        public final V putIfAbsent(Long key, V value) {
+            return putVal(key, value, true);
+        }
+        public final V remove(Object key) {
+            return (key instanceof Long) ?
+                LongObjHashMap.this.remove((Long)key) : null;
+        }
+        public final Set<Map.Entry<Long,V>> entrySet() {
+            Set<Map.Entry<Long,V>> es;
+            return (es = entrySet) == null ? (entrySet = new EntrySet()) : es;
+        }
+    }
+
+    final class EntrySet extends AbstractSet<Map.Entry<Long,V>> {
+        public final int size()                 { return size; }
+        public final void clear()               { LongObjHashMap.this.clear(); }
+        public final Iterator<Map.Entry<Long,V>> iterator() {
+            return new EntryIterator();
+        }
+        public final boolean contains(Object o) {
+            if (!(o instanceof Map.Entry))
+                return false;
+            Map.Entry<?,?> e = (Map.Entry<?,?>) o;
+            Object key = e.getKey();
+            if (!(key instanceof Long))
+                return false;
+            long k = (Long)key; int i;
+            if (k == 0)
+                return hasZeroKey && Objects.equals(zeroValue, e.getValue());
+            return (i = indexOf(k)) >= 0 && Objects.equals(values[i], e.getValue());
+        }
+        public final boolean remove(Object o) {
+            if (contains(o)) {
+                LongObjHashMap.this.remove((Long)((Map.Entry<?,?>)o).getKey());
+                return true;
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Iterator over the slots of the table.  Visits the zero key first,
+     * then every slot in cyclic order starting just past a slot that was
+     * free when the iterator was created, so that removals never move an
+     * unvisited entry behind the cursor (see implementation notes).
+     */
+    abstract class MapIterator {
+        int cursor;           // index of next slot to examine
+        int end;              // slot that was free on creation
+        int nextSlot;         // slot of next entry, -2 for zero key, -1 none
+        int lastReturned;     // slot of last entry, -2 for zero key, -1 none
+        int expectedModCount; // for fast-fail
+        boolean zeroPending;  // zero key not yet returned
+
+        MapIterator() {
+            expectedModCount = modCount;
+            lastReturned = nextSlot = -1;
+            zeroPending = hasZeroKey;
+            long[] ks;
+            if ((ks = keys) != null && size > 0) {
+                int start = 0;
+                while (ks[start] != 0)
+                    ++start;
+                end = start;
+                cursor = (start + 1) & (ks.length - 1);
+            }
+            advance();
+        }
+
+        final void advance() {
+            if (zeroPending) {
+                zeroPending = false;
+                nextSlot = -2;
+                return;
+            }
+            long[] ks = keys;
+            nextSlot = -1;
+            while (cursor != end) {
+                int i = cursor;
+                cursor = (i + 1) & (ks.length - 1);
+                if (ks[i] != 0) {
+                    nextSlot = i;
+                    break;
+                }
+            }
+        }
+
+        public final boolean hasNext() {
+            return nextSlot != -1;
+        }
+
+        final int nextIndex() {
+            int i;
+            if (modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+            if ((i = nextSlot) == -1)
+                throw new NoSuchElementException();
+            lastReturned = i;
+            advance();
+            return i;
+        }
+
+        public final void remove() {
+            int i;
+            if ((i = lastReturned) == -1)
+                throw new IllegalStateException();
+            if (modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+            lastReturned = -1;
+            if (i == -2)
+                LongObjHashMap.this.remove(0L);
+            else if (removeAt(i) >= 0) {
+                // an unvisited entry was moved into slot i, and others
+                // may have moved behind it; resume from slot i
+                nextSlot = i;
+                cursor = (i + 1) & (keys.length - 1);
+            }
+            expectedModCount = modCount;
+        }
+    }
+
+    final class EntryIterator extends MapIterator
+        implements Iterator<Map.Entry<Long,V>> {
+        public final Map.Entry<Long,V> next() {
+            int i = nextIndex();
+            return (i == -2) ? new MapEntry(0L, zeroValue)
+                : new MapEntry(keys[i], values[i]);
+        }
+    }
+
+    /**
+     * Entry handed out by the asMap view.  Writes through to the map by
+     * key, since the slot of a key may change as other keys are removed.
+     */
+    final class MapEntry extends AbstractMap.SimpleEntry<Long,V> {
+        private static final long serialVersionUID = 1L;
+
+        @SuppressWarnings("unchecked")
+        MapEntry(long key, Object value) {
+            super(key, (V)value);
+        }
+
+        public V setValue(V value) {
+            LongObjHashMap.this.put(getKey(), value);
+            return super.setValue(value);
+        }
+    }
+}
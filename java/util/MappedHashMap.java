@@ -0,0 +1,882 @@
+/*
+ * Copyright (c) 2018, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package java.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Function;
+
+/**
+ * Hash table based implementation of the {@code Map} interface whose
+ * mappings are stored outside the Java heap, in a memory-mapped file.  The
+ * map may hold more data than the heap could, is only paged in from the
+ * file as it is used, and survives the virtual machine: constructing a
+ * {@code MappedHashMap} on an existing file makes its mappings available
+ * again at once, without reading or deserializing them.
+ *
+ * <p>Keys and values are stored as bytes, converted by the {@link Codec}s
+ * given to the constructor, and are decoded anew each time they are read.
+ * Keys are compared by their encodings, so a key codec must encode equal
+ * keys to equal bytes, and unequal keys to unequal bytes.  Likewise, keys
+ * are hashed by their encodings rather than by {@code hashCode()}, which
+ * need not be the same from one run of a program to the next.  This class
+ * does not permit {@code null} keys or values.  Other than that, the map
+ * behaves as a {@code HashMap} would, and provides all of the optional map
+ * operations.
+ *
+ * <p>The file starts with a fixed-size header, followed by the records
+ * holding the mappings and by an index of slots, one per possible mapping,
+ * that locate the records by open addressing.  Space is allocated at the
+ * end of the file as needed, which grows as the map does.  A value that
+ * is replaced by one whose encoding is no longer overwrites its record in
+ * place; otherwise, and whenever a mapping is removed or the index
+ * outgrows its capacity, the space previously used is not reused, except
+ * by {@link #clear}.  A map that has seen many updates may be compacted by
+ * copying it into a new file with {@link #putAll}.
+ *
+ * <p>Changes are written to the mapped file, and reach the file system
+ * when the operating system writes the modified pages back, or when
+ * {@link #force} is called.  Should the virtual machine or the operating
+ * system fail before then, the file may be left inconsistent.  While open,
+ * the file is locked against use by other {@code MappedHashMap}s, in this
+ * or any other process.
+ *
+ * <p><strong>Note that this implementation is not synchronized.</strong>
+ * If multiple threads access a map concurrently, and at least one of the
+ * threads modifies the map structurally, it <i>must</i> be synchronized
+ * externally.  The iterators returned by all of this class's "collection
+ * view methods" are <i>fail-fast</i>, in the same manner as those of
+ * {@code HashMap}.
+ *
+ * <p>Methods that need to grow the file throw {@link UncheckedIOException}
+ * if that fails.  All methods other than {@code close} throw
+ * {@link IllegalStateException} once the map has been closed.
+ *
+ * @param <K> the type of keys maintained by this map
+ * @param <V> the type of mapped values
+ *
+ * @see     HashMap
+ * @see     FileChannel#map
+ * @since   11
+ */
+public class MappedHashMap<K,V> extends AbstractMap<K,V> implements Closeable {
+
+    /*
+     * Implementation notes.
+     *
+     * File layout (all numbers big-endian):
+     *
+     *   header, HEADER_SIZE bytes at offset 0:
+     *     long  MAGIC
+     *     int   VERSION
+     *     int   capacity of the index (a power of two)
+     *     long  offset of the index
+     *     int   size
+     *     int   (unused)
+     *     long  end: offset of the first unallocated byte
+     *
+     *   index, capacity slots of SLOT_SIZE bytes:
+     *     long  offset of the record, or 0 for a free slot
+     *     int   hash of the key
+     *     int   (unused)
+     *
+     *   record, RECORD_HEADER bytes plus the key and value space:
+     *     int   length of the key
+     *     int   length of the value
+     *     int   space reserved for the value
+     *     int   (unused)
+     *     key bytes, then value bytes
+     *
+     * Records and indexes are allocated at end, on 8-byte boundaries,
+     * in any order; a resize allocates a new index and then points the
+     * header at it.  Every mapping lives at a slot reachable from
+     * hash & (capacity - 1) by linear probing without crossing a free
+     * slot, and removal closes gaps by backward shifting, just as in
+     * CompactHashMap, whose iterator scheme is also used here.
+     *
+     * A single MappedByteBuffer cannot exceed 2GB, so the file is
+     * mapped in segments of SEGMENT_SIZE bytes, the last of which is
+     * remapped as the file grows.  Longs and ints are always aligned
+     * and so never straddle segments; key and value bytes may.
+     */
+
+    /**
+     * A conversion between objects and byte arrays, used to store keys
+     * and values.  Instances must be stateless: the bytes a codec
+     * produces for an object must decode to an equal object, in this or
+     * any later run of the program, and a codec used for keys must
+     * produce equal bytes for equal keys.
+     *
+     * @param <T> the type of the objects converted
+     * @since 11
+     */
+    public interface Codec<T> {
+        /**
+         * Returns the bytes representing the given object.
+         *
+         * @param t the object, never {@code null}
+         * @return the bytes representing {@code t}
+         */
+        byte[] encode(T t);
+
+        /**
+         * Returns the object represented by the given bytes.
+         *
+         * @param bytes bytes previously returned by {@link #encode}
+         * @return the object represented by {@code bytes}
+         */
+        T decode(byte[] bytes);
+
+        /**
+         * Returns a codec made of the given functions.
+         *
+         * @param encoder the function implementing {@link #encode}
+         * @param decoder the function implementing {@link #decode}
+         * @param <T> the type of the objects converted
+         * @return a codec made of the given functions
+         * @throws NullPointerException if either function is null
+         */
+        static <T> Codec<T> of(Function<? super T, byte[]> encoder,
+                               Function<byte[], ? extends T> decoder) {
+            Objects.requireNonNull(encoder);
+            Objects.requireNonNull(decoder);
+            return new Codec<T>() {
+                public byte[] encode(T t)     { return encoder.apply(t); }
+                public T decode(byte[] bytes) { return decoder.apply(bytes); }
+            };
+        }
+
+        /**
+         * A codec storing strings in UTF-8.
+         */
+        Codec<String> UTF_8 =
+            of(s -> s.getBytes(StandardCharsets.UTF_8),
+               b -> new String(b, StandardCharsets.UTF_8));
+
+        /**
+         * A codec storing longs as eight big-endian bytes.
+         */
+        Codec<Long> LONG =
+            of(l -> ByteBuffer.allocate(Long.BYTES).putLong(l).array(),
+               b -> ByteBuffer.wrap(b).getLong());
+    }
+
+    /** Identifies files written by this class. */
+    static final long MAGIC = 0x4A55484D41503031L; // "JUHMAP01"
+
+    /** The version of the file layout. */
+    static final int VERSION = 1;
+
+    // Header field offsets
+    static final long CAPACITY_OFFSET = 12;
+    static final long INDEX_OFFSET = 16;
+    static final long SIZE_OFFSET = 24;
+    static final long END_OFFSET = 32;
+
+    /** The size of the file header. */
+    static final int HEADER_SIZE = 64;
+
+    /** The size of an index slot. */
+    static final int SLOT_SIZE = 16;
+
+    /** The size of the fixed part of a record. */
+    static final int RECORD_HEADER = 16;
+
+    /** log2 of the size of a mapped segment. */
+    static final int SEGMENT_SHIFT = 30;
+
+    /** The size of a mapped segment. */
+    static final long SEGMENT_SIZE = 1L << SEGMENT_SHIFT;
+
+    /** The file is grown in multiples of this size. */
+    static final long PAGE_SIZE = 4096;
+
+    /** The default initial capacity - MUST be a power of two. */
+    static final int DEFAULT_INITIAL_CAPACITY = HashMap.DEFAULT_INITIAL_CAPACITY;
+
+    /** The maximum capacity, MUST be a power of two <= 1<<30. */
+    static final int MAXIMUM_CAPACITY = HashMap.MAXIMUM_CAPACITY;
+
+    /** The load factor of the index. */
+    static final float LOAD_FACTOR = HashMap.DEFAULT_LOAD_FACTOR;
+
+    /* ---------------- Fields -------------- */
+
+    final FileChannel channel;
+    final FileLock lock;
+    final Codec<K> keyCodec;
+    final Codec<V> valueCodec;
+
+    /** The mapped segments of the file, or null once closed. */
+    MappedByteBuffer[] segments;
+
+    /** The number of bytes of the file mapped. */
+    long length;
+
+    /** Cached header fields. */
+    int capacity, size;
+    long index, end;
+
+    /** The size at which to resize the index. */
+    int threshold;
+
+    /** For fail-fast iterators. */
+    transient int modCount;
+
+    /** Cached entry set view. */
+    transient Set<Map.Entry<K,V>> entrySet;
+
+    /* ---------------- Public operations -------------- */
+
+    /**
+     * Opens the map stored in the given file, creating the file with an
+     * empty map if it does not exist.
+     *
+     * @param  file       the file
+     * @param  keyCodec   the codec for keys
+     * @param  valueCodec the codec for values
+     * @throws IOException if the file cannot be opened, mapped or locked,
+     *         or exists but was not written by this class
+     * @throws NullPointerException if any argument is null
+     */
+    public MappedHashMap(Path file, Codec<K> keyCodec, Codec<V> valueCodec)
+        throws IOException {
+        this(file, DEFAULT_INITIAL_CAPACITY, keyCodec, valueCodec);
+    }
+
+    /**
+     * Opens the map stored in the given file, creating the file with an
+     * empty map of the given initial capacity if it does not exist.
+     *
+     * @param  file            the file
+     * @param  initialCapacity the initial capacity, used only when the
+     *         file is created
+     * @param  keyCodec        the codec for keys
+     * @param  valueCodec      the codec for values
+     * @throws IOException if the file cannot be opened, mapped or locked,
+     *         or exists but was not written by this class
+     * @throws IllegalArgumentException if the initial capacity is negative
+     * @throws NullPointerException if any object argument is null
+     */
+    public MappedHashMap(Path file, int initialCapacity,
+                         Codec<K> keyCodec, Codec<V> valueCodec)
+        throws IOException {
+        if (initialCapacity < 0)
+            throw new IllegalArgumentException("Illegal initial capacity: " +
+                                               initialCapacity);
+        this.keyCodec = Objects.requireNonNull(keyCodec);
+        this.valueCodec = Objects.requireNonNull(valueCodec);
+        FileChannel ch = FileChannel.open(file, StandardOpenOption.CREATE,
+                                          StandardOpenOption.READ,
+                                          StandardOpenOption.WRITE);
+        try {
+            FileLock fl;
+            try {
+                fl = ch.tryLock();
+            } catch (OverlappingFileLockException e) {
+                // locked by another map in this virtual machine
+                throw new IOException("File in use: " + file, e);
+            }
+            if (fl == null)
+                throw new IOException("File in use: " + file);
+            this.channel = ch;
+            this.lock = fl;
+            this.segments = new MappedByteBuffer[0];
+            long len = ch.size();
+            if (len == 0L)
+                create(Math.max(2, HashMap.tableSizeFor(initialCapacity)));
+            else {
+                if (len < HEADER_SIZE)
+                    throw new IOException("Not a map file: " + file);
+                map(len);
+                if (getLong(0) != MAGIC || getInt(8) != VERSION)
+                    throw new IOException("Not a map file: " + file);
+                capacity = getInt(CAPACITY_OFFSET);
+                index = getLong(INDEX_OFFSET);
+                size = getInt(SIZE_OFFSET);
+                end = getLong(END_OFFSET);
+                threshold = (int)(capacity * LOAD_FACTOR);
+            }
+        } catch (IOException | RuntimeException | Error e) {
+            ch.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Writes the header and an empty index of the given capacity to a new
+     * (or cleared) file.
+     */
+    final void create(int cap) throws IOException {
+        end = HEADER_SIZE;
+        ensureLength(HEADER_SIZE);
+        putLong(0, MAGIC);
+        putInt(8, VERSION);
+        size = 0;
+        putInt(SIZE_OFFSET, 0);
+        newIndex(cap);
+    }
+
+    /**
+     * Allocates a zeroed index of the given capacity and makes it current,
+     * without moving any mappings into it.
+     */
+    final void newIndex(int cap) throws IOException {
+        long idx = allocate((long)cap * SLOT_SIZE);
+        for (long p = idx, e = idx + (long)cap * SLOT_SIZE; p < e; p += 8)
+            putLong(p, 0L);
+        capacity = cap;
+        index = idx;
+        threshold = (int)(cap * LOAD_FACTOR);
+        putInt(CAPACITY_OFFSET, cap);
+        putLong(INDEX_OFFSET, idx);
+    }
+
+    /**
+     * Returns the number of key-value mappings in this map.
+     *
+     * @return the number of key-value mappings in this map
+     */
+    public int size() {
+        checkOpen();
+        return size;
+    }
+
+    /**
+     * Returns {@code true} if this map contains no key-value mappings.
+     *
+     * @return {@code true} if this map contains no key-value mappings
+     */
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * Returns the value to which the specified key is mapped,
+     * or {@code null} if this map contains no mapping for the key.
+     *
+     * @throws ClassCastException if the key is of an inappropriate type
+     *         for the key codec
+     * @throws NullPointerException if the specified key is null
+     */
+    @SuppressWarnings("unchecked")
+    public V get(Object key) {
+        byte[] kb = keyCodec.encode((K)Objects.requireNonNull(key));
+        int i = find(kb, hash(kb));
+        return (i < 0) ? null : readValue(getLong(slot(i)));
+    }
+
+    /**
+     * Returns {@code true} if this map contains a mapping for the
+     * specified key.
+     *
+     * @throws ClassCastException if the key is of an inappropriate type
+     *         for the key codec
+     * @throws NullPointerException if the specified key is null
+     */
+    @SuppressWarnings("unchecked")
+    public boolean containsKey(Object key) {
+        byte[] kb = keyCodec.encode((K)Objects.requireNonNull(key));
+        return find(kb, hash(kb)) >= 0;
+    }
+
+    /**
+     * Associates the specified value with the specified key in this map.
+     * If the map previously contained a mapping for the key, the old
+     * value is replaced.
+     *
+     * @param key key with which the specified value is to be associated
+     * @param value value to be associated with the specified key
+     * @return the previous value associated with {@code key}, or
+     *         {@code null} if there was no mapping for {@code key}
+     * @throws NullPointerException if the key or value is null
+     * @throws UncheckedIOException if the file cannot be grown
+     */
+    public V put(K key, V value) {
+        byte[] kb = keyCodec.encode(Objects.requireNonNull(key));
+        byte[] vb = valueCodec.encode(Objects.requireNonNull(value));
+        int hash = hash(kb), i = find(kb, hash);
+        if (i >= 0) {
+            long s = slot(i), rec = getLong(s);
+            V oldValue = readValue(rec);
+            if (vb.length <= getInt(rec + 8)) {
+                putBytes(rec + RECORD_HEADER + kb.length, vb);
+                putInt(rec + 4, vb.length);
+            }
+            else
+                putLong(s, writeRecord(kb, vb));
+            return oldValue;
+        }
+        try {
+            if (size >= threshold) {
+                resize();
+                i = find(kb, hash);
+            }
+            long rec = writeRecord(kb, vb), s = slot(~i);
+            putInt(s + 8, hash);
+            putLong(s, rec);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        putInt(SIZE_OFFSET, ++size);
+        ++modCount;
+        return null;
+    }
+
+    /**
+     * Removes the mapping for the specified key from this map if present.
+     *
+     * @param  key key whose mapping is to be removed from the map
+     * @return the previous value associated with {@code key}, or
+     *         {@code null} if there was no mapping for {@code key}
+     * @throws ClassCastException if the key is of an inappropriate type
+     *         for the key codec
+     * @throws NullPointerException if the specified key is null
+     */
+    @SuppressWarnings("unchecked")
+    public V remove(Object key) {
+        byte[] kb = keyCodec.encode((K)Objects.requireNonNull(key));
+        int i = find(kb, hash(kb));
+        if (i < 0)
+            return null;
+        V oldValue = readValue(getLong(slot(i)));
+        removeAt(i);
+        return oldValue;
+    }
+
+    /**
+     * Removes all of the mappings from this map, releasing all the space
+     * allocated in the file for reuse.  The file itself does not shrink.
+     *
+     * @throws UncheckedIOException if the file cannot be written
+     */
+    public void clear() {
+        checkOpen();
+        try {
+            create(DEFAULT_INITIAL_CAPACITY);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        ++modCount;
+    }
+
+    /**
+     * Forces any changes made to this map to be written to the storage
+     * device containing the file.
+     *
+     * @see MappedByteBuffer#force
+     */
+    public void force() {
+        checkOpen();
+        for (MappedByteBuffer b : segments)
+            b.force();
+    }
+
+    /**
+     * Forces any changes to the file and closes it.  The map may not be
+     * used after it has been closed.  Closing a closed map has no effect.
+     *
+     * @throws IOException if an I/O error occurs
+     */
+    public void close() throws IOException {
+        if (segments != null) {
+            force();
+            segments = null;
+            try {
+                lock.release();
+            } finally {
+                channel.close();
+            }
+        }
+    }
+
+    /**
+     * Returns a {@link Set} view of the mappings contained in this map.
+     * The set is backed by the map, so changes to the map are
+     * reflected in the set, and vice-versa.  If the map is modified
+     * while an iteration over the set is in progress (except through
+     * the iterator's own {@code remove} operation, or through the
+     * {@code setValue} operation on a map entry returned by the
+     * iterator) the results of the iteration are undefined.  The set
+     * supports element removal, which removes the corresponding
+     * mapping from the map, via the {@code Iterator.remove},
+     * {@code Set.remove}, {@code removeAll}, {@code retainAll} and
+     * {@code clear} operations.  It does not support the
+     * {@code add} or {@code addAll} operations.
+     *
+     * <p>The keys and values of the entries are decoded as they are
+     * returned by the iterator.
+     *
+     * @return a set view of the mappings contained in this map
+     */
+    public Set<Map.Entry<K,V>> entrySet() {
+        Set<Map.Entry<K,V>> es;
+        return (es = entrySet) == null ? (entrySet = new EntrySet()) : es;
+    }
+
+    final class EntrySet extends AbstractSet<Map.Entry<K,V>> {
+        public final int size()                 { return MappedHashMap.this.size(); }
+        public final void clear()               { MappedHashMap.this.clear(); }
+        public final Iterator<Map.Entry<K,V>> iterator() {
+            return new EntryIterator();
+        }
+        public final boolean contains(Object o) {
+            if (!(o instanceof Map.Entry))
+                return false;
+            Map.Entry<?,?> e = (Map.Entry<?,?>) o;
+            Object key = e.getKey(), value;
+            try {
+                return key != null && (value = get(key)) != null &&
+                    value.equals(e.getValue());
+            } catch (ClassCastException ex) {
+                return false;
+            }
+        }
+        public final boolean remove(Object o) {
+            if (o instanceof Map.Entry) {
+                Map.Entry<?,?> e = (Map.Entry<?,?>) o;
+                if (contains(e)) {
+                    MappedHashMap.this.remove(e.getKey());
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    final class EntryIterator implements Iterator<Map.Entry<K,V>> {
+        int cursor;           // index of next slot to examine
+        int stop;             // slot that was free on creation
+        int nextSlot;         // slot of next entry, or -1
+        int lastReturned;     // slot of last entry, or -1
+        int expectedModCount; // for fast-fail
+
+        EntryIterator() {
+            checkOpen();
+            expectedModCount = modCount;
+            lastReturned = nextSlot = -1;
+            if (size > 0) {
+                int start = 0;
+                while (getLong(slot(start)) != 0L)
+                    ++start;
+                stop = start;
+                cursor = (start + 1) & (capacity - 1);
+                advance();
+            }
+        }
+
+        final void advance() {
+            nextSlot = -1;
+            while (cursor != stop) {
+                int i = cursor;
+                cursor = (i + 1) & (capacity - 1);
+                if (getLong(slot(i)) != 0L) {
+                    nextSlot = i;
+                    break;
+                }
+            }
+        }
+
+        public boolean hasNext() {
+            return nextSlot >= 0;
+        }
+
+        public Map.Entry<K,V> next() {
+            int i;
+            if (modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+            if ((i = nextSlot) < 0)
+                throw new NoSuchElementException();
+            lastReturned = i;
+            advance();
+            long rec = getLong(slot(i));
+            return new MapEntry(readKey(rec), readValue(rec));
+        }
+
+        public void remove() {
+            int i;
+            if ((i = lastReturned) < 0)
+                throw new IllegalStateException();
+            if (modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+            lastReturned = -1;
+            if (removeAt(i) >= 0) {
+                // an unvisited entry was moved into slot i, and others
+                // may have moved behind it; resume from slot i
+                nextSlot = i;
+                cursor = (i + 1) & (capacity - 1);
+            }
+            expectedModCount = modCount;
+        }
+    }
+
+    /**
+     * Entry returned by the entry set iterator, holding the decoded key
+     * and value.  Its setValue writes through to the map by key.
+     */
+    final class MapEntry extends AbstractMap.SimpleEntry<K,V> {
+        private static final long serialVersionUID = -6196208914430306557L;
+
+        MapEntry(K key, V value) {
+            super(key, value);
+        }
+
+        public V setValue(V value) {
+            put(getKey(), value);
+            return super.setValue(value);
+        }
+    }
+
+    /* ---------------- Internals -------------- */
+
+    /**
+     * Hashes the encoding of a key, spreading the higher bits downward
+     * as HashMap.hash does.
+     */
+    static int hash(byte[] kb) {
+        int h = Arrays.hashCode(kb);
+        return h ^ (h >>> 16);
+    }
+
+    final void checkOpen() {
+        if (segments == null)
+            throw new IllegalStateException("Map is closed");
+    }
+
+    /**
+     * Returns the file offset of index slot i.
+     */
+    final long slot(int i) {
+        return index + (long)i * SLOT_SIZE;
+    }
+
+    /**
+     * Returns the index slot holding the given key, or, if none, the
+     * complement of the free slot at which the probe ended.
+     */
+    final int find(byte[] kb, int hash) {
+        checkOpen();
+        int mask = capacity - 1;
+        for (int i = hash & mask; ; i = (i + 1) & mask) {
+            long s = slot(i), rec;
+            if ((rec = getLong(s)) == 0L)
+                return ~i;
+            if (getInt(s + 8) == hash && getInt(rec) == kb.length &&
+                bytesEqual(rec + RECORD_HEADER, kb))
+                return i;
+        }
+    }
+
+    /**
+     * Removes the mapping in slot i, moving later slots of its cluster
+     * back to fill the gap.
+     *
+     * @return i if a slot was moved into slot i, else -1
+     */
+    final int removeAt(int i) {
+        int mask = capacity - 1, gap = i;
+        long rec;
+        for (int j = (i + 1) & mask; (rec = getLong(slot(j))) != 0L;
+             j = (j + 1) & mask) {
+            int h = getInt(slot(j) + 8);
+            // move j back iff gap lies cyclically within [home(j), j)
+            if (((j - (h & mask)) & mask) >= ((j - gap) & mask)) {
+                putInt(slot(gap) + 8, h);
+                putLong(slot(gap), rec);
+                gap = j;
+            }
+        }
+        putLong(slot(gap), 0L);
+        putInt(SIZE_OFFSET, --size);
+        ++modCount;
+        return (gap == i) ? -1 : i;
+    }
+
+    /**
+     * Moves all slots to a new index of twice the capacity.  The old
+     * index is abandoned.
+     */
+    final void resize() throws IOException {
+        int oldCap = capacity;
+        if (oldCap >= MAXIMUM_CAPACITY)
+            throw new IllegalStateException("Map is full");
+        long oldIndex = index;
+        int newCap = oldCap << 1, mask = newCap - 1;
+        long idx = allocate((long)newCap * SLOT_SIZE);
+        for (long p = idx, e = idx + (long)newCap * SLOT_SIZE; p < e; p += 8)
+            putLong(p, 0L);
+        for (int j = 0; j < oldCap; ++j) {
+            long s = oldIndex + (long)j * SLOT_SIZE, rec;
+            if ((rec = getLong(s)) != 0L) {
+                int h = getInt(s + 8), i = h & mask;
+                while (getLong(idx + (long)i * SLOT_SIZE) != 0L)
+                    i = (i + 1) & mask;
+                putInt(idx + (long)i * SLOT_SIZE + 8, h);
+                putLong(idx + (long)i * SLOT_SIZE, rec);
+            }
+        }
+        capacity = newCap;
+        index = idx;
+        threshold = (int)(newCap * LOAD_FACTOR);
+        putInt(CAPACITY_OFFSET, newCap);
+        putLong(INDEX_OFFSET, idx);
+        ++modCount;
+    }
+
+    /**
+     * Allocates a record for the given key and value, returning its offset.
+     */
+    final long writeRecord(byte[] kb, byte[] vb) {
+        long rec;
+        try {
+            rec = allocate(RECORD_HEADER + (long)kb.length + vb.length);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        putInt(rec, kb.length);
+        putInt(rec + 4, vb.length);
+        putInt(rec + 8, vb.length);
+        putBytes(rec + RECORD_HEADER, kb);
+        putBytes(rec + RECORD_HEADER + kb.length, vb);
+        return rec;
+    }
+
+    final K readKey(long rec) {
+        byte[] kb = new byte[getInt(rec)];
+        getBytes(rec + RECORD_HEADER, kb);
+        return keyCodec.decode(kb);
+    }
+
+    final V readValue(long rec) {
+        int kl = getInt(rec);
+        byte[] vb = new byte[getInt(rec + 4)];
+        getBytes(rec + RECORD_HEADER + kl, vb);
+        return valueCodec.decode(vb);
+    }
+
+    /**
+     * Allocates the given number of bytes at the end of the file, rounded
+     * up to a multiple of eight, growing the file if need be.
+     *
+     * @return the offset of the space allocated
+     */
+    final long allocate(long bytes) throws IOException {
+        long pos = end, e = pos + ((bytes + 7) & ~7L);
+        ensureLength(e);
+        putLong(END_OFFSET, end = e);
+        return pos;
+    }
+
+    /**
+     * Grows the file, by at least half its length, if it is shorter than
+     * the given length.
+     */
+    final void ensureLength(long required) throws IOException {
+        long len = length;
+        if (required > len) {
+            long newLength = Math.max(required, len + (len >>> 1));
+            map((newLength + PAGE_SIZE - 1) & -PAGE_SIZE);
+        }
+    }
+
+    /**
+     * Maps the file up to the given length, which must be at least the
+     * length already mapped, extending the file as needed.
+     */
+    final void map(long newLength) throws IOException {
+        long oldLength = length;
+        int first = (oldLength == 0L) ? 0 : (int)((oldLength - 1) >>> SEGMENT_SHIFT);
+        int count = (int)((newLength - 1) >>> SEGMENT_SHIFT) + 1;
+        MappedByteBuffer[] segs = Arrays.copyOf(segments, count);
+        for (int i = first; i < count; ++i) {
+            long base = (long)i << SEGMENT_SHIFT;
+            segs[i] = channel.map(FileChannel.MapMode.READ_WRITE, base,
+                                  Math.min(SEGMENT_SIZE, newLength - base));
+        }
+        segments = segs;
+        length = newLength;
+    }
+
+    // Access to the mapped file by offset
+
+    final long getLong(long pos) {
+        return segments[(int)(pos >>> SEGMENT_SHIFT)]
+            .getLong((int)(pos & (SEGMENT_SIZE - 1)));
+    }
+
+    final void putLong(long pos, long v) {
+        segments[(int)(pos >>> SEGMENT_SHIFT)]
+            .putLong((int)(pos & (SEGMENT_SIZE - 1)), v);
+    }
+
+    final int getInt(long pos) {
+        return segments[(int)(pos >>> SEGMENT_SHIFT)]
+            .getInt((int)(pos & (SEGMENT_SIZE - 1)));
+    }
+
+    final void putInt(long pos, int v) {
+        segments[(int)(pos >>> SEGMENT_SHIFT)]
+            .putInt((int)(pos & (SEGMENT_SIZE - 1)), v);
+    }
+
+    final void getBytes(long pos, byte[] dst) {
+        for (int off = 0, n; off < dst.length; off += n, pos += n) {
+            int p = (int)(pos & (SEGMENT_SIZE - 1));
+            n = (int)Math.min(dst.length - off, SEGMENT_SIZE - p);
+            ByteBuffer b = segments[(int)(pos >>> SEGMENT_SHIFT)].duplicate();
+            b.position(p);
+            b.get(dst, off, n);
+        }
+    }
+
+    final void putBytes(long pos, byte[] src) {
+        for (int off = 0, n; off < src.length; off += n, pos += n) {
+            int p = (int)(pos & (SEGMENT_SIZE - 1));
+            n = (int)Math.min(src.length - off, SEGMENT_SIZE - p);
+            ByteBuffer b = segments[(int)(pos >>> SEGMENT_SHIFT)].duplicate();
+            b.position(p);
+            b.put(src, off, n);
+        }
+    }
+
+    final boolean bytesEqual(long pos, byte[] b) {
+        for (int i = 0; i < b.length; ++i, ++pos) {
+            if (segments[(int)(pos >>> SEGMENT_SHIFT)]
+                .get((int)(pos & (SEGMENT_SIZE - 1))) != b[i])
+                return false;
+        }
+        return true;
+    }
+}
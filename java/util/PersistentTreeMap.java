@@ -0,0 +1,1457 @@
+/*
+ * Copyright (c) 2018, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package java.util;
+
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * An immutable, persistent {@link NavigableMap} implementation based on an
+ * AVL tree.  The map is sorted according to the {@linkplain Comparable
+ * natural ordering} of its keys, or by a {@link Comparator} provided when
+ * the empty map is obtained, as for {@link TreeMap}.
+ *
+ * <p>A {@code PersistentTreeMap} never changes.  Instead of {@code put} and
+ * {@code remove}, the {@link #with with} and {@link #without without}
+ * methods return a new map that differs from this one in a single mapping.
+ * The new map shares all of its nodes with this one except those on the
+ * path from the root to the changed key, so an update allocates log(n)
+ * nodes, and the old map remains valid and unchanged.  Taking a snapshot
+ * of such a map costs nothing: the map <em>is</em> the snapshot.  A writer
+ * can thus publish successive versions through a {@code volatile} field,
+ * and any number of readers can use whichever version they last read,
+ * without locking and without copying, where a {@code TreeMap} would have
+ * to be cloned for each of them:
+ *
+ * <pre> {@code
+ * volatile PersistentTreeMap<String,Config> index = PersistentTreeMap.empty();
+ *
+ * // writer
+ * index = index.with(name, config);
+ *
+ * // reader
+ * PersistentTreeMap<String,Config> snapshot = index;
+ * for (Config c : snapshot.subMap(from, to).values()) ...}</pre>
+ *
+ * <p>All of the fields of the map and its nodes are final, so a map read
+ * from any thread is seen completely initialized.  All methods that would
+ * modify the map in place, including those of its views, iterators and
+ * entries, throw {@link UnsupportedOperationException}.  The
+ * {@code Map.Entry} objects returned by this class and its views are the
+ * nodes of the tree themselves, and are immutable.
+ *
+ * <p>This class provides guaranteed log(n) time cost for the
+ * {@code containsKey}, {@code get}, {@code with} and {@code without}
+ * operations, and for the navigation methods.  The maps and sub-map views
+ * are iterated without allocating beyond a path stack of log(n) nodes.
+ * {@link #copyOf(SortedMap)} builds a map from a sorted map, such as a
+ * {@code TreeMap}, in linear time, and {@link #toTreeMap} builds a
+ * {@code TreeMap} from this map in linear time.  The {@code size} of a
+ * sub-map view takes time linear in its size, as for {@code TreeMap}.
+ *
+ * <p>Like {@code TreeMap}, this class permits {@code null} values, and
+ * {@code null} keys if its comparator does.  The ordering must be
+ * <em>consistent with {@code equals}</em> if the map is to correctly
+ * implement the {@code Map} interface.
+ *
+ * @param <K> the type of keys maintained by this map
+ * @param <V> the type of mapped values
+ *
+ * @see TreeMap
+ * @see NavigableMap
+ * @since 11
+ */
+public final class PersistentTreeMap<K,V> extends AbstractMap<K,V>
+    implements NavigableMap<K,V>, Serializable {
+
+    private static final long serialVersionUID = 2748395871940562104L;
+
+    /*
+     * Implementation notes.
+     *
+     * Nodes have no parent links, since a node may belong to many
+     * versions of the map, and are never modified after
+     * construction.  An update copies the nodes on the path to the
+     * key, rebalancing with AVL rotations on the way back up; each
+     * rotation creates new nodes instead of relinking old ones.  An
+     * AVL tree is used rather than a red-black tree because its
+     * deletion needs no case analysis on colors of siblings, which
+     * a persistent version would have to copy as well; the height
+     * it keeps also bounds the iterator's path stack.
+     *
+     * Iterators keep the path from the root to the next node on an
+     * explicit stack, and sub-map views iterate from a seek to their
+     * lower (or upper) bound, checking each key against the other.
+     */
+
+    /**
+     * The comparator used to maintain order in this map, or null if it
+     * uses the natural ordering of its keys.
+     */
+    private final transient Comparator<? super K> comparator;
+
+    private final transient Node<K,V> root;
+
+    private final transient int size;
+
+    /**
+     * The empty map with natural ordering.
+     */
+    @SuppressWarnings("rawtypes")
+    private static final PersistentTreeMap EMPTY = new PersistentTreeMap<>(null, null, 0);
+
+    private PersistentTreeMap(Comparator<? super K> comparator,
+                              Node<K,V> root, int size) {
+        this.comparator = comparator;
+        this.root = root;
+        this.size = size;
+    }
+
+    /**
+     * Returns an empty map ordered according to the natural ordering of
+     * its keys.  All keys added to the map must implement the {@link
+     * Comparable} interface and be mutually comparable.
+     *
+     * @param <K> the type of keys maintained by the map
+     * @param <V> the type of mapped values
+     * @return an empty map
+     */
+    @SuppressWarnings("unchecked")
+    public static <K,V> PersistentTreeMap<K,V> empty() {
+        return (PersistentTreeMap<K,V>) EMPTY;
+    }
+
+    /**
+     * Returns an empty map ordered according to the given comparator.
+     *
+     * @param <K> the type of keys maintained by the map
+     * @param <V> the type of mapped values
+     * @param comparator the comparator that will be used to order the map.
+     *        If {@code null}, the {@linkplain Comparable natural
+     *        ordering} of the keys will be used.
+     * @return an empty map
+     */
+    public static <K,V> PersistentTreeMap<K,V> empty(Comparator<? super K> comparator) {
+        return (comparator == null) ? empty() :
+            new PersistentTreeMap<>(comparator, null, 0);
+    }
+
+    /**
+     * Returns a map containing the same mappings as the given map, ordered
+     * according to the natural ordering of its keys.  If the given map is
+     * a {@code SortedMap} with natural ordering, this takes linear time.
+     *
+     * @param <K> the type of keys maintained by the map
+     * @param <V> the type of mapped values
+     * @param  map the map whose mappings are to be placed in the new map
+     * @return a map containing the given mappings
+     * @throws ClassCastException if the keys in map are not {@link
+     *         Comparable}, or are not mutually comparable
+     * @throws NullPointerException if the specified map is null or
+     *         contains a null key
+     */
+    @SuppressWarnings("unchecked")
+    public static <K,V> PersistentTreeMap<K,V> copyOf(Map<? extends K, ? extends V> map) {
+        if (!(map instanceof SortedMap) || ((SortedMap<?,?>)map).comparator() != null)
+            map = new TreeMap<>(map);
+        return copyOf((SortedMap<K, ? extends V>)map);
+    }
+
+    /**
+     * Returns a map containing the same mappings, and using the same
+     * ordering, as the given sorted map, such as a {@code TreeMap}.  This
+     * takes time linear in the size of the map, or no time at all if it is
+     * itself a {@code PersistentTreeMap}.
+     *
+     * @param <K> the type of keys maintained by the map
+     * @param <V> the type of mapped values
+     * @param  map the sorted map whose mappings are to be placed in the new
+     *         map, and whose comparator is to be used to order it
+     * @return a map containing the given mappings
+     * @throws NullPointerException if the specified map is null
+     */
+    @SuppressWarnings("unchecked")
+    public static <K,V> PersistentTreeMap<K,V> copyOf(SortedMap<K, ? extends V> map) {
+        if (map instanceof PersistentTreeMap)
+            return (PersistentTreeMap<K,V>)map;
+        Comparator<? super K> comparator = map.comparator();
+        int size = map.size();
+        if (size == 0)
+            return empty(comparator);
+        Iterator<? extends Map.Entry<K, ? extends V>> it = map.entrySet().iterator();
+        return new PersistentTreeMap<>(comparator, buildFromSorted(it, 0, size - 1), size);
+    }
+
+    /**
+     * Returns a new {@code TreeMap} containing the mappings of this map,
+     * with the same ordering.  This takes linear time.
+     *
+     * @return a new {@code TreeMap} containing the mappings of this map
+     */
+    public TreeMap<K,V> toTreeMap() {
+        return new TreeMap<>(this);
+    }
+
+    // Query Operations
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * @throws ClassCastException if the specified key cannot be compared
+     *         with the keys currently in the map
+     * @throws NullPointerException if the specified key is null
+     *         and this map uses natural ordering, or its comparator
+     *         does not permit null keys
+     */
+    public boolean containsKey(Object key) {
+        return getNode(key) != null;
+    }
+
+    /**
+     * @throws ClassCastException if the specified key cannot be compared
+     *         with the keys currently in the map
+     * @throws NullPointerException if the specified key is null
+     *         and this map uses natural ordering, or its comparator
+     *         does not permit null keys
+     */
+    public V get(Object key) {
+        Node<K,V> p = getNode(key);
+        return (p == null ? null : p.value);
+    }
+
+    /**
+     * @throws ClassCastException if the specified key cannot be compared
+     *         with the keys currently in the map
+     * @throws NullPointerException if the specified key is null
+     *         and this map uses natural ordering, or its comparator
+     *         does not permit null keys
+     */
+    public V getOrDefault(Object key, V defaultValue) {
+        Node<K,V> p = getNode(key);
+        return (p == null ? defaultValue : p.value);
+    }
+
+    public Comparator<? super K> comparator() {
+        return comparator;
+    }
+
+    /**
+     * @throws NoSuchElementException {@inheritDoc}
+     */
+    public K firstKey() {
+        return key(firstNode(root));
+    }
+
+    /**
+     * @throws NoSuchElementException {@inheritDoc}
+     */
+    public K lastKey() {
+        return key(lastNode(root));
+    }
+
+    /**
+     * Returns this map's node for the given key, or {@code null} if the map
+     * does not contain the key.
+     */
+    @SuppressWarnings("unchecked")
+    final Node<K,V> getNode(Object key) {
+        Comparator<? super K> cpr = comparator;
+        Node<K,V> p = root;
+        if (cpr != null) {
+            K k = (K) key;
+            while (p != null) {
+                int cmp = cpr.compare(k, p.key);
+                if (cmp < 0)
+                    p = p.left;
+                else if (cmp > 0)
+                    p = p.right;
+                else
+                    return p;
+            }
+        } else {
+            Objects.requireNonNull(key);
+            Comparable<? super K> k = (Comparable<? super K>) key;
+            while (p != null) {
+                int cmp = k.compareTo(p.key);
+                if (cmp < 0)
+                    p = p.left;
+                else if (cmp > 0)
+                    p = p.right;
+                else
+                    return p;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the node with the least key greater than (or equal to, if
+     * inclusive) the given key, or null if there is none.
+     */
+    final Node<K,V> getCeilingNode(Object key, boolean inclusive) {
+        Node<K,V> best = null;
+        for (Node<K,V> p = root; p != null; ) {
+            int cmp = compare(key, p.key);
+            if (cmp < 0 || (cmp == 0 && inclusive)) {
+                best = p;
+                p = p.left;
+            } else
+                p = p.right;
+        }
+        return best;
+    }
+
+    /**
+     * Returns the node with the greatest key less than (or equal to, if
+     * inclusive) the given key, or null if there is none.
+     */
+    final Node<K,V> getFloorNode(Object key, boolean inclusive) {
+        Node<K,V> best = null;
+        for (Node<K,V> p = root; p != null; ) {
+            int cmp = compare(key, p.key);
+            if (cmp > 0 || (cmp == 0 && inclusive)) {
+                best = p;
+                p = p.right;
+            } else
+                p = p.left;
+        }
+        return best;
+    }
+
+    // Persistent updates
+
+    /**
+     * Returns a map with the same mappings as this one, except that the
+     * given key is mapped to the given value.  This map is unchanged.  If
+     * the key is already mapped to the same value (as determined by
+     * {@code ==}), this map is returned.
+     *
+     * @param key key with which the specified value is to be associated
+     * @param value value to be associated with the specified key
+     * @return a map containing the mapping
+     * @throws ClassCastException if the specified key cannot be compared
+     *         with the keys currently in the map
+     * @throws NullPointerException if the specified key is null
+     *         and this map uses natural ordering, or its comparator
+     *         does not permit null keys
+     */
+    public PersistentTreeMap<K,V> with(K key, V value) {
+        if (root == null) {
+            compare(key, key); // type (and possibly null) check
+            return new PersistentTreeMap<>(comparator, new Node<>(key, value, null, null), 1);
+        }
+        Node<K,V> p = getNode(key);
+        if (p == null)
+            return new PersistentTreeMap<>(comparator, insert(root, key, value), size + 1);
+        if (p.value == value)
+            return this;
+        return new PersistentTreeMap<>(comparator, replace(root, key, value), size);
+    }
+
+    /**
+     * Returns a map with the same mappings as this one, except for the
+     * mapping for the given key, if any.  This map is unchanged.  If it
+     * contains no mapping for the key, this map is returned.
+     *
+     * @param key key whose mapping is to be left out
+     * @return a map not containing the key
+     * @throws ClassCastException if the specified key cannot be compared
+     *         with the keys currently in the map
+     * @throws NullPointerException if the specified key is null
+     *         and this map uses natural ordering, or its comparator
+     *         does not permit null keys
+     */
+    public PersistentTreeMap<K,V> without(Object key) {
+        if (getNode(key) == null)
+            return this;
+        return new PersistentTreeMap<>(comparator, delete(root, key), size - 1);
+    }
+
+    /**
+     * Returns a map with the mappings of this one and of the given map,
+     * which take precedence.  This map is unchanged.
+     *
+     * @param  map mappings to be added
+     * @return a map containing the mappings of both maps
+     * @throws ClassCastException if the class of a key in the specified
+     *         map prevents it from being stored in this map
+     * @throws NullPointerException if the specified map is null or
+     *         the specified map contains a null key and this map does not
+     *         permit null keys
+     */
+    public PersistentTreeMap<K,V> withAll(Map<? extends K, ? extends V> map) {
+        PersistentTreeMap<K,V> result = this;
+        for (Map.Entry<? extends K, ? extends V> e : map.entrySet())
+            result = result.with(e.getKey(), e.getValue());
+        return result;
+    }
+
+    /**
+     * Returns a copy of the subtree t with key, which is not present,
+     * mapped to value.
+     */
+    private Node<K,V> insert(Node<K,V> t, K key, V value) {
+        if (t == null)
+            return new Node<>(key, value, null, null);
+        if (compare(key, t.key) < 0)
+            return balance(t.key, t.value, insert(t.left, key, value), t.right);
+        else
+            return balance(t.key, t.value, t.left, insert(t.right, key, value));
+    }
+
+    /**
+     * Returns a copy of the subtree t with the value of key, which is
+     * present, replaced.  The shape of the tree is unchanged.
+     */
+    private Node<K,V> replace(Node<K,V> t, K key, V value) {
+        int cmp = compare(key, t.key);
+        if (cmp < 0)
+            return new Node<>(t.key, t.value, replace(t.left, key, value), t.right);
+        else if (cmp > 0)
+            return new Node<>(t.key, t.value, t.left, replace(t.right, key, value));
+        else
+            return new Node<>(t.key, value, t.left, t.right);
+    }
+
+    /**
+     * Returns a copy of the subtree t without key, which is present.
+     */
+    private Node<K,V> delete(Node<K,V> t, Object key) {
+        int cmp = compare(key, t.key);
+        if (cmp < 0)
+            return balance(t.key, t.value, delete(t.left, key), t.right);
+        if (cmp > 0)
+            return balance(t.key, t.value, t.left, delete(t.right, key));
+        if (t.left == null)
+            return t.right;
+        if (t.right == null)
+            return t.left;
+        // Replace t with its successor, taken from its right subtree
+        Node<K,V> s = firstNode(t.right);
+        return balance(s.key, s.value, t.left, deleteFirst(t.right));
+    }
+
+    /**
+     * Returns a copy of the subtree t without its least key.
+     */
+    private static <K,V> Node<K,V> deleteFirst(Node<K,V> t) {
+        if (t.left == null)
+            return t.right;
+        return balance(t.key, t.value, deleteFirst(t.left), t.right);
+    }
+
+    /**
+     * Returns a node with the given mapping and subtrees, whose heights
+     * differ by at most two, rotating it back into AVL balance if
+     * needed.
+     */
+    private static <K,V> Node<K,V> balance(K key, V value, Node<K,V> l, Node<K,V> r) {
+        int hl = heightOf(l), hr = heightOf(r);
+        if (hl > hr + 1) {
+            if (heightOf(l.left) >= heightOf(l.right))
+                return new Node<>(l.key, l.value, l.left,
+                                  new Node<>(key, value, l.right, r));
+            Node<K,V> lr = l.right;
+            return new Node<>(lr.key, lr.value,
+                              new Node<>(l.key, l.value, l.left, lr.left),
+                              new Node<>(key, value, lr.right, r));
+        }
+        if (hr > hl + 1) {
+            if (heightOf(r.right) >= heightOf(r.left))
+                return new Node<>(r.key, r.value,
+                                  new Node<>(key, value, l, r.left), r.right);
+            Node<K,V> rl = r.left;
+            return new Node<>(rl.key, rl.value,
+                              new Node<>(key, value, l, rl.left),
+                              new Node<>(r.key, r.value, rl.right, r.right));
+        }
+        return new Node<>(key, value, l, r);
+    }
+
+    /**
+     * Builds a balanced tree from the entries lo to hi, inclusive, read in
+     * order from it.
+     */
+    @SuppressWarnings("unchecked")
+    private static <K,V> Node<K,V> buildFromSorted(Iterator<? extends Map.Entry<K, ? extends V>> it,
+                                                   int lo, int hi) {
+        if (hi < lo)
+            return null;
+        int mid = (lo + hi) >>> 1;
+        Node<K,V> left = buildFromSorted(it, lo, mid - 1);
+        Map.Entry<K, ? extends V> e = it.next();
+        Node<K,V> right = buildFromSorted(it, mid + 1, hi);
+        return new Node<>(e.getKey(), e.getValue(), left, right);
+    }
+
+    // Unsupported mutators
+
+    public V put(K key, V value) { throw ImmutableCollections.uoe(); }
+    public V remove(Object key) { throw ImmutableCollections.uoe(); }
+    public void putAll(Map<? extends K, ? extends V> m) { throw ImmutableCollections.uoe(); }
+    public void clear() { throw ImmutableCollections.uoe(); }
+    public V putIfAbsent(K key, V value) { throw ImmutableCollections.uoe(); }
+    public boolean remove(Object key, Object value) { throw ImmutableCollections.uoe(); }
+    public boolean replace(K key, V oldValue, V newValue) { throw ImmutableCollections.uoe(); }
+    public V replace(K key, V value) { throw ImmutableCollections.uoe(); }
+    public void replaceAll(BiFunction<? super K, ? super V, ? extends V> f) { throw ImmutableCollections.uoe(); }
+    public V computeIfAbsent(K key, Function<? super K, ? extends V> mf) { throw ImmutableCollections.uoe(); }
+    public V computeIfPresent(K key, BiFunction<? super K, ? super V, ? extends V> rf) { throw ImmutableCollections.uoe(); }
+    public V compute(K key, BiFunction<? super K, ? super V, ? extends V> rf) { throw ImmutableCollections.uoe(); }
+    public V merge(K key, V value, BiFunction<? super V, ? super V, ? extends V> rf) { throw ImmutableCollections.uoe(); }
+    public Map.Entry<K,V> pollFirstEntry() { throw ImmutableCollections.uoe(); }
+    public Map.Entry<K,V> pollLastEntry() { throw ImmutableCollections.uoe(); }
+
+    // NavigableMap API methods
+
+    public Map.Entry<K,V> firstEntry() {
+        return firstNode(root);
+    }
+
+    public Map.Entry<K,V> lastEntry() {
+        return lastNode(root);
+    }
+
+    /**
+     * @throws ClassCastException {@inheritDoc}
+     * @throws NullPointerException if the specified key is null
+     *         and this map uses natural ordering, or its comparator
+     *         does not permit null keys
+     */
+    public Map.Entry<K,V> lowerEntry(K key) {
+        return getFloorNode(key, false);
+    }
+
+    /**
+     * @throws ClassCastException {@inheritDoc}
+     * @throws NullPointerException if the specified key is null
+     *         and this map uses natural ordering, or its comparator
+     *         does not permit null keys
+     */
+    public K lowerKey(K key) {
+        return keyOrNull(getFloorNode(key, false));
+    }
+
+    /**
+     * @throws ClassCastException {@inheritDoc}
+     * @throws NullPointerException if the specified key is null
+     *         and this map uses natural ordering, or its comparator
+     *         does not permit null keys
+     */
+    public Map.Entry<K,V> floorEntry(K key) {
+        return getFloorNode(key, true);
+    }
+
+    /**
+     * @throws ClassCastException {@inheritDoc}
+     * @throws NullPointerException if the specified key is null
+     *         and this map uses natural ordering, or its comparator
+     *         does not permit null keys
+     */
+    public K floorKey(K key) {
+        return keyOrNull(getFloorNode(key, true));
+    }
+
+    /**
+     * @throws ClassCastException {@inheritDoc}
+     * @throws NullPointerException if the specified key is null
+     *         and this map uses natural ordering, or its comparator
+     *         does not permit null keys
+     */
+    public Map.Entry<K,V> ceilingEntry(K key) {
+        return getCeilingNode(key, true);
+    }
+
+    /**
+     * @throws ClassCastException {@inheritDoc}
+     * @throws NullPointerException if the specified key is null
+     *         and this map uses natural ordering, or its comparator
+     *         does not permit null keys
+     */
+    public K ceilingKey(K key) {
+        return keyOrNull(getCeilingNode(key, true));
+    }
+
+    /**
+     * @throws ClassCastException {@inheritDoc}
+     * @throws NullPointerException if the specified key is null
+     *         and this map uses natural ordering, or its comparator
+     *         does not permit null keys
+     */
+    public Map.Entry<K,V> higherEntry(K key) {
+        return getCeilingNode(key, false);
+    }
+
+    /**
+     * @throws ClassCastException {@inheritDoc}
+     * @throws NullPointerException if the specified key is null
+     *         and this map uses natural ordering, or its comparator
+     *         does not permit null keys
+     */
+    public K higherKey(K key) {
+        return keyOrNull(getCeilingNode(key, false));
+    }
+
+    // Views
+
+    /*
+     * Views are created on demand rather than cached, since every field
+     * of the map is final.
+     */
+
+    public Set<K> keySet() {
+        return navigableKeySet();
+    }
+
+    public NavigableSet<K> navigableKeySet() {
+        return new KeySet<>(this);
+    }
+
+    public NavigableSet<K> descendingKeySet() {
+        return descendingMap().navigableKeySet();
+    }
+
+    public Collection<V> values() {
+        return new AbstractCollection<V>() {
+            public Iterator<V> iterator() {
+                return new ValueIterator(false, true, null, false, false, null, false);
+            }
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    public Set<Map.Entry<K,V>> entrySet() {
+        return new EntrySet<>(this);
+    }
+
+    public NavigableMap<K, V> descendingMap() {
+        return new SubMap<>(this,
+                            true, null, true,
+                            true, null, true, true);
+    }
+
+    /**
+     * @throws ClassCastException       {@inheritDoc}
+     * @throws NullPointerException if {@code fromKey} or {@code toKey} is
+     *         null and this map uses natural ordering, or its comparator
+     *         does not permit null keys
+     * @throws IllegalArgumentException {@inheritDoc}
+     */
+    public NavigableMap<K,V> subMap(K fromKey, boolean fromInclusive,
+                                    K toKey,   boolean toInclusive) {
+        return new SubMap<>(this,
+                            false, fromKey, fromInclusive,
+                            false, toKey,   toInclusive, false);
+    }
+
+    /**
+     * @throws ClassCastException       {@inheritDoc}
+     * @throws NullPointerException if {@code toKey} is null
+     *         and this map uses natural ordering, or its comparator
+     *         does not permit null keys
+     * @throws IllegalArgumentException {@inheritDoc}
+     */
+    public NavigableMap<K,V> headMap(K toKey, boolean inclusive) {
+        return new SubMap<>(this,
+                            true,  null,  true,
+                            false, toKey, inclusive, false);
+    }
+
+    /**
+     * @throws ClassCastException       {@inheritDoc}
+     * @throws NullPointerException if {@code fromKey} is null
+     *         and this map uses natural ordering, or its comparator
+     *         does not permit null keys
+     * @throws IllegalArgumentException {@inheritDoc}
+     */
+    public NavigableMap<K,V> tailMap(K fromKey, boolean inclusive) {
+        return new SubMap<>(this,
+                            false, fromKey, inclusive,
+                            true,  null,    true, false);
+    }
+
+    /**
+     * @throws ClassCastException       {@inheritDoc}
+     * @throws NullPointerException if {@code fromKey} or {@code toKey} is
+     *         null and this map uses natural ordering, or its comparator
+     *         does not permit null keys
+     * @throws IllegalArgumentException {@inheritDoc}
+     */
+    public SortedMap<K,V> subMap(K fromKey, K toKey) {
+        return subMap(fromKey, true, toKey, false);
+    }
+
+    /**
+     * @throws ClassCastException       {@inheritDoc}
+     * @throws NullPointerException if {@code toKey} is null
+     *         and this map uses natural ordering, or its comparator
+     *         does not permit null keys
+     * @throws IllegalArgumentException {@inheritDoc}
+     */
+    public SortedMap<K,V> headMap(K toKey) {
+        return headMap(toKey, false);
+    }
+
+    /**
+     * @throws ClassCastException       {@inheritDoc}
+     * @throws NullPointerException if {@code fromKey} is null
+     *         and this map uses natural ordering, or its comparator
+     *         does not permit null keys
+     * @throws IllegalArgumentException {@inheritDoc}
+     */
+    public SortedMap<K,V> tailMap(K fromKey) {
+        return tailMap(fromKey, true);
+    }
+
+    @Override
+    public void forEach(BiConsumer<? super K, ? super V> action) {
+        Objects.requireNonNull(action);
+        forEach(root, action);
+    }
+
+    private static <K,V> void forEach(Node<K,V> t, BiConsumer<? super K, ? super V> action) {
+        for (; t != null; t = t.right) {
+            forEach(t.left, action);
+            action.accept(t.key, t.value);
+        }
+    }
+
+    // View class support
+
+    static final class EntrySet<K,V> extends AbstractSet<Map.Entry<K,V>> {
+        private final NavigableMap<K,V> m;
+        EntrySet(NavigableMap<K,V> map) { m = map; }
+
+        public Iterator<Map.Entry<K,V>> iterator() {
+            if (m instanceof PersistentTreeMap)
+                return ((PersistentTreeMap<K,V>)m).entryIterator();
+            else
+                return ((PersistentTreeMap.SubMap<K,V>)m).entryIterator();
+        }
+
+        public boolean contains(Object o) {
+            if (!(o instanceof Map.Entry))
+                return false;
+            Map.Entry<?,?> entry = (Map.Entry<?,?>) o;
+            Object key = entry.getKey();
+            return m.containsKey(key) && valEquals(m.get(key), entry.getValue());
+        }
+
+        public boolean isEmpty() { return m.isEmpty(); }
+        public int size() { return m.size(); }
+        public boolean remove(Object o) { throw ImmutableCollections.uoe(); }
+        public void clear() { throw ImmutableCollections.uoe(); }
+    }
+
+    Iterator<Map.Entry<K,V>> entryIterator() {
+        return new EntryIterator(false, true, null, false, false, null, false);
+    }
+
+    Iterator<K> keyIterator() {
+        return new KeyIterator(false, true, null, false, false, null, false);
+    }
+
+    Iterator<K> descendingKeyIterator() {
+        return new KeyIterator(true, true, null, false, false, null, false);
+    }
+
+    /*
+     * As in TreeMap, the KeySet class is static, delegating to a
+     * NavigableMap to allow use by SubMaps.
+     */
+    static final class KeySet<E> extends AbstractSet<E> implements NavigableSet<E> {
+        private final NavigableMap<E, ?> m;
+        KeySet(NavigableMap<E,?> map) { m = map; }
+
+        public Iterator<E> iterator() {
+            if (m instanceof PersistentTreeMap)
+                return ((PersistentTreeMap<E,?>)m).keyIterator();
+            else
+                return ((PersistentTreeMap.SubMap<E,?>)m).keyIterator();
+        }
+
+        public Iterator<E> descendingIterator() {
+            if (m instanceof PersistentTreeMap)
+                return ((PersistentTreeMap<E,?>)m).descendingKeyIterator();
+            else
+                return ((PersistentTreeMap.SubMap<E,?>)m).descendingKeyIterator();
+        }
+
+        public int size() { return m.size(); }
+        public boolean isEmpty() { return m.isEmpty(); }
+        public boolean contains(Object o) { return m.containsKey(o); }
+        public void clear() { throw ImmutableCollections.uoe(); }
+        public E lower(E e) { return m.lowerKey(e); }
+        public E floor(E e) { return m.floorKey(e); }
+        public E ceiling(E e) { return m.ceilingKey(e); }
+        public E higher(E e) { return m.higherKey(e); }
+        public E first() { return m.firstKey(); }
+        public E last() { return m.lastKey(); }
+        public Comparator<? super E> comparator() { return m.comparator(); }
+        public E pollFirst() { throw ImmutableCollections.uoe(); }
+        public E pollLast() { throw ImmutableCollections.uoe(); }
+        public boolean remove(Object o) { throw ImmutableCollections.uoe(); }
+        public NavigableSet<E> subSet(E fromElement, boolean fromInclusive,
+                                      E toElement,   boolean toInclusive) {
+            return new KeySet<>(m.subMap(fromElement, fromInclusive,
+                                          toElement,   toInclusive));
+        }
+        public NavigableSet<E> headSet(E toElement, boolean inclusive) {
+            return new KeySet<>(m.headMap(toElement, inclusive));
+        }
+        public NavigableSet<E> tailSet(E fromElement, boolean inclusive) {
+            return new KeySet<>(m.tailMap(fromElement, inclusive));
+        }
+        public SortedSet<E> subSet(E fromElement, E toElement) {
+            return subSet(fromElement, true, toElement, false);
+        }
+        public SortedSet<E> headSet(E toElement) {
+            return headSet(toElement, false);
+        }
+        public SortedSet<E> tailSet(E fromElement) {
+            return tailSet(fromElement, true);
+        }
+        public NavigableSet<E> descendingSet() {
+            return new KeySet<>(m.descendingMap());
+        }
+    }
+
+    /**
+     * Base class for PersistentTreeMap Iterators.  The stack holds the
+     * nodes whose keys, and right (or, descending, left) subtrees, are
+     * still to be visited, innermost on top.  Iteration starts at the
+     * first key past an optional origin and stops at the first key past
+     * an optional bound, which are the ends of a sub-map.
+     */
+    abstract class PrivateNodeIterator<T> implements Iterator<T> {
+        private final Node<K,V>[] stack;
+        private int depth;
+        private final boolean descending;
+        private final boolean bounded;
+        private final Object bound;
+        private final boolean boundInclusive;
+        private Node<K,V> next;
+
+        @SuppressWarnings("unchecked")
+        PrivateNodeIterator(boolean descending,
+                            boolean fromEdge, Object origin, boolean originInclusive,
+                            boolean bounded, Object bound, boolean boundInclusive) {
+            this.stack = (Node<K,V>[])new Node<?,?>[heightOf(root)];
+            this.descending = descending;
+            this.bounded = bounded;
+            this.bound = bound;
+            this.boundInclusive = boundInclusive;
+            for (Node<K,V> t = root; t != null; ) {
+                boolean take;
+                if (fromEdge)
+                    take = true;
+                else {
+                    int cmp = compare(t.key, origin);
+                    if (descending)
+                        cmp = -cmp;
+                    take = cmp > 0 || (cmp == 0 && originInclusive);
+                }
+                if (take) {
+                    stack[depth++] = t;
+                    t = descending ? t.right : t.left;
+                } else
+                    t = descending ? t.left : t.right;
+            }
+            next = fetch();
+        }
+
+        /**
+         * Pops the next node, stacks the path to its successor, and
+         * returns it, or null if it is past the bound.
+         */
+        private Node<K,V> fetch() {
+            if (depth == 0)
+                return null;
+            Node<K,V> p = stack[--depth];
+            for (Node<K,V> t = descending ? p.left : p.right; t != null;
+                 t = descending ? t.right : t.left)
+                stack[depth++] = t;
+            if (bounded) {
+                int cmp = compare(p.key, bound);
+                if (descending)
+                    cmp = -cmp;
+                if (cmp > 0 || (cmp == 0 && !boundInclusive)) {
+                    depth = 0;
+                    return null;
+                }
+            }
+            return p;
+        }
+
+        public final boolean hasNext() {
+            return next != null;
+        }
+
+        final Node<K,V> nextNode() {
+            Node<K,V> p = next;
+            if (p == null)
+                throw new NoSuchElementException();
+            next = fetch();
+            return p;
+        }
+    }
+
+    final class EntryIterator extends PrivateNodeIterator<Map.Entry<K,V>> {
+        EntryIterator(boolean descending,
+                      boolean fromEdge, Object origin, boolean originInclusive,
+                      boolean bounded, Object bound, boolean boundInclusive) {
+            super(descending, fromEdge, origin, originInclusive,
+                  bounded, bound, boundInclusive);
+        }
+        public Map.Entry<K,V> next() {
+            return nextNode();
+        }
+    }
+
+    final class ValueIterator extends PrivateNodeIterator<V> {
+        ValueIterator(boolean descending,
+                      boolean fromEdge, Object origin, boolean originInclusive,
+                      boolean bounded, Object bound, boolean boundInclusive) {
+            super(descending, fromEdge, origin, originInclusive,
+                  bounded, bound, boundInclusive);
+        }
+        public V next() {
+            return nextNode().value;
+        }
+    }
+
+    final class KeyIterator extends PrivateNodeIterator<K> {
+        KeyIterator(boolean descending,
+                    boolean fromEdge, Object origin, boolean originInclusive,
+                    boolean bounded, Object bound, boolean boundInclusive) {
+            super(descending, fromEdge, origin, originInclusive,
+                  bounded, bound, boundInclusive);
+        }
+        public K next() {
+            return nextNode().key;
+        }
+    }
+
+    // Little utilities
+
+    /**
+     * Compares two keys using the correct comparison method for this map.
+     */
+    @SuppressWarnings("unchecked")
+    final int compare(Object k1, Object k2) {
+        return comparator==null ? ((Comparable<? super K>)k1).compareTo((K)k2)
+            : comparator.compare((K)k1, (K)k2);
+    }
+
+    /**
+     * Test two values for equality.  Differs from o1.equals(o2) only in
+     * that it copes with {@code null} o1 properly.
+     */
+    static final boolean valEquals(Object o1, Object o2) {
+        return (o1==null ? o2==null : o1.equals(o2));
+    }
+
+    /**
+     * Return key for node, or null if null
+     */
+    static <K,V> K keyOrNull(Node<K,V> e) {
+        return (e == null) ? null : e.key;
+    }
+
+    /**
+     * Returns the key corresponding to the specified node.
+     * @throws NoSuchElementException if the node is null
+     */
+    static <K> K key(Node<K,?> e) {
+        if (e==null)
+            throw new NoSuchElementException();
+        return e.key;
+    }
+
+    static <K,V> Node<K,V> firstNode(Node<K,V> t) {
+        if (t != null)
+            while (t.left != null)
+                t = t.left;
+        return t;
+    }
+
+    static <K,V> Node<K,V> lastNode(Node<K,V> t) {
+        if (t != null)
+            while (t.right != null)
+                t = t.right;
+        return t;
+    }
+
+    static <K,V> int heightOf(Node<K,V> t) {
+        return (t == null) ? 0 : t.height;
+    }
+
+    // SubMaps
+
+    /**
+     * A view of a range of a PersistentTreeMap, in either direction,
+     * which is as immutable as the map itself.
+     */
+    static final class SubMap<K,V> extends AbstractMap<K,V>
+        implements NavigableMap<K,V> {
+
+        /**
+         * The backing map.
+         */
+        final PersistentTreeMap<K,V> m;
+
+        /**
+         * Endpoints are represented as triples (fromStart, lo,
+         * loInclusive) and (toEnd, hi, hiInclusive), as in TreeMap.
+         */
+        final K lo, hi;
+        final boolean fromStart, toEnd;
+        final boolean loInclusive, hiInclusive;
+
+        /** Whether this view runs from the high bound to the low one. */
+        final boolean descending;
+
+        SubMap(PersistentTreeMap<K,V> m,
+               boolean fromStart, K lo, boolean loInclusive,
+               boolean toEnd,     K hi, boolean hiInclusive,
+               boolean descending) {
+            if (!fromStart && !toEnd) {
+                if (m.compare(lo, hi) > 0)
+                    throw new IllegalArgumentException("fromKey > toKey");
+            } else {
+                if (!fromStart) // type check
+                    m.compare(lo, lo);
+                if (!toEnd)
+                    m.compare(hi, hi);
+            }
+
+            this.m = m;
+            this.fromStart = fromStart;
+            this.lo = lo;
+            this.loInclusive = loInclusive;
+            this.toEnd = toEnd;
+            this.hi = hi;
+            this.hiInclusive = hiInclusive;
+            this.descending = descending;
+        }
+
+        // internal utilities
+
+        final boolean tooLow(Object key) {
+            if (!fromStart) {
+                int c = m.compare(key, lo);
+                if (c < 0 || (c == 0 && !loInclusive))
+                    return true;
+            }
+            return false;
+        }
+
+        final boolean tooHigh(Object key) {
+            if (!toEnd) {
+                int c = m.compare(key, hi);
+                if (c > 0 || (c == 0 && !hiInclusive))
+                    return true;
+            }
+            return false;
+        }
+
+        final boolean inRange(Object key) {
+            return !tooLow(key) && !tooHigh(key);
+        }
+
+        final boolean inClosedRange(Object key) {
+            return (fromStart || m.compare(key, lo) >= 0)
+                && (toEnd || m.compare(hi, key) >= 0);
+        }
+
+        final boolean inRange(Object key, boolean inclusive) {
+            return inclusive ? inRange(key) : inClosedRange(key);
+        }
+
+        /*
+         * Absolute versions of relation operations.  The public
+         * methods map to these, inverting senses for descending maps.
+         */
+
+        final Node<K,V> absLowest() {
+            Node<K,V> e =
+                (fromStart ? firstNode(m.root) : m.getCeilingNode(lo, loInclusive));
+            return (e == null || tooHigh(e.key)) ? null : e;
+        }
+
+        final Node<K,V> absHighest() {
+            Node<K,V> e =
+                (toEnd ? lastNode(m.root) : m.getFloorNode(hi, hiInclusive));
+            return (e == null || tooLow(e.key)) ? null : e;
+        }
+
+        final Node<K,V> absCeiling(K key, boolean inclusive) {
+            if (tooLow(key))
+                return absLowest();
+            Node<K,V> e = m.getCeilingNode(key, inclusive);
+            return (e == null || tooHigh(e.key)) ? null : e;
+        }
+
+        final Node<K,V> absFloor(K key, boolean inclusive) {
+            if (tooHigh(key))
+                return absHighest();
+            Node<K,V> e = m.getFloorNode(key, inclusive);
+            return (e == null || tooLow(e.key)) ? null : e;
+        }
+
+        final Node<K,V> subLowest() {
+            return descending ? absHighest() : absLowest();
+        }
+
+        final Node<K,V> subHighest() {
+            return descending ? absLowest() : absHighest();
+        }
+
+        final Node<K,V> subCeiling(K key, boolean inclusive) {
+            return descending ? absFloor(key, inclusive) : absCeiling(key, inclusive);
+        }
+
+        final Node<K,V> subFloor(K key, boolean inclusive) {
+            return descending ? absCeiling(key, inclusive) : absFloor(key, inclusive);
+        }
+
+        final Iterator<K> keyIterator(boolean down) {
+            return down ? m.new KeyIterator(true, toEnd, hi, hiInclusive,
+                                            !fromStart, lo, loInclusive)
+                        : m.new KeyIterator(false, fromStart, lo, loInclusive,
+                                            !toEnd, hi, hiInclusive);
+        }
+
+        Iterator<K> keyIterator() {
+            return keyIterator(descending);
+        }
+
+        Iterator<K> descendingKeyIterator() {
+            return keyIterator(!descending);
+        }
+
+        Iterator<Map.Entry<K,V>> entryIterator() {
+            return descending ? m.new EntryIterator(true, toEnd, hi, hiInclusive,
+                                                    !fromStart, lo, loInclusive)
+                              : m.new EntryIterator(false, fromStart, lo, loInclusive,
+                                                    !toEnd, hi, hiInclusive);
+        }
+
+        // public methods
+
+        public boolean isEmpty() {
+            return (fromStart && toEnd) ? m.isEmpty() : absLowest() == null;
+        }
+
+        public int size() {
+            if (fromStart && toEnd)
+                return m.size();
+            int n = 0;
+            for (Iterator<K> it = keyIterator(); it.hasNext(); it.next())
+                ++n;
+            return n;
+        }
+
+        public final boolean containsKey(Object key) {
+            return inRange(key) && m.containsKey(key);
+        }
+
+        public final V get(Object key) {
+            return !inRange(key) ? null :  m.get(key);
+        }
+
+        public V put(K key, V value) { throw ImmutableCollections.uoe(); }
+        public V remove(Object key) { throw ImmutableCollections.uoe(); }
+        public void clear() { throw ImmutableCollections.uoe(); }
+        public Map.Entry<K,V> pollFirstEntry() { throw ImmutableCollections.uoe(); }
+        public Map.Entry<K,V> pollLastEntry() { throw ImmutableCollections.uoe(); }
+
+        public Comparator<? super K> comparator() {
+            return descending ? Collections.reverseOrder(m.comparator)
+                              : m.comparator;
+        }
+
+        public final Map.Entry<K,V> ceilingEntry(K key) {
+            return subCeiling(key, true);
+        }
+
+        public final K ceilingKey(K key) {
+            return keyOrNull(subCeiling(key, true));
+        }
+
+        public final Map.Entry<K,V> higherEntry(K key) {
+            return subCeiling(key, false);
+        }
+
+        public final K higherKey(K key) {
+            return keyOrNull(subCeiling(key, false));
+        }
+
+        public final Map.Entry<K,V> floorEntry(K key) {
+            return subFloor(key, true);
+        }
+
+        public final K floorKey(K key) {
+            return keyOrNull(subFloor(key, true));
+        }
+
+        public final Map.Entry<K,V> lowerEntry(K key) {
+            return subFloor(key, false);
+        }
+
+        public final K lowerKey(K key) {
+            return keyOrNull(subFloor(key, false));
+        }
+
+        public final K firstKey() {
+            return key(subLowest());
+        }
+
+        public final K lastKey() {
+            return key(subHighest());
+        }
+
+        public final Map.Entry<K,V> firstEntry() {
+            return subLowest();
+        }
+
+        public final Map.Entry<K,V> lastEntry() {
+            return subHighest();
+        }
+
+        public NavigableMap<K,V> subMap(K fromKey, boolean fromInclusive,
+                                        K toKey,   boolean toInclusive) {
+            if (!inRange(fromKey, fromInclusive))
+                throw new IllegalArgumentException("fromKey out of range");
+            if (!inRange(toKey, toInclusive))
+                throw new IllegalArgumentException("toKey out of range");
+            if (descending)
+                return new SubMap<>(m,
+                                    false, toKey,   toInclusive,
+                                    false, fromKey, fromInclusive, true);
+            return new SubMap<>(m,
+                                false, fromKey, fromInclusive,
+                                false, toKey,   toInclusive, false);
+        }
+
+        public NavigableMap<K,V> headMap(K toKey, boolean inclusive) {
+            if (!inRange(toKey, inclusive))
+                throw new IllegalArgumentException("toKey out of range");
+            if (descending)
+                return new SubMap<>(m,
+                                    false, toKey, inclusive,
+                                    toEnd, hi,    hiInclusive, true);
+            return new SubMap<>(m,
+                                fromStart, lo,    loInclusive,
+                                false,     toKey, inclusive, false);
+        }
+
+        public NavigableMap<K,V> tailMap(K fromKey, boolean inclusive) {
+            if (!inRange(fromKey, inclusive))
+                throw new IllegalArgumentException("fromKey out of range");
+            if (descending)
+                return new SubMap<>(m,
+                                    fromStart, lo,      loInclusive,
+                                    false,     fromKey, inclusive, true);
+            return new SubMap<>(m,
+                                false, fromKey, inclusive,
+                                toEnd, hi,      hiInclusive, false);
+        }
+
+        public final SortedMap<K,V> subMap(K fromKey, K toKey) {
+            return subMap(fromKey, true, toKey, false);
+        }
+
+        public final SortedMap<K,V> headMap(K toKey) {
+            return headMap(toKey, false);
+        }
+
+        public final SortedMap<K,V> tailMap(K fromKey) {
+            return tailMap(fromKey, true);
+        }
+
+        public NavigableMap<K,V> descendingMap() {
+            return new SubMap<>(m,
+                                fromStart, lo, loInclusive,
+                                toEnd,     hi, hiInclusive, !descending);
+        }
+
+        public final NavigableSet<K> navigableKeySet() {
+            return new PersistentTreeMap.KeySet<>(this);
+        }
+
+        public final Set<K> keySet() {
+            return navigableKeySet();
+        }
+
+        public NavigableSet<K> descendingKeySet() {
+            return descendingMap().navigableKeySet();
+        }
+
+        public Set<Map.Entry<K,V>> entrySet() {
+            return new PersistentTreeMap.EntrySet<>(this);
+        }
+    }
+
+    /**
+     * A node of the tree, and the immutable map entry for its mapping.
+     */
+    static final class Node<K,V> implements Map.Entry<K,V> {
+        final K key;
+        final V value;
+        final Node<K,V> left;
+        final Node<K,V> right;
+        final int height;
+
+        Node(K key, V value, Node<K,V> left, Node<K,V> right) {
+            this.key = key;
+            this.value = value;
+            this.left = left;
+            this.right = right;
+            this.height = Math.max(heightOf(left), heightOf(right)) + 1;
+        }
+
+        public K getKey() {
+            return key;
+        }
+
+        public V getValue() {
+            return value;
+        }
+
+        public V setValue(V value) {
+            throw ImmutableCollections.uoe();
+        }
+
+        public boolean equals(Object o) {
+            if (!(o instanceof Map.Entry))
+                return false;
+            Map.Entry<?,?> e = (Map.Entry<?,?>)o;
+
+            return valEquals(key,e.getKey()) && valEquals(value,e.getValue());
+        }
+
+        public int hashCode() {
+            int keyHash = (key==null ? 0 : key.hashCode());
+            int valueHash = (value==null ? 0 : value.hashCode());
+            return keyHash ^ valueHash;
+        }
+
+        public String toString() {
+            return key + "=" + value;
+        }
+    }
+
+    // Serialization
+
+    /**
+     * Serializes this map through a proxy, since the fields of the map
+     * are final.
+     *
+     * @return a {@code Ser} for this map
+     */
+    private Object writeReplace() {
+        return new Ser<>(this);
+    }
+
+    /**
+     * @throws InvalidObjectException always; maps are serialized by proxy
+     */
+    private void readObject(ObjectInputStream s) throws InvalidObjectException {
+        throw new InvalidObjectException("Ser required");
+    }
+
+    /**
+     * The serialized form of a PersistentTreeMap.
+     *
+     * @serial include
+     */
+    private static final class Ser<K,V> implements Serializable {
+        private static final long serialVersionUID = -4905623358219476713L;
+
+        /**
+         * The comparator of the map, or null if it uses natural ordering.
+         *
+         * @serial
+         */
+        private final Comparator<? super K> comparator;
+
+        private transient PersistentTreeMap<K,V> map;
+
+        Ser(PersistentTreeMap<K,V> map) {
+            this.comparator = map.comparator;
+            this.map = map;
+        }
+
+        /**
+         * @serialData The <em>size</em> of the map (the number of key-value
+         *             mappings) is emitted (int), followed by the key
+         *             (Object) and value (Object) for each mapping, in
+         *             key order, as for a TreeMap.
+         */
+        private void writeObject(ObjectOutputStream s) throws IOException {
+            s.defaultWriteObject();
+            s.writeInt(map.size);
+            for (Map.Entry<K,V> e : map.entrySet()) {
+                s.writeObject(e.getKey());
+                s.writeObject(e.getValue());
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        private void readObject(ObjectInputStream s)
+            throws IOException, ClassNotFoundException {
+            s.defaultReadObject();
+            int size = s.readInt();
+            if (size < 0)
+                throw new InvalidObjectException("Illegal size: " + size);
+            TreeMap<K,V> m = new TreeMap<>(comparator);
+            for (int i = 0; i < size; i++)
+                m.put((K)s.readObject(), (V)s.readObject());
+            if (m.size() != size)
+                throw new InvalidObjectException("Duplicate keys");
+            map = copyOf(m);
+        }
+
+        private Object readResolve() {
+            return map;
+        }
+    }
+}
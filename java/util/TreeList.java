@@ -0,0 +1,876 @@
+/*
+ * Copyright (c) 2018, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package java.util;
+
+import java.util.function.Consumer;
+import jdk.internal.misc.SharedSecrets;
+
+/**
+ * Balanced-tree implementation of the {@code List} interface.  Implements
+ * all optional list operations, and permits all elements, including
+ * {@code null}.
+ *
+ * <p>The elements are kept in an AVL tree ordered by position, each node of
+ * which records the number of elements in its subtree, so that the node at
+ * any index can be found by descending from the root.  This implementation
+ * provides guaranteed log(n) time cost for the {@code get}, {@code set},
+ * {@code add(index, element)} and {@code remove(index)} operations
+ * whatever the index, where an {@link ArrayList} or a {@link GapList}
+ * takes time linear in the distance from the index to the end of the list
+ * or to the gap.  Bulk insertion with {@link #addAll(int, Collection)
+ * addAll(index, c)} and bulk removal with {@code subList(from, to).clear()}
+ * split and join trees, as a rope does, and take time logarithmic in the
+ * size of the list, plus time linear in the number of elements inserted.
+ * Iteration takes amortized constant time per element.
+ *
+ * <p>Positional access is nonetheless much slower than in an array-based
+ * list, and each element costs a node of about forty bytes, so this class
+ * does not implement {@link RandomAccess}.  It suits large lists edited
+ * at positions scattered throughout; for edits clustered around a
+ * cursor, a {@code GapList} is faster.
+ *
+ * <p><strong>Note that this implementation is not synchronized.</strong>
+ * If multiple threads access a {@code TreeList} instance concurrently,
+ * and at least one of the threads modifies the list structurally, it
+ * <i>must</i> be synchronized externally.  (A structural modification is
+ * any operation that adds or deletes one or more elements; merely setting
+ * the value of an element is not a structural modification.)
+ *
+ * <p>The iterators returned by this class's {@link #iterator() iterator} and
+ * {@link #listIterator(int) listIterator} methods are <em>fail-fast</em>, in
+ * the same manner as those of {@code ArrayList}.
+ *
+ * @param <E> the type of elements in this list
+ *
+ * @see ArrayList
+ * @see GapList
+ * @see LinkedList
+ * @since 11
+ */
+public class TreeList<E> extends AbstractList<E>
+        implements List<E>, Cloneable, java.io.Serializable
+{
+    private static final long serialVersionUID = -4729213871643962287L;
+
+    /*
+     * Implementation notes.
+     *
+     * Nodes have parent links, as in TreeMap, so that iterators can
+     * step to the successor or predecessor of a node without a stack.
+     * Every operation that changes the shape of the tree restores the
+     * heights and sizes of the nodes on the path from the change to
+     * the root, rebalancing each with at most two rotations, in
+     * fixUp.  Removing a node with two children moves the element of
+     * its successor into it and removes the successor instead, as
+     * TreeMap.deleteEntry does, so iterators locate their next node
+     * afresh after a removal.
+     *
+     * join and split are the usual AVL algorithms: joining trees of
+     * heights differing by d descends d levels of the taller one, and
+     * a split at an index performs a join at each level of the path to
+     * it, for logarithmic time in all.  They leave the parent link of
+     * the root they return unset.
+     */
+
+    /**
+     * The root of the tree, or null if the list is empty.
+     */
+    private transient Node<E> root;
+
+    /**
+     * Tree node.
+     */
+    static final class Node<E> {
+        E item;
+        Node<E> left;
+        Node<E> right;
+        Node<E> parent;
+        int size = 1;
+        int height = 1;
+
+        Node(E item) {
+            this.item = item;
+        }
+    }
+
+    /**
+     * Constructs an empty list.
+     */
+    public TreeList() {
+    }
+
+    /**
+     * Constructs a list containing the elements of the specified
+     * collection, in the order they are returned by the collection's
+     * iterator.  The tree is built in linear time.
+     *
+     * @param c the collection whose elements are to be placed into this list
+     * @throws NullPointerException if the specified collection is null
+     */
+    public TreeList(Collection<? extends E> c) {
+        Object[] a = c.toArray();
+        root = build(a, 0, a.length);
+        if (root != null)
+            root.parent = null;
+    }
+
+    // Tree maintenance
+
+    private static int height(Node<?> p) {
+        return (p == null) ? 0 : p.height;
+    }
+
+    private static int size(Node<?> p) {
+        return (p == null) ? 0 : p.size;
+    }
+
+    /** Recomputes the height and size of p from those of its children. */
+    private static void update(Node<?> p) {
+        Node<?> l = p.left, r = p.right;
+        int hl = height(l), hr = height(r);
+        p.height = ((hl > hr) ? hl : hr) + 1;
+        p.size = size(l) + size(r) + 1;
+    }
+
+    /**
+     * Rotates the subtree rooted at p left, and returns its new root, whose
+     * parent link is that of p.
+     */
+    private static <E> Node<E> rotateLeft(Node<E> p) {
+        Node<E> r = p.right;
+        p.right = r.left;
+        if (r.left != null)
+            r.left.parent = p;
+        r.left = p;
+        r.parent = p.parent;
+        p.parent = r;
+        update(p);
+        update(r);
+        return r;
+    }
+
+    /**
+     * Rotates the subtree rooted at p right, and returns its new root, whose
+     * parent link is that of p.
+     */
+    private static <E> Node<E> rotateRight(Node<E> p) {
+        Node<E> l = p.left;
+        p.left = l.right;
+        if (l.right != null)
+            l.right.parent = p;
+        l.right = p;
+        l.parent = p.parent;
+        p.parent = l;
+        update(p);
+        update(l);
+        return l;
+    }
+
+    /**
+     * Updates p, whose subtrees are balanced and differ in height by at
+     * most two, rebalancing it if necessary, and returns the root of the
+     * resulting subtree, whose parent link is that of p.
+     */
+    private static <E> Node<E> balance(Node<E> p) {
+        update(p);
+        int d = height(p.left) - height(p.right);
+        if (d > 1) {
+            Node<E> l = p.left;
+            if (height(l.left) < height(l.right))
+                p.left = rotateLeft(l);
+            return rotateRight(p);
+        } else if (d < -1) {
+            Node<E> r = p.right;
+            if (height(r.right) < height(r.left))
+                p.right = rotateRight(r);
+            return rotateLeft(p);
+        }
+        return p;
+    }
+
+    /**
+     * Restores the heights, sizes and balance of p and its ancestors.
+     */
+    private void fixUp(Node<E> p) {
+        while (p != null) {
+            Node<E> parent = p.parent;
+            Node<E> t = balance(p);
+            if (parent == null)
+                root = t;
+            else if (parent.left == p)
+                parent.left = t;
+            else
+                parent.right = t;
+            p = parent;
+        }
+    }
+
+    /**
+     * Returns a tree holding the elements of l, then k, then r, where l
+     * and r are balanced trees, or null.  Returns the root of the tree,
+     * whose parent link is unset.
+     */
+    private static <E> Node<E> join(Node<E> l, Node<E> k, Node<E> r) {
+        int hl = height(l), hr = height(r);
+        if (hl > hr + 1) {
+            Node<E> t = join(l.right, k, r);
+            l.right = t;
+            t.parent = l;
+            return balance(l);
+        } else if (hr > hl + 1) {
+            Node<E> t = join(l, k, r.left);
+            r.left = t;
+            t.parent = r;
+            return balance(r);
+        } else {
+            k.left = l;
+            k.right = r;
+            if (l != null)
+                l.parent = k;
+            if (r != null)
+                r.parent = k;
+            update(k);
+            return k;
+        }
+    }
+
+    /**
+     * Splits the tree rooted at t into a tree of its first i elements,
+     * stored in out[0], and a tree of the rest, stored in out[1].  The
+     * parent links of their roots are unset.
+     */
+    private static <E> void split(Node<E> t, int i, Node<E>[] out) {
+        if (t == null) {
+            out[0] = out[1] = null;
+            return;
+        }
+        Node<E> l = t.left, r = t.right;
+        int ls = size(l);
+        if (i <= ls) {
+            split(l, i, out);
+            out[1] = join(out[1], t, r);
+        } else {
+            split(r, i - ls - 1, out);
+            out[0] = join(l, t, out[0]);
+        }
+    }
+
+    /**
+     * Returns a tree holding the elements of l followed by those of r.
+     */
+    @SuppressWarnings("unchecked")
+    private static <E> Node<E> concat(Node<E> l, Node<E> r) {
+        if (l == null)
+            return r;
+        if (r == null)
+            return l;
+        Node<E>[] out = (Node<E>[]) new Node<?>[2];
+        split(r, 1, out);
+        return join(l, out[0], out[1]);
+    }
+
+    /**
+     * Returns a balanced tree of the elements lo through hi - 1 of a, in
+     * linear time.  The parent link of its root is unset.
+     */
+    @SuppressWarnings("unchecked")
+    private static <E> Node<E> build(Object[] a, int lo, int hi) {
+        if (lo >= hi)
+            return null;
+        int mid = (lo + hi) >>> 1;
+        Node<E> p = new Node<>((E) a[mid]);
+        Node<E> l = build(a, lo, mid), r = build(a, mid + 1, hi);
+        p.left = l;
+        p.right = r;
+        if (l != null)
+            l.parent = p;
+        if (r != null)
+            r.parent = p;
+        update(p);
+        return p;
+    }
+
+    /**
+     * Returns the node holding the element at the specified index, which
+     * must be valid.
+     */
+    Node<E> node(int index) {
+        Node<E> p = root;
+        for (;;) {
+            int ls = size(p.left);
+            if (index < ls) {
+                p = p.left;
+            } else if (index > ls) {
+                index -= ls + 1;
+                p = p.right;
+            } else {
+                return p;
+            }
+        }
+    }
+
+    /**
+     * Returns the first node of the subtree rooted at p, or null if p is
+     * null.
+     */
+    private static <E> Node<E> first(Node<E> p) {
+        if (p != null)
+            while (p.left != null)
+                p = p.left;
+        return p;
+    }
+
+    /**
+     * Returns the last node of the subtree rooted at p, or null if p is
+     * null.
+     */
+    private static <E> Node<E> last(Node<E> p) {
+        if (p != null)
+            while (p.right != null)
+                p = p.right;
+        return p;
+    }
+
+    /**
+     * Returns the node following t, or null if there is none.
+     */
+    static <E> Node<E> successor(Node<E> t) {
+        if (t.right != null)
+            return first(t.right);
+        Node<E> p = t.parent, ch = t;
+        while (p != null && ch == p.right) {
+            ch = p;
+            p = p.parent;
+        }
+        return p;
+    }
+
+    /**
+     * Returns the node preceding t, or null if there is none.
+     */
+    static <E> Node<E> predecessor(Node<E> t) {
+        if (t.left != null)
+            return last(t.left);
+        Node<E> p = t.parent, ch = t;
+        while (p != null && ch == p.left) {
+            ch = p;
+            p = p.parent;
+        }
+        return p;
+    }
+
+    /**
+     * Inserts a node holding e before succ, or at the end of the list if
+     * succ is null.
+     */
+    private void linkBefore(E e, Node<E> succ) {
+        Node<E> x = new Node<>(e), p;
+        if (root == null) {
+            root = x;
+            return;
+        } else if (succ == null) {
+            (p = last(root)).right = x;
+        } else if (succ.left == null) {
+            (p = succ).left = x;
+        } else {
+            (p = last(succ.left)).right = x;
+        }
+        x.parent = p;
+        fixUp(p);
+    }
+
+    /**
+     * Removes node p from the tree.
+     */
+    private void unlink(Node<E> p) {
+        // If strictly internal, copy successor's element to p and then
+        // make p point to successor.
+        if (p.left != null && p.right != null) {
+            Node<E> s = first(p.right);
+            p.item = s.item;
+            p = s;
+        }
+        Node<E> replacement = (p.left != null) ? p.left : p.right;
+        Node<E> parent = p.parent;
+        if (replacement != null)
+            replacement.parent = parent;
+        if (parent == null)
+            root = replacement;
+        else if (parent.left == p)
+            parent.left = replacement;
+        else
+            parent.right = replacement;
+        p.left = p.right = p.parent = null;
+        p.item = null;
+        fixUp(parent);
+    }
+
+    // List operations
+
+    /**
+     * Returns the number of elements in this list.
+     *
+     * @return the number of elements in this list
+     */
+    public int size() {
+        return size(root);
+    }
+
+    /**
+     * Returns the element at the specified position in this list.
+     *
+     * @param index index of the element to return
+     * @return the element at the specified position in this list
+     * @throws IndexOutOfBoundsException {@inheritDoc}
+     */
+    public E get(int index) {
+        Objects.checkIndex(index, size());
+        return node(index).item;
+    }
+
+    /**
+     * Replaces the element at the specified position in this list with the
+     * specified element.
+     *
+     * @param index index of the element to replace
+     * @param element element to be stored at the specified position
+     * @return the element previously at the specified position
+     * @throws IndexOutOfBoundsException {@inheritDoc}
+     */
+    public E set(int index, E element) {
+        Objects.checkIndex(index, size());
+        Node<E> x = node(index);
+        E oldVal = x.item;
+        x.item = element;
+        return oldVal;
+    }
+
+    /**
+     * Appends the specified element to the end of this list.
+     *
+     * @param e element to be appended to this list
+     * @return {@code true} (as specified by {@link Collection#add})
+     */
+    public boolean add(E e) {
+        modCount++;
+        linkBefore(e, null);
+        return true;
+    }
+
+    /**
+     * Inserts the specified element at the specified position in this list.
+     * Shifts the element currently at that position (if any) and any
+     * subsequent elements to the right (adds one to their indices).
+     *
+     * @param index index at which the specified element is to be inserted
+     * @param element element to be inserted
+     * @throws IndexOutOfBoundsException {@inheritDoc}
+     */
+    public void add(int index, E element) {
+        int size = size();
+        if (index < 0 || index > size)
+            throw new IndexOutOfBoundsException(outOfBoundsMsg(index));
+        modCount++;
+        linkBefore(element, (index == size) ? null : node(index));
+    }
+
+    /**
+     * Removes the element at the specified position in this list.  Shifts
+     * any subsequent elements to the left (subtracts one from their
+     * indices).  Returns the element that was removed from the list.
+     *
+     * @param index the index of the element to be removed
+     * @return the element previously at the specified position
+     * @throws IndexOutOfBoundsException {@inheritDoc}
+     */
+    public E remove(int index) {
+        Objects.checkIndex(index, size());
+        modCount++;
+        Node<E> x = node(index);
+        E oldVal = x.item;
+        unlink(x);
+        return oldVal;
+    }
+
+    /**
+     * Removes all of the elements from this list.
+     * The list will be empty after this call returns.
+     */
+    public void clear() {
+        modCount++;
+        root = null;
+    }
+
+    /**
+     * Returns the index of the first occurrence of the specified element
+     * in this list, or -1 if this list does not contain the element.
+     */
+    public int indexOf(Object o) {
+        int index = 0;
+        for (Node<E> x = first(root); x != null; x = successor(x), index++) {
+            if (Objects.equals(o, x.item))
+                return index;
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the index of the last occurrence of the specified element
+     * in this list, or -1 if this list does not contain the element.
+     */
+    public int lastIndexOf(Object o) {
+        int index = size();
+        for (Node<E> x = last(root); x != null; x = predecessor(x)) {
+            index--;
+            if (Objects.equals(o, x.item))
+                return index;
+        }
+        return -1;
+    }
+
+    /**
+     * Returns {@code true} if this list contains the specified element.
+     *
+     * @param o element whose presence in this list is to be tested
+     * @return {@code true} if this list contains the specified element
+     */
+    public boolean contains(Object o) {
+        return indexOf(o) >= 0;
+    }
+
+    /**
+     * Appends all of the elements in the specified collection to the end of
+     * this list, in the order that they are returned by the specified
+     * collection's iterator.
+     *
+     * @param c collection containing elements to be added to this list
+     * @return {@code true} if this list changed as a result of the call
+     * @throws NullPointerException if the specified collection is null
+     */
+    public boolean addAll(Collection<? extends E> c) {
+        return addAll(size(), c);
+    }
+
+    /**
+     * Inserts all of the elements in the specified collection into this
+     * list, starting at the specified position.  Shifts the element
+     * currently at that position (if any) and any subsequent elements to
+     * the right (increases their indices).  The new elements are built into
+     * a balanced tree, which is joined with the two parts of this list's
+     * tree split at the specified position.
+     *
+     * @param index index at which to insert the first element from the
+     *              specified collection
+     * @param c collection containing elements to be added to this list
+     * @return {@code true} if this list changed as a result of the call
+     * @throws IndexOutOfBoundsException {@inheritDoc}
+     * @throws NullPointerException if the specified collection is null
+     */
+    @SuppressWarnings("unchecked")
+    public boolean addAll(int index, Collection<? extends E> c) {
+        if (index < 0 || index > size())
+            throw new IndexOutOfBoundsException(outOfBoundsMsg(index));
+
+        Object[] a = c.toArray();
+        modCount++;
+        int numNew = a.length;
+        if (numNew == 0)
+            return false;
+        Node<E>[] out = (Node<E>[]) new Node<?>[2];
+        split(root, index, out);
+        Node<E> t = concat(concat(out[0], build(a, 0, numNew)), out[1]);
+        t.parent = null;
+        root = t;
+        return true;
+    }
+
+    /**
+     * Removes from this list all of the elements whose index is between
+     * {@code fromIndex}, inclusive, and {@code toIndex}, exclusive.
+     * Shifts any succeeding elements to the left (reduces their index).
+     * The tree is split at both ends of the range and the outer parts are
+     * joined, in time logarithmic in the size of the list.
+     *
+     * @param fromIndex index of first element to be removed
+     * @param toIndex index after last element to be removed
+     */
+    @SuppressWarnings("unchecked")
+    protected void removeRange(int fromIndex, int toIndex) {
+        modCount++;
+        if (fromIndex >= toIndex)
+            return;
+        Node<E>[] out = (Node<E>[]) new Node<?>[2];
+        split(root, fromIndex, out);
+        Node<E> head = out[0];
+        split(out[1], toIndex - fromIndex, out);
+        Node<E> t = concat(head, out[1]);
+        if (t != null)
+            t.parent = null;
+        root = t;
+    }
+
+    /**
+     * Constructs an IndexOutOfBoundsException detail message.
+     */
+    private String outOfBoundsMsg(int index) {
+        return "Index: "+index+", Size: "+size();
+    }
+
+    /**
+     * Returns an iterator over the elements in this list in proper sequence.
+     *
+     * @return an iterator over the elements in this list in proper sequence
+     */
+    public Iterator<E> iterator() {
+        return new ListItr(0);
+    }
+
+    /**
+     * Returns a list-iterator of the elements in this list (in proper
+     * sequence), starting at the specified position in the list.  Its
+     * {@code next} and {@code previous} methods step between neighboring
+     * nodes of the tree, in amortized constant time; its {@code add}
+     * and {@code remove} methods take logarithmic time.
+     *
+     * <p>The list-iterator is <i>fail-fast</i>: if the list is structurally
+     * modified at any time after the Iterator is created, in any way except
+     * through the list-iterator's own {@code remove} or {@code add}
+     * methods, the list-iterator will throw a
+     * {@code ConcurrentModificationException}.
+     *
+     * @param index index of the first element to be returned from the
+     *              list-iterator (by a call to {@code next})
+     * @return a ListIterator of the elements in this list (in proper
+     *         sequence), starting at the specified position in the list
+     * @throws IndexOutOfBoundsException {@inheritDoc}
+     * @see List#listIterator(int)
+     */
+    public ListIterator<E> listIterator(int index) {
+        if (index < 0 || index > size())
+            throw new IndexOutOfBoundsException(outOfBoundsMsg(index));
+        return new ListItr(index);
+    }
+
+    private class ListItr implements ListIterator<E> {
+        private Node<E> lastReturned;
+        private Node<E> next;
+        private int nextIndex;
+        private int expectedModCount = modCount;
+
+        ListItr(int index) {
+            next = (index == size()) ? null : node(index);
+            nextIndex = index;
+        }
+
+        public boolean hasNext() {
+            return nextIndex < size();
+        }
+
+        public E next() {
+            checkForComodification();
+            if (!hasNext())
+                throw new NoSuchElementException();
+
+            lastReturned = next;
+            next = successor(next);
+            nextIndex++;
+            return lastReturned.item;
+        }
+
+        public boolean hasPrevious() {
+            return nextIndex > 0;
+        }
+
+        public E previous() {
+            checkForComodification();
+            if (!hasPrevious())
+                throw new NoSuchElementException();
+
+            lastReturned = next = (next == null) ? last(root) : predecessor(next);
+            nextIndex--;
+            return lastReturned.item;
+        }
+
+        public int nextIndex() {
+            return nextIndex;
+        }
+
+        public int previousIndex() {
+            return nextIndex - 1;
+        }
+
+        public void remove() {
+            checkForComodification();
+            if (lastReturned == null)
+                throw new IllegalStateException();
+
+            if (lastReturned != next) // returned by next
+                nextIndex--;
+            modCount++;
+            unlink(lastReturned);
+            // unlink may have moved an element between nodes
+            next = (nextIndex < size()) ? node(nextIndex) : null;
+            lastReturned = null;
+            expectedModCount = modCount;
+        }
+
+        public void set(E e) {
+            if (lastReturned == null)
+                throw new IllegalStateException();
+            checkForComodification();
+            lastReturned.item = e;
+        }
+
+        public void add(E e) {
+            checkForComodification();
+            lastReturned = null;
+            modCount++;
+            linkBefore(e, next);
+            nextIndex++;
+            expectedModCount = modCount;
+        }
+
+        public void forEachRemaining(Consumer<? super E> action) {
+            Objects.requireNonNull(action);
+            while (modCount == expectedModCount && nextIndex < size()) {
+                action.accept(next.item);
+                lastReturned = next;
+                next = successor(next);
+                nextIndex++;
+            }
+            checkForComodification();
+        }
+
+        final void checkForComodification() {
+            if (modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+        }
+    }
+
+    @Override
+    public void forEach(Consumer<? super E> action) {
+        Objects.requireNonNull(action);
+        final int expectedModCount = modCount;
+        for (Node<E> x = first(root);
+             x != null && modCount == expectedModCount; x = successor(x))
+            action.accept(x.item);
+        if (modCount != expectedModCount)
+            throw new ConcurrentModificationException();
+    }
+
+    /**
+     * Returns an array containing all of the elements in this list
+     * in proper sequence (from first to last element).
+     *
+     * @return an array containing all of the elements in this list
+     *         in proper sequence
+     */
+    public Object[] toArray() {
+        Object[] result = new Object[size()];
+        int i = 0;
+        for (Node<E> x = first(root); x != null; x = successor(x))
+            result[i++] = x.item;
+        return result;
+    }
+
+    /**
+     * Returns a shallow copy of this {@code TreeList}.  (The elements
+     * themselves are not cloned.)  The copy's tree is built in linear time.
+     *
+     * @return a shallow copy of this {@code TreeList} instance
+     */
+    public Object clone() {
+        TreeList<?> clone;
+        try {
+            clone = (TreeList<?>) super.clone();
+        } catch (CloneNotSupportedException e) {
+            throw new InternalError(e);
+        }
+        Object[] a = toArray();
+        clone.root = build(a, 0, a.length);
+        if (clone.root != null)
+            clone.root.parent = null;
+        clone.modCount = 0;
+        return clone;
+    }
+
+    /**
+     * Saves the state of this {@code TreeList} instance to a stream
+     * (that is, serializes it).
+     *
+     * @param s the stream
+     * @throws java.io.IOException if an I/O error occurs
+     * @serialData The size of the list (the number of elements it
+     *             contains) is emitted (int), followed by all of its
+     *             elements (each an Object) in the proper order.
+     */
+    private void writeObject(java.io.ObjectOutputStream s)
+        throws java.io.IOException {
+        int expectedModCount = modCount;
+        // Write out any hidden serialization magic
+        s.defaultWriteObject();
+
+        // Write out size
+        s.writeInt(size());
+
+        // Write out all elements in the proper order.
+        for (Node<E> x = first(root); x != null; x = successor(x))
+            s.writeObject(x.item);
+
+        if (modCount != expectedModCount) {
+            throw new ConcurrentModificationException();
+        }
+    }
+
+    /**
+     * Reconstitutes this {@code TreeList} instance from a stream
+     * (that is, deserializes it).
+     *
+     * @param s the stream
+     * @throws ClassNotFoundException if the class of a serialized object
+     *         could not be found
+     * @throws java.io.IOException if an I/O error occurs
+     */
+    private void readObject(java.io.ObjectInputStream s)
+        throws java.io.IOException, ClassNotFoundException {
+        // Read in any hidden serialization magic
+        s.defaultReadObject();
+
+        // Read in size
+        int size = s.readInt();
+        if (size < 0)
+            throw new java.io.InvalidObjectException("Invalid size: " + size);
+        SharedSecrets.getJavaObjectInputStreamAccess().checkArray(s, Object[].class, size);
+        Object[] a = new Object[size];
+
+        // Read in all elements in the proper order.
+        for (int i = 0; i < size; i++)
+            a[i] = s.readObject();
+        root = build(a, 0, size);
+        if (root != null)
+            root.parent = null;
+    }
+}
@@ -29,6 +29,7 @@ import java.io.Serializable;
 import java.util.function.BiConsumer;
 import java.util.function.BiFunction;
 import java.util.function.Consumer;
+import java.util.function.Function;
 
 /**
  * A Red-Black tree based {@link NavigableMap} implementation.
@@ -41,6 +42,15 @@ import java.util.function.Consumer;
  * operations.  Algorithms are adaptations of those in Cormen, Leiserson, and
  * Rivest's <em>Introduction to Algorithms</em>.
  *
+ * <p>A tree map created with the {@link #TreeMap(Comparator, boolean)}
+ * constructor is in <em>order-statistic</em> mode: each node also records
+ * the number of mappings in its subtree, which lets {@link #select select}
+ * and {@link #rank rank} find a key by its position, or a position by its
+ * key, and the {@code size} method of its sub-map views count their
+ * mappings, all in log(n) time instead of linear time.  The counts add no
+ * space to a node on typical 64-bit virtual machines, but {@code put} and
+ * {@code remove} must update them along the path to the root.
+ *
  * <p>Note that the ordering maintained by a tree map, like any sorted map, and
  * whether or not an explicit comparator is provided, must be <em>consistent
  * with {@code equals}</em> if this sorted map is to correctly implement the
@@ -120,6 +130,21 @@ public class TreeMap<K,V>
      */
     private final Comparator<? super K> comparator;
 
+    /**
+     * Whether each Entry maintains the size of its subtree.
+     *
+     * @serial
+     */
+    private final boolean orderStatistics;
+
+    /**
+     * The summary maintained by each Entry, or null if the map is not
+     * augmented.
+     *
+     * @serial
+     */
+    private final Augmentation<Object,Object,Object> augmentation;
+
     private transient Entry<K,V> root;
 
     /**
@@ -146,6 +171,8 @@ public class TreeMap<K,V>
      */
     public TreeMap() {
         comparator = null;
+        orderStatistics = false;
+        augmentation = null;
     }
 
     /**
@@ -164,6 +191,53 @@ public class TreeMap<K,V>
      */
     public TreeMap(Comparator<? super K> comparator) {
         this.comparator = comparator;
+        this.orderStatistics = false;
+        this.augmentation = null;
+    }
+
+    /**
+     * Constructs a new, empty tree map, ordered according to the given
+     * comparator, and in order-statistic mode if so requested.  In that
+     * mode the map supports {@link #select select} and {@link #rank rank},
+     * and the {@code size} of its sub-map views, in log(n) time.  The
+     * requirements on the keys are as for {@link #TreeMap(Comparator)}.
+     *
+     * @param comparator the comparator that will be used to order this map.
+     *        If {@code null}, the {@linkplain Comparable natural
+     *        ordering} of the keys will be used.
+     * @param orderStatistics {@code true} if each node should keep the
+     *        number of mappings in its subtree
+     * @since 11
+     */
+    public TreeMap(Comparator<? super K> comparator, boolean orderStatistics) {
+        this.comparator = comparator;
+        this.orderStatistics = orderStatistics;
+        this.augmentation = null;
+    }
+
+    /**
+     * Constructs a new, empty tree map, ordered according to the given
+     * comparator, that maintains the given augmentation.  Such a map
+     * supports {@link #summary} and {@link #queryRange queryRange} in
+     * log(n) time, in exchange for calls to the augmentation on every
+     * path from a modified node to the root.  The requirements on the keys
+     * are as for {@link #TreeMap(Comparator)}.  The map is serializable
+     * only if the augmentation is.
+     *
+     * @param comparator the comparator that will be used to order this map.
+     *        If {@code null}, the {@linkplain Comparable natural
+     *        ordering} of the keys will be used.
+     * @param augmentation the summary to maintain
+     * @throws NullPointerException if the augmentation is null
+     * @since 11
+     */
+    @SuppressWarnings("unchecked")
+    public TreeMap(Comparator<? super K> comparator,
+                   Augmentation<? super K, ? super V, ?> augmentation) {
+        this.comparator = comparator;
+        this.orderStatistics = false;
+        this.augmentation = (Augmentation<Object,Object,Object>)
+            Objects.requireNonNull(augmentation);
     }
 
     /**
@@ -182,6 +256,8 @@ public class TreeMap<K,V>
      */
     public TreeMap(Map<? extends K, ? extends V> m) {
         comparator = null;
+        orderStatistics = false;
+        augmentation = null;
         putAll(m);
     }
 
@@ -196,6 +272,8 @@ public class TreeMap<K,V>
      */
     public TreeMap(SortedMap<K, ? extends V> m) {
         comparator = m.comparator();
+        orderStatistics = false;
+        augmentation = null;
         try {
             buildFromSorted(m.size(), m.entrySet().iterator(), null, null);
         } catch (java.io.IOException | ClassNotFoundException cannotHappen) {
@@ -535,7 +613,7 @@ public class TreeMap<K,V>
         if (t == null) {
             compare(key, key); // type (and possibly null) check
 
-            root = new Entry<>(key, value, null);
+            root = newEntry(key, value, null);
             size = 1;
             modCount++;
             return null;
@@ -572,11 +650,16 @@ public class TreeMap<K,V>
                     return t.setValue(value);
             } while (t != null);
         }
-        Entry<K,V> e = new Entry<>(key, value, parent);
+        Entry<K,V> e = newEntry(key, value, parent);
         if (cmp < 0)
             parent.left = e;
         else
             parent.right = e;
+        if (orderStatistics)
+            for (Entry<K,V> q = parent; q != null; q = q.parent)
+                q.count++;
+        if (augmentation != null)
+            updateSummaries(parent);
         fixAfterInsertion(e);
         size++;
         modCount++;
@@ -774,6 +857,1047 @@ public class TreeMap<K,V>
         return keyOrNull(getHigherEntry(key));
     }
 
+    // Order statistics
+
+    /**
+     * Returns the key at the given position in this map, that is, the key
+     * preceded by exactly {@code index} keys in the map's ordering.  This
+     * takes log(n) time in order-statistic mode, and time linear in the
+     * distance from the nearer end of the map otherwise.
+     *
+     * @param index the position of the key, starting at zero
+     * @return the key at the given position
+     * @throws IndexOutOfBoundsException if {@code index} is negative or not
+     *         less than {@code size()}
+     * @since 11
+     */
+    public K select(int index) {
+        return getEntryAt(index).key;
+    }
+
+    /**
+     * Returns a key-value mapping associated with the key at the given
+     * position in this map, that is, the key preceded by exactly
+     * {@code index} keys in the map's ordering.  This takes log(n) time in
+     * order-statistic mode, and time linear in the distance from the nearer
+     * end of the map otherwise.
+     *
+     * @param index the position of the mapping, starting at zero
+     * @return the mapping at the given position
+     * @throws IndexOutOfBoundsException if {@code index} is negative or not
+     *         less than {@code size()}
+     * @since 11
+     */
+    public Map.Entry<K,V> selectEntry(int index) {
+        return exportEntry(getEntryAt(index));
+    }
+
+    /**
+     * Returns the number of keys in this map strictly less than the given
+     * key, which need not be present.  If the key is present, this is its
+     * position, as would be given to {@link #select select}.  This takes
+     * log(n) time in order-statistic mode, and time linear in the result
+     * otherwise.
+     *
+     * @param key the key
+     * @return the number of keys less than {@code key}
+     * @throws ClassCastException if the specified key cannot be compared
+     *         with the keys currently in the map
+     * @throws NullPointerException if the specified key is null
+     *         and this map uses natural ordering, or its comparator
+     *         does not permit null keys
+     * @since 11
+     */
+    public int rank(K key) {
+        return countBelow(key, false);
+    }
+
+    /**
+     * Returns the entry at the given position.
+     */
+    final Entry<K,V> getEntryAt(int index) {
+        Objects.checkIndex(index, size);
+        Entry<K,V> p;
+        if (orderStatistics) {
+            p = root;
+            for (int c; index != (c = countOf(p.left)); ) {
+                if (index < c)
+                    p = p.left;
+                else {
+                    index -= c + 1;
+                    p = p.right;
+                }
+            }
+        } else if (index < (size >>> 1)) {
+            for (p = getFirstEntry(); index > 0; --index)
+                p = successor(p);
+        } else {
+            for (p = getLastEntry(), index = size - 1 - index; index > 0; --index)
+                p = predecessor(p);
+        }
+        return p;
+    }
+
+    /**
+     * Returns the number of keys less than the given key, or less than or
+     * equal to it if inclusive.
+     */
+    final int countBelow(Object key, boolean inclusive) {
+        int n = 0;
+        if (orderStatistics) {
+            for (Entry<K,V> p = root; p != null; ) {
+                int cmp = compare(key, p.key);
+                if (cmp < 0 || (cmp == 0 && !inclusive))
+                    p = p.left;
+                else {
+                    n += countOf(p.left) + 1;
+                    p = p.right;
+                }
+            }
+        } else {
+            for (Entry<K,V> e = getFirstEntry(); e != null; e = successor(e)) {
+                int cmp = compare(e.key, key);
+                if (cmp > 0 || (cmp == 0 && !inclusive))
+                    break;
+                ++n;
+            }
+        }
+        return n;
+    }
+
+    // Sorted merging
+
+    /**
+     * Copies all of the mappings from the specified map to this map,
+     * replacing the values of keys already present, as {@link #putAll
+     * putAll} does.  If the specified map is a {@link SortedMap} with the
+     * same ordering as this map, and not much smaller than it, the two are
+     * merged in order and the tree is rebuilt, in time linear in the sum of
+     * their sizes, rather than by one {@code put} per mapping.
+     *
+     * @param  map mappings to be stored in this map
+     * @throws ClassCastException if the class of a key in the specified
+     *         map prevents it from being stored in this map
+     * @throws NullPointerException if the specified map is null or
+     *         the specified map contains a null key and this map does not
+     *         permit null keys
+     * @since 11
+     */
+    public void union(Map<? extends K, ? extends V> map) {
+        mergeAll(map.entrySet(), map.keySet(), hasSameOrdering(map),
+                 UNION, null, null);
+    }
+
+    /**
+     * Merges all of the mappings from the specified map into this map.
+     * Keys present in only one of the maps keep their values.  For a key
+     * present in both, the value in this map is replaced with the result
+     * of the remapping function applied to the two values, or the mapping
+     * is removed if the result is {@code null}, as with {@link #merge
+     * merge}.  If the specified map is a {@link SortedMap} with the same
+     * ordering as this map, and not much smaller than it, this takes time
+     * linear in the sum of their sizes.
+     *
+     * <p>If the remapping function throws an exception, the values it has
+     * already produced may have been stored, but no mappings will have
+     * been added or removed.
+     *
+     * @param  map mappings to be merged into this map
+     * @param  remappingFunction the function to compute the value for a key
+     *         present in both maps, given this map's value first
+     * @throws ClassCastException if the class of a key in the specified
+     *         map prevents it from being stored in this map
+     * @throws NullPointerException if the specified map or remapping
+     *         function is null, or the specified map contains a null key
+     *         and this map does not permit null keys
+     * @since 11
+     */
+    public void mergeSorted(Map<? extends K, ? extends V> map,
+                            BiFunction<? super V, ? super V, ? extends V> remappingFunction) {
+        Objects.requireNonNull(remappingFunction);
+        mergeAll(map.entrySet(), map.keySet(), hasSameOrdering(map),
+                 MERGE, remappingFunction, null);
+    }
+
+    /**
+     * Retains only the mappings of this map whose keys are also keys of
+     * the specified map.  The surviving mappings are collected in order
+     * and the tree is rebuilt, in time linear in the sum of the sizes of
+     * the maps if the specified map is a {@link SortedMap} with the same
+     * ordering as this map, and otherwise linear in the size of this map
+     * times the cost of the specified map's {@code containsKey}.
+     *
+     * @param  map the map whose keys are to be retained
+     * @throws ClassCastException if a key of the specified map cannot be
+     *         compared with the keys currently in this map
+     * @throws NullPointerException if the specified map is null
+     * @since 11
+     */
+    public void intersection(Map<?,?> map) {
+        mergeAll(map.entrySet(), map.keySet(), hasSameOrdering(map),
+                 INTERSECTION, null, null);
+    }
+
+    /**
+     * Removes the mappings of this map whose keys are also keys of the
+     * specified map.  If the specified map is a {@link SortedMap} with the
+     * same ordering as this map, and not much smaller than it, the
+     * remaining mappings are collected in order and the tree is rebuilt,
+     * in time linear in the sum of the sizes of the maps.
+     *
+     * @param  map the map whose keys are to be removed
+     * @throws ClassCastException if a key of the specified map cannot be
+     *         compared with the keys currently in this map
+     * @throws NullPointerException if the specified map is null, or
+     *         contains a null key and this map does not permit null keys
+     * @since 11
+     */
+    public void difference(Map<?,?> map) {
+        mergeAll(map.entrySet(), map.keySet(), hasSameOrdering(map),
+                 DIFFERENCE, null, null);
+    }
+
+    /*
+     * Operations for mergeAll.
+     */
+    static final int UNION        = 0;
+    static final int MERGE        = 1;
+    static final int INTERSECTION = 2;
+    static final int DIFFERENCE   = 3;
+
+    /**
+     * Returns true if the given map is sorted by this map's comparator.
+     */
+    private boolean hasSameOrdering(Map<?,?> map) {
+        if (map instanceof SortedMap) {
+            Comparator<?> c = ((SortedMap<?,?>)map).comparator();
+            return c == comparator || (c != null && c.equals(comparator));
+        }
+        return false;
+    }
+
+    /**
+     * Applies one of the operations UNION, MERGE, INTERSECTION or
+     * DIFFERENCE to this map and the elements of c, which are
+     * Map.Entries, or keys if defaultVal is non-null, in which case this
+     * map backs a TreeSet and all values are defaultVal.  The collection
+     * keys holds the keys of the elements of c, for membership tests.
+     *
+     * If c is sorted by this map's comparator, the two are merged in
+     * order and the tree rebuilt by buildFromSorted, unless c is so
+     * small that lookups one key at a time are cheaper.  Otherwise
+     * INTERSECTION filters this map through keys.contains, and the
+     * other operations proceed one key at a time (DIFFERENCE filtering
+     * instead when c is large).
+     */
+    @SuppressWarnings("unchecked")
+    final void mergeAll(Collection<?> c, Collection<?> keys, boolean sorted,
+                        int op, BiFunction<? super V, ? super V, ? extends V> fn,
+                        V defaultVal) {
+        int otherSize = c.size();
+        boolean few = (long)otherSize * (32 - Integer.numberOfLeadingZeros(size)) < size;
+        if (sorted && !few) {
+            mergeLinear(c.iterator(), otherSize, op, fn, defaultVal);
+        } else if (op == INTERSECTION) {
+            Object[] kept;
+            int n = 0;
+            if (sorted) { // few: look them up, which finds them in order
+                kept = new Object[otherSize];
+                for (Object o : c) {
+                    Entry<K,V> e = getEntry((defaultVal != null) ? o :
+                                            ((Map.Entry<?,?>)o).getKey());
+                    if (e != null)
+                        kept[n++] = (defaultVal != null) ? e.key : e;
+                }
+            } else {
+                kept = new Object[size];
+                for (Entry<K,V> e = getFirstEntry(); e != null; e = successor(e))
+                    if (keys.contains(e.key))
+                        kept[n++] = (defaultVal != null) ? e.key : e;
+            }
+            if (n != size)
+                rebuild(kept, n, defaultVal);
+        } else if (op == DIFFERENCE && !sorted && !few) {
+            Object[] kept = new Object[size];
+            int n = 0;
+            for (Entry<K,V> e = getFirstEntry(); e != null; e = successor(e))
+                if (!keys.contains(e.key))
+                    kept[n++] = (defaultVal != null) ? e.key : e;
+            if (n != size)
+                rebuild(kept, n, defaultVal);
+        } else if (op == DIFFERENCE) {
+            for (Object k : keys)
+                remove(k);
+        } else {
+            for (Object o : c) {
+                K key;
+                V value;
+                if (defaultVal != null) {
+                    key = (K)o;
+                    value = defaultVal;
+                } else {
+                    Map.Entry<?,?> entry = (Map.Entry<?,?>)o;
+                    key = (K)entry.getKey();
+                    value = (V)entry.getValue();
+                }
+                Entry<K,V> p;
+                if (op == UNION || (p = getEntry(key)) == null)
+                    put(key, value);
+                else if ((value = fn.apply(p.value, value)) != null)
+                    p.setValue(value);
+                else
+                    deleteEntry(p);
+            }
+        }
+    }
+
+    /**
+     * The linear-time case of mergeAll: walks this map and the elements
+     * from it side by side, collecting the result in order, and rebuilds
+     * the tree from it if any mapping was added or removed.  Values of
+     * keys present in both maps are updated in place.
+     */
+    @SuppressWarnings("unchecked")
+    private void mergeLinear(Iterator<?> it, int otherSize, int op,
+                             BiFunction<? super V, ? super V, ? extends V> fn,
+                             V defaultVal) {
+        boolean keepOurs = (op != INTERSECTION);
+        boolean keepTheirs = (op == UNION || op == MERGE);
+        Object[] merged = new Object[keepTheirs ? size + otherSize : size];
+        int n = 0;
+        boolean changed = false;
+        Entry<K,V> e = getFirstEntry();
+        boolean more = it.hasNext();
+        Object o = more ? it.next() : null;
+        while (e != null && more) {
+            int cmp = compare(e.key, (defaultVal != null) ? o :
+                              ((Map.Entry<?,?>)o).getKey());
+            if (cmp < 0) {
+                if (keepOurs)
+                    merged[n++] = (defaultVal != null) ? e.key : e;
+                else
+                    changed = true;
+                e = successor(e);
+                continue;
+            }
+            if (cmp > 0) {
+                if (keepTheirs) {
+                    merged[n++] = o;
+                    changed = true;
+                }
+            } else {
+                if (op == DIFFERENCE) {
+                    changed = true;
+                } else if (defaultVal != null) {
+                    merged[n++] = e.key;
+                } else if (op == MERGE) {
+                    V v = fn.apply(e.value, (V)((Map.Entry<?,?>)o).getValue());
+                    if (v != null) {
+                        e.setValue(v);
+                        merged[n++] = e;
+                    } else
+                        changed = true;
+                } else {
+                    if (op == UNION)
+                        e.setValue((V)((Map.Entry<?,?>)o).getValue());
+                    merged[n++] = e;
+                }
+                e = successor(e);
+            }
+            o = (more = it.hasNext()) ? it.next() : null;
+        }
+        for (; e != null; e = successor(e)) {
+            if (keepOurs)
+                merged[n++] = (defaultVal != null) ? e.key : e;
+            else
+                changed = true;
+        }
+        for (; more && keepTheirs; o = (more = it.hasNext()) ? it.next() : null) {
+            merged[n++] = o;
+            changed = true;
+        }
+        if (changed)
+            rebuild(merged, n, defaultVal);
+    }
+
+    /**
+     * Replaces the contents of this map with the first n of the given
+     * entries, or keys if defaultVal is non-null, which are in order.
+     */
+    private void rebuild(Object[] items, int n, V defaultVal) {
+        ++modCount;
+        try {
+            buildFromSorted(n, Arrays.asList(items).iterator(), null, defaultVal);
+        } catch (java.io.IOException | ClassNotFoundException cannotHappen) {
+        }
+    }
+
+    // Cursors
+
+    /**
+     * A reusable position in a {@code TreeMap}, for sequences of accesses
+     * that each fall near the previous one.  A cursor is either positioned
+     * at a mapping of its map or unpositioned, as it is when first
+     * created.  Seeking from a positioned cursor searches outward from its
+     * current mapping rather than down from the root of the tree, so it
+     * takes time logarithmic in the distance travelled rather than in the
+     * size of the map, and stepping to an adjacent mapping takes constant
+     * amortized time.  A cursor allocates nothing as it moves.
+     *
+     * <p>A cursor is fail-fast in the manner of the map's iterators: if
+     * the map is structurally modified other than through the cursor's own
+     * {@code remove} method, its next attempt to step, read or update the
+     * current mapping throws {@link ConcurrentModificationException}.  The
+     * {@code seek} methods never throw it; they resynchronize the cursor
+     * with the map, searching from the root, so that a cursor may be kept
+     * and reused across modifications of its map.
+     *
+     * @param <K> the type of keys maintained by the map
+     * @param <V> the type of mapped values
+     * @see TreeMap#cursor()
+     * @since 11
+     */
+    public interface Cursor<K,V> {
+        /**
+         * Positions this cursor at the mapping for the given key.  If the
+         * map contains no mapping for the key, the cursor is left
+         * unpositioned.
+         *
+         * @param key the key to seek
+         * @return {@code true} if the map contains a mapping for the key
+         * @throws ClassCastException if the specified key cannot be compared
+         *         with the keys currently in the map
+         * @throws NullPointerException if the specified key is null
+         *         and the map uses natural ordering, or its comparator
+         *         does not permit null keys
+         */
+        boolean seek(K key);
+
+        /**
+         * Positions this cursor at the mapping for the least key greater
+         * than or equal to the given key.  If there is no such key, the
+         * cursor is left unpositioned.
+         *
+         * @param key the key to seek
+         * @return {@code true} if this cursor is now positioned
+         * @throws ClassCastException if the specified key cannot be compared
+         *         with the keys currently in the map
+         * @throws NullPointerException if the specified key is null
+         *         and the map uses natural ordering, or its comparator
+         *         does not permit null keys
+         */
+        boolean seekCeiling(K key);
+
+        /**
+         * Positions this cursor at the mapping for the greatest key less
+         * than or equal to the given key.  If there is no such key, the
+         * cursor is left unpositioned.
+         *
+         * @param key the key to seek
+         * @return {@code true} if this cursor is now positioned
+         * @throws ClassCastException if the specified key cannot be compared
+         *         with the keys currently in the map
+         * @throws NullPointerException if the specified key is null
+         *         and the map uses natural ordering, or its comparator
+         *         does not permit null keys
+         */
+        boolean seekFloor(K key);
+
+        /**
+         * Positions this cursor at the first mapping of the map, or leaves
+         * it unpositioned if the map is empty.
+         *
+         * @return {@code true} if this cursor is now positioned
+         */
+        boolean seekFirst();
+
+        /**
+         * Positions this cursor at the last mapping of the map, or leaves
+         * it unpositioned if the map is empty.
+         *
+         * @return {@code true} if this cursor is now positioned
+         */
+        boolean seekLast();
+
+        /**
+         * Moves this cursor to the following mapping.  If the current
+         * mapping is the last, the cursor is left unpositioned.
+         *
+         * @return {@code true} if this cursor is now positioned
+         * @throws IllegalStateException if this cursor is not positioned
+         * @throws ConcurrentModificationException if the map has been
+         *         structurally modified since this cursor was positioned
+         */
+        boolean next();
+
+        /**
+         * Moves this cursor to the preceding mapping.  If the current
+         * mapping is the first, the cursor is left unpositioned.
+         *
+         * @return {@code true} if this cursor is now positioned
+         * @throws IllegalStateException if this cursor is not positioned
+         * @throws ConcurrentModificationException if the map has been
+         *         structurally modified since this cursor was positioned
+         */
+        boolean prev();
+
+        /**
+         * Returns whether this cursor is positioned at a mapping.  A cursor
+         * whose map has been structurally modified since it was positioned
+         * is not.
+         *
+         * @return {@code true} if this cursor is positioned
+         */
+        boolean isPositioned();
+
+        /**
+         * Returns the key of the current mapping.
+         *
+         * @return the key of the current mapping
+         * @throws IllegalStateException if this cursor is not positioned
+         * @throws ConcurrentModificationException if the map has been
+         *         structurally modified since this cursor was positioned
+         */
+        K getKey();
+
+        /**
+         * Returns the value of the current mapping.
+         *
+         * @return the value of the current mapping
+         * @throws IllegalStateException if this cursor is not positioned
+         * @throws ConcurrentModificationException if the map has been
+         *         structurally modified since this cursor was positioned
+         */
+        V getValue();
+
+        /**
+         * Replaces the value of the current mapping, writing through to the
+         * map.  This is not a structural modification.
+         *
+         * @param value the new value
+         * @return the previous value of the current mapping
+         * @throws IllegalStateException if this cursor is not positioned
+         * @throws ConcurrentModificationException if the map has been
+         *         structurally modified since this cursor was positioned
+         */
+        V setValue(V value);
+
+        /**
+         * Removes the current mapping from the map, and moves this cursor
+         * to the following mapping.  If the removed mapping was the last,
+         * the cursor is left unpositioned.
+         *
+         * @return {@code true} if this cursor is now positioned
+         * @throws IllegalStateException if this cursor is not positioned
+         * @throws ConcurrentModificationException if the map has been
+         *         structurally modified since this cursor was positioned
+         */
+        boolean remove();
+    }
+
+    /**
+     * Returns a new, unpositioned cursor over this map.
+     *
+     * @return a new cursor over this map
+     * @since 11
+     */
+    public Cursor<K,V> cursor() {
+        return new EntryCursor();
+    }
+
+    /*
+     * Relations for relativeEntry.
+     */
+    private static final int EXACT   = 0;
+    private static final int CEILING = 1;
+    private static final int FLOOR   = 2;
+
+    /**
+     * Returns the entry for key, or the ceiling or floor entry of key,
+     * according to rel, searching outward from the entry from, or from
+     * the root if from is null.  The search climbs from from to its
+     * nearest ancestor whose subtree must hold key, and descends from
+     * there, so its cost depends on the distance from from to key.
+     */
+    final Entry<K,V> relativeEntry(Entry<K,V> from, Object key, int rel) {
+        Entry<K,V> t = root, lo = null, hi = null;
+        if (from != null) {
+            int cmp = compare(key, from.key);
+            if (cmp == 0)
+                return from;
+            Entry<K,V> q = from;
+            if (cmp > 0) {
+                // Climb while key lies beyond the right of q's subtree
+                lo = q;
+                for (Entry<K,V> a; (a = q.parent) != null; q = a) {
+                    if (q == a.left) {
+                        int c = compare(key, a.key);
+                        if (c < 0) {
+                            hi = a;
+                            break;
+                        } else if (c == 0)
+                            return a;
+                        lo = a;
+                    }
+                }
+                t = q.right;
+            } else {
+                // Climb while key lies beyond the left of q's subtree
+                hi = q;
+                for (Entry<K,V> a; (a = q.parent) != null; q = a) {
+                    if (q == a.right) {
+                        int c = compare(key, a.key);
+                        if (c > 0) {
+                            lo = a;
+                            break;
+                        } else if (c == 0)
+                            return a;
+                        hi = a;
+                    }
+                }
+                t = q.left;
+            }
+        }
+        while (t != null) {
+            int cmp = compare(key, t.key);
+            if (cmp < 0) {
+                hi = t;
+                t = t.left;
+            } else if (cmp > 0) {
+                lo = t;
+                t = t.right;
+            } else
+                return t;
+        }
+        return (rel == CEILING) ? hi : (rel == FLOOR) ? lo : null;
+    }
+
+    final class EntryCursor implements Cursor<K,V> {
+        Entry<K,V> current;
+        int expectedModCount;
+
+        EntryCursor() {
+            expectedModCount = modCount;
+        }
+
+        /**
+         * Moves to the entry sought, from the current entry if it is
+         * still in the map.
+         */
+        private boolean seek(Object key, int rel) {
+            Entry<K,V> from = (modCount == expectedModCount) ? current : null;
+            if (from == null && root == null)
+                compare(key, key); // type (and possibly null) check
+            return moveTo(relativeEntry(from, key, rel));
+        }
+
+        private boolean moveTo(Entry<K,V> e) {
+            current = e;
+            expectedModCount = modCount;
+            return e != null;
+        }
+
+        /**
+         * Returns the current entry, checking that there is one.
+         */
+        private Entry<K,V> current() {
+            Entry<K,V> e = current;
+            if (e == null)
+                throw new IllegalStateException();
+            if (modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+            return e;
+        }
+
+        public boolean seek(K key) {
+            return seek(key, EXACT);
+        }
+
+        public boolean seekCeiling(K key) {
+            return seek(key, CEILING);
+        }
+
+        public boolean seekFloor(K key) {
+            return seek(key, FLOOR);
+        }
+
+        public boolean seekFirst() {
+            return moveTo(getFirstEntry());
+        }
+
+        public boolean seekLast() {
+            return moveTo(getLastEntry());
+        }
+
+        public boolean next() {
+            return (current = successor(current())) != null;
+        }
+
+        public boolean prev() {
+            return (current = predecessor(current())) != null;
+        }
+
+        public boolean isPositioned() {
+            return current != null && modCount == expectedModCount;
+        }
+
+        public K getKey() {
+            return current().key;
+        }
+
+        public V getValue() {
+            return current().value;
+        }
+
+        public V setValue(V value) {
+            return current().setValue(value);
+        }
+
+        public boolean remove() {
+            Entry<K,V> e = current();
+            // deleted entries are replaced by their successors
+            Entry<K,V> s = (e.left != null && e.right != null) ? e : successor(e);
+            deleteEntry(e);
+            return moveTo(s);
+        }
+    }
+
+    // Augmentation
+
+    /**
+     * A summary of the mappings of a {@code TreeMap}, maintained in every
+     * node of an augmented map for the subtree rooted there, so that the
+     * map can combine the mappings of any key range in log(n) time.  An
+     * augmentation is a monoid: {@link #combine combine} must be
+     * associative, and {@link #identity identity} must be its identity
+     * element; {@code combine} need not be commutative, as summaries are
+     * always combined in key order.  For example, the sum of the values of
+     * a {@code TreeMap<String,Long>} is kept by
+     *
+     * <pre> {@code
+     * new TreeMap.Augmentation<String,Long,Long>() {
+     *     public Long identity() { return 0L; }
+     *     public Long summarize(String key, Long value) { return value; }
+     *     public Long combine(Long left, Long right) { return left + right; }
+     * }}</pre>
+     *
+     * <p>The methods of an augmentation are called while the map is being
+     * modified, and must not access the map.
+     *
+     * @param <K> the type of keys maintained by the map
+     * @param <V> the type of mapped values
+     * @param <A> the type of summaries
+     * @see TreeMap#TreeMap(Comparator, TreeMap.Augmentation)
+     * @since 11
+     */
+    public interface Augmentation<K,V,A> {
+        /**
+         * Returns the summary of no mappings.
+         *
+         * @return the identity element of {@code combine}
+         */
+        A identity();
+
+        /**
+         * Returns the summary of a single mapping.
+         *
+         * @param key the key of the mapping
+         * @param value the value of the mapping
+         * @return the summary of the mapping
+         */
+        A summarize(K key, V value);
+
+        /**
+         * Returns the summary of two adjacent runs of mappings, given the
+         * summaries of each.
+         *
+         * @param left the summary of the mappings with lesser keys
+         * @param right the summary of the mappings with greater keys
+         * @return the summary of both runs together
+         */
+        A combine(A left, A right);
+    }
+
+    /**
+     * Returns a new, empty interval map, ordered according to the given
+     * comparator.  Each mapping of an interval map stands for the closed
+     * interval from its key to the end given by {@code endOf} for its
+     * value, and the map maintains the greatest end in each subtree, so
+     * that {@link #firstOverlapping firstOverlapping} and {@link
+     * #overlapping overlapping} need not scan the map.  The ends are
+     * ordered by the same comparator as the keys, and must not be null.
+     * The {@link #summary} of an interval map is the greatest end of any of
+     * its intervals, or {@code null} if it is empty.
+     *
+     * @param <K> the type of keys, and interval ends, maintained by the map
+     * @param <V> the type of mapped values
+     * @param comparator the comparator that will be used to order this map.
+     *        If {@code null}, the {@linkplain Comparable natural
+     *        ordering} of the keys will be used.
+     * @param endOf the function giving the end of the interval of a value
+     * @return a new, empty interval map
+     * @throws NullPointerException if {@code endOf} is null
+     * @since 11
+     */
+    public static <K,V> TreeMap<K,V> intervalMap(Comparator<? super K> comparator,
+                                                 Function<? super V, ? extends K> endOf) {
+        return new TreeMap<>(comparator, new MaxEnd<K,V>(comparator, endOf));
+    }
+
+    /**
+     * The augmentation of interval maps.
+     */
+    static final class MaxEnd<K,V> implements Augmentation<K,V,K>, Serializable {
+        private static final long serialVersionUID = -2853041734907145367L;
+
+        /** @serial */
+        final Comparator<? super K> comparator;
+        /** @serial */
+        final Function<? super V, ? extends K> endOf;
+
+        MaxEnd(Comparator<? super K> comparator,
+               Function<? super V, ? extends K> endOf) {
+            this.comparator = comparator;
+            this.endOf = Objects.requireNonNull(endOf);
+        }
+
+        public K identity() {
+            return null;
+        }
+
+        public K summarize(K key, V value) {
+            return Objects.requireNonNull(endOf.apply(value));
+        }
+
+        @SuppressWarnings("unchecked")
+        public K combine(K left, K right) {
+            if (left == null)
+                return right;
+            if (right == null)
+                return left;
+            int cmp = (comparator == null)
+                ? ((Comparable<? super K>)left).compareTo(right)
+                : comparator.compare(left, right);
+            return (cmp >= 0) ? left : right;
+        }
+    }
+
+    /**
+     * Returns the summary of all of the mappings of this map, as maintained
+     * by its augmentation.  This takes constant time.
+     *
+     * @param <A> the type of summaries of the map's augmentation
+     * @return the summary of this map
+     * @throws UnsupportedOperationException if this map is not augmented
+     * @since 11
+     */
+    @SuppressWarnings("unchecked")
+    public <A> A summary() {
+        Augmentation<Object,Object,Object> aug = augmentation();
+        return (A) (root == null ? aug.identity() : summaryOf(root));
+    }
+
+    /**
+     * Returns the summary of the mappings of this map whose keys range
+     * from {@code fromKey} to {@code toKey}, as maintained by its
+     * augmentation; that is, the summary of {@code subMap(fromKey,
+     * fromInclusive, toKey, toInclusive)}.  This takes log(n) time.
+     *
+     * @param <A> the type of summaries of the map's augmentation
+     * @param fromKey low endpoint of the keys to summarize
+     * @param fromInclusive {@code true} if the low endpoint
+     *        is to be included
+     * @param toKey high endpoint of the keys to summarize
+     * @param toInclusive {@code true} if the high endpoint
+     *        is to be included
+     * @return the summary of the mappings in the range
+     * @throws UnsupportedOperationException if this map is not augmented
+     * @throws ClassCastException if {@code fromKey} and {@code toKey}
+     *         cannot be compared to one another or to the keys in the map
+     * @throws NullPointerException if {@code fromKey} or {@code toKey} is
+     *         null and this map uses natural ordering, or its comparator
+     *         does not permit null keys
+     * @throws IllegalArgumentException if {@code fromKey} is greater than
+     *         {@code toKey}
+     * @since 11
+     */
+    @SuppressWarnings("unchecked")
+    public <A> A queryRange(K fromKey, boolean fromInclusive,
+                            K toKey,   boolean toInclusive) {
+        Augmentation<Object,Object,Object> aug = augmentation();
+        if (compare(fromKey, toKey) > 0)
+            throw new IllegalArgumentException("fromKey > toKey");
+
+        // Find the highest node in the range, which splits it in two
+        Entry<K,V> t = root;
+        while (t != null) {
+            if (tooLow(t.key, fromKey, fromInclusive))
+                t = t.right;
+            else if (tooHigh(t.key, toKey, toInclusive))
+                t = t.left;
+            else
+                break;
+        }
+        if (t == null)
+            return (A) aug.identity();
+
+        // Gather the part of the range below t, from the top down
+        Object below = aug.identity();
+        for (Entry<K,V> x = t.left; x != null; ) {
+            if (tooLow(x.key, fromKey, fromInclusive))
+                x = x.right;
+            else {
+                Object s = aug.summarize(x.key, x.value);
+                if (x.right != null)
+                    s = aug.combine(s, summaryOf(x.right));
+                below = aug.combine(s, below);
+                x = x.left;
+            }
+        }
+
+        // And the part above it
+        Object above = aug.identity();
+        for (Entry<K,V> x = t.right; x != null; ) {
+            if (tooHigh(x.key, toKey, toInclusive))
+                x = x.left;
+            else {
+                Object s = aug.summarize(x.key, x.value);
+                if (x.left != null)
+                    s = aug.combine(summaryOf(x.left), s);
+                above = aug.combine(above, s);
+                x = x.right;
+            }
+        }
+        return (A) aug.combine(aug.combine(below, aug.summarize(t.key, t.value)),
+                               above);
+    }
+
+    /**
+     * Returns the summary of the mappings of this map whose keys range
+     * from {@code fromKey}, inclusive, to {@code toKey}, exclusive, as
+     * maintained by its augmentation.  This takes log(n) time.
+     *
+     * <p>Equivalent to {@code queryRange(fromKey, true, toKey, false)}.
+     *
+     * @param <A> the type of summaries of the map's augmentation
+     * @param fromKey low endpoint (inclusive) of the keys to summarize
+     * @param toKey high endpoint (exclusive) of the keys to summarize
+     * @return the summary of the mappings in the range
+     * @throws UnsupportedOperationException if this map is not augmented
+     * @throws ClassCastException if {@code fromKey} and {@code toKey}
+     *         cannot be compared to one another or to the keys in the map
+     * @throws NullPointerException if {@code fromKey} or {@code toKey} is
+     *         null and this map uses natural ordering, or its comparator
+     *         does not permit null keys
+     * @throws IllegalArgumentException if {@code fromKey} is greater than
+     *         {@code toKey}
+     * @since 11
+     */
+    public <A> A queryRange(K fromKey, K toKey) {
+        return queryRange(fromKey, true, toKey, false);
+    }
+
+    /**
+     * Returns a key-value mapping associated with the least key whose
+     * interval overlaps the closed interval from {@code from} to
+     * {@code to}, or {@code null} if there is none.  This takes log(n)
+     * time.
+     *
+     * @param from the low end of the interval
+     * @param to the high end of the interval
+     * @return the first mapping whose interval overlaps the given one,
+     *         or {@code null} if there is none
+     * @throws UnsupportedOperationException if this map was not created
+     *         by {@link #intervalMap intervalMap}
+     * @throws ClassCastException if {@code from} or {@code to} cannot be
+     *         compared with the keys currently in the map
+     * @throws NullPointerException if {@code from} or {@code to} is null
+     *         and this map uses natural ordering, or its comparator
+     *         does not permit null keys
+     * @since 11
+     */
+    public Map.Entry<K,V> firstOverlapping(K from, K to) {
+        Function<? super V, ?> endOf = endOf();
+        Entry<K,V> t = root;
+        while (t != null) {
+            // An overlap in the left subtree, if there is one, comes first;
+            // if there is none, t and all that follow begin after to.
+            if (t.left != null && compare(summaryOf(t.left), from) >= 0)
+                t = t.left;
+            else if (compare(t.key, to) > 0)
+                return null;
+            else if (compare(endOf.apply(t.value), from) >= 0)
+                return exportEntry(t);
+            else
+                t = t.right;
+        }
+        return null;
+    }
+
+    /**
+     * Returns the key-value mappings whose intervals overlap the closed
+     * interval from {@code from} to {@code to}, in ascending key order.
+     * This takes log(n) time for each mapping found.
+     *
+     * @param from the low end of the interval
+     * @param to the high end of the interval
+     * @return a new list of the mappings whose intervals overlap the given
+     *         one
+     * @throws UnsupportedOperationException if this map was not created
+     *         by {@link #intervalMap intervalMap}
+     * @throws ClassCastException if {@code from} or {@code to} cannot be
+     *         compared with the keys currently in the map
+     * @throws NullPointerException if {@code from} or {@code to} is null
+     *         and this map uses natural ordering, or its comparator
+     *         does not permit null keys
+     * @since 11
+     */
+    public List<Map.Entry<K,V>> overlapping(K from, K to) {
+        Function<? super V, ?> endOf = endOf();
+        List<Map.Entry<K,V>> result = new ArrayList<>();
+        compare(from, to); // type (and possibly null) check
+        addOverlapping(root, from, to, endOf, result);
+        return result;
+    }
+
+    private void addOverlapping(Entry<K,V> t, Object from, Object to,
+                                Function<? super V, ?> endOf,
+                                List<Map.Entry<K,V>> result) {
+        // Subtrees ending before from hold no overlaps; iterate rightward
+        for (; t != null && compare(summaryOf(t), from) >= 0; t = t.right) {
+            addOverlapping(t.left, from, to, endOf, result);
+            if (compare(t.key, to) > 0)
+                return;
+            if (compare(endOf.apply(t.value), from) >= 0)
+                result.add(exportEntry(t));
+        }
+    }
+
+    private Augmentation<Object,Object,Object> augmentation() {
+        Augmentation<Object,Object,Object> aug = augmentation;
+        if (aug == null)
+            throw new UnsupportedOperationException("not augmented");
+        return aug;
+    }
+
+    private Function<? super V, ?> endOf() {
+        if (!(augmentation instanceof MaxEnd))
+            throw new UnsupportedOperationException("not an interval map");
+        @SuppressWarnings("unchecked")
+        MaxEnd<K,V> maxEnd = (MaxEnd<K,V>) (MaxEnd<?,?>) augmentation;
+        return maxEnd.endOf;
+    }
+
+    private boolean tooLow(Object key, Object lo, boolean loInclusive) {
+        int c = compare(key, lo);
+        return c < 0 || (c == 0 && !loInclusive);
+    }
+
+    private boolean tooHigh(Object key, Object hi, boolean hiInclusive) {
+        int c = compare(key, hi);
+        return c > 0 || (c == 0 && !hiInclusive);
+    }
+
     // Views
 
     /**
@@ -977,7 +2101,7 @@ public class TreeMap<K,V>
     public boolean replace(K key, V oldValue, V newValue) {
         Entry<K,V> p = getEntry(key);
         if (p!=null && Objects.equals(oldValue, p.value)) {
-            p.value = newValue;
+            p.setValue(newValue);
             return true;
         }
         return false;
@@ -986,11 +2110,8 @@ public class TreeMap<K,V>
     @Override
     public V replace(K key, V value) {
         Entry<K,V> p = getEntry(key);
-        if (p!=null) {
-            V oldValue = p.value;
-            p.value = value;
-            return oldValue;
-        }
+        if (p!=null)
+            return p.setValue(value);
         return null;
     }
 
@@ -1012,12 +2133,18 @@ public class TreeMap<K,V>
         Objects.requireNonNull(function);
         int expectedModCount = modCount;
 
-        for (Entry<K, V> e = getFirstEntry(); e != null; e = successor(e)) {
-            e.value = function.apply(e.key, e.value);
+        try {
+            for (Entry<K, V> e = getFirstEntry(); e != null; e = successor(e)) {
+                e.value = function.apply(e.key, e.value);
 
-            if (expectedModCount != modCount) {
-                throw new ConcurrentModificationException();
+                if (expectedModCount != modCount) {
+                    throw new ConcurrentModificationException();
+                }
             }
+        } finally {
+            // Summarize the new values in one pass rather than one per value
+            if (augmentation != null)
+                updateAllSummaries(root);
         }
     }
 
@@ -1625,6 +2752,11 @@ public class TreeMap<K,V>
             public int size() {
                 if (fromStart && toEnd)
                     return m.size();
+                if (m.orderStatistics) {
+                    int below = fromStart ? 0 : m.countBelow(lo, !loInclusive);
+                    int upTo = toEnd ? m.size() : m.countBelow(hi, hiInclusive);
+                    return Math.max(0, upTo - below);
+                }
                 if (size == -1 || sizeModCount != m.modCount) {
                     sizeModCount = m.modCount;
                     size = 0;
@@ -2047,7 +3179,7 @@ public class TreeMap<K,V>
      * user (see Map.Entry).
      */
 
-    static final class Entry<K,V> implements Map.Entry<K,V> {
+    static class Entry<K,V> implements Map.Entry<K,V> {
         K key;
         V value;
         Entry<K,V> left;
@@ -2055,6 +3187,13 @@ public class TreeMap<K,V>
         Entry<K,V> parent;
         boolean color = BLACK;
 
+        /**
+         * The number of entries in the subtree rooted here, maintained
+         * only in order-statistic mode.  It fits in what would otherwise
+         * be alignment padding.
+         */
+        int count = 1;
+
         /**
          * Make a new cell with given key, value, and parent, and with
          * {@code null} child links, and BLACK color.
@@ -2115,6 +3254,36 @@ public class TreeMap<K,V>
         }
     }
 
+    /**
+     * Node in an augmented Tree.  Keeps the summary of its subtree, and
+     * the augmentation to recompute it with when its value is set.
+     */
+    static final class AugmentedEntry<K,V> extends Entry<K,V> {
+        Object summary;
+        final Augmentation<Object,Object,Object> augmentation;
+
+        AugmentedEntry(K key, V value, Entry<K,V> parent,
+                       Augmentation<Object,Object,Object> augmentation) {
+            super(key, value, parent);
+            this.augmentation = augmentation;
+            this.summary = augmentation.summarize(key, value);
+        }
+
+        public V setValue(V value) {
+            V oldValue = super.setValue(value);
+            updateSummaries(this);
+            return oldValue;
+        }
+    }
+
+    /**
+     * Makes a new Entry of the kind this map uses.
+     */
+    private Entry<K,V> newEntry(K key, V value, Entry<K,V> parent) {
+        return (augmentation == null) ? new Entry<>(key, value, parent)
+            : new AugmentedEntry<>(key, value, parent, augmentation);
+    }
+
     /**
      * Returns the first Entry in the TreeMap (according to the TreeMap's
      * key-sort function).  Returns null if the TreeMap is empty.
@@ -2214,6 +3383,48 @@ public class TreeMap<K,V>
         return (p == null) ? null: p.right;
     }
 
+    private static <K,V> int countOf(Entry<K,V> p) {
+        return (p == null) ? 0 : p.count;
+    }
+
+    private static <K,V> Object summaryOf(Entry<K,V> p) {
+        return ((AugmentedEntry<K,V>)p).summary;
+    }
+
+    /**
+     * Recomputes the summary of augmented entry p from those of its
+     * children.
+     */
+    private static <K,V> void updateSummary(Entry<K,V> p) {
+        AugmentedEntry<K,V> a = (AugmentedEntry<K,V>)p;
+        Augmentation<Object,Object,Object> aug = a.augmentation;
+        Object s = aug.summarize(p.key, p.value);
+        if (p.left != null)
+            s = aug.combine(summaryOf(p.left), s);
+        if (p.right != null)
+            s = aug.combine(s, summaryOf(p.right));
+        a.summary = s;
+    }
+
+    /**
+     * Recomputes the summaries of augmented entry p and its ancestors.
+     */
+    private static <K,V> void updateSummaries(Entry<K,V> p) {
+        for (; p != null; p = p.parent)
+            updateSummary(p);
+    }
+
+    /**
+     * Recomputes the summaries of the whole subtree rooted at p.
+     */
+    private static <K,V> void updateAllSummaries(Entry<K,V> p) {
+        if (p != null) {
+            updateAllSummaries(p.left);
+            updateAllSummaries(p.right);
+            updateSummary(p);
+        }
+    }
+
     /** From CLR */
     private void rotateLeft(Entry<K,V> p) {
         if (p != null) {
@@ -2230,6 +3441,14 @@ public class TreeMap<K,V>
                 p.parent.right = r;
             r.left = p;
             p.parent = r;
+            if (orderStatistics) {
+                r.count = p.count;
+                p.count = countOf(p.left) + countOf(p.right) + 1;
+            }
+            if (augmentation != null) {
+                ((AugmentedEntry<K,V>)r).summary = summaryOf(p);
+                updateSummary(p);
+            }
         }
     }
 
@@ -2247,6 +3466,14 @@ public class TreeMap<K,V>
             else p.parent.left = l;
             l.right = p;
             p.parent = l;
+            if (orderStatistics) {
+                l.count = p.count;
+                p.count = countOf(p.left) + countOf(p.right) + 1;
+            }
+            if (augmentation != null) {
+                ((AugmentedEntry<K,V>)l).summary = summaryOf(p);
+                updateSummary(p);
+            }
         }
     }
 
@@ -2308,6 +3535,11 @@ public class TreeMap<K,V>
             p = s;
         } // p has 2 children
 
+        // p is about to be unlinked; discount it from its ancestors
+        if (orderStatistics)
+            for (Entry<K,V> q = p.parent; q != null; q = q.parent)
+                q.count--;
+
         // Start fixup at replacement node, if it exists.
         Entry<K,V> replacement = (p.left != null ? p.left : p.right);
 
@@ -2324,12 +3556,20 @@ public class TreeMap<K,V>
             // Null out links so they are OK to use by fixAfterDeletion.
             p.left = p.right = p.parent = null;
 
+            if (augmentation != null)
+                updateSummaries(replacement.parent);
+
             // Fix replacement
             if (p.color == BLACK)
                 fixAfterDeletion(replacement);
         } else if (p.parent == null) { // return if we are the only node.
             root = null;
         } else { //  No children. Use self as phantom replacement and unlink.
+            p.count = 0; // the phantom must not be counted by rotations
+            if (augmentation != null) {
+                ((AugmentedEntry<K,V>)p).summary = augmentation.identity();
+                updateSummaries(p.parent);
+            }
             if (p.color == BLACK)
                 fixAfterDeletion(p);
 
@@ -2563,7 +3803,9 @@ public class TreeMap<K,V>
             value = (defaultVal != null ? defaultVal : (V) str.readObject());
         }
 
-        Entry<K,V> middle =  new Entry<>(key, value, null);
+        Entry<K,V> middle =  newEntry(key, value, null);
+        if (orderStatistics)
+            middle.count = hi - lo + 1;
 
         // color nodes in non-full bottommost level red
         if (level == redLevel)
@@ -2581,6 +3823,9 @@ public class TreeMap<K,V>
             right.parent = middle;
         }
 
+        if (augmentation != null)
+            updateSummary(middle);
+
         return middle;
     }
 
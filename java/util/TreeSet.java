@@ -312,6 +312,92 @@ public class TreeSet<E> extends AbstractSet<E>
         return super.addAll(c);
     }
 
+    /**
+     * Adds all of the elements in the specified collection to this set.
+     * If the collection is a {@link SortedSet} with the same ordering as
+     * this set, and not much smaller than it, the two are merged in order
+     * and the tree is rebuilt, in time linear in the sum of their sizes,
+     * even if this set is not empty.
+     *
+     * @param c collection containing elements to be added to this set
+     * @return {@code true} if this set changed as a result of the call
+     * @throws ClassCastException if the elements provided cannot be compared
+     *         with the elements currently in the set
+     * @throws NullPointerException if the specified collection is null or
+     *         if any element is null and this set uses natural ordering, or
+     *         its comparator does not permit null elements
+     * @since 11
+     */
+    public boolean union(Collection<? extends E> c) {
+        return mergeAll(c, TreeMap.UNION);
+    }
+
+    /**
+     * Retains only the elements in this set that are contained in the
+     * specified collection.  The surviving elements are collected in order
+     * and the tree is rebuilt, in time linear in the sum of the sizes of
+     * the two if the collection is a {@link SortedSet} with the same
+     * ordering as this set, and otherwise linear in the size of this set
+     * times the cost of the collection's {@code contains}.
+     *
+     * @param c collection containing elements to be retained in this set
+     * @return {@code true} if this set changed as a result of the call
+     * @throws ClassCastException if the elements provided cannot be compared
+     *         with the elements currently in the set
+     * @throws NullPointerException if the specified collection is null
+     * @since 11
+     */
+    public boolean intersection(Collection<?> c) {
+        return mergeAll(c, TreeMap.INTERSECTION);
+    }
+
+    /**
+     * Removes from this set all of the elements that are contained in the
+     * specified collection.  If the collection is a {@link SortedSet} with
+     * the same ordering as this set, and not much smaller than it, the
+     * remaining elements are collected in order and the tree is rebuilt,
+     * in time linear in the sum of the sizes of the two.
+     *
+     * @param c collection containing elements to be removed from this set
+     * @return {@code true} if this set changed as a result of the call
+     * @throws ClassCastException if the elements provided cannot be compared
+     *         with the elements currently in the set
+     * @throws NullPointerException if the specified collection is null or
+     *         if any element is null and this set uses natural ordering, or
+     *         its comparator does not permit null elements
+     * @since 11
+     */
+    public boolean difference(Collection<?> c) {
+        return mergeAll(c, TreeMap.DIFFERENCE);
+    }
+
+    /**
+     * Applies one of TreeMap's merge operations to the backing map, or
+     * falls back to the AbstractCollection bulk operations if this set is
+     * a view of a range of another.
+     */
+    @SuppressWarnings("unchecked")
+    private boolean mergeAll(Collection<?> c, int op) {
+        Objects.requireNonNull(c);
+        if (m instanceof TreeMap) {
+            TreeMap<E,Object> map = (TreeMap<E, Object>) m;
+            boolean sorted = false;
+            if (c instanceof SortedSet) {
+                Comparator<?> cc = ((SortedSet<?>)c).comparator();
+                Comparator<? super E> mc = map.comparator();
+                sorted = (cc==mc || (cc != null && cc.equals(mc)));
+            }
+            int oldSize = map.size();
+            map.mergeAll(c, c, sorted, op, null, PRESENT);
+            return map.size() != oldSize;
+        }
+        switch (op) {
+            case TreeMap.UNION:        return addAll((Collection<? extends E>)c);
+            case TreeMap.INTERSECTION: return retainAll(c);
+            default:                   return removeAll(c);
+        }
+    }
+
     /**
      * @throws ClassCastException {@inheritDoc}
      * @throws NullPointerException if {@code fromElement} or {@code toElement}
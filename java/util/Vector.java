@@ -29,6 +29,7 @@ import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.StreamCorruptedException;
 import java.util.function.Consumer;
+import java.util.function.IntObjConsumer;
 import java.util.function.Predicate;
 import java.util.function.UnaryOperator;
 
@@ -1389,6 +1390,60 @@ public class Vector<E>
             throw new ConcurrentModificationException();
     }
 
+    /**
+     * Performs the given action for each element of this Vector, in
+     * order, passing the index of the element along with it, as by
+     * {@link ArrayList#forEachIndexed ArrayList.forEachIndexed}.  The
+     * Vector is locked for the duration of the operation.
+     *
+     * @param action the action to be performed for each element
+     * @throws NullPointerException if the specified action is null
+     * @throws ConcurrentModificationException if the Vector is found to
+     *         have been structurally modified during the operation
+     * @since 11
+     */
+    public synchronized void forEachIndexed(IntObjConsumer<? super E> action) {
+        Objects.requireNonNull(action);
+        final int expectedModCount = modCount;
+        final Object[] es = elementData;
+        final int size = elementCount;
+        for (int i = 0; modCount == expectedModCount && i < size; i++)
+            action.accept(i, elementAt(es, i));
+        if (modCount != expectedModCount)
+            throw new ConcurrentModificationException();
+    }
+
+    /**
+     * Removes from this Vector the elements whose index is between
+     * {@code fromIndex}, inclusive, and {@code toIndex}, exclusive, and
+     * stores them, in order, in the specified array starting at index 0,
+     * as by {@link ArrayList#drainTo ArrayList.drainTo}.  The elements
+     * are copied out and removed atomically with respect to other
+     * operations on this Vector.
+     *
+     * @param dst the array into which the elements are to be stored
+     * @param fromIndex index of the first element to be removed
+     * @param toIndex index after the last element to be removed
+     * @throws IndexOutOfBoundsException if {@code fromIndex < 0} or
+     *         {@code toIndex > size()}, or if {@code dst} is shorter
+     *         than {@code toIndex - fromIndex}
+     * @throws IllegalArgumentException if {@code fromIndex > toIndex}
+     * @throws ArrayStoreException if the runtime type of {@code dst} is
+     *         not a supertype of the runtime type of every element
+     *         removed, in which case this Vector is not modified
+     * @throws NullPointerException if the specified array is null
+     * @since 11
+     */
+    public synchronized void drainTo(E[] dst, int fromIndex, int toIndex) {
+        subListRangeCheck(fromIndex, toIndex, elementCount);
+        final int n = toIndex - fromIndex;
+        Objects.checkFromIndexSize(0, n, dst.length);
+        final Object[] es = elementData;
+        System.arraycopy(es, fromIndex, dst, 0, n);
+        modCount++;
+        shiftTailOverGap(es, fromIndex, toIndex);
+    }
+
     /**
      * @throws NullPointerException {@inheritDoc}
      */
@@ -1415,6 +1470,138 @@ public class Vector<E>
         modCount++;
     }
 
+    /*
+     * Parallel bulk operations, as in ArrayList.  The vector stays
+     * locked while the tasks run, so the functions supplied must not
+     * call its methods, as their javadoc warns: the tasks run in
+     * other threads, which would block on the lock.
+     */
+
+    /**
+     * Sorts this vector according to the order induced by the specified
+     * {@link Comparator}, as by {@link #sort(Comparator)}, but possibly in
+     * parallel, as by {@link ArrayList#parallelSort ArrayList.parallelSort}.
+     *
+     * <p>This vector stays locked while the operation runs, but the
+     * comparator is applied in worker threads of the common {@link
+     * java.util.concurrent.ForkJoinPool ForkJoinPool}, which cannot
+     * acquire the lock.  Unlike that of the sequential method, the
+     * comparator must therefore not call any method of this vector, not
+     * even one that only reads it, such as {@code contains}: the
+     * operation would deadlock.
+     *
+     * @param parallelismThreshold the (estimated) number of elements
+     *        needed for this operation to be executed in parallel
+     * @param c the {@code Comparator} used to compare vector elements.
+     *          A {@code null} value indicates that the elements'
+     *          {@linkplain Comparable natural ordering} should be used
+     * @throws ClassCastException if the vector contains elements that are
+     *         not <i>mutually comparable</i> using the specified comparator
+     * @throws IllegalArgumentException if the comparator is found to
+     *         violate the {@link Comparator} contract
+     * @throws ConcurrentModificationException if the vector is found to
+     *         have been structurally modified during the operation
+     * @since 11
+     */
+    @SuppressWarnings("unchecked")
+    public synchronized void parallelSort(long parallelismThreshold,
+                                          Comparator<? super E> c) {
+        final int size = elementCount;
+        if (ArraysParallelBulkHelpers.bulkGrain(size, parallelismThreshold) >= size) {
+            sort(c);
+            return;
+        }
+        final int expectedModCount = modCount;
+        Arrays.parallelSort((E[]) elementData, 0, size, c);
+        if (modCount != expectedModCount)
+            throw new ConcurrentModificationException();
+        modCount++;
+    }
+
+    /**
+     * Replaces each element of this vector with the result of applying the
+     * operator to that element, as by {@link #replaceAll(UnaryOperator)},
+     * but possibly in parallel and so in no particular order.
+     *
+     * <p>This vector stays locked while the operation runs, but the
+     * operator is applied in worker threads of the common {@link
+     * java.util.concurrent.ForkJoinPool ForkJoinPool}, which cannot
+     * acquire the lock.  Unlike that of the sequential method, the
+     * operator must therefore not call any method of this vector, not
+     * even one that only reads it, such as {@code contains}: the
+     * operation would deadlock.
+     *
+     * @param parallelismThreshold the (estimated) number of elements
+     *        needed for this operation to be executed in parallel
+     * @param operator the operator to apply to each element
+     * @throws NullPointerException if the operator is null
+     * @throws ConcurrentModificationException if the vector is found to
+     *         have been structurally modified during the operation
+     * @since 11
+     */
+    public synchronized void parallelReplaceAll(long parallelismThreshold,
+                                                UnaryOperator<E> operator) {
+        Objects.requireNonNull(operator);
+        final int size = elementCount;
+        final int grain = ArraysParallelBulkHelpers.bulkGrain(size, parallelismThreshold);
+        if (grain >= size) {
+            replaceAll(operator);
+            return;
+        }
+        final int expectedModCount = modCount;
+        ArraysParallelBulkHelpers.replaceAll(elementData, 0, size, grain, operator);
+        if (modCount != expectedModCount)
+            throw new ConcurrentModificationException();
+        modCount++;
+    }
+
+    /**
+     * Removes all of the elements of this vector that satisfy the given
+     * predicate, as by {@link #removeIf(Predicate)}, but possibly testing
+     * the elements in parallel and so in no particular order, as by
+     * {@link ArrayList#parallelRemoveIf ArrayList.parallelRemoveIf}.
+     *
+     * <p>This vector stays locked while the operation runs, but the
+     * predicate is applied in worker threads of the common {@link
+     * java.util.concurrent.ForkJoinPool ForkJoinPool}, which cannot
+     * acquire the lock.  Unlike that of the sequential method, the
+     * predicate must therefore not call any method of this vector, not
+     * even one that only reads it, such as {@code contains}: the
+     * operation would deadlock.
+     *
+     * @param parallelismThreshold the (estimated) number of elements
+     *        needed for this operation to be executed in parallel
+     * @param filter a predicate which returns {@code true} for elements to be
+     *        removed
+     * @return {@code true} if any elements were removed
+     * @throws NullPointerException if the specified filter is null
+     * @throws ConcurrentModificationException if the vector is found to
+     *         have been structurally modified during the operation
+     * @since 11
+     */
+    public synchronized boolean parallelRemoveIf(long parallelismThreshold,
+                                                 Predicate<? super E> filter) {
+        Objects.requireNonNull(filter);
+        final int end = elementCount;
+        final int grain = ArraysParallelBulkHelpers.bulkGrain(end, parallelismThreshold);
+        if (grain >= end)
+            return bulkRemove(filter);
+        final int expectedModCount = modCount;
+        final Object[] es = elementData;
+        final long[] deathRow = nBits(end);
+        final int[] removed =
+            ArraysParallelBulkHelpers.mark(es, 0, end, grain, filter, deathRow);
+        if (modCount != expectedModCount)
+            throw new ConcurrentModificationException();
+        if (removed == null)
+            return false;
+        modCount++;
+        int w = ArraysParallelBulkHelpers.compact(es, 0, end, grain, deathRow, removed);
+        for (int i = elementCount = w; i < end; i++)
+            es[i] = null;
+        return true;
+    }
+
     /**
      * Creates a <em><a href="Spliterator.html#binding">late-binding</a></em>
      * and <em>fail-fast</em> {@link Spliterator} over the elements in this